@@ -23,6 +23,7 @@ public final class CharArrayWrapper
     private int length;
     private int offset;
     private int hashcode;
+    private boolean hasHashcode;
 
     public CharArrayWrapper()
     {
@@ -34,6 +35,7 @@ public final class CharArrayWrapper
         this.offset = other.offset;
         this.length = other.length;
         this.hashcode = other.hashcode;
+        this.hasHashcode = other.hasHashcode;
     }
 
     public CharArrayWrapper(final String string)
@@ -52,7 +54,17 @@ public final class CharArrayWrapper
         this.values = value;
         this.offset = offset;
         this.length = length;
-        hashcode = CodecUtil.hashCode(values, offset, length);
+        hasHashcode = false;
+    }
+
+    /**
+     * Pack the wrapped chars into a long, see {@link CodecUtil#packAscii(char[], int, int)}.
+     *
+     * @return the packed chars or {@link CodecUtil#MISSING_LONG} if they don't fit into a long.
+     */
+    public long packAscii()
+    {
+        return CodecUtil.packAscii(values, offset, length);
     }
 
     public boolean equals(final Object o)
@@ -79,6 +91,13 @@ public final class CharArrayWrapper
 
     public int hashCode()
     {
+        // Computed lazily as enum decoders look values up without hashing them.
+        if (!hasHashcode)
+        {
+            hashcode = CodecUtil.hashCode(values, offset, length);
+            hasHashcode = true;
+        }
+
         return hashcode;
     }
 }
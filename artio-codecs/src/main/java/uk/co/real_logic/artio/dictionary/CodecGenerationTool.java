@@ -149,6 +149,9 @@ public final class CodecGenerationTool
     {
         System.err.println("Usage: CodecGenerationTool </path/to/output-directory> " +
             "<[/path/to/fixt-xml/dictionary;]/path/to/xml/dictionary>");
+        System.err.println("Set -Dfix.codecs.flyweight=true to also generate flyweight decoders, which only record " +
+            "the position of each field when decoding and parse its value when it is first read, into the " +
+            DECODER_FLYWEIGHT_PACKAGE + " package.");
         System.exit(-1);
     }
 }
@@ -177,6 +177,29 @@ public final class CodecUtil
         return result;
     }
 
+    // Packs up to 8 ascii chars into a long, one byte per char, so that they can be compared and hashed as a single
+    // value. Returns MISSING_LONG, which no packed value can be equal to, if the chars don't fit.
+    public static long packAscii(final char[] value, final int offset, final int length)
+    {
+        if (length > Long.BYTES)
+        {
+            return MISSING_LONG;
+        }
+
+        long packed = 0;
+        for (int i = 0; i < length; i++)
+        {
+            final char character = value[offset + i];
+            if (character == 0 || character > 0x7F)
+            {
+                return MISSING_LONG;
+            }
+            packed |= ((long)character) << (i * Byte.SIZE);
+        }
+
+        return packed;
+    }
+
     private static final char[] WHITESPACE = "                                                         ".toCharArray();
 
     public static void indent(final StringBuilder builder, final int level)
@@ -213,4 +236,36 @@ public final class CodecUtil
             builder.append((char)buffer.getByte(i));
         }
     }
+
+    // Bitsets used by generated decoders to track the fields that they have seen, indexed by each field's slot.
+
+    // returns true if the bit wasn't already set
+    public static boolean setBit(final long[] bits, final int index)
+    {
+        final int word = index >> 6;
+        final long mask = 1L << index;
+        final long value = bits[word];
+        bits[word] = value | mask;
+        return (value & mask) == 0;
+    }
+
+    public static void clearBit(final long[] bits, final int index)
+    {
+        bits[index >> 6] &= ~(1L << index);
+    }
+
+    // returns -1 if no bits are set
+    public static int firstSetBit(final long[] bits)
+    {
+        for (int word = 0; word < bits.length; word++)
+        {
+            final long value = bits[word];
+            if (value != 0)
+            {
+                return (word << 6) + Long.numberOfTrailingZeros(value);
+            }
+        }
+
+        return -1;
+    }
 }
@@ -28,6 +28,7 @@ import uk.co.real_logic.artio.fields.*;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.*;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import static java.util.Collections.emptySet;
@@ -62,6 +63,8 @@ public class DecoderGenerator extends Generator
         "UserRequestDecoder"));
 
     public static final String REQUIRED_FIELDS = "REQUIRED_FIELDS";
+    private static final String REQUIRED_FIELD_SLOTS = "REQUIRED_FIELD_SLOTS";
+    private static final String TAG_HASH_KEYS = "TAG_HASH_KEYS";
     private static final String GROUP_FIELDS = "GROUP_FIELDS";
 
     // Has to be generated everytime since HeaderDecoder and TrailerDecoder are generated.
@@ -101,6 +104,8 @@ public class DecoderGenerator extends Generator
     }
 
     private Aggregate currentAggregate = null;
+    // The hash of the aggregate being generated, null if its tags are dispatched and validated by tag number.
+    private PerfectHash tagHash = null;
 
     private final int initialBufferSize;
 
@@ -176,7 +181,9 @@ public class DecoderGenerator extends Generator
         final Writer out) throws IOException
     {
         final Aggregate parentAggregate = currentAggregate;
+        final PerfectHash parentTagHash = tagHash;
         currentAggregate = aggregate;
+        tagHash = PerfectHash.of(decodedTags(aggregate.entries()).distinct().toArray());
 
         final boolean isMessage = type == MESSAGE;
         final boolean isGroup = type == GROUP;
@@ -218,6 +225,7 @@ public class DecoderGenerator extends Generator
         out.append(appendTo(aggregate, isMessage));
         out.append("}\n");
         currentAggregate = parentAggregate;
+        tagHash = parentTagHash;
     }
 
     private List<Field> compileAllFieldsFor(final Message message)
@@ -323,10 +331,13 @@ public class DecoderGenerator extends Generator
             "        {\n" +
             "            invalidTagId = Decoder.NO_ERROR;\n" +
             "            rejectReason = Decoder.NO_ERROR;\n" +
-            "            missingRequiredFields.clear();\n" +
+            (tagHash == null ?
+                "            missingRequiredFields.clear();\n" :
+                "            Arrays.fill(missingRequiredFieldSlots, 0L);\n") +
             (isGroup ? "" :
                 "            unknownFields.clear();\n" +
-                "            alreadyVisitedFields.clear();\n") +
+                "            alreadyVisitedFields.clear();\n" +
+                (tagHash == null ? "" : "            Arrays.fill(visitedFieldSlots, 0L);\n")) +
             "        }\n";
     }
 
@@ -387,7 +398,7 @@ public class DecoderGenerator extends Generator
             (isGroup ? "" :
             "    private final IntHashSet alreadyVisitedFields = new IntHashSet(%5$d);\n\n" +
             "    private final IntHashSet unknownFields = new IntHashSet(10);\n\n") +
-            "    private final IntHashSet missingRequiredFields = new IntHashSet(%1$d);\n\n" +
+            "%6$s" +
             "    private int invalidTagId = Decoder.NO_ERROR;\n\n" +
             "    public int invalidTagId()\n" +
             "    {\n" +
@@ -405,12 +416,18 @@ public class DecoderGenerator extends Generator
             "        {\n" +
             "            return false;\n" +
             "        }\n" +
-            "        final IntIterator missingFieldsIterator = missingRequiredFields.iterator();\n" +
+            (tagHash == null ?
+            "        final IntIterator missingFieldsIterator = missingRequiredFields.iterator();\n" :
+            "        final int missingFieldSlot = firstSetBit(missingRequiredFieldSlots);\n") +
             (isMessage ? "        final IntIterator unknownFieldsIterator = unknownFields.iterator();\n" : "") +
             "%2$s" +
+            (tagHash == null ?
             "        if (missingFieldsIterator.hasNext())\n" +
             "        {\n" +
-            "            invalidTagId = missingFieldsIterator.nextValue();\n" +
+            "            invalidTagId = missingFieldsIterator.nextValue();\n" :
+            "        if (missingFieldSlot >= 0)\n" +
+            "        {\n" +
+            "            invalidTagId = " + hashedArrayName(isGroup, TAG_HASH_KEYS) + "[missingFieldSlot];\n") +
             "            rejectReason = " + REQUIRED_TAG_MISSING + ";\n" +
             "            return false;\n" +
             "        }\n" +
@@ -422,7 +439,8 @@ public class DecoderGenerator extends Generator
             messageValidation,
             enumValidation,
             groupValidation,
-            2 * aggregate.allFieldsIncludingComponents().count()));
+            2 * aggregate.allFieldsIncludingComponents().count(),
+            validationState(isGroup, requiredFields)));
     }
 
     private String generateFieldDictionary(final Collection<Field> fields, final String name,
@@ -730,9 +748,11 @@ public class DecoderGenerator extends Generator
                 "    {\n" +
                 "        return next;\n" +
                 "    }\n\n" +
-                "    private IntHashSet seenFields = new IntHashSet(%2$d);\n\n",
+                "    private IntHashSet seenFields = new IntHashSet(%2$d);\n\n" +
+                "%3$s",
                 decoderClassName(aggregate),
-                sizeHashSet(aggregate.entries())));
+                sizeHashSet(aggregate.entries()),
+                tagHash == null ? "" : "    private final long[] seenFieldSlots = new long[" + slotWords() + "];\n\n"));
         }
     }
 
@@ -933,8 +953,12 @@ public class DecoderGenerator extends Generator
             optionalCheck,
             extraStringDecode) : "";
 
+        final String decodedFlag = isLazilyDecoded(type) ?
+            String.format("    private boolean %1$sDecoded;\n\n", fieldName) : "";
+        final String dataView = type.isDataBased() ? dataView(field, fieldName, optionalCheck) : "";
         final String offsetField = type.hasOffsetField(flyweightsEnabled) ?
-            String.format("    private int %1$sOffset;\n\n%2$s", fieldName, lengthBasedFields) : "";
+            String.format("    private int %1$sOffset;\n\n%2$s%3$s%4$s",
+            fieldName, decodedFlag, lengthBasedFields, dataView) : "";
 
         final String enumValueDecoder = String.format(
             type.isStringBased() ?
@@ -988,6 +1012,20 @@ public class DecoderGenerator extends Generator
             flyweightsEnabled ? lazyInitialisation : "");
     }
 
+    // Data is read through a view over the decoded buffer, rather than copied out of it
+    private static String dataView(final Field field, final String fieldName, final String optionalCheck)
+    {
+        return String.format(
+            "    public void %1$s(final AsciiSequenceView view)\n" +
+            "    {\n" +
+            "%2$s" +
+            "        view.wrap(buffer, %1$sOffset, %3$s());\n" +
+            "    }\n\n",
+            fieldName,
+            optionalCheck,
+            formatPropertyName(field.associatedLengthField().name()));
+    }
+
     private String generateAsStringBody(final Entry entry, final String name, final String fieldName)
     {
         final String asStringBody;
@@ -1041,7 +1079,7 @@ public class DecoderGenerator extends Generator
             case EXCHANGE:
             case COUNTRY:
             case LANGUAGE:
-                decodeMethod = String.format("buffer.getChars(%1$s, %1$sOffset, %1$sLength);\n", fieldName);
+                decodeMethod = String.format("buffer.getChars(%1$s, %1$sOffset, %1$sLength)", fieldName);
                 break;
 
             case DATA:
@@ -1054,9 +1092,10 @@ public class DecoderGenerator extends Generator
                 }
                 final String associatedFieldName = formatPropertyName(associatedLengthField.name());
                 return String.format(
-                    "        if (buffer != null && %2$s > 0)\n" +
+                    "        if (!%1$sDecoded && buffer != null && %2$s > 0)\n" +
                     "        {\n" +
                     "            %1$s = buffer.getBytes(%1$s, %1$sOffset, %2$s);\n" +
+                    "            %1$sDecoded = true;\n" +
                     "        }\n",
                     fieldName,
                     associatedFieldName);
@@ -1079,9 +1118,10 @@ public class DecoderGenerator extends Generator
         }
 
         return String.format(
-            "        if (buffer != null && %1$sLength > 0)\n" +
+            "        if (!%1$sDecoded && buffer != null && %1$sLength > 0)\n" +
             "        {\n" +
             "            %1$s = %2$s;\n" +
+            "            %1$sDecoded = true;\n" +
             "        }\n",
             fieldName,
             decodeMethod);
@@ -1226,6 +1266,7 @@ public class DecoderGenerator extends Generator
         final boolean isHeader = type == HEADER;
         final String endGroupCheck = endGroupCheck(aggregate, isGroup);
         final String prefix =
+            tagHashFields(isGroup) +
             "    private AsciiBuffer buffer;\n\n" +
             "    public int decode(final AsciiBuffer buffer, final int offset, final int length)\n" +
             "    {\n" +
@@ -1233,14 +1274,13 @@ public class DecoderGenerator extends Generator
             "        int seenFieldCount = 0;\n" +
             "        if (" + CODEC_VALIDATION_ENABLED + ")\n" +
             "        {\n" +
-            "            missingRequiredFields.copy(" + REQUIRED_FIELDS + ");\n" +
-            (isGroup ? "" : "            alreadyVisitedFields.clear();\n") +
+            resetDecodeValidation(isGroup) +
             "        }\n" +
             "        this.buffer = buffer;\n" +
             "        final int end = offset + length;\n" +
             "        int position = offset;\n" +
             (hasCommonCompounds ? "        position += header.decode(buffer, position, length);\n" : "") +
-            (isGroup ? "        seenFields.clear();\n" : "") +
+            (isGroup ? resetSeenFields() : "") +
             "        int tag;\n\n" +
             "        while (position < end)\n" +
             "        {\n" +
@@ -1250,6 +1290,7 @@ public class DecoderGenerator extends Generator
             "               return position;\n" +
             "            }\n" +
             "            tag = buffer.getInt(position, equalsPosition);\n" +
+            fieldSlotLookup(isGroup) +
             endGroupCheck +
             "            final int valueOffset = equalsPosition + 1;\n" +
             "            int endOfField = buffer.scan(valueOffset, end, START_OF_HEADER);\n" +
@@ -1269,16 +1310,16 @@ public class DecoderGenerator extends Generator
             "                }\n" +
             headerValidation(isHeader) +
             (isGroup ? "" :
-            "                if (!alreadyVisitedFields.add(tag))\n" +
+            "                if (" + visitField("alreadyVisitedFields", "visitedFieldSlots") + ")\n" +
             "                {\n" +
             "                    invalidTagId = tag;\n" +
             "                    rejectReason = " + TAG_APPEARS_MORE_THAN_ONCE + ";\n" +
             "                }\n") +
 
-            "                missingRequiredFields.remove(tag);\n" +
+            removeMissingRequiredField() +
             "                seenFieldCount++;\n" +
             "            }\n" +
-            "            switch (tag)\n" +
+            tagDispatch() +
             "            {\n\n";
         final String body = entries.stream()
             .map(this::decodeEntry)
@@ -1359,7 +1400,7 @@ public class DecoderGenerator extends Generator
         if (isGroup)
         {
             endGroupCheck = String.format(
-                "            if (!seenFields.add(tag))\n" +
+                "            if (" + visitField("seenFields", "seenFieldSlots") + ")\n" +
                 "            {\n" +
                 "                if (next == null)\n" +
                 "                {\n" +
@@ -1399,6 +1440,156 @@ public class DecoderGenerator extends Generator
             "";
     }
 
+    private static LongStream decodedTags(final List<Entry> entries)
+    {
+        return entries.stream().flatMapToLong((entry) -> entry.matchEntry(
+            (e) -> LongStream.of(((Field)e.element()).number()),
+            (e) -> LongStream.of(((Field)((Group)e.element()).numberField().element()).number()),
+            (e) -> decodedTags(((Component)e.element()).entries())));
+    }
+
+    // Tags are sparse, so rather than a switch over them, which compiles into a binary search, they are
+    // perfectly hashed onto a dense table of slots which compiles into a jump table.
+    private String tagHashFields(final boolean isGroup)
+    {
+        if (tagHash == null)
+        {
+            return "";
+        }
+
+        final String keys = LongStream.of(tagHash.keys())
+            .mapToObj(String::valueOf)
+            .collect(joining(", "));
+
+        return String.format(
+            "    private static final long TAG_HASH_MULTIPLIER = %1$dL;\n" +
+            "    private static final int TAG_HASH_SHIFT = %2$d;\n" +
+            "    private %3$sfinal int[] %4$s = { %5$s };\n\n",
+            tagHash.multiplier(),
+            tagHash.shift(),
+            isGroup ? "" : "static ",
+            hashedArrayName(isGroup, TAG_HASH_KEYS),
+            keys);
+    }
+
+    // Groups are inner classes, which can't have static arrays, so they have their own copy.
+    private static String hashedArrayName(final boolean isGroup, final String name)
+    {
+        return isGroup ? formatPropertyName(toLowerCamelCase(name)) : name;
+    }
+
+    private static String toLowerCamelCase(final String constantName)
+    {
+        final StringBuilder name = new StringBuilder();
+        for (final String word : constantName.toLowerCase().split("_"))
+        {
+            name.append(name.length() == 0 ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+        }
+        return name.toString();
+    }
+
+    private int slotWords()
+    {
+        return (tagHash.keys().length + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    // Known fields are validated using bitsets indexed by their slot in the tag hash, falling back to the hash sets
+    // for unknown fields.
+    private String validationState(final boolean isGroup, final List<Field> requiredFields)
+    {
+        if (tagHash == null)
+        {
+            return String.format(
+                "    private final IntHashSet missingRequiredFields = new IntHashSet(%d);\n\n",
+                sizeHashSet(requiredFields));
+        }
+
+        final long[] requiredFieldSlots = new long[slotWords()];
+        for (final Field field : requiredFields)
+        {
+            final int slot = tagHash.slot(field.number());
+            requiredFieldSlots[slot >> 6] |= 1L << slot;
+        }
+        final String requiredSlots = LongStream.of(requiredFieldSlots)
+            .mapToObj((word) -> word + "L")
+            .collect(joining(", "));
+
+        return String.format(
+            "    private %1$sfinal long[] %2$s = { %3$s };\n\n" +
+            "    private final long[] missingRequiredFieldSlots = new long[%4$d];\n\n" +
+            (isGroup ? "" : "    private final long[] visitedFieldSlots = new long[%4$d];\n\n"),
+            isGroup ? "" : "static ",
+            hashedArrayName(isGroup, REQUIRED_FIELD_SLOTS),
+            requiredSlots,
+            slotWords());
+    }
+
+    private String resetDecodeValidation(final boolean isGroup)
+    {
+        if (tagHash == null)
+        {
+            return
+                "            missingRequiredFields.copy(" + REQUIRED_FIELDS + ");\n" +
+                (isGroup ? "" : "            alreadyVisitedFields.clear();\n");
+        }
+
+        return
+            "            System.arraycopy(" + hashedArrayName(isGroup, REQUIRED_FIELD_SLOTS) +
+            ", 0, missingRequiredFieldSlots, 0, missingRequiredFieldSlots.length);\n" +
+            (isGroup ? "" :
+            "            alreadyVisitedFields.clear();\n" +
+            "            Arrays.fill(visitedFieldSlots, 0L);\n");
+    }
+
+    private String resetSeenFields()
+    {
+        return "        seenFields.clear();\n" +
+            (tagHash == null ? "" : "        Arrays.fill(seenFieldSlots, 0L);\n");
+    }
+
+    // Evaluates to true if the field has already been visited, and marks it as visited otherwise
+    private String visitField(final String fieldSet, final String fieldSlots)
+    {
+        return tagHash == null ?
+            "!" + fieldSet + ".add(tag)" :
+            "fieldSlot >= 0 ? !setBit(" + fieldSlots + ", fieldSlot) : !" + fieldSet + ".add(tag)";
+    }
+
+    private String removeMissingRequiredField()
+    {
+        return tagHash == null ?
+            "                missingRequiredFields.remove(tag);\n" :
+            "                if (fieldSlot >= 0)\n" +
+            "                {\n" +
+            "                    clearBit(missingRequiredFieldSlots, fieldSlot);\n" +
+            "                }\n";
+    }
+
+    private String fieldSlotLookup(final boolean isGroup)
+    {
+        if (tagHash == null)
+        {
+            return "";
+        }
+
+        return
+            "            final int tagSlot = (int)((tag * TAG_HASH_MULTIPLIER) >>> TAG_HASH_SHIFT);\n" +
+            "            final int fieldSlot = " + hashedArrayName(isGroup, TAG_HASH_KEYS) +
+            "[tagSlot] == tag ? tagSlot : -1;\n";
+    }
+
+    private String tagDispatch()
+    {
+        return tagHash == null ? "            switch (tag)\n" : "            switch (fieldSlot)\n";
+    }
+
+    private String caseLabel(final Field field, final String name)
+    {
+        return tagHash == null ?
+            String.format("            case Constants.%s:\n", constantName(name)) :
+            String.format("            case %d: // Constants.%s\n", tagHash.slot(field.number()), constantName(name));
+    }
+
     private String decodeEntry(final Entry entry)
     {
         return entry.matchEntry(
@@ -1470,14 +1661,14 @@ public class DecoderGenerator extends Generator
         final String fieldName = formatPropertyName(name);
 
         return String.format(
-            "            case Constants.%s:\n" +
+            "%s" +
             "%s" +
             "%s" +
             "%s" +
             "%s" +
             "%s" +
             "                break;\n",
-            constantName(name),
+            caseLabel(field, name),
             optionalAssign(entry),
             fieldDecodeMethod(field, fieldName),
             storeOffsetForVariableLengthFields(field.type(), fieldName),
@@ -1494,11 +1685,21 @@ public class DecoderGenerator extends Generator
 
     private String storeOffsetForVariableLengthFields(final Type type, final String fieldName)
     {
+        final String invalidateDecodedValue = isLazilyDecoded(type) ?
+            String.format("                %sDecoded = false;\n", fieldName) :
+            "";
+
         return type.hasOffsetField(flyweightsEnabled) ?
-            String.format("                %sOffset = valueOffset;\n", fieldName) :
+            String.format("                %sOffset = valueOffset;\n%s", fieldName, invalidateDecodedValue) :
             "";
     }
 
+    // Flyweight getters parse their value from the buffer on the first call after each decode.
+    private boolean isLazilyDecoded(final Type type)
+    {
+        return flyweightsEnabled && type.hasOffsetField(true);
+    }
+
     private String optionalAssign(final Entry entry)
     {
         return entry.required() ? "" : String.format("                has%s = true;\n", entry.name());
@@ -16,7 +16,6 @@
 package uk.co.real_logic.artio.dictionary.generation;
 
 import org.agrona.LangUtil;
-import org.agrona.collections.IntHashSet;
 import org.agrona.generation.OutputManager;
 import uk.co.real_logic.artio.builder.CharRepresentable;
 import uk.co.real_logic.artio.builder.IntRepresentable;
@@ -33,6 +32,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.LongStream;
 
 import static java.lang.String.format;
 import static java.util.stream.Collectors.joining;
@@ -128,7 +128,6 @@ public final class EnumGenerator
                 out.append(fileHeader(builderPackage));
                 out.append(importFor(CharArrayMap.class));
                 out.append(importFor(CharArrayWrapper.class));
-                out.append(importFor(IntHashSet.class));
                 out.append(importFor(Map.class));
                 out.append(importFor(HashMap.class));
                 out.append(interfaceToImport);
@@ -231,28 +230,80 @@ public final class EnumGenerator
             case STRING:
                 return "    public static boolean isValid(final CharArrayWrapper key)\n" +
                        "    {\n" +
-                       "        return charMap.containsKey(key);\n" +
+                       (packedValueHash(allValues) == null ?
+                       "        return charMap.containsKey(key);\n" :
+                       "        return decode(key) != " + UNKNOWN_NAME + ";\n") +
                        "    }\n";
             default:
-                final String primitiveValues = allValues
-                    .stream()
-                    .map(value -> literal(value, type))
-                    .map((repr) -> String.format("        intSet.add(%1$s);\n", repr))
-                    .collect(joining());
-
-                return format(
-                    "    private static final IntHashSet intSet = new IntHashSet(%2$s);\n" +
-                    "    %1$s\n" +
-                    "\n" +
+                return
                     "    public static boolean isValid(final int representation)\n" +
                     "    {\n" +
-                    "        return intSet.contains(representation);\n" +
-                    "    }\n",
-                    optionalStaticInit(primitiveValues),
-                    ConstantGenerator.sizeHashSet(allValues));
+                    "        return decode(representation) != " + UNKNOWN_NAME + ";\n" +
+                    "    }\n";
         }
     }
 
+    // Values of up to 8 ascii chars are packed into a long and perfectly hashed onto a slot to switch over, so that
+    // decoding them doesn't need to hash or compare the chars of a CharArrayWrapper.
+    private static PerfectHash packedValueHash(final List<Value> allValues)
+    {
+        final long[] packedValues = new long[allValues.size()];
+        for (int i = 0; i < packedValues.length; i++)
+        {
+            final char[] representation = allValues.get(i).representation().toCharArray();
+            packedValues[i] = packAscii(representation, 0, representation.length);
+            if (packedValues[i] == MISSING_LONG)
+            {
+                return null;
+            }
+        }
+
+        return PerfectHash.of(packedValues);
+    }
+
+    private static String packedCharArrayDecode(
+        final String typeName, final List<Value> allValues, final PerfectHash packedValueHash)
+    {
+        final String packedValues = LongStream.of(packedValueHash.keys())
+            .mapToObj((packedValue) -> packedValue + "L")
+            .collect(joining(", "));
+
+        final String cases = allValues
+            .stream()
+            .map((value) ->
+            {
+                final char[] representation = value.representation().toCharArray();
+                final long packedValue = packAscii(representation, 0, representation.length);
+                return format(
+                    "        case %d: return %s;\n", packedValueHash.slot(packedValue), value.description());
+            })
+            .collect(joining());
+
+        return format(
+            "    private static final long PACKED_VALUE_HASH_MULTIPLIER = %2$dL;\n" +
+            "    private static final int PACKED_VALUE_HASH_SHIFT = %3$d;\n" +
+            "    private static final long[] PACKED_VALUES = { %4$s };\n" +
+            "\n" +
+            "    public static %1$s decode(final CharArrayWrapper key)\n" +
+            "    {\n" +
+            "        final long packedValue = key.packAscii();\n" +
+            "        final int slot = (int)\n" +
+            "            ((packedValue * PACKED_VALUE_HASH_MULTIPLIER) >>> PACKED_VALUE_HASH_SHIFT);\n" +
+            "        switch (PACKED_VALUES[slot] == packedValue ? slot : -1)\n" +
+            "        {\n" +
+            "%5$s" +
+            "        default:\n" +
+            "            return %6$s;\n" +
+            "        }\n" +
+            "    }\n",
+            typeName,
+            packedValueHash.multiplier(),
+            packedValueHash.shift(),
+            packedValues,
+            cases,
+            UNKNOWN_NAME);
+    }
+
     private String optionalCharArrayDecode(final String typeName, final List<Value> allValues, final Type type)
     {
         switch (type)
@@ -261,6 +312,11 @@ public final class EnumGenerator
             case MULTIPLEVALUESTRING:
             case MULTIPLESTRINGVALUE:
             case MULTIPLECHARVALUE:
+                final PerfectHash packedValueHash = packedValueHash(allValues);
+                if (packedValueHash != null)
+                {
+                    return packedCharArrayDecode(typeName, allValues, packedValueHash);
+                }
 
                 final String entries = allValues
                     .stream()
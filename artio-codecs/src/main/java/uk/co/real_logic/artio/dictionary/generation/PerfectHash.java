@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited., Monotonic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.dictionary.generation;
+
+import java.util.Arrays;
+
+/**
+ * A multiplicative perfect hash over a fixed set of keys, found at code generation time, so that generated code can
+ * map a key onto a small dense slot with a multiply and a shift and then {@code switch} over the slot. Slots that
+ * no key maps onto are filled with {@link #EMPTY_KEY} in {@link #keys()}, so generated code must check that the key
+ * at a slot is equal to the key being looked up before trusting it.
+ */
+final class PerfectHash
+{
+    static final long EMPTY_KEY = 0;
+
+    // Larger tables than this would bloat the static initialisers of the generated codecs.
+    private static final int MAX_BITS = 12;
+    private static final int ATTEMPTS_PER_SIZE = 1 << 14;
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private final long multiplier;
+    private final int shift;
+    private final long[] keys;
+
+    private PerfectHash(final long multiplier, final int bits, final long[] keys)
+    {
+        this.multiplier = multiplier;
+        this.shift = Long.SIZE - bits;
+        this.keys = keys;
+    }
+
+    /**
+     * Search for a perfect hash over the given keys, trying the smallest tables first.
+     *
+     * @param keys the distinct keys to hash.
+     * @return the perfect hash or null if no table of up to 2^MAX_BITS slots could be found.
+     */
+    static PerfectHash of(final long[] keys)
+    {
+        int bits = 1;
+        while ((1 << bits) < keys.length)
+        {
+            bits++;
+        }
+
+        long state = SEED;
+        for (; bits <= MAX_BITS; bits++)
+        {
+            final long[] table = new long[1 << bits];
+            final boolean[] occupied = new boolean[table.length];
+            for (int attempt = 0; attempt < ATTEMPTS_PER_SIZE; attempt++)
+            {
+                state += SEED;
+                final long multiplier = mix(state) | 1;
+                if (fill(keys, multiplier, Long.SIZE - bits, table, occupied))
+                {
+                    return new PerfectHash(multiplier, bits, table);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean fill(
+        final long[] keys, final long multiplier, final int shift, final long[] table, final boolean[] occupied)
+    {
+        Arrays.fill(table, EMPTY_KEY);
+        Arrays.fill(occupied, false);
+        for (final long key : keys)
+        {
+            final int slot = (int)((key * multiplier) >>> shift);
+            if (occupied[slot])
+            {
+                return false;
+            }
+            occupied[slot] = true;
+            table[slot] = key;
+        }
+
+        return true;
+    }
+
+    // SplitMix64 finaliser, spreads the bits of successive states into well distributed multipliers.
+    private static long mix(final long state)
+    {
+        long z = state;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    long multiplier()
+    {
+        return multiplier;
+    }
+
+    int shift()
+    {
+        return shift;
+    }
+
+    long[] keys()
+    {
+        return keys;
+    }
+
+    int slot(final long key)
+    {
+        return (int)((key * multiplier) >>> shift);
+    }
+}
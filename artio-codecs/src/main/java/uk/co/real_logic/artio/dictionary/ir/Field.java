@@ -202,7 +202,7 @@ public final class Field implements Element
 
         public boolean hasOffsetField(final boolean flyweightsEnabled)
         {
-            return hasLengthField(flyweightsEnabled) || (flyweightsEnabled && isDataBased());
+            return hasLengthField(flyweightsEnabled) || isDataBased();
         }
 
         public boolean hasLengthField(final boolean flyweightsEnabled)
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.util;
+
+import org.agrona.DirectBuffer;
+
+/**
+ * Sums a message a byte at a time.
+ */
+public final class ByteChecksumCalculator implements ChecksumCalculator
+{
+    public int computeChecksum(final DirectBuffer buffer, final int offset, final int end)
+    {
+        int total = 0;
+        for (int index = offset; index < end; index++)
+        {
+            total += buffer.getByte(index);
+        }
+
+        return total % 256;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.util;
+
+import org.agrona.DirectBuffer;
+import org.agrona.LangUtil;
+
+/**
+ * Computes the value of the FIX CheckSum (10) field: the sum of every byte in a message up to, and including, the
+ * separator before the CheckSum field, modulo 256.
+ *
+ * Implementations must be stateless as a single instance is shared by every encoder, the framer and the replayer.
+ */
+public interface ChecksumCalculator
+{
+    /**
+     * Set this system property to the class name of a {@link ChecksumCalculator} with a public no-args
+     * constructor in order to change how encoders and {@link MutableAsciiBuffer#computeChecksum(int, int)} compute
+     * checksums. Defaults to {@link ByteChecksumCalculator}.
+     */
+    String CHECKSUM_CALCULATOR_PROP = "fix.codecs.checksum_calculator";
+
+    static ChecksumCalculator byteAtATime()
+    {
+        return new ByteChecksumCalculator();
+    }
+
+    static ChecksumCalculator wordAtATime()
+    {
+        return new WordChecksumCalculator();
+    }
+
+    static ChecksumCalculator fromSystemProperty()
+    {
+        final String className = System.getProperty(CHECKSUM_CALCULATOR_PROP);
+        if (className == null)
+        {
+            return byteAtATime();
+        }
+
+        try
+        {
+            return (ChecksumCalculator)Class.forName(className).getConstructor().newInstance();
+        }
+        catch (final Exception e)
+        {
+            LangUtil.rethrowUnchecked(e);
+            throw new IllegalStateException();  // Never invoked
+        }
+    }
+
+    /**
+     * Compute the checksum of a region of a buffer.
+     *
+     * @param buffer the buffer containing the message.
+     * @param offset the offset within the buffer that the message starts at.
+     * @param end the offset within the buffer after the separator that precedes the CheckSum field.
+     * @return the checksum value, between 0 and 255 for US-ASCII messages.
+     */
+    int computeChecksum(DirectBuffer buffer, int offset, int end);
+}
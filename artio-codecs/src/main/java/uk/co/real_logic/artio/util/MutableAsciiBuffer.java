@@ -24,10 +24,30 @@ import uk.co.real_logic.artio.util.float_parsing.DecimalFloatParser;
 
 import java.nio.ByteBuffer;
 
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
 
 public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffer
 {
+    /**
+     * Set this system property to true in order to scan for terminators a long at a time rather than a byte at a
+     * time. Defaults to false.
+     */
+    public static final String WORD_SCAN_PROP = "fix.codecs.word_scan";
+    public static final boolean WORD_SCAN_ENABLED = Boolean.getBoolean(WORD_SCAN_PROP);
+
+    /**
+     * The checksum calculator used by {@link #computeChecksum(int, int)}, and thus by encoders.
+     *
+     * @see ChecksumCalculator#CHECKSUM_CALCULATOR_PROP
+     */
+    public static final ChecksumCalculator CHECKSUM_CALCULATOR = ChecksumCalculator.fromSystemProperty();
+
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
     private static final byte ZERO = '0';
     private static final byte DOT = (byte)'.';
 
@@ -199,16 +219,12 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
 
     public int scanBack(final int startInclusive, final int endExclusive, final byte terminator)
     {
-        for (int index = startInclusive; index >= endExclusive; index--)
+        if (WORD_SCAN_ENABLED)
         {
-            final byte value = getByte(index);
-            if (value == terminator)
-            {
-                return index;
-            }
+            return scanBackWords(startInclusive, endExclusive, terminator);
         }
 
-        return UNKNOWN_INDEX;
+        return scanBackBytes(startInclusive, endExclusive, terminator);
     }
 
     public int scan(final int startInclusive, final int endInclusive, final char terminatingCharacter)
@@ -217,6 +233,16 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
     }
 
     public int scan(final int startInclusive, final int endInclusive, final byte terminator)
+    {
+        if (WORD_SCAN_ENABLED)
+        {
+            return scanWords(startInclusive, endInclusive, terminator);
+        }
+
+        return scanBytes(startInclusive, endInclusive, terminator);
+    }
+
+    int scanBytes(final int startInclusive, final int endInclusive, final byte terminator)
     {
         int indexValue = UNKNOWN_INDEX;
         for (int i = startInclusive; i <= endInclusive; i++)
@@ -232,15 +258,77 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
         return indexValue;
     }
 
-    public int computeChecksum(final int offset, final int end)
+    int scanBackBytes(final int startInclusive, final int endExclusive, final byte terminator)
     {
-        int total = 0;
-        for (int index = offset; index < end; index++)
+        for (int index = startInclusive; index >= endExclusive; index--)
         {
-            total += getByte(index);
+            final byte value = getByte(index);
+            if (value == terminator)
+            {
+                return index;
+            }
         }
 
-        return total % 256;
+        return UNKNOWN_INDEX;
+    }
+
+    // Scans forwards a long at a time, using the SWAR (SIMD within a register) zero byte test on the xor of each
+    // word with the terminator. Words are read little endian so the lowest set bit corresponds to the first match.
+    // Any bytes that don't fill a whole word at the end of the range are scanned individually.
+    int scanWords(final int startInclusive, final int endInclusive, final byte terminator)
+    {
+        final long pattern = LOW_BITS * (terminator & 0xFF);
+        final int lastWordStart = Math.min(endInclusive, capacity() - 1) - (SIZE_OF_LONG - 1);
+
+        int i = startInclusive;
+        for (; i <= lastWordStart; i += SIZE_OF_LONG)
+        {
+            final long matches = firstZeroBytes(getLong(i, LITTLE_ENDIAN) ^ pattern);
+            if (matches != 0)
+            {
+                return i + (Long.numberOfTrailingZeros(matches) >>> 3);
+            }
+        }
+
+        return scanBytes(i, endInclusive, terminator);
+    }
+
+    // Scans backwards a long at a time, the exact zero byte test is used here because the highest match within a
+    // word is required.
+    int scanBackWords(final int startInclusive, final int endExclusive, final byte terminator)
+    {
+        final long pattern = LOW_BITS * (terminator & 0xFF);
+        final int firstWordEnd = Math.max(endExclusive, 0) + (SIZE_OF_LONG - 1);
+
+        int i = startInclusive;
+        for (; i >= firstWordEnd; i -= SIZE_OF_LONG)
+        {
+            final long matches = zeroBytes(getLong(i - (SIZE_OF_LONG - 1), LITTLE_ENDIAN) ^ pattern);
+            if (matches != 0)
+            {
+                return i - (Long.numberOfLeadingZeros(matches) >>> 3);
+            }
+        }
+
+        return scanBackBytes(i, endExclusive, terminator);
+    }
+
+    // Sets the high bit of the first zero byte, bytes above it may be false positives.
+    private static long firstZeroBytes(final long word)
+    {
+        return (word - LOW_BITS) & ~word & HIGH_BITS;
+    }
+
+    // Sets the high bit of exactly the zero bytes.
+    private static long zeroBytes(final long word)
+    {
+        final long lowSevenBits = (word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS;
+        return ~(lowSevenBits | word | LOW_SEVEN_BITS);
+    }
+
+    public int computeChecksum(final int offset, final int end)
+    {
+        return CHECKSUM_CALCULATOR.computeChecksum(this, offset, end);
     }
 
     public int putAscii(final int index, final String string)
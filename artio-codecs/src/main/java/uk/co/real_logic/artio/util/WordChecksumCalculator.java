@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.util;
+
+import org.agrona.DirectBuffer;
+
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+
+/**
+ * Sums a message a long at a time, adding the bytes of each word pairwise into four 16 bit lanes (SWAR - SIMD within
+ * a register). Gives identical results to {@link ByteChecksumCalculator}, including for bytes with the high bit set,
+ * but is considerably faster for larger messages such as mass quotes and market data snapshots.
+ */
+public final class WordChecksumCalculator implements ChecksumCalculator
+{
+    private static final long EVEN_BYTES = 0x00FF00FF00FF00FFL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_SHORTS = 0x0000FFFF0000FFFFL;
+    private static final long LOW_INT = 0xFFFFFFFFL;
+
+    // Each word adds at most 2 * 255 to a lane so this many words can be summed before a lane could overflow.
+    private static final int MAX_WORDS_PER_BLOCK = 0xFFFF / (2 * 0xFF);
+    private static final int MAX_BYTES_PER_BLOCK = MAX_WORDS_PER_BLOCK * SIZE_OF_LONG;
+
+    public int computeChecksum(final DirectBuffer buffer, final int offset, final int end)
+    {
+        long total = 0;
+        int highByteCount = 0;
+        int index = offset;
+
+        final int lastWordStart = end - SIZE_OF_LONG;
+        while (index <= lastWordStart)
+        {
+            final int lastBlockWordStart = Math.min(lastWordStart, index + MAX_BYTES_PER_BLOCK - SIZE_OF_LONG);
+            long lanes = 0;
+            for (; index <= lastBlockWordStart; index += SIZE_OF_LONG)
+            {
+                final long word = buffer.getLong(index);
+                lanes += (word & EVEN_BYTES) + ((word >>> 8) & EVEN_BYTES);
+                highByteCount += Long.bitCount(word & HIGH_BITS);
+            }
+
+            final long pairs = (lanes & LOW_SHORTS) + ((lanes >>> 16) & LOW_SHORTS);
+            total += (pairs & LOW_INT) + (pairs >>> 32);
+        }
+
+        // getByte() is signed, so bytes with the high bit set count 256 less than their unsigned value.
+        total -= 256L * highByteCount;
+
+        for (; index < end; index++)
+        {
+            total += buffer.getByte(index);
+        }
+
+        return (int)(total % 256);
+    }
+}
@@ -462,6 +462,20 @@ public abstract class AbstractDecoderGeneratorTest
         assertArrayEquals(AB, getOnBehalfOfCompId(decoder));
     }
 
+    @Test
+    public void shouldDecodeNumericFieldsOfLaterMessagesAfterReadingThem() throws Exception
+    {
+        final Decoder decoder = decodeHeartbeat(DERIVED_FIELDS_MESSAGE);
+
+        assertEquals(2, getIntField(decoder));
+        assertEquals(new DecimalFloat(11, 1), getFloatField(decoder));
+
+        decode(DERIVED_FIELDS_MESSAGE.replace("116=2", "116=3").replace("117=1.1", "117=2.5"), decoder);
+
+        assertEquals(3, getIntField(decoder));
+        assertEquals(new DecimalFloat(25, 1), getFloatField(decoder));
+    }
+
     @Test
     public void shouldDecodeRepeatingGroups() throws Exception
     {
@@ -591,6 +605,34 @@ public abstract class AbstractDecoderGeneratorTest
         assertEquals("Wrong reject reason", REQUIRED_TAG_MISSING, decoder.rejectReason());
     }
 
+    @Test
+    public void shouldValidateMissingRequiredFieldsAfterDecodingValidMessage() throws Exception
+    {
+        final Decoder decoder = decodeHeartbeat(DERIVED_FIELDS_MESSAGE);
+        assertTrue("Failed validation with all required fields", decoder.validate());
+
+        decoder.reset();
+        decode(MISSING_REQUIRED_FIELDS_MESSAGE, decoder);
+
+        assertFalse("Passed validation with missing fields", decoder.validate());
+        assertEquals("Wrong tag id", 116, decoder.invalidTagId());
+        assertEquals("Wrong reject reason", REQUIRED_TAG_MISSING, decoder.rejectReason());
+    }
+
+    @Test
+    public void shouldValidateTagsAppearingMoreThanOnceAfterDecodingValidMessage() throws Exception
+    {
+        final Decoder decoder = decodeHeartbeat(DERIVED_FIELDS_MESSAGE);
+        assertTrue("Failed validation with no repeated tags", decoder.validate());
+
+        decoder.reset();
+        decode(TAG_APPEARS_MORE_THAN_ONCE_MESSAGE, decoder);
+
+        assertFalse("Passed validation with repeated tags", decoder.validate());
+        assertEquals("Wrong tag id", 116, decoder.invalidTagId());
+        assertEquals("Wrong reject reason", TAG_APPEARS_MORE_THAN_ONCE, decoder.rejectReason());
+    }
+
     @Test
     public void shouldValidateMissingRequiredFieldsInGroupsInsideComponents() throws Exception
     {
@@ -880,6 +922,15 @@ public abstract class AbstractDecoderGeneratorTest
             "No value for optional field: TestReqID");
     }
 
+    @Test
+    public void shouldBeAbleToExtractDataAsAsciiSequenceViewFromDataFields() throws Exception
+    {
+        final Decoder decoder = decodeHeartbeat(SOH_IN_DATA_FIELD_MESSAGE);
+
+        final AsciiSequenceView actual = getAsciiSequenceView(decoder, DATA_FIELD);
+        assertEquals("a\001c", actual.toString());
+    }
+
     @Test
     public void shouldBeAbleToExtractEnumFromStringFields() throws Exception
     {
@@ -162,6 +162,27 @@ public class EnumGeneratorTest
         assertEquals(values[values.length - 1], decodeString.invoke(null, unknownRepresentation));
     }
 
+    @Test
+    public void shouldValidateCharArrayRepresentationsWithinLargerArrays() throws Exception
+    {
+        final Method isValid = stringEnumClass.getMethod("isValid", CharArrayWrapper.class);
+
+        final char[] data = {'A', 'A', 'A', '0'};
+        final CharArrayWrapper wrapper = new CharArrayWrapper();
+
+        wrapper.wrap(data, 3, 1);
+        assertEquals(true, isValid.invoke(null, wrapper));
+
+        wrapper.wrap(data, 1, 2);
+        assertEquals(true, isValid.invoke(null, wrapper));
+
+        wrapper.wrap(data, 0, 3);
+        assertEquals(false, isValid.invoke(null, wrapper));
+
+        wrapper.wrap(data, 2, 2);
+        assertEquals(false, isValid.invoke(null, wrapper));
+    }
+
     private Method stringDecode(final Class<?> clazz) throws NoSuchMethodException
     {
         return clazz.getMethod("decode", String.class);
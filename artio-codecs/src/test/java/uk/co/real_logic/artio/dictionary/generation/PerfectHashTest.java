@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.dictionary.generation;
+
+import org.junit.Test;
+
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+public class PerfectHashTest
+{
+    private static final long[] HEADER_TAGS =
+        { 8, 9, 35, 49, 56, 115, 128, 90, 91, 34, 50, 142, 57, 143, 116, 144, 129, 145, 43, 97, 52, 122, 212, 213,
+          347, 369, 627, 628, 629, 630, 1128, 1129 };
+
+    @Test
+    public void shouldMapKeysOntoDistinctSlots()
+    {
+        final PerfectHash hash = PerfectHash.of(HEADER_TAGS);
+
+        assertNotNull(hash);
+        assertEquals(HEADER_TAGS.length, LongStream.of(HEADER_TAGS).map(hash::slot).distinct().count());
+        for (final long tag : HEADER_TAGS)
+        {
+            assertEquals(tag, hash.keys()[hash.slot(tag)]);
+        }
+    }
+
+    @Test
+    public void shouldNotFindKeysThatWereNotHashed()
+    {
+        final PerfectHash hash = PerfectHash.of(HEADER_TAGS);
+
+        assertNotEquals(10, hash.keys()[hash.slot(10)]);
+        assertNotEquals(Integer.MAX_VALUE, hash.keys()[hash.slot(Integer.MAX_VALUE)]);
+    }
+
+    @Test
+    public void shouldUseSmallestTableForSingleKey()
+    {
+        final PerfectHash hash = PerfectHash.of(new long[]{ 35 });
+
+        assertEquals(2, hash.keys().length);
+    }
+
+    @Test
+    public void shouldNotHashDuplicateKeys()
+    {
+        assertNull(PerfectHash.of(new long[]{ 35, 35 }));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.util;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+
+public class ChecksumCalculatorTest
+{
+    private static final byte[] LOGON = ("8=FIX.4.4\0019=0103\00135=A\00149=ABC_DEFG01\00156=CCG\00134=10\001" +
+        "52=20150514-15:57:31.336\00198=0\001108=10\001383=512\001553=username" +
+        "\001554=password\00110=243\001").getBytes(US_ASCII);
+    private static final int LOGON_CHECKSUM_END = LOGON.length - "10=243\001".length();
+
+    private final ChecksumCalculator byteAtATime = ChecksumCalculator.byteAtATime();
+    private final ChecksumCalculator wordAtATime = ChecksumCalculator.wordAtATime();
+
+    @Test
+    public void shouldComputeChecksumOfMessage()
+    {
+        final UnsafeBuffer buffer = new UnsafeBuffer(LOGON);
+
+        assertEquals(243, byteAtATime.computeChecksum(buffer, 0, LOGON_CHECKSUM_END));
+        assertEquals(243, wordAtATime.computeChecksum(buffer, 0, LOGON_CHECKSUM_END));
+    }
+
+    @Test
+    public void shouldComputeSameChecksumForEveryOffsetAndEnd()
+    {
+        final UnsafeBuffer buffer = new UnsafeBuffer(LOGON);
+
+        for (int offset = 0; offset < LOGON.length; offset++)
+        {
+            for (int end = offset; end <= LOGON.length; end++)
+            {
+                assertEquals(
+                    "offset " + offset + ", end " + end,
+                    byteAtATime.computeChecksum(buffer, offset, end),
+                    wordAtATime.computeChecksum(buffer, offset, end));
+            }
+        }
+    }
+
+    @Test
+    public void shouldComputeSameChecksumForLargeAsciiMessages()
+    {
+        final Random random = new Random(42);
+        final byte[] bytes = new byte[64 * 1024];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = (byte)(random.nextInt(95) + ' ');
+        }
+        final UnsafeBuffer buffer = new UnsafeBuffer(bytes);
+
+        assertEquals(
+            byteAtATime.computeChecksum(buffer, 0, bytes.length),
+            wordAtATime.computeChecksum(buffer, 0, bytes.length));
+        assertEquals(
+            byteAtATime.computeChecksum(buffer, 3, bytes.length - 5),
+            wordAtATime.computeChecksum(buffer, 3, bytes.length - 5));
+    }
+
+    @Test
+    public void shouldComputeSameChecksumForBytesWithHighBitsSet()
+    {
+        final Random random = new Random(42);
+        final byte[] bytes = new byte[4 * 1024];
+        random.nextBytes(bytes);
+        final UnsafeBuffer buffer = new UnsafeBuffer(bytes);
+
+        for (int i = 0; i < 1_000; i++)
+        {
+            final int offset = random.nextInt(bytes.length);
+            final int end = offset + random.nextInt(bytes.length - offset + 1);
+
+            assertEquals(
+                byteAtATime.computeChecksum(buffer, offset, end),
+                wordAtATime.computeChecksum(buffer, offset, end));
+        }
+    }
+
+    @Test
+    public void shouldComputeSameChecksumWhenLanesAreFull()
+    {
+        final byte[] bytes = new byte[16 * 1024];
+        final UnsafeBuffer buffer = new UnsafeBuffer(bytes);
+        buffer.setMemory(0, bytes.length, (byte)0x7F);
+
+        assertEquals(
+            byteAtATime.computeChecksum(buffer, 0, bytes.length),
+            wordAtATime.computeChecksum(buffer, 0, bytes.length));
+
+        buffer.setMemory(0, bytes.length, (byte)0xFF);
+
+        assertEquals(
+            byteAtATime.computeChecksum(buffer, 0, bytes.length),
+            wordAtATime.computeChecksum(buffer, 0, bytes.length));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static uk.co.real_logic.artio.util.AsciiBuffer.SEPARATOR;
+import static uk.co.real_logic.artio.util.AsciiBuffer.UNKNOWN_INDEX;
+
+public class MutableAsciiBufferScanTest
+{
+    private static final byte[] MESSAGE = ("8=FIX.4.4\0019=0103\00135=A\00149=ABC_DEFG01\00156=CCG\00134=10\001" +
+        "52=20150514-15:57:31.336\00198=0\001108=10\001383=512\001553=username" +
+        "\001554=password\00110=243\001").getBytes(US_ASCII);
+
+    private final MutableAsciiBuffer buffer = new MutableAsciiBuffer(MESSAGE);
+
+    @Test
+    public void shouldScanWordsForEveryStartAndEnd()
+    {
+        for (int start = 0; start < MESSAGE.length; start++)
+        {
+            for (int end = start; end < MESSAGE.length; end++)
+            {
+                assertScansEqual(start, end, SEPARATOR);
+                assertScansEqual(start, end, (byte)'=');
+            }
+        }
+    }
+
+    @Test
+    public void shouldScanBackWordsForEveryStartAndEnd()
+    {
+        for (int start = 0; start < MESSAGE.length; start++)
+        {
+            for (int end = 0; end <= start; end++)
+            {
+                assertScanBacksEqual(start, end, SEPARATOR);
+                assertScanBacksEqual(start, end, (byte)'=');
+            }
+        }
+    }
+
+    @Test
+    public void shouldScanWordsUpToEndOfBuffer()
+    {
+        final int end = MESSAGE.length - 1;
+
+        assertEquals(end, buffer.scanWords(end - 6, end + 1, SEPARATOR));
+        assertEquals(UNKNOWN_INDEX, buffer.scanWords(end - 10, end, (byte)'Z'));
+    }
+
+    @Test
+    public void shouldScanWordsForBytesWithHighBitsSet()
+    {
+        final byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = (byte)i;
+        }
+        final MutableAsciiBuffer buffer = new MutableAsciiBuffer(bytes);
+
+        for (int value = 0; value < bytes.length; value++)
+        {
+            assertEquals(value, buffer.scanWords(0, bytes.length - 1, (byte)value));
+            assertEquals(value, buffer.scanBackWords(bytes.length - 1, 0, (byte)value));
+        }
+    }
+
+    @Test
+    public void shouldScanWordsOnRandomData()
+    {
+        final Random random = new Random(42);
+        final byte[] bytes = new byte[1024];
+        random.nextBytes(bytes);
+        final MutableAsciiBuffer buffer = new MutableAsciiBuffer(bytes);
+
+        for (int i = 0; i < 10_000; i++)
+        {
+            final int start = random.nextInt(bytes.length);
+            final int end = start + random.nextInt(bytes.length - start);
+            final byte terminator = (byte)random.nextInt(256);
+
+            assertEquals(buffer.scanBytes(start, end, terminator), buffer.scanWords(start, end, terminator));
+            assertEquals(buffer.scanBackBytes(end, start, terminator), buffer.scanBackWords(end, start, terminator));
+        }
+    }
+
+    private void assertScansEqual(final int start, final int end, final byte terminator)
+    {
+        assertEquals(
+            "scan from " + start + " to " + end,
+            buffer.scanBytes(start, end, terminator),
+            buffer.scanWords(start, end, terminator));
+    }
+
+    private void assertScanBacksEqual(final int start, final int end, final byte terminator)
+    {
+        assertEquals(
+            "scanBack from " + start + " to " + end,
+            buffer.scanBackBytes(start, end, terminator),
+            buffer.scanBackWords(start, end, terminator));
+    }
+}
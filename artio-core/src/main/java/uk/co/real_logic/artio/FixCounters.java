@@ -35,6 +35,10 @@ public class FixCounters implements AutoCloseable
     private static final int INVALID_LIBRARY_ATTEMPTS_TYPE_ID = 10_005;
     private static final int SENT_MSG_SEQ_NO_TYPE_ID = 10_006;
     private static final int RECV_MSG_SEQ_NO_TYPE_ID = 10_007;
+    private static final int FRAMER_STAGE_TIME_TYPE_ID = 10_008;
+    private static final int REPLAY_CACHE_HITS_TYPE_ID = 10_009;
+    private static final int REPLAY_CACHE_MISSES_TYPE_ID = 10_010;
+    private static final int INDEX_CATCH_UP_REMAINING_TYPE_ID = 10_011;
 
     private final List<Counter> counters = new ArrayList<>();
     private final AtomicCounter failedInboundPublications;
@@ -91,6 +95,26 @@ public class FixCounters implements AutoCloseable
         return newCounter(RECV_MSG_SEQ_NO_TYPE_ID, "Last Received MsgSeqNo for " + connectionId);
     }
 
+    public AtomicCounter framerStageTime(final String stage)
+    {
+        return newCounter(FRAMER_STAGE_TIME_TYPE_ID, "Framer " + stage + " stage time");
+    }
+
+    public AtomicCounter replayCacheHits()
+    {
+        return newCounter(REPLAY_CACHE_HITS_TYPE_ID, "Resend requests replayed from the replay cache");
+    }
+
+    public AtomicCounter replayCacheMisses()
+    {
+        return newCounter(REPLAY_CACHE_MISSES_TYPE_ID, "Resend requests replayed from the archive");
+    }
+
+    public AtomicCounter indexCatchUpRemaining()
+    {
+        return newCounter(INDEX_CATCH_UP_REMAINING_TYPE_ID, "Bytes remaining for the indices to catch up on");
+    }
+
     private AtomicCounter newCounter(final int typeId, final String label)
     {
         final Counter counter = aeron.addCounter(typeId, label);
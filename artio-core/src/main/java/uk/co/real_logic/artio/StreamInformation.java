@@ -16,6 +16,7 @@
 package uk.co.real_logic.artio;
 
 import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
 import io.aeron.Subscription;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
 
@@ -48,7 +49,7 @@ public final class StreamInformation
 
     public static void print(
         final String name,
-        final ExclusivePublication publication,
+        final Publication publication,
         final boolean printAeronStreamIdentifiers)
     {
         if (printAeronStreamIdentifiers)
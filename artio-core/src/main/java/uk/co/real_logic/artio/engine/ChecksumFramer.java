@@ -58,6 +58,23 @@ public class ChecksumFramer extends SectorFramer
         withChecksums(saveChecksumFunc);
     }
 
+    /**
+     * Updates the checksum of a single sector, so that only the sectors that have been written to since the last
+     * update need to be checksummed.
+     *
+     * @param sectorStart the offset of the start of the sector within the buffer.
+     */
+    public void updateChecksum(final int sectorStart)
+    {
+        final int sectorEnd = sectorStart + SECTOR_SIZE;
+        if (sectorEnd <= capacity)
+        {
+            final int checksumOffset = sectorEnd - CHECKSUM_SIZE;
+            buffer.putInt(checksumOffset, checksum(sectorStart + buffer.wrapAdjustment()));
+            clearByteBuffer();
+        }
+    }
+
     private void validateChecksum(final int checksumOffset, final int calculatedChecksum)
     {
         final int savedChecksum = buffer.getInt(checksumOffset);
@@ -68,8 +85,6 @@ public class ChecksumFramer extends SectorFramer
 
     private void withChecksums(final ChecksumConsumer consumer)
     {
-        final byte[] inMemoryBytes = buffer.byteArray();
-        final ByteBuffer inMemoryByteBuffer = buffer.byteBuffer();
         final int wrapAdjustment = buffer.wrapAdjustment();
         final int capacity = this.capacity;
 
@@ -78,21 +93,35 @@ public class ChecksumFramer extends SectorFramer
             final int sectorStart = sectorEnd - SECTOR_SIZE + wrapAdjustment;
             final int checksumOffset = sectorEnd - CHECKSUM_SIZE;
 
-            crc32.reset();
-            if (inMemoryBytes != null)
-            {
-                crc32.update(inMemoryBytes, sectorStart, SECTOR_DATA_LENGTH);
-            }
-            else
-            {
-                ByteBufferUtil.limit(inMemoryByteBuffer, sectorStart + SECTOR_DATA_LENGTH);
-                ByteBufferUtil.position(inMemoryByteBuffer, sectorStart);
-                crc32.update(inMemoryByteBuffer);
-            }
-            final int sectorChecksum = (int)crc32.getValue();
-            consumer.accept(checksumOffset, sectorChecksum);
+            consumer.accept(checksumOffset, checksum(sectorStart));
         }
 
+        clearByteBuffer();
+    }
+
+    private int checksum(final int sectorStart)
+    {
+        final byte[] inMemoryBytes = buffer.byteArray();
+        final CRC32 crc32 = this.crc32;
+
+        crc32.reset();
+        if (inMemoryBytes != null)
+        {
+            crc32.update(inMemoryBytes, sectorStart, SECTOR_DATA_LENGTH);
+        }
+        else
+        {
+            final ByteBuffer inMemoryByteBuffer = buffer.byteBuffer();
+            ByteBufferUtil.limit(inMemoryByteBuffer, sectorStart + SECTOR_DATA_LENGTH);
+            ByteBufferUtil.position(inMemoryByteBuffer, sectorStart);
+            crc32.update(inMemoryByteBuffer);
+        }
+        return (int)crc32.getValue();
+    }
+
+    private void clearByteBuffer()
+    {
+        final ByteBuffer inMemoryByteBuffer = buffer.byteBuffer();
         if (inMemoryByteBuffer != null)
         {
             inMemoryByteBuffer.clear();
@@ -21,6 +21,9 @@ import org.agrona.concurrent.Agent;
 import org.agrona.concurrent.AgentRunner;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ThreadFactory;
 
 import static org.agrona.concurrent.AgentRunner.startOnThread;
@@ -31,6 +34,8 @@ import static org.agrona.concurrent.AgentRunner.startOnThread;
 public class DefaultEngineScheduler implements EngineScheduler
 {
     private AgentRunner framerRunner;
+    private AgentRunner outboundSenderRunner;
+    private final List<AgentRunner> framerShardRunners = new ArrayList<>();
     private AgentRunner archivingRunner;
     private AgentRunner monitoringRunner;
     private RecordingCoordinator recordingCoordinator;
@@ -43,6 +48,29 @@ public class DefaultEngineScheduler implements EngineScheduler
         final Agent monitoringAgent,
         final Agent conductorAgent,
         final RecordingCoordinator recordingCoordinator)
+    {
+        launch(
+            configuration,
+            errorHandler,
+            framer,
+            Collections.emptyList(),
+            null,
+            indexingAgent,
+            monitoringAgent,
+            conductorAgent,
+            recordingCoordinator);
+    }
+
+    public void launch(
+        final EngineConfiguration configuration,
+        final ErrorHandler errorHandler,
+        final Agent framer,
+        final List<Agent> framerShards,
+        final Agent outboundSender,
+        final Agent indexingAgent,
+        final Agent monitoringAgent,
+        final Agent conductorAgent,
+        final RecordingCoordinator recordingCoordinator)
     {
         this.recordingCoordinator = recordingCoordinator;
         if (framerRunner != null)
@@ -59,6 +87,24 @@ public class DefaultEngineScheduler implements EngineScheduler
         startOnThread(framerRunner, threadFactory);
         startOnThread(archivingRunner, threadFactory);
 
+        if (outboundSender != null)
+        {
+            outboundSenderRunner = new AgentRunner(
+                configuration.outboundSenderIdleStrategy(), errorHandler, null, outboundSender);
+            startOnThread(outboundSenderRunner, threadFactory);
+        }
+
+        // Each shard gets its own idle strategy, and threads are created in shard order so that a thread factory
+        // can pin them to cores.
+        final ThreadFactory framerShardThreadFactory = configuration.framerShardThreadFactory();
+        for (final Agent framerShard : framerShards)
+        {
+            final AgentRunner framerShardRunner = new AgentRunner(
+                configuration.framerShardIdleStrategySupplier().get(), errorHandler, null, framerShard);
+            framerShardRunners.add(framerShardRunner);
+            startOnThread(framerShardRunner, framerShardThreadFactory);
+        }
+
         if (monitoringAgent != null)
         {
             monitoringRunner = new AgentRunner(
@@ -73,10 +119,21 @@ public class DefaultEngineScheduler implements EngineScheduler
     public void close()
     {
         EngineScheduler.awaitRunnerStart(framerRunner);
+        EngineScheduler.awaitRunnerStart(outboundSenderRunner);
+        framerShardRunners.forEach(EngineScheduler::awaitRunnerStart);
         EngineScheduler.awaitRunnerStart(archivingRunner);
         EngineScheduler.awaitRunnerStart(monitoringRunner);
 
-        Exceptions.closeAll(framerRunner, archivingRunner, recordingCoordinator, monitoringRunner);
+        // The outbound sender is closed before the framer, which closes the channels that it writes to. Framer shards
+        // are closed after the framer, which takes its end points back from them when it closes.
+        final List<AutoCloseable> closeables = new ArrayList<>();
+        closeables.add(outboundSenderRunner);
+        closeables.add(framerRunner);
+        closeables.addAll(framerShardRunners);
+        closeables.add(archivingRunner);
+        closeables.add(recordingCoordinator);
+        closeables.add(monitoringRunner);
+        Exceptions.closeAll(closeables);
     }
 
     public void configure(final Aeron.Context aeronContext)
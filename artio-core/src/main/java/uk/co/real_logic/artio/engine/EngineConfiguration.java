@@ -29,13 +29,18 @@ import uk.co.real_logic.artio.dictionary.SessionConstants;
 import uk.co.real_logic.artio.engine.framer.DefaultTcpChannelSupplier;
 import uk.co.real_logic.artio.engine.framer.TcpChannelSupplier;
 import uk.co.real_logic.artio.library.SessionConfiguration;
+import uk.co.real_logic.artio.util.ChecksumCalculator;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 import uk.co.real_logic.artio.validation.AuthenticationStrategy;
 import uk.co.real_logic.artio.validation.SessionPersistenceStrategy;
 
 import java.io.File;
 import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static java.lang.Integer.getInteger;
 import static java.lang.System.getProperty;
@@ -68,6 +73,50 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      * Property name for size of logging index files
      */
     public static final String REPLAY_INDEX_FILE_SIZE_PROP = "logging.index.size";
+    /**
+     * Property name for the maximum number of segments retained by each session's replay index
+     */
+    public static final String REPLAY_INDEX_SEGMENTS_PROP = "logging.index.segments";
+    /**
+     * Property name for enabling the time index of message timestamps
+     */
+    public static final String TIME_INDEX_PROP = "logging.time_index.enabled";
+    /**
+     * Property name for the minimum interval between the records of the time index
+     */
+    public static final String TIME_INDEX_INTERVAL_PROP = "logging.time_index.interval";
+    /**
+     * Property name for enabling the secondary index of message types and fix session ids
+     */
+    public static final String SECONDARY_INDEX_PROP = "logging.secondary_index.enabled";
+    /**
+     * Property name for the size in bytes at which the secondary index starts a new segment
+     */
+    public static final String SECONDARY_INDEX_SEGMENT_SIZE_PROP = "logging.secondary_index.segment_size";
+    /**
+     * Property name for the maximum number of segments that the secondary index retains
+     */
+    public static final String SECONDARY_INDEX_SEGMENTS_PROP = "logging.secondary_index.segments";
+    /**
+     * Property name for the size of each slot in the replay cache of recently sent messages
+     */
+    public static final String REPLAY_CACHE_SLOT_SIZE_PROP = "logging.replay_cache.slot_size";
+    /**
+     * Property name for the number of sets in the replay cache of recently sent messages, must be a power of two
+     */
+    public static final String REPLAY_CACHE_NUM_SETS_PROP = "logging.replay_cache.num_sets";
+    /**
+     * Property name for the number of slots in each set of the replay cache of recently sent messages
+     */
+    public static final String REPLAY_CACHE_SET_SIZE_PROP = "logging.replay_cache.set_size";
+    /**
+     * Property name for the maximum number of indices that are caught up with the archive in parallel on startup
+     */
+    public static final String INDEX_CATCH_UP_PARALLELISM_PROP = "logging.index.catch_up.parallelism";
+    /**
+     * Property name for catching the replay indices up with the archive in the background on startup
+     */
+    public static final String BACKGROUND_INDEX_CATCH_UP_PROP = "logging.index.catch_up.background";
 
     // Care needs to be taken when setting the fragment limits, and buffer sizes
     // The inbound bytes received and buffer sizes should always be set low enough
@@ -86,10 +135,26 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      * Property name for the max number of bytes to read from all TCP Connections.
      */
     public static final String INBOUND_BYTES_RECEIVED_LIMIT_PROP = "fix.core.inbound_bytes_limit";
+    /**
+     * Property name for whether the Framer adapts its duty cycle to prioritise live messages when under pressure.
+     */
+    public static final String ADAPTIVE_DUTY_CYCLE_PROP = "fix.core.adaptive_duty_cycle";
     /**
      * Property name for the size in bytes of the receiver end point's framing buffer.
      */
     public static final String RECEIVER_BUFFER_SIZE_PROP = "fix.core.receiver_buffer_size";
+    /**
+     * Property name for the maximum number of ready receiver end points polled in a single duty cycle.
+     */
+    public static final String RECEIVER_READY_END_POINT_LIMIT_PROP = "fix.core.receiver_ready_end_point_limit";
+    /**
+     * Property name for the number of framer shards that established TCP connections are polled on.
+     */
+    public static final String FRAMER_SHARD_COUNT_PROP = "fix.core.framer_shard_count";
+    /**
+     * Property name for whether messages from libraries are sent to TCP connections by their own agent.
+     */
+    public static final String OUTBOUND_SENDER_AGENT_PROP = "fix.core.outbound_sender_agent";
     /**
      * Property name for the size in bytes of the TCP socket's receive buffer.
      */
@@ -102,6 +167,10 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      * Property name for the size in bytes of the sequence number cache file
      */
     public static final String SEQUENCE_NUMBER_INDEX_SIZE_PROP = "fix.core.sequence_number_cache_size";
+    /**
+     * Property name for journaling the sectors of the sequence number cache file that have changed
+     */
+    public static final String SEQUENCE_NUMBER_INDEX_JOURNAL_PROP = "fix.core.sequence_number_cache_journal";
     /**
      * Property name for the size in bytes of the session id file
      */
@@ -110,6 +179,10 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      * Property name for the maximum number of bytes to allow in the quarantine buffer before disconnection
      */
     public static final String SENDER_MAX_BYTES_IN_BUFFER_PROP = "fix.core.sender_max_bytes_in_buffer";
+    /**
+     * Property name for the number of bytes of outbound messages to coalesce before writing them to a TCP connection
+     */
+    public static final String SENDER_FLUSH_THRESHOLD_IN_BYTES_PROP = "fix.core.sender_flush_threshold";
     /**
      * Property name for the timeout before a connection that hasn't sent a logon is disconnected
      */
@@ -121,18 +194,29 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
 
     public static final String DEFAULT_LOG_FILE_DIR = "logs";
     public static final int DEFAULT_REPLAY_INDEX_FILE_SIZE = 2 * 1024 * 1024 + INITIAL_RECORD_OFFSET;
+    public static final int DEFAULT_REPLAY_INDEX_SEGMENTS = 0;
+    public static final long DEFAULT_TIME_INDEX_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    public static final long DEFAULT_SECONDARY_INDEX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_SECONDARY_INDEX_SEGMENTS = 0;
     public static final int DEFAULT_LOGGER_CACHE_NUM_SETS = 8;
     public static final int DEFAULT_LOGGER_CACHE_SET_SIZE = 4;
+    public static final int DEFAULT_REPLAY_CACHE_SLOT_SIZE = 0;
+    public static final int DEFAULT_REPLAY_CACHE_NUM_SETS = 1024;
+    public static final int DEFAULT_REPLAY_CACHE_SET_SIZE = 8;
+    public static final int DEFAULT_INDEX_CATCH_UP_PARALLELISM = 2;
 
     public static final int DEFAULT_OUTBOUND_LIBRARY_FRAGMENT_LIMIT = 20;
     public static final int DEFAULT_REPLAY_FRAGMENT_LIMIT = 5;
     public static final int DEFAULT_INBOUND_BYTES_RECEIVED_LIMIT = 8 * 1024;
     public static final int DEFAULT_RECEIVER_BUFFER_SIZE = 16 * 1024;
+    public static final int DEFAULT_RECEIVER_READY_END_POINT_LIMIT = 1024;
+    public static final int DEFAULT_FRAMER_SHARD_COUNT = 0;
     public static final int DEFAULT_RECEIVER_SOCKET_BUFFER_SIZE = 1024 * 1024;
     public static final int DEFAULT_SENDER_SOCKET_BUFFER_SIZE = 1024 * 1024;
     public static final int DEFAULT_SEQUENCE_NUMBER_INDEX_SIZE = 8 * 1024 * 1024;
     public static final int DEFAULT_SESSION_ID_BUFFER_SIZE = 4 * 1024 * 1024;
     public static final int DEFAULT_SENDER_MAX_BYTES_IN_BUFFER = 4 * 1024 * 1024;
+    public static final int DEFAULT_SENDER_FLUSH_THRESHOLD_IN_BYTES = 16 * 1024;
     public static final int DEFAULT_NO_LOGON_DISCONNECT_TIMEOUT = (int)SECONDS.toMillis(5);
     public static final String DEFAULT_SESSION_ID_FILE = "session_id_buffer";
     public static final String DEFAULT_SEQUENCE_NUMBERS_SENT_FILE = "sequence_numbers_sent";
@@ -167,14 +251,30 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
     private String host = null;
     private int port;
     private int replayIndexFileSize = getInteger(REPLAY_INDEX_FILE_SIZE_PROP, DEFAULT_REPLAY_INDEX_FILE_SIZE);
+    private int replayIndexSegments = getInteger(REPLAY_INDEX_SEGMENTS_PROP, DEFAULT_REPLAY_INDEX_SEGMENTS);
+    private boolean timeIndex = Boolean.getBoolean(TIME_INDEX_PROP);
+    private long timeIndexInterval = Long.getLong(TIME_INDEX_INTERVAL_PROP, DEFAULT_TIME_INDEX_INTERVAL);
+    private boolean secondaryIndex = Boolean.getBoolean(SECONDARY_INDEX_PROP);
+    private long secondaryIndexSegmentSize = Long.getLong(
+        SECONDARY_INDEX_SEGMENT_SIZE_PROP, DEFAULT_SECONDARY_INDEX_SEGMENT_SIZE);
+    private int secondaryIndexSegments = getInteger(SECONDARY_INDEX_SEGMENTS_PROP, DEFAULT_SECONDARY_INDEX_SEGMENTS);
     private String logFileDir = getProperty(LOG_FILE_DIR_PROP, DEFAULT_LOG_FILE_DIR);
     private int loggerCacheNumSets = DEFAULT_LOGGER_CACHE_NUM_SETS;
     private int loggerCacheSetSize = DEFAULT_LOGGER_CACHE_SET_SIZE;
+    private int replayCacheSlotSize = getInteger(REPLAY_CACHE_SLOT_SIZE_PROP, DEFAULT_REPLAY_CACHE_SLOT_SIZE);
+    private int replayCacheNumSets = getInteger(REPLAY_CACHE_NUM_SETS_PROP, DEFAULT_REPLAY_CACHE_NUM_SETS);
+    private int replayCacheSetSize = getInteger(REPLAY_CACHE_SET_SIZE_PROP, DEFAULT_REPLAY_CACHE_SET_SIZE);
+    private int indexCatchUpParallelism = getInteger(
+        INDEX_CATCH_UP_PARALLELISM_PROP, DEFAULT_INDEX_CATCH_UP_PARALLELISM);
+    private boolean backgroundIndexCatchUp = Boolean.getBoolean(BACKGROUND_INDEX_CATCH_UP_PROP);
     private boolean logInboundMessages = true;
     private boolean logOutboundMessages = true;
     private boolean printStartupWarnings = true;
     private IdleStrategy framerIdleStrategy = backoffIdleStrategy();
     private IdleStrategy archiverIdleStrategy = backoffIdleStrategy();
+    private Supplier<IdleStrategy> framerShardIdleStrategySupplier = CommonConfiguration::backoffIdleStrategy;
+    private ThreadFactory framerShardThreadFactory;
+    private IdleStrategy outboundSenderIdleStrategy = backoffIdleStrategy();
     private AtomicBuffer sentSequenceNumberBuffer;
     private AtomicBuffer receivedSequenceNumberBuffer;
     private MappedFile sentSequenceNumberIndex;
@@ -191,8 +291,14 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         getInteger(REPLAY_FRAGMENT_LIMIT_PROP, DEFAULT_REPLAY_FRAGMENT_LIMIT);
     private int inboundBytesReceivedLimit =
         getInteger(INBOUND_BYTES_RECEIVED_LIMIT_PROP, DEFAULT_INBOUND_BYTES_RECEIVED_LIMIT);
+    private boolean adaptiveDutyCycle = Boolean.getBoolean(ADAPTIVE_DUTY_CYCLE_PROP);
     private int receiverBufferSize =
         getInteger(RECEIVER_BUFFER_SIZE_PROP, DEFAULT_RECEIVER_BUFFER_SIZE);
+    private ReceiverPollingPolicy receiverPollingPolicy = ReceiverPollingPolicy.ADAPTIVE;
+    private int receiverReadyEndPointLimit =
+        getInteger(RECEIVER_READY_END_POINT_LIMIT_PROP, DEFAULT_RECEIVER_READY_END_POINT_LIMIT);
+    private int framerShardCount = getInteger(FRAMER_SHARD_COUNT_PROP, DEFAULT_FRAMER_SHARD_COUNT);
+    private boolean outboundSenderAgent = Boolean.getBoolean(OUTBOUND_SENDER_AGENT_PROP);
     private int receiverSocketBufferSize =
         getInteger(RECEIVER_SOCKET_BUFFER_SIZE_PROP, DEFAULT_RECEIVER_SOCKET_BUFFER_SIZE);
     private int senderSocketBufferSize =
@@ -203,6 +309,9 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         getInteger(SESSION_ID_BUFFER_SIZE_PROP, DEFAULT_SESSION_ID_BUFFER_SIZE);
     private int senderMaxBytesInBuffer =
         getInteger(SENDER_MAX_BYTES_IN_BUFFER_PROP, DEFAULT_SENDER_MAX_BYTES_IN_BUFFER);
+    private int senderFlushThresholdInBytes =
+        getInteger(SENDER_FLUSH_THRESHOLD_IN_BYTES_PROP, DEFAULT_SENDER_FLUSH_THRESHOLD_IN_BYTES);
+    private SenderFlushPolicy senderFlushPolicy = SenderFlushPolicy.IMMEDIATE;
     private int noLogonDisconnectTimeoutInMs =
         getInteger(NO_LOGON_DISCONNECT_TIMEOUT_PROP, DEFAULT_NO_LOGON_DISCONNECT_TIMEOUT);
 
@@ -221,10 +330,12 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
     private InitialAcceptedSessionOwner initialAcceptedSessionOwner = InitialAcceptedSessionOwner.ENGINE;
     private AuthenticationStrategy authenticationStrategy = AuthenticationStrategy.none();
     private long indexFileStateFlushTimeoutInMs = DEFAULT_INDEX_FILE_STATE_FLUSH_TIMEOUT_IN_MS;
+    private boolean sequenceNumberIndexJournal = Boolean.getBoolean(SEQUENCE_NUMBER_INDEX_JOURNAL_PROP);
     private FixDictionary acceptorfixDictionary;
     private Map<String, FixDictionary> acceptorFixDictionaryOverrides = new HashMap<>();
     private boolean deleteLogFileDirOnStart = false;
     private long authenticationTimeoutInMs = DEFAULT_AUTHENTICATION_TIMEOUT_IN_MS;
+    private ChecksumCalculator checksumCalculator = MutableAsciiBuffer.CHECKSUM_CALCULATOR;
     private boolean bindAtStartup = true;
 
     /**
@@ -272,6 +383,130 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets how the Framer finds the TCP connections that have data to read.
+     * <p>
+     * <code>ADAPTIVE</code>, the default, reads from every connection in turn when there are only a handful of them
+     * and switches to a selector once there are more. <code>READINESS</code> always uses the selector and only
+     * polls the connections that it reports as readable, so idle sessions cost nothing per duty cycle. The
+     * readable connections are taken as a batch, at most {@link #receiverReadyEndPointLimit(int)} of them are polled
+     * per duty cycle and the selector is only asked for more once the batch has been worked through. This suits an
+     * engine with a large number of mostly idle sessions.
+     * <p>
+     * Connections that are still authenticating are polled on every duty cycle under either policy.
+     *
+     * @param receiverPollingPolicy how the Framer finds the TCP connections that have data to read.
+     * @return this
+     */
+    public EngineConfiguration receiverPollingPolicy(final ReceiverPollingPolicy receiverPollingPolicy)
+    {
+        this.receiverPollingPolicy = receiverPollingPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of readable TCP connections that are polled in a single duty cycle under the
+     * <code>READINESS</code> polling policy, any others are polled on the following duty cycles.
+     *
+     * @param receiverReadyEndPointLimit the maximum number of readable connections polled per duty cycle.
+     * @return this
+     * @see EngineConfiguration#RECEIVER_READY_END_POINT_LIMIT_PROP
+     * @see #receiverPollingPolicy(ReceiverPollingPolicy)
+     */
+    public EngineConfiguration receiverReadyEndPointLimit(final int receiverReadyEndPointLimit)
+    {
+        this.receiverReadyEndPointLimit = receiverReadyEndPointLimit;
+        return this;
+    }
+
+    /**
+     * Sets the number of framer shards that TCP connections are spread across. Each shard is an {@link
+     * org.agrona.concurrent.Agent} with its own selector that reads, frames and validates the inbound messages of
+     * the connections that it has been given, so the inbound work of a large number of sessions can use more than
+     * one core. Connections are hashed onto a shard by their connection id.
+     * <p>
+     * The Framer still accepts connections, authenticates logons, manages libraries, allocates session ids and
+     * sends outbound messages. A connection is only polled on a shard once it has logged on and is managed by a
+     * library; whilst a session is managed by the engine or is being handed over between libraries it's polled by
+     * the Framer. Shards publish the messages that they frame straight onto the inbound library stream, through an
+     * Aeron publication that they share with the Framer, so that they're ordered with the Framer's own messages for
+     * the connection.
+     * <p>
+     * Defaults to 0, which polls every connection on the Framer. How the shards are run is up to the
+     * {@link EngineScheduler}, the {@link DefaultEngineScheduler} gives each shard its own thread.
+     *
+     * @param framerShardCount the number of framer shards.
+     * @return this
+     * @see EngineConfiguration#FRAMER_SHARD_COUNT_PROP
+     */
+    public EngineConfiguration framerShardCount(final int framerShardCount)
+    {
+        this.framerShardCount = framerShardCount;
+        return this;
+    }
+
+    /**
+     * Sets the supplier of idle strategies for framer shards, each shard that runs on its own thread is given a
+     * new idle strategy.
+     *
+     * @param framerShardIdleStrategySupplier the supplier of idle strategies for framer shards.
+     * @return this
+     * @see #framerShardCount(int)
+     */
+    public EngineConfiguration framerShardIdleStrategy(final Supplier<IdleStrategy> framerShardIdleStrategySupplier)
+    {
+        this.framerShardIdleStrategySupplier = framerShardIdleStrategySupplier;
+        return this;
+    }
+
+    /**
+     * Sets the factory for the threads that framer shards are run on. Threads are created in shard order so
+     * a factory can pin each shard to its own core. Defaults to {@link #threadFactory()}.
+     *
+     * @param framerShardThreadFactory the factory for the threads that framer shards are run on.
+     * @return this
+     * @see #framerShardCount(int)
+     */
+    public EngineConfiguration framerShardThreadFactory(final ThreadFactory framerShardThreadFactory)
+    {
+        this.framerShardThreadFactory = framerShardThreadFactory;
+        return this;
+    }
+
+    /**
+     * Sets whether the outbound path, that sends messages from libraries and replays to TCP connections, is run by
+     * its own agent rather than as part of the Framer's duty cycle. This stops a burst of inbound messages from
+     * delaying outbound messages, and vice versa. The {@link DefaultEngineScheduler} runs the agent on its own
+     * thread.
+     * <p>
+     * Messages that control libraries and sessions are still handled by the Framer, in the order that they're
+     * received relative to the FIX messages that a library sends, and slow consumers are handled in the same way.
+     * <p>
+     * Defaults to false.
+     *
+     * @param outboundSenderAgent true to run the outbound path with its own agent, false otherwise.
+     * @return this
+     * @see EngineConfiguration#OUTBOUND_SENDER_AGENT_PROP
+     */
+    public EngineConfiguration outboundSenderAgent(final boolean outboundSenderAgent)
+    {
+        this.outboundSenderAgent = outboundSenderAgent;
+        return this;
+    }
+
+    /**
+     * Sets the idle strategy for the outbound sender thread.
+     *
+     * @param outboundSenderIdleStrategy the idle strategy for the outbound sender thread.
+     * @return this
+     * @see #outboundSenderAgent(boolean)
+     */
+    public EngineConfiguration outboundSenderIdleStrategy(final IdleStrategy outboundSenderIdleStrategy)
+    {
+        this.outboundSenderIdleStrategy = outboundSenderIdleStrategy;
+        return this;
+    }
+
     /**
      * Sets the receiver socket buffer size.
      *
@@ -327,6 +562,108 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets the maximum number of segments that each session's replay index retains. By default this is 0, which
+     * means that each session's replay index is a single file of {@link #replayIndexFileSize()} bytes that's used as
+     * a ring, so only the most recent messages can be resent. When this is positive each session's replay index is
+     * split into segment files of {@link #replayIndexFileSize()} bytes, a new segment is started whenever the current
+     * one is full and the oldest segment is deleted once more than this number of segments exist.
+     *
+     * Segments are found by binary search when querying the index, so large values can be used in order to serve
+     * resend requests for old messages on high volume sessions.
+     *
+     * @param replayIndexSegments the maximum number of segments that each session's replay index retains.
+     * @return this
+     * @see EngineConfiguration#REPLAY_INDEX_SEGMENTS_PROP
+     * @see EngineConfiguration#DEFAULT_REPLAY_INDEX_SEGMENTS
+     */
+    public EngineConfiguration replayIndexSegments(final int replayIndexSegments)
+    {
+        this.replayIndexSegments = replayIndexSegments;
+        return this;
+    }
+
+    /**
+     * Enables the time index, which maps the timestamps of logged messages to their positions in the archive. The
+     * {@link uk.co.real_logic.artio.engine.logger.FixArchiveScanner} uses it to scan a range of timestamps without
+     * replaying whole recordings.
+     * <p>
+     * Default: false.
+     *
+     * @param timeIndex true to build the time index, false otherwise.
+     * @return this
+     * @see EngineConfiguration#TIME_INDEX_PROP
+     * @see #timeIndexInterval(long)
+     */
+    public EngineConfiguration timeIndex(final boolean timeIndex)
+    {
+        this.timeIndex = timeIndex;
+        return this;
+    }
+
+    /**
+     * Sets the minimum interval between the records of the time index, see {@link #timeIndex(boolean)}. The interval is in the units of the {@link #clock(uk.co.real_logic.artio.Clock)},
+     * which are nanoseconds by default. A smaller interval means that scans replay fewer messages outside of their
+     * range, at the cost of a larger time index file.
+     *
+     * @param timeIndexInterval the minimum interval between the records of the time index.
+     * @return this
+     * @see EngineConfiguration#TIME_INDEX_INTERVAL_PROP
+     * @see EngineConfiguration#DEFAULT_TIME_INDEX_INTERVAL
+     */
+    public EngineConfiguration timeIndexInterval(final long timeIndexInterval)
+    {
+        this.timeIndexInterval = timeIndexInterval;
+        return this;
+    }
+
+    /**
+     * Enables the secondary index, which maps the message type and fix session id of every logged message to its
+     * position in the archive. The {@link uk.co.real_logic.artio.engine.logger.FixArchiveScanner} uses it to only
+     * replay the parts of the archive that contain the messages that it's looking for.
+     * <p>
+     * Default: false.
+     *
+     * @param secondaryIndex true to build the secondary index, false otherwise.
+     * @return this
+     * @see EngineConfiguration#SECONDARY_INDEX_PROP
+     */
+    public EngineConfiguration secondaryIndex(final boolean secondaryIndex)
+    {
+        this.secondaryIndex = secondaryIndex;
+        return this;
+    }
+
+    /**
+     * Sets the size of each segment of the secondary index, see {@link #secondaryIndex(boolean)}. A new segment is
+     * started once the current one has reached this size.
+     *
+     * @param secondaryIndexSegmentSize the size of each segment of the secondary index, in bytes.
+     * @return this
+     * @see EngineConfiguration#SECONDARY_INDEX_SEGMENT_SIZE_PROP
+     * @see EngineConfiguration#DEFAULT_SECONDARY_INDEX_SEGMENT_SIZE
+     */
+    public EngineConfiguration secondaryIndexSegmentSize(final long secondaryIndexSegmentSize)
+    {
+        this.secondaryIndexSegmentSize = secondaryIndexSegmentSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of segments that the secondary index retains, the oldest segment is deleted once more
+     * than this number of segments exist. By default this is 0, which means that every segment is retained.
+     *
+     * @param secondaryIndexSegments the maximum number of segments that the secondary index retains.
+     * @return this
+     * @see EngineConfiguration#SECONDARY_INDEX_SEGMENTS_PROP
+     * @see EngineConfiguration#DEFAULT_SECONDARY_INDEX_SEGMENTS
+     */
+    public EngineConfiguration secondaryIndexSegments(final int secondaryIndexSegments)
+    {
+        this.secondaryIndexSegments = secondaryIndexSegments;
+        return this;
+    }
+
     /**
      * Sets the set size of the logger's caches.
      * <p>
@@ -361,6 +698,85 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets the size of each slot in the replay cache. The replay cache is an off-heap store of recently sent
+     * messages that resend requests are served from before falling back to the archive. It has
+     * {@link #replayCacheNumSets()} sets of {@link #replayCacheSetSize()} slots, and a sent message is only cached if
+     * its frame fits into a single slot. The replay cache is disabled by default, setting this to a value greater than
+     * 0 enables it.
+     *
+     * @param replayCacheSlotSize the size of each slot in the replay cache, in bytes.
+     * @return this
+     * @see EngineConfiguration#REPLAY_CACHE_SLOT_SIZE_PROP
+     * @see EngineConfiguration#DEFAULT_REPLAY_CACHE_SLOT_SIZE
+     */
+    public EngineConfiguration replayCacheSlotSize(final int replayCacheSlotSize)
+    {
+        this.replayCacheSlotSize = replayCacheSlotSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of sets in the replay cache, see {@link #replayCacheSlotSize(int)}. Must be a power of two.
+     *
+     * @param replayCacheNumSets the number of sets in the replay cache.
+     * @return this
+     * @see EngineConfiguration#REPLAY_CACHE_NUM_SETS_PROP
+     * @see EngineConfiguration#DEFAULT_REPLAY_CACHE_NUM_SETS
+     */
+    public EngineConfiguration replayCacheNumSets(final int replayCacheNumSets)
+    {
+        this.replayCacheNumSets = replayCacheNumSets;
+        return this;
+    }
+
+    /**
+     * Sets the number of slots in each set of the replay cache, see {@link #replayCacheSlotSize(int)}.
+     *
+     * @param replayCacheSetSize the number of slots in each set of the replay cache.
+     * @return this
+     * @see EngineConfiguration#REPLAY_CACHE_SET_SIZE_PROP
+     * @see EngineConfiguration#DEFAULT_REPLAY_CACHE_SET_SIZE
+     */
+    public EngineConfiguration replayCacheSetSize(final int replayCacheSetSize)
+    {
+        this.replayCacheSetSize = replayCacheSetSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of indices that are caught up with the archive in parallel when the engine starts,
+     * for example after a crash has left messages in the archive that haven't been indexed. Each index is caught up
+     * on a single thread, which replays all of the recordings that it's behind on concurrently.
+     *
+     * @param indexCatchUpParallelism the maximum number of indices that are caught up in parallel.
+     * @return this
+     * @see EngineConfiguration#INDEX_CATCH_UP_PARALLELISM_PROP
+     * @see EngineConfiguration#DEFAULT_INDEX_CATCH_UP_PARALLELISM
+     */
+    public EngineConfiguration indexCatchUpParallelism(final int indexCatchUpParallelism)
+    {
+        this.indexCatchUpParallelism = indexCatchUpParallelism;
+        return this;
+    }
+
+    /**
+     * Sets whether the indices that are only used for replays of the archive are caught up with it in the background
+     * when the engine starts. When this is enabled the engine starts accepting connections once the sequence number
+     * indices have caught up. Live messages carry on being indexed by the sequence number indices whilst the replay
+     * indices catch up, but resend requests aren't replayed until the replay indices have caught up with both the
+     * archive and the live messages. Default: false.
+     *
+     * @param backgroundIndexCatchUp true to catch the replay indices up in the background, false otherwise.
+     * @return this
+     * @see EngineConfiguration#BACKGROUND_INDEX_CATCH_UP_PROP
+     */
+    public EngineConfiguration backgroundIndexCatchUp(final boolean backgroundIndexCatchUp)
+    {
+        this.backgroundIndexCatchUp = backgroundIndexCatchUp;
+        return this;
+    }
+
     /**
      * Sets logging of inbound messages.
      * <p>
@@ -465,6 +881,28 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets whether the Framer adapts its duty cycle to the pressure that it's under. When a duty cycle reaches
+     * either the {@link #outboundLibraryFragmentLimit(int)} or the {@link #inboundBytesReceivedLimit(int)} the
+     * fragment limit for replays is halved, and retries, library timeouts and admin commands are deferred for up to
+     * 16 duty cycles. The replay fragment limit grows back to {@link #replayFragmentLimit(int)} once the pressure is
+     * off.
+     * <p>
+     * The time spent in each stage of the duty cycle is also recorded in the Framer stage time counters, measured
+     * with the engine's {@link #clock(Clock)}, which is in nanoseconds by default.
+     * <p>
+     * Defaults to false.
+     *
+     * @param adaptiveDutyCycle true to adapt the Framer's duty cycle, false otherwise.
+     * @return this
+     * @see EngineConfiguration#ADAPTIVE_DUTY_CYCLE_PROP
+     */
+    public EngineConfiguration adaptiveDutyCycle(final boolean adaptiveDutyCycle)
+    {
+        this.adaptiveDutyCycle = adaptiveDutyCycle;
+        return this;
+    }
+
     public EngineConfiguration senderMaxBytesInBuffer(final int senderMaxBytesInBuffer)
     {
         this.senderMaxBytesInBuffer = senderMaxBytesInBuffer;
@@ -495,6 +933,45 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets when outbound messages are written to their TCP connection.
+     * <p>
+     * <code>IMMEDIATE</code>, the default, writes each message as soon as it is received from a library.
+     * <code>BYTE_THRESHOLD</code> coalesces the messages for a connection and writes them once
+     * {@link #senderFlushThresholdInBytes(int)} bytes are waiting, with anything left over written at the end of the
+     * Framer's poll of the outbound stream. <code>DUTY_CYCLE</code> coalesces the messages for a connection and writes
+     * them once at the end of the poll, or earlier if more than the flush threshold would be waiting.
+     * <p>
+     * Coalesced messages are written with a single gathering write, which cuts the number of system calls when a
+     * library sends bursts of messages to a session. Messages that can't be written are handled in the same way as
+     * an unwritten message under the <code>IMMEDIATE</code> policy, so they count towards
+     * {@link #senderMaxBytesInBuffer(int)} and can make the connection a slow consumer.
+     *
+     * @param senderFlushPolicy when outbound messages are written to their TCP connection.
+     * @return this
+     */
+    public EngineConfiguration senderFlushPolicy(final SenderFlushPolicy senderFlushPolicy)
+    {
+        this.senderFlushPolicy = senderFlushPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the number of bytes of outbound messages that are coalesced for a connection before being written. This
+     * is also the size of each connection's coalescing buffer, it's unused under the <code>IMMEDIATE</code> flush
+     * policy.
+     *
+     * @param senderFlushThresholdInBytes the number of bytes of outbound messages to coalesce.
+     * @return this
+     * @see EngineConfiguration#SENDER_FLUSH_THRESHOLD_IN_BYTES_PROP
+     * @see #senderFlushPolicy(SenderFlushPolicy)
+     */
+    public EngineConfiguration senderFlushThresholdInBytes(final int senderFlushThresholdInBytes)
+    {
+        this.senderFlushThresholdInBytes = senderFlushThresholdInBytes;
+        return this;
+    }
+
     public EngineConfiguration slowConsumerTimeoutInMs(final long slowConsumerTimeoutInMs)
     {
         this.slowConsumerTimeoutInMs = slowConsumerTimeoutInMs;
@@ -656,6 +1133,22 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets whether the sequence number index files are flushed by journaling the sectors that have changed since
+     * the last flush and then writing them in place, rather than rewriting and renaming the whole file. This makes
+     * the cost of each flush proportional to the number of sessions that have changed, rather than the size of the
+     * file. Default: false.
+     *
+     * @param sequenceNumberIndexJournal true to journal changed sectors, false to rewrite the whole file.
+     * @return this
+     * @see EngineConfiguration#SEQUENCE_NUMBER_INDEX_JOURNAL_PROP
+     */
+    public EngineConfiguration sequenceNumberIndexJournal(final boolean sequenceNumberIndexJournal)
+    {
+        this.sequenceNumberIndexJournal = sequenceNumberIndexJournal;
+        return this;
+    }
+
     /**
      * Specify a single acceptor FIX Dictionary. If an override for a given FIX version is specified using
      * {@link #overrideAcceptorFixDictionary(Class)} then this FIX Dictionary will be used as a catch-all for any
@@ -699,6 +1192,56 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets the checksum calculator used to validate the checksums of inbound messages and to recompute the checksums
+     * of replayed messages. Defaults to {@link MutableAsciiBuffer#CHECKSUM_CALCULATOR}, which is also the calculator
+     * used by encoders.
+     *
+     * @param checksumCalculator the checksum calculator to use.
+     * @return this
+     * @see ChecksumCalculator#CHECKSUM_CALCULATOR_PROP
+     */
+    public EngineConfiguration checksumCalculator(final ChecksumCalculator checksumCalculator)
+    {
+        this.checksumCalculator = checksumCalculator;
+        return this;
+    }
+
+    public ReceiverPollingPolicy receiverPollingPolicy()
+    {
+        return receiverPollingPolicy;
+    }
+
+    public int receiverReadyEndPointLimit()
+    {
+        return receiverReadyEndPointLimit;
+    }
+
+    public int framerShardCount()
+    {
+        return framerShardCount;
+    }
+
+    public Supplier<IdleStrategy> framerShardIdleStrategySupplier()
+    {
+        return framerShardIdleStrategySupplier;
+    }
+
+    public ThreadFactory framerShardThreadFactory()
+    {
+        return framerShardThreadFactory != null ? framerShardThreadFactory : threadFactory();
+    }
+
+    public boolean outboundSenderAgent()
+    {
+        return outboundSenderAgent;
+    }
+
+    public IdleStrategy outboundSenderIdleStrategy()
+    {
+        return outboundSenderIdleStrategy;
+    }
+
     public int receiverBufferSize()
     {
         return receiverBufferSize;
@@ -739,6 +1282,36 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return replayIndexFileSize;
     }
 
+    public int replayIndexSegments()
+    {
+        return replayIndexSegments;
+    }
+
+    public boolean timeIndex()
+    {
+        return timeIndex;
+    }
+
+    public long timeIndexInterval()
+    {
+        return timeIndexInterval;
+    }
+
+    public boolean secondaryIndex()
+    {
+        return secondaryIndex;
+    }
+
+    public long secondaryIndexSegmentSize()
+    {
+        return secondaryIndexSegmentSize;
+    }
+
+    public int secondaryIndexSegments()
+    {
+        return secondaryIndexSegments;
+    }
+
     public int loggerCacheSetSize()
     {
         return loggerCacheSetSize;
@@ -749,6 +1322,31 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return loggerCacheNumSets;
     }
 
+    public int replayCacheSlotSize()
+    {
+        return replayCacheSlotSize;
+    }
+
+    public int replayCacheNumSets()
+    {
+        return replayCacheNumSets;
+    }
+
+    public int replayCacheSetSize()
+    {
+        return replayCacheSetSize;
+    }
+
+    public int indexCatchUpParallelism()
+    {
+        return indexCatchUpParallelism;
+    }
+
+    public boolean backgroundIndexCatchUp()
+    {
+        return backgroundIndexCatchUp;
+    }
+
     public boolean logInboundMessages()
     {
         return logInboundMessages;
@@ -799,6 +1397,11 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return inboundBytesReceivedLimit;
     }
 
+    public boolean adaptiveDutyCycle()
+    {
+        return adaptiveDutyCycle;
+    }
+
     public MappedFile sentSequenceNumberIndex()
     {
         return sentSequenceNumberIndex;
@@ -849,6 +1452,16 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return scheduler;
     }
 
+    public SenderFlushPolicy senderFlushPolicy()
+    {
+        return senderFlushPolicy;
+    }
+
+    public int senderFlushThresholdInBytes()
+    {
+        return senderFlushThresholdInBytes;
+    }
+
     public long slowConsumerTimeoutInMs()
     {
         return slowConsumerTimeoutInMs;
@@ -874,6 +1487,11 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return indexFileStateFlushTimeoutInMs;
     }
 
+    public boolean sequenceNumberIndexJournal()
+    {
+        return sequenceNumberIndexJournal;
+    }
+
     public FixDictionary acceptorfixDictionary()
     {
         return acceptorfixDictionary;
@@ -894,6 +1512,11 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return authenticationTimeoutInMs;
     }
 
+    public ChecksumCalculator checksumCalculator()
+    {
+        return checksumCalculator;
+    }
+
     /**
      * {@inheritDoc}
      */
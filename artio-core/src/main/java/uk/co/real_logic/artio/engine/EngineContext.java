@@ -21,6 +21,7 @@ import io.aeron.Subscription;
 import io.aeron.UnavailableImageHandler;
 import io.aeron.archive.client.AeronArchive;
 import io.aeron.logbuffer.BufferClaim;
+import org.agrona.CloseHelper;
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.*;
 import uk.co.real_logic.artio.Clock;
@@ -35,7 +36,6 @@ import uk.co.real_logic.artio.protocol.Streams;
 import java.util.ArrayList;
 import java.util.List;
 
-import static java.util.Arrays.asList;
 import static uk.co.real_logic.artio.dictionary.generation.Exceptions.suppressingClose;
 
 public class EngineContext implements AutoCloseable
@@ -61,6 +61,8 @@ public class EngineContext implements AutoCloseable
     // Indexers are owned by the indexingAgent
     private Indexer inboundIndexer;
     private Indexer outboundIndexer;
+    private ReplayCache replayCache;
+    private IndexCatchUp indexCatchUp;
     private Agent indexingAgent;
 
     EngineContext(
@@ -94,7 +96,8 @@ public class EngineContext implements AutoCloseable
                 recordingCoordinator.outboundRecordingIdLookup(),
                 configuration.indexFileStateFlushTimeoutInMs(),
                 epochClock,
-                configuration.logFileDir());
+                configuration.logFileDir(),
+                configuration.sequenceNumberIndexJournal());
             receivedSequenceNumberIndex = new SequenceNumberIndexWriter(
                 configuration.receivedSequenceNumberBuffer(),
                 configuration.receivedSequenceNumberIndex(),
@@ -103,7 +106,8 @@ public class EngineContext implements AutoCloseable
                 recordingCoordinator.inboundRecordingIdLookup(),
                 configuration.indexFileStateFlushTimeoutInMs(),
                 epochClock,
-                null);
+                null,
+                configuration.sequenceNumberIndexJournal());
 
             newStreams();
             newArchivingAgent();
@@ -154,6 +158,7 @@ public class EngineContext implements AutoCloseable
             logFileDir,
             streamId,
             configuration.replayIndexFileSize(),
+            configuration.replayIndexSegments(),
             cacheNumSets,
             cacheSetSize,
             LoggerUtil::map,
@@ -162,6 +167,43 @@ public class EngineContext implements AutoCloseable
             recordingIdLookup);
     }
 
+    private void addTimeIndex(
+        final List<Index> indices,
+        final String logFileDir,
+        final int streamId,
+        final RecordingIdLookup recordingIdLookup)
+    {
+        if (configuration.timeIndex())
+        {
+            indices.add(new TimeIndex(
+                logFileDir,
+                streamId,
+                configuration.timeIndexInterval(),
+                TimeIndexDescriptor.timePositionBuffer(logFileDir, streamId),
+                errorHandler,
+                recordingIdLookup));
+        }
+    }
+
+    private void addSecondaryIndex(
+        final List<Index> indices,
+        final String logFileDir,
+        final int streamId,
+        final RecordingIdLookup recordingIdLookup)
+    {
+        if (configuration.secondaryIndex())
+        {
+            indices.add(new SecondaryIndex(
+                logFileDir,
+                streamId,
+                configuration.secondaryIndexSegmentSize(),
+                configuration.secondaryIndexSegments(),
+                SecondaryIndexDescriptor.secondaryPositionBuffer(logFileDir, streamId),
+                errorHandler,
+                recordingIdLookup));
+        }
+    }
+
     private ReplayQuery newReplayQuery(final IdleStrategy idleStrategy, final int streamId)
     {
         final String logFileDir = configuration.logFileDir();
@@ -175,6 +217,8 @@ public class EngineContext implements AutoCloseable
             cacheSetSize,
             LoggerUtil::mapExistingFile,
             streamId,
+            configuration.replayIndexSegments() > 0,
+            streamId == configuration.outboundLibraryStream(),
             idleStrategy,
             aeronArchive,
             errorHandler,
@@ -186,6 +230,7 @@ public class EngineContext implements AutoCloseable
     {
         return new Replayer(
             newReplayQuery(configuration.archiverIdleStrategy(), configuration.outboundLibraryStream()),
+            replayCache,
             replayPublication,
             new BufferClaim(),
             configuration.archiverIdleStrategy(),
@@ -197,7 +242,9 @@ public class EngineContext implements AutoCloseable
             configuration.gapfillOnReplayMessageTypes(),
             configuration.replayHandler(),
             senderSequenceNumbers,
-            new FixSessionCodecsFactory());
+            new FixSessionCodecsFactory(),
+            configuration.checksumCalculator(),
+            indexCatchUp::isComplete);
     }
 
     private void newIndexers()
@@ -206,6 +253,15 @@ public class EngineContext implements AutoCloseable
         final int cacheNumSets = configuration.loggerCacheNumSets();
         final String logFileDir = configuration.logFileDir();
 
+        indexCatchUp = new IndexCatchUp(
+            aeronArchive,
+            errorHandler,
+            configuration.archiveReplayStream(),
+            configuration.indexCatchUpParallelism(),
+            configuration.backgroundIndexCatchUp(),
+            fixCounters.indexCatchUpRemaining(),
+            configuration.agentNamePrefix());
+
         final ReplayIndex inboundReplayIndex = newReplayIndex(
             cacheSetSize,
             cacheNumSets,
@@ -213,14 +269,23 @@ public class EngineContext implements AutoCloseable
             configuration.inboundLibraryStream(),
             recordingCoordinator.inboundRecordingIdLookup());
 
+        final List<Index> inboundIndices = new ArrayList<>();
+        inboundIndices.add(inboundReplayIndex);
+        addTimeIndex(
+            inboundIndices, logFileDir, configuration.inboundLibraryStream(),
+            recordingCoordinator.inboundRecordingIdLookup());
+        addSecondaryIndex(
+            inboundIndices, logFileDir, configuration.inboundLibraryStream(),
+            recordingCoordinator.inboundRecordingIdLookup());
+        inboundIndices.add(receivedSequenceNumberIndex);
+
         inboundIndexer = new Indexer(
-            asList(inboundReplayIndex, receivedSequenceNumberIndex),
+            inboundIndices,
             inboundLibraryStreams.subscription("inboundIndexer"),
+            recordingCoordinator.inboundRecordingIdLookup(),
             configuration.agentNamePrefix(),
             inboundCompletionPosition,
-            aeronArchive,
-            errorHandler,
-            configuration.archiveReplayStream(),
+            indexCatchUp,
             configuration.gracefulShutdown());
 
         final List<Index> outboundIndices = new ArrayList<>();
@@ -230,18 +295,37 @@ public class EngineContext implements AutoCloseable
             logFileDir,
             configuration.outboundLibraryStream(),
             recordingCoordinator.outboundRecordingIdLookup()));
+        addTimeIndex(
+            outboundIndices, logFileDir, configuration.outboundLibraryStream(),
+            recordingCoordinator.outboundRecordingIdLookup());
+        addSecondaryIndex(
+            outboundIndices, logFileDir, configuration.outboundLibraryStream(),
+            recordingCoordinator.outboundRecordingIdLookup());
         outboundIndices.add(sentSequenceNumberIndex);
+        if (configuration.replayCacheSlotSize() > 0)
+        {
+            replayCache = new ReplayCache(
+                configuration.outboundLibraryStream(),
+                configuration.replayCacheNumSets(),
+                configuration.replayCacheSetSize(),
+                configuration.replayCacheSlotSize(),
+                errorHandler,
+                fixCounters.replayCacheHits(),
+                fixCounters.replayCacheMisses());
+            outboundIndices.add(replayCache);
+        }
         outboundIndices.add(new PositionSender(inboundPublication()));
 
         outboundIndexer = new Indexer(
             outboundIndices,
             outboundLibraryStreams.subscription("outboundIndexer"),
+            recordingCoordinator.outboundRecordingIdLookup(),
             configuration.agentNamePrefix(),
             outboundLibraryCompletionPosition,
-            aeronArchive,
-            errorHandler,
-            configuration.archiveReplayStream(),
+            indexCatchUp,
             configuration.gracefulShutdown());
+
+        indexCatchUp.run();
     }
 
     private void newArchivingAgent()
@@ -281,6 +365,13 @@ public class EngineContext implements AutoCloseable
         return outboundLibraryStreams;
     }
 
+    // The Framer and its shards publish onto the inbound library stream through one shared Aeron publication, so
+    // that everything published about a connection is in the order it was published, whichever thread polled it.
+    public GatewayPublication sharedInboundPublication(final IdleStrategy idleStrategy, final String name)
+    {
+        return inboundLibraryStreams.sharedGatewayPublication(idleStrategy, name);
+    }
+
     // Each invocation should return a new instance of the subscription
     public Subscription outboundLibrarySubscription(
         final String name, final UnavailableImageHandler unavailableImageHandler)
@@ -339,6 +430,8 @@ public class EngineContext implements AutoCloseable
 
     public void close()
     {
+        CloseHelper.close(indexCatchUp);
+
         if (configuration.gracefulShutdown())
         {
             Exceptions.closeAll(
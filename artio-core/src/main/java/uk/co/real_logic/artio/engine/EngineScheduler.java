@@ -19,6 +19,10 @@ import io.aeron.Aeron;
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.Agent;
 import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.CompositeAgent;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Interface for determining how an Engine's Agents are allocated to threads.
@@ -45,6 +49,58 @@ public interface EngineScheduler extends AutoCloseable
         Agent conductorAgent,
         RecordingCoordinator recordingCoordinator);
 
+    /**
+     * Invoked by the FIX Engine to start the threads when it has framer shards, see
+     * {@link EngineConfiguration#framerShardCount(int)}, or an outbound sender, see
+     * {@link EngineConfiguration#outboundSenderAgent(boolean)}. Should only return once they are started.
+     *
+     * By default the framer shards and outbound sender are run on the same thread as the framer, schedulers that can
+     * give each of them their own thread should override this method.
+     *
+     * @param configuration the engine's configuration object.
+     * @param errorHandler the ErrorHandler used by the engine.
+     * @param framer the framer agent to schedule.
+     * @param framerShards the framer shard agents to schedule, empty if there aren't any.
+     * @param outboundSender the outbound sender agent to schedule, null if there isn't one.
+     * @param indexingAgent the archiver agent to schedule.
+     * @param monitoringAgent the monitoring agent to schedule.
+     * @param conductorAgent if aeron has useConductorInvoker enable it
+     * @param recordingCoordinator must be shut down after the Framer but before the conductorAgent.
+     */
+    default void launch(
+        EngineConfiguration configuration,
+        ErrorHandler errorHandler,
+        Agent framer,
+        List<Agent> framerShards,
+        Agent outboundSender,
+        Agent indexingAgent,
+        Agent monitoringAgent,
+        Agent conductorAgent,
+        RecordingCoordinator recordingCoordinator)
+    {
+        Agent framerAgent = framer;
+        if (!framerShards.isEmpty() || outboundSender != null)
+        {
+            final List<Agent> agents = new ArrayList<>();
+            agents.add(framer);
+            if (outboundSender != null)
+            {
+                agents.add(outboundSender);
+            }
+            agents.addAll(framerShards);
+            framerAgent = new CompositeAgent(agents);
+        }
+
+        launch(
+            configuration,
+            errorHandler,
+            framerAgent,
+            indexingAgent,
+            monitoringAgent,
+            conductorAgent,
+            recordingCoordinator);
+    }
+
     /**
      * Invoked by the FIX Engine to stop the threads. Should only return once they are completed stopped.
      */
@@ -318,6 +318,8 @@ public final class FixEngine extends GatewayProcess
             configuration,
             errorHandler,
             framerContext.framer(),
+            framerContext.framerShards(),
+            framerContext.outboundSender(),
             engineContext.indexingAgent(),
             monitoringAgent,
             conductorAgent(),
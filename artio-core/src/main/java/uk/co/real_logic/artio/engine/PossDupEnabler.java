@@ -29,6 +29,7 @@ import uk.co.real_logic.artio.fields.UtcTimestampEncoder;
 import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.otf.OtfParser;
+import uk.co.real_logic.artio.util.ChecksumCalculator;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
 import java.util.function.Consumer;
@@ -69,6 +70,7 @@ public class PossDupEnabler
     private final EpochClock clock;
     private final int maxPayloadLength;
     private final LogTag logTag;
+    private final ChecksumCalculator checksumCalculator;
 
     private int fragmentedMessageLength;
 
@@ -80,7 +82,8 @@ public class PossDupEnabler
         final ErrorHandler errorHandler,
         final EpochClock clock,
         final int maxPayloadLength,
-        final LogTag logTag)
+        final LogTag logTag,
+        final ChecksumCalculator checksumCalculator)
     {
         this.bufferClaim = bufferClaim;
         this.claimer = claimer;
@@ -90,6 +93,7 @@ public class PossDupEnabler
         this.clock = clock;
         this.maxPayloadLength = maxPayloadLength;
         this.logTag = logTag;
+        this.checksumCalculator = checksumCalculator;
     }
 
     // Only return abort if genuinely back pressured
@@ -402,7 +406,7 @@ public class PossDupEnabler
     {
         final int lengthOfSeparator = 1;
         final int checksumEnd = beforeChecksum + lengthOfSeparator;
-        final int checksum = mutableAsciiFlyweight.computeChecksum(messageClaimOffset, checksumEnd);
+        final int checksum = checksumCalculator.computeChecksum(mutableAsciiFlyweight, messageClaimOffset, checksumEnd);
         final int checksumValueOffset = messageEndOffset - (CHECKSUM_VALUE_LENGTH + SEPARATOR_LENGTH);
         mutableAsciiFlyweight.putNaturalPaddedIntAscii(checksumValueOffset, CHECKSUM_VALUE_LENGTH, checksum);
         mutableAsciiFlyweight.putSeparator(checksumValueOffset + CHECKSUM_VALUE_LENGTH);
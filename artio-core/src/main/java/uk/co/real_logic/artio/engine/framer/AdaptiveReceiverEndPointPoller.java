@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.collections.ArrayUtil;
+import uk.co.real_logic.artio.messages.DisconnectReason;
+
+import java.io.IOException;
+
+import static org.agrona.collections.ArrayUtil.UNKNOWN_INDEX;
+
+/**
+ * Polls every end point in turn when there are only a few of them and uses the selector once there are more.
+ */
+class AdaptiveReceiverEndPointPoller extends ReceiverEndPointPoller
+{
+    private ReceiverEndPoint[] endPoints = new ReceiverEndPoint[0];
+
+    void add(final ReceiverEndPoint endPoint)
+    {
+        endPoints = ArrayUtil.add(endPoints, endPoint);
+        register(endPoint);
+    }
+
+    ReceiverEndPoint remove(final long connectionId)
+    {
+        final ReceiverEndPoint[] endPoints = this.endPoints;
+        final int index = ReceiverEndPoints.findEndPoint(connectionId, endPoints);
+        if (index == UNKNOWN_INDEX)
+        {
+            return null;
+        }
+
+        final ReceiverEndPoint endPoint = endPoints[index];
+        this.endPoints = ArrayUtil.remove(endPoints, index);
+        return endPoint;
+    }
+
+    int size()
+    {
+        return endPoints.length;
+    }
+
+    void closeAll(final DisconnectReason reason)
+    {
+        ReceiverEndPoints.closeAll(endPoints, reason);
+    }
+
+    int pollReadyEndPoints(final int numRequiredPollingEndPoints) throws IOException
+    {
+        final ReceiverEndPoint[] endPoints = this.endPoints;
+        final int numEndPoints = endPoints.length;
+        final int threshold = ITERATION_THRESHOLD - numRequiredPollingEndPoints;
+        if (numEndPoints <= threshold)
+        {
+            return ReceiverEndPoints.pollArray(0, endPoints, numEndPoints);
+        }
+        else
+        {
+            selector.selectNow();
+
+            return pollSelectedKeys(Integer.MAX_VALUE);
+        }
+    }
+}
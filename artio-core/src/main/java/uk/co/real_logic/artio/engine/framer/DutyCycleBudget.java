@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.concurrent.status.AtomicCounter;
+import uk.co.real_logic.artio.Clock;
+import uk.co.real_logic.artio.FixCounters;
+
+/**
+ * Adapts the Framer's duty cycle to the pressure that it's under, see
+ * {@link uk.co.real_logic.artio.engine.EngineConfiguration#adaptiveDutyCycle(boolean)}.
+ *
+ * Live outbound and inbound messages are always processed up to their configured limits. When either limit is
+ * reached the replay fragment limit is halved and deferrable work is skipped, when neither is reached the replay
+ * fragment limit is doubled back up to its configured value. Deferrable work is never skipped for more than
+ * {@link #MAX_DEFERRED_DUTY_CYCLES} duty cycles in a row.
+ *
+ * Stage times are measured with the engine's configured {@link Clock}.
+ */
+class DutyCycleBudget
+{
+    static final int MAX_DEFERRED_DUTY_CYCLES = 16;
+
+    private final int outboundLibraryFragmentLimit;
+    private final int inboundBytesReceivedLimit;
+    private final int maxReplayFragmentLimit;
+    private final Clock clock;
+
+    private final AtomicCounter outboundStageTime;
+    private final AtomicCounter inboundStageTime;
+    private final AtomicCounter replayStageTime;
+    private final AtomicCounter sessionStageTime;
+    private final AtomicCounter deferrableStageTime;
+
+    private int replayFragmentLimit;
+    private int deferredDutyCycles = 0;
+    private boolean underPressure = false;
+
+    DutyCycleBudget(
+        final int outboundLibraryFragmentLimit,
+        final int inboundBytesReceivedLimit,
+        final int replayFragmentLimit,
+        final Clock clock,
+        final FixCounters fixCounters)
+    {
+        this.outboundLibraryFragmentLimit = outboundLibraryFragmentLimit;
+        this.inboundBytesReceivedLimit = inboundBytesReceivedLimit;
+        this.maxReplayFragmentLimit = replayFragmentLimit;
+        this.replayFragmentLimit = replayFragmentLimit;
+        this.clock = clock;
+
+        outboundStageTime = fixCounters.framerStageTime("outbound");
+        inboundStageTime = fixCounters.framerStageTime("inbound");
+        replayStageTime = fixCounters.framerStageTime("replay");
+        sessionStageTime = fixCounters.framerStageTime("session");
+        deferrableStageTime = fixCounters.framerStageTime("deferrable");
+    }
+
+    // Each stage method records the time since the end of the previous stage and returns the end of this stage.
+
+    long onOutboundStage(final long startTime, final int fragmentsRead)
+    {
+        underPressure = fragmentsRead >= outboundLibraryFragmentLimit;
+        return recordStageTime(outboundStageTime, startTime);
+    }
+
+    long onInboundStage(final long startTime, final int bytesReceived)
+    {
+        if (bytesReceived >= inboundBytesReceivedLimit)
+        {
+            underPressure = true;
+        }
+
+        if (underPressure)
+        {
+            replayFragmentLimit = Math.max(1, replayFragmentLimit >> 1);
+        }
+        else
+        {
+            replayFragmentLimit = Math.min(maxReplayFragmentLimit, replayFragmentLimit << 1);
+        }
+
+        return recordStageTime(inboundStageTime, startTime);
+    }
+
+    long onReplayStage(final long startTime)
+    {
+        return recordStageTime(replayStageTime, startTime);
+    }
+
+    long onSessionStage(final long startTime)
+    {
+        return recordStageTime(sessionStageTime, startTime);
+    }
+
+    void onDeferrableStage(final long startTime)
+    {
+        recordStageTime(deferrableStageTime, startTime);
+    }
+
+    int replayFragmentLimit()
+    {
+        return replayFragmentLimit;
+    }
+
+    boolean shouldDoDeferrableWork()
+    {
+        if (underPressure && deferredDutyCycles < MAX_DEFERRED_DUTY_CYCLES)
+        {
+            deferredDutyCycles++;
+            return false;
+        }
+
+        deferredDutyCycles = 0;
+        return true;
+    }
+
+    private long recordStageTime(final AtomicCounter stageTime, final long startTime)
+    {
+        final long endTime = clock.time();
+        stageTime.getAndAddOrdered(endTime - startTime);
+        return endTime;
+    }
+}
@@ -73,7 +73,8 @@ class EndPointFactory
             libraryId,
             gatewaySessions,
             configuration.clock(),
-            framer.acceptorFixDictionaryLookup());
+            framer.acceptorFixDictionaryLookup(),
+            configuration.checksumCalculator());
     }
 
     SenderEndPoint senderEndPoint(
@@ -97,7 +98,10 @@ class EndPointFactory
             configuration.senderMaxBytesInBuffer(),
             configuration.slowConsumerTimeoutInMs(),
             System.currentTimeMillis(),
-            senderSequenceNumbers.onNewSender(connectionId));
+            senderSequenceNumbers.onNewSender(connectionId),
+            configuration.senderFlushPolicy(),
+            configuration.senderFlushThresholdInBytes(),
+            framer.outboundLock());
     }
 
     void replaySlowPeeker(final SlowPeeker replaySlowPeeker)
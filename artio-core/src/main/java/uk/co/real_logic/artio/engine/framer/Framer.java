@@ -56,7 +56,9 @@ import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.LongToIntFunction;
 import java.util.function.Predicate;
 
 import static io.aeron.Publication.BACK_PRESSURED;
@@ -102,6 +104,11 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     private final Consumer<AdminCommand> onAdminCommand = command -> command.execute(this);
     private final NewChannelHandler onNewConnectionFunc = this::onNewConnection;
     private final Predicate<LiveLibraryInfo> retryAcquireLibrarySessionsFunc = this::retryAcquireLibrarySessions;
+    private final LongToIntFunction libraryLookup = this::lookupLibraryId;
+
+    // Guards the sender end points when the outbound path is run by its own agent, see OutboundSender.
+    private final ReentrantLock outboundLock = new ReentrantLock();
+    private final OutboundSender outboundSender;
 
     private final TcpChannelSupplier channelSupplier;
     private final EpochClock epochClock;
@@ -114,6 +121,8 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     private final ControlledFragmentHandler replaySlowSubscriber;
 
     private final ReceiverEndPoints receiverEndPoints;
+    // null unless the duty cycle is adaptive
+    private final DutyCycleBudget dutyCycleBudget;
     private final ControlledFragmentAssembler senderEndPointAssembler;
     private final SenderEndPoints senderEndPoints;
 
@@ -186,7 +195,9 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final CompletionPosition outboundLibraryCompletionPosition,
         final FinalImagePositions finalImagePositions,
         final AgentInvoker conductorAgentInvoker,
-        final RecordingCoordinator recordingCoordinator)
+        final RecordingCoordinator recordingCoordinator,
+        final FramerShards framerShards,
+        final DutyCycleBudget dutyCycleBudget)
     {
         this.epochClock = epochClock;
         this.clock = configuration.clock();
@@ -220,23 +231,37 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
             configuration.acceptorfixDictionary(),
             configuration.acceptorFixDictionaryOverrides());
 
-        receiverEndPoints = new ReceiverEndPoints(errorHandler);
+        receiverEndPoints = new ReceiverEndPoints(
+            errorHandler,
+            ReceiverEndPointPoller.of(
+                configuration.receiverPollingPolicy(), configuration.receiverReadyEndPointLimit()),
+            framerShards);
 
         this.librarySlowPeeker = new SubscriptionSlowPeeker(slowSubscription, librarySubscription);
 
         this.outboundLibraryFragmentLimit = configuration.outboundLibraryFragmentLimit();
         this.replayFragmentLimit = configuration.replayFragmentLimit();
         this.inboundBytesReceivedLimit = configuration.inboundBytesReceivedLimit();
+        this.dutyCycleBudget = dutyCycleBudget;
 
         this.replaySlowPeeker = new SlowPeeker(replaySlowImage, replayImage);
         endPointFactory.replaySlowPeeker(replaySlowPeeker);
 
 
         engineBlockablePosition = getOutboundSlowPeeker(outboundPublication);
-        librarySubscriber = new ControlledFragmentAssembler(
-            ProtocolSubscription.of(this, new EngineProtocolSubscription(this)),
-            0,
-            true);
+        final ControlledFragmentHandler libraryHandler =
+            ProtocolSubscription.of(this, new EngineProtocolSubscription(this));
+        if (configuration.outboundSenderAgent())
+        {
+            outboundSender = new OutboundSender(outboundLock, this, epochClock, agentNamePrefix);
+            librarySubscriber = new ControlledFragmentAssembler(
+                outboundSender.libraryFragmentHandler(libraryHandler), 0, true);
+        }
+        else
+        {
+            outboundSender = null;
+            librarySubscriber = new ControlledFragmentAssembler(libraryHandler, 0, true);
+        }
         nonLoggingPositionSender = configuration.logOutboundMessages() ?
             null : new PositionSender(inboundPublication);
 
@@ -324,11 +349,31 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     public int doWork() throws Exception
     {
         final long timeInMs = epochClock.time();
+        if (outboundSender != null)
+        {
+            return retryManager.attemptSteps() +
+                outboundSender.doFramerWork() +
+                sendPositions() +
+                pollEndPoints() +
+                receiverEndPoints.pollShards() +
+                pollNewConnections(timeInMs) +
+                pollLibraries(timeInMs) +
+                gatewaySessions.pollSessions(timeInMs) +
+                adminCommands.drain(onAdminCommand) +
+                checkDutyCycle();
+        }
+
+        if (dutyCycleBudget != null)
+        {
+            return doBudgetedWork(timeInMs);
+        }
+
         senderEndPoints.timeInMs(timeInMs);
         return retryManager.attemptSteps() +
             sendOutboundMessages() +
             sendReplayMessages() +
             pollEndPoints() +
+            receiverEndPoints.pollShards() +
             pollNewConnections(timeInMs) +
             pollLibraries(timeInMs) +
             gatewaySessions.pollSessions(timeInMs) +
@@ -337,6 +382,78 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
             checkDutyCycle();
     }
 
+    // Live messages are processed first, then replays and sessions, then work that can be deferred under pressure.
+    private int doBudgetedWork(final long timeInMs) throws IOException
+    {
+        final DutyCycleBudget dutyCycleBudget = this.dutyCycleBudget;
+        senderEndPoints.timeInMs(timeInMs);
+
+        // Pressure is based on the messages read, not on flushing, peeking or shard housekeeping.
+        long stageTime = clock.time();
+        final int fragmentsRead = pollLibraryMessages();
+        final int outboundWorkCount = fragmentsRead + flushOutboundMessages();
+        stageTime = dutyCycleBudget.onOutboundStage(stageTime, fragmentsRead);
+
+        final int bytesReceived = pollEndPoints();
+        final int inboundWorkCount = bytesReceived + receiverEndPoints.pollShards();
+        stageTime = dutyCycleBudget.onInboundStage(stageTime, bytesReceived);
+
+        final int replayWorkCount = sendReplayMessages(dutyCycleBudget.replayFragmentLimit());
+        stageTime = dutyCycleBudget.onReplayStage(stageTime);
+
+        int workCount = outboundWorkCount + inboundWorkCount + replayWorkCount +
+            pollNewConnections(timeInMs) +
+            gatewaySessions.pollSessions(timeInMs) +
+            senderEndPoints.checkTimeouts(timeInMs);
+        stageTime = dutyCycleBudget.onSessionStage(stageTime);
+
+        if (dutyCycleBudget.shouldDoDeferrableWork())
+        {
+            workCount += retryManager.attemptSteps() +
+                pollLibraries(timeInMs) +
+                adminCommands.drain(onAdminCommand) +
+                checkDutyCycle();
+            dutyCycleBudget.onDeferrableStage(stageTime);
+        }
+
+        return workCount;
+    }
+
+    // Invoked by the OutboundSender whilst holding the outbound lock.
+    int sendOutbound(final long timeInMs, final boolean pollLibrarySubscription)
+    {
+        senderEndPoints.timeInMs(timeInMs);
+        return sendLibraryMessages(pollLibrarySubscription) +
+            sendReplayMessages() +
+            senderEndPoints.checkTimeouts(timeInMs);
+    }
+
+    // Invoked by the OutboundSender whilst holding the outbound lock, when it has stopped at a library control
+    // message.
+    int pollLibraryControlMessages()
+    {
+        return sendLibraryMessages(true);
+    }
+
+    // Positions are published on the inbound stream, which is only ever written to by the Framer thread.
+    private int sendPositions()
+    {
+        if (nonLoggingPositionSender == null)
+        {
+            return 0;
+        }
+
+        outboundLock.lock();
+        try
+        {
+            return nonLoggingPositionSender.doWork();
+        }
+        finally
+        {
+            outboundLock.unlock();
+        }
+    }
+
     private int checkDutyCycle()
     {
         return removeIf(replies, ResetSequenceNumberCommand::poll) +
@@ -368,15 +485,26 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     }
 
     private int sendReplayMessages()
+    {
+        return sendReplayMessages(replayFragmentLimit);
+    }
+
+    private int sendReplayMessages(final int replayFragmentLimit)
     {
         return replayImage.controlledPoll(replaySubscriber, replayFragmentLimit) +
+            senderEndPoints.flush() +
             replaySlowPeeker.peek(replaySlowSubscriber);
     }
 
     private int sendOutboundMessages()
     {
-        int messagesRead = librarySubscription.controlledPoll(librarySubscriber, outboundLibraryFragmentLimit);
-        messagesRead += librarySlowPeeker.peek(senderEndPointAssembler);
+        final int messagesRead = pollLibraryMessages();
+        return messagesRead + flushOutboundMessages();
+    }
+
+    private int flushOutboundMessages()
+    {
+        final int messagesRead = flushLibraryMessages();
 
         if (nonLoggingPositionSender != null)
         {
@@ -386,6 +514,22 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         return messagesRead;
     }
 
+    private int sendLibraryMessages(final boolean pollLibrarySubscription)
+    {
+        final int messagesRead = pollLibrarySubscription ? pollLibraryMessages() : 0;
+        return messagesRead + flushLibraryMessages();
+    }
+
+    private int pollLibraryMessages()
+    {
+        return librarySubscription.controlledPoll(librarySubscriber, outboundLibraryFragmentLimit);
+    }
+
+    private int flushLibraryMessages()
+    {
+        return senderEndPoints.flush() + librarySlowPeeker.peek(senderEndPointAssembler);
+    }
+
     private int pollLibraries(final long timeInMs)
     {
         int total = 0;
@@ -399,7 +543,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
                 DebugLogger.log(LIBRARY_MANAGEMENT, "Timing out connection to library %s%n", library.libraryId());
 
                 iterator.remove();
-                library.releaseSlowPeeker();
+                releaseSlowPeeker(library);
                 tryAcquireLibrarySessions(library);
                 saveLibraryTimeout(library);
             }
@@ -410,6 +554,19 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         return total;
     }
 
+    private void releaseSlowPeeker(final LiveLibraryInfo library)
+    {
+        outboundLock.lock();
+        try
+        {
+            library.releaseSlowPeeker();
+        }
+        finally
+        {
+            outboundLock.unlock();
+        }
+    }
+
     private void tryAcquireLibrarySessions(final LiveLibraryInfo library)
     {
         final int librarySessionId = library.aeronSessionId();
@@ -626,7 +783,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         if (sessionContext == SessionContexts.DUPLICATE_SESSION || isOwnedSession(sessionContext.sessionId()))
         {
             final long sessionId = sessionContexts.lookupSessionId(sessionKey);
-            final int owningLibraryId = senderEndPoints.libraryLookup().applyAsInt(sessionId);
+            final int owningLibraryId = libraryLookup.applyAsInt(sessionId);
             final String msg =
                 "Duplicate Session for: " + sessionKey +
                 " Surrogate Key: " + sessionId +
@@ -950,12 +1107,19 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
             context.sequenceIndex(),
             libraryId,
             this);
-        receiverEndPoints.add(receiverEndPoint);
 
         final BlockablePosition libraryBlockablePosition = getLibraryBlockablePosition(libraryId);
         final SenderEndPoint senderEndPoint = endPointFactory.senderEndPoint(
             channel, connectionId, libraryId, libraryBlockablePosition, this);
-        senderEndPoints.add(senderEndPoint);
+        outboundLock.lock();
+        try
+        {
+            senderEndPoints.add(senderEndPoint);
+        }
+        finally
+        {
+            outboundLock.unlock();
+        }
 
         final GatewaySession gatewaySession = new GatewaySession(
             connectionId,
@@ -974,6 +1138,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
             configuration.authenticationTimeoutInMs());
 
         receiverEndPoint.gatewaySession(gatewaySession);
+        receiverEndPoints.add(receiverEndPoint);
 
         return gatewaySession;
     }
@@ -997,8 +1162,24 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
     public Action onDisconnect(final int libraryId, final long connectionId, final DisconnectReason reason)
     {
-        receiverEndPoints.removeConnection(connectionId, reason);
-        senderEndPoints.removeConnection(connectionId);
+        if (outboundSender != null && outboundSender.isOnOutboundSenderDutyCycle())
+        {
+            outboundSender.runOnFramer(() -> onDisconnect(libraryId, connectionId, reason));
+            return CONTINUE;
+        }
+
+        outboundLock.lock();
+        try
+        {
+            // Messages sent before the disconnect, eg: a logout, may still be coalesced so write them before closing.
+            senderEndPoints.flush(connectionId);
+            receiverEndPoints.removeConnection(connectionId, reason);
+            senderEndPoints.removeConnection(connectionId);
+        }
+        finally
+        {
+            outboundLock.unlock();
+        }
         gatewaySessions.releaseByConnectionId(connectionId);
 
         final LiveLibraryInfo library = idToLibrary.get(libraryId);
@@ -1316,6 +1497,22 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         return true;
     }
 
+    // A session whose end point is polled on a framer shard has its disconnect detected asynchronously, so a new
+    // connection's logon can overtake it. Returns true if the session's previous connection has now disconnected.
+    boolean pollShardedSessionDisconnect(final long sessionId)
+    {
+        for (final LiveLibraryInfo library : idToLibrary.values())
+        {
+            final GatewaySession session = library.lookupSessionById(sessionId);
+            if (session != null)
+            {
+                return receiverEndPoints.pollShardedDisconnect(session.receiverEndPoint());
+            }
+        }
+
+        return false;
+    }
+
     private boolean isOwnedSession(final long sessionId)
     {
         for (final LiveLibraryInfo library : idToLibrary.values())
@@ -1962,7 +2159,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
     void onResetSequenceNumber(final ResetSequenceNumberCommand reply)
     {
-        reply.libraryLookup(senderEndPoints.libraryLookup());
+        reply.libraryLookup(libraryLookup);
 
         if (!reply.poll())
         {
@@ -2082,6 +2279,29 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         return agentNamePrefix + "Framer";
     }
 
+    ReentrantLock outboundLock()
+    {
+        return outboundLock;
+    }
+
+    OutboundSender outboundSender()
+    {
+        return outboundSender;
+    }
+
+    private int lookupLibraryId(final long sessionId)
+    {
+        outboundLock.lock();
+        try
+        {
+            return senderEndPoints.libraryLookup().applyAsInt(sessionId);
+        }
+        finally
+        {
+            outboundLock.unlock();
+        }
+    }
+
     void schedule(final Continuation continuation)
     {
         retryManager.schedule(continuation);
@@ -2089,6 +2309,12 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
     void slowStatus(final int libraryId, final long connectionId, final boolean hasBecomeSlow)
     {
+        if (outboundSender != null && outboundSender.isOnOutboundSenderDutyCycle())
+        {
+            outboundSender.runOnFramer(() -> slowStatus(libraryId, connectionId, hasBecomeSlow));
+            return;
+        }
+
         if (hasBecomeSlow)
         {
             resendNotSlowStatus.remove(connectionId);
@@ -2120,6 +2346,16 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         receiverEndPoints.receiverEndPointPollingOptional(connectionId);
     }
 
+    void recallFromShard(final ReceiverEndPoint receiverEndPoint)
+    {
+        receiverEndPoints.recall(receiverEndPoint);
+    }
+
+    void receiverEndPointPlayed(final ReceiverEndPoint receiverEndPoint)
+    {
+        receiverEndPoints.onPlay(receiverEndPoint);
+    }
+
     void onBind(final BindCommand bindCommand)
     {
         try
@@ -33,6 +33,7 @@ import uk.co.real_logic.artio.timing.EngineTimers;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -49,6 +50,7 @@ public class FramerContext
     private final SystemEpochClock epochClock = new SystemEpochClock();
 
     private final Framer framer;
+    private final FramerShards framerShards;
 
     private final EngineConfiguration configuration;
     private final GatewaySessions gatewaySessions;
@@ -79,7 +81,9 @@ public class FramerContext
         this.sessionContexts = new SessionContexts(
             configuration.sessionIdBuffer(), sessionIdStrategy, errorHandler);
 
-        this.inboundPublication = engineContext.inboundPublication();
+        this.inboundPublication = configuration.framerShardCount() > 0 ?
+            engineContext.sharedInboundPublication(idleStrategy, "inboundPublication") :
+            engineContext.inboundPublication();
         this.outboundPublication = outboundLibraryStreams.gatewayPublication(idleStrategy, "outboundPublication");
 
         sentSequenceNumberIndex = new SequenceNumberIndexReader(
@@ -111,6 +115,8 @@ public class FramerContext
 
         final FinalImagePositions finalImagePositions = new FinalImagePositions();
 
+        framerShards = newFramerShards(configuration, engineContext, idleStrategy);
+
         framer = new Framer(
             epochClock,
             timers.outboundTimer(),
@@ -138,7 +144,41 @@ public class FramerContext
             engineContext.outboundLibraryCompletionPosition(),
             finalImagePositions,
             conductorAgentInvoker,
-            recordingCoordinator);
+            recordingCoordinator,
+            framerShards,
+            configuration.adaptiveDutyCycle() ? new DutyCycleBudget(
+                configuration.outboundLibraryFragmentLimit(),
+                configuration.inboundBytesReceivedLimit(),
+                configuration.replayFragmentLimit(),
+                configuration.clock(),
+                fixCounters) : null);
+    }
+
+    private FramerShards newFramerShards(
+        final EngineConfiguration configuration,
+        final EngineContext engineContext,
+        final IdleStrategy idleStrategy)
+    {
+        final int framerShardCount = configuration.framerShardCount();
+        if (framerShardCount <= 0)
+        {
+            return null;
+        }
+
+        final FramerShard[] shards = new FramerShard[framerShardCount];
+        for (int shardId = 0; shardId < framerShardCount; shardId++)
+        {
+            shards[shardId] = new FramerShard(
+                shardId,
+                ReceiverEndPointPoller.of(
+                    configuration.receiverPollingPolicy(), configuration.receiverReadyEndPointLimit()),
+                engineContext.sharedInboundPublication(
+                    configuration.framerShardIdleStrategySupplier().get(), "framerShardPublication"),
+                gatewaySessions,
+                configuration.agentNamePrefix());
+        }
+
+        return new FramerShards(shards, inboundPublication, idleStrategy);
     }
 
     public Agent framer()
@@ -146,6 +186,27 @@ public class FramerContext
         return framer;
     }
 
+    /**
+     * Get the framer shard agents, these are empty unless {@link EngineConfiguration#framerShardCount(int)} is set.
+     *
+     * @return the framer shard agents.
+     */
+    public List<Agent> framerShards()
+    {
+        return framerShards == null ? Collections.emptyList() : framerShards.agents();
+    }
+
+    /**
+     * Get the outbound sender agent, this is null unless {@link EngineConfiguration#outboundSenderAgent(boolean)}
+     * is set.
+     *
+     * @return the outbound sender agent.
+     */
+    public Agent outboundSender()
+    {
+        return framer.outboundSender();
+    }
+
     public Reply<List<LibraryInfo>> libraries()
     {
         final QueryLibrariesCommand reply = new QueryLibrariesCommand();
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.ManyToOneConcurrentLinkedQueue;
+import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.dictionary.FixDictionary;
+import uk.co.real_logic.artio.protocol.GatewayPublication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Polls the receiver end points that the Framer has handed over to it, publishing the messages that they frame
+ * straight onto the inbound library stream through an Aeron publication that's shared with the Framer, so they're
+ * ordered with the Framer's own messages for the connection.
+ *
+ * The duty cycle holds the shard's work lock, which the Framer also takes in order to recall an end point, so only
+ * one thread at a time ever uses the poller or the end points on it.
+ */
+class FramerShard implements Agent
+{
+    static final int BUSY = 0;
+    static final int RECALLED = 1;
+    static final int RECALLED_BACKPRESSURED = 2;
+
+    private final ManyToOneConcurrentLinkedQueue<ReceiverEndPoint> handedOverEndPoints =
+        new ManyToOneConcurrentLinkedQueue<>();
+    private final ManyToOneConcurrentLinkedQueue<ReceiverEndPoint> releasedEndPoints =
+        new ManyToOneConcurrentLinkedQueue<>();
+    private final ManyToOneConcurrentLinkedQueue<Runnable> framerTasks = new ManyToOneConcurrentLinkedQueue<>();
+    private final List<ReceiverEndPoint> pendingReleases = new ArrayList<>();
+    private final AtomicBoolean isWorking = new AtomicBoolean(false);
+
+    private final int shardId;
+    private final ReceiverEndPointPoller poller;
+    private final GatewayPublication publication;
+    private final GatewaySessions gatewaySessions;
+    private final String agentNamePrefix;
+
+    FramerShard(
+        final int shardId,
+        final ReceiverEndPointPoller poller,
+        final GatewayPublication publication,
+        final GatewaySessions gatewaySessions,
+        final String agentNamePrefix)
+    {
+        this.shardId = shardId;
+        this.poller = poller;
+        this.publication = publication;
+        this.gatewaySessions = gatewaySessions;
+        this.agentNamePrefix = agentNamePrefix;
+    }
+
+    public int doWork() throws Exception
+    {
+        if (!isWorking.compareAndSet(false, true))
+        {
+            return 0;
+        }
+
+        try
+        {
+            return pollHandedOverEndPoints() + poller.poll(0) + releaseEndPoints();
+        }
+        finally
+        {
+            isWorking.set(false);
+        }
+    }
+
+    private int pollHandedOverEndPoints()
+    {
+        int handedOver = 0;
+        ReceiverEndPoint endPoint;
+        while ((endPoint = handedOverEndPoints.poll()) != null)
+        {
+            poller.add(endPoint);
+            handedOver++;
+        }
+        return handedOver;
+    }
+
+    // End points that have disconnected are only released once they've published everything that they've framed.
+    private int releaseEndPoints()
+    {
+        final List<ReceiverEndPoint> pendingReleases = this.pendingReleases;
+        if (pendingReleases.isEmpty())
+        {
+            return 0;
+        }
+
+        int released = 0;
+        for (int i = pendingReleases.size() - 1; i >= 0; i--)
+        {
+            final ReceiverEndPoint endPoint = pendingReleases.get(i);
+            if (!poller.isBackpressured(endPoint))
+            {
+                endPoint.deregister();
+                pendingReleases.remove(i);
+                releasedEndPoints.offer(endPoint);
+                released++;
+            }
+        }
+
+        if (released > 0)
+        {
+            poller.selectNowToForceProcessing();
+        }
+
+        return released;
+    }
+
+    // Framer thread methods
+
+    void add(final ReceiverEndPoint endPoint)
+    {
+        endPoint.onShard(this, publication);
+        handedOverEndPoints.offer(endPoint);
+    }
+
+    /**
+     * Takes an end point back from the shard. Everything that the end point has framed and that hasn't been
+     * back-pressured has been published once this returns, so whatever the Framer publishes about its connection
+     * afterwards is ordered after it.
+     *
+     * An end point that's back-pressured by the inbound library stream is taken back anyway, rather than holding the
+     * Framer up until the stream has caught up, and its messages are then retried by the Framer.
+     *
+     * @param endPoint the end point to take back.
+     * @return BUSY if the shard is in the middle of its duty cycle, in which case the recall should be retried,
+     * RECALLED_BACKPRESSURED if the end point was taken back whilst back-pressured, otherwise RECALLED.
+     */
+    int tryRecall(final ReceiverEndPoint endPoint)
+    {
+        if (!isWorking.compareAndSet(false, true))
+        {
+            return BUSY;
+        }
+
+        try
+        {
+            pollHandedOverEndPoints();
+
+            final ReceiverEndPointPoller poller = this.poller;
+            final boolean backpressured = poller.isBackpressured(endPoint) &&
+                !poller.retryBackpressuredEndPoints() &&
+                poller.removeBackpressured(endPoint);
+
+            poller.remove(endPoint.connectionId());
+            pendingReleases.remove(endPoint);
+            endPoint.deregister();
+            poller.selectNowToForceProcessing();
+
+            return backpressured ? RECALLED_BACKPRESSURED : RECALLED;
+        }
+        finally
+        {
+            isWorking.set(false);
+        }
+    }
+
+    ReceiverEndPoint pollReleased()
+    {
+        return releasedEndPoints.poll();
+    }
+
+    int runFramerTasks()
+    {
+        int tasks = 0;
+        Runnable task;
+        while ((task = framerTasks.poll()) != null)
+        {
+            task.run();
+            tasks++;
+        }
+        return tasks;
+    }
+
+    // Shard thread methods, invoked by end points that are being polled
+
+    void release(final ReceiverEndPoint endPoint)
+    {
+        poller.remove(endPoint.connectionId());
+        if (!pendingReleases.contains(endPoint))
+        {
+            pendingReleases.add(endPoint);
+        }
+    }
+
+    // Authentication strategies are only ever invoked on the Framer thread, so the message is copied over to it.
+    void onUserRequest(
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final FixDictionary dictionary,
+        final long connectionId,
+        final long sessionId)
+    {
+        final UnsafeBuffer copy = new UnsafeBuffer(new byte[length]);
+        copy.putBytes(0, buffer, offset, length);
+        framerTasks.offer(() -> gatewaySessions.onUserRequest(copy, 0, length, dictionary, connectionId, sessionId));
+    }
+
+    public void onClose()
+    {
+        poller.close();
+        publication.close();
+    }
+
+    public String roleName()
+    {
+        return agentNamePrefix + "FramerShard-" + shardId;
+    }
+}
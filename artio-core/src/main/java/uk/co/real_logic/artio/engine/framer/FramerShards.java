@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.IdleStrategy;
+import uk.co.real_logic.artio.protocol.GatewayPublication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Framer's side of its shards: hands end points over to them and takes them back, either when the Framer
+ * recalls them or once they're released due to a disconnect.
+ *
+ * The shards publish onto the inbound library stream themselves, so the Framer only handles these control events
+ * and never touches the messages that they frame.
+ */
+class FramerShards
+{
+    private final List<ReceiverEndPoint> disconnectedEndPoints = new ArrayList<>();
+
+    private final FramerShard[] shards;
+    private final GatewayPublication inboundPublication;
+    private final IdleStrategy idleStrategy;
+
+    FramerShards(
+        final FramerShard[] shards,
+        final GatewayPublication inboundPublication,
+        final IdleStrategy idleStrategy)
+    {
+        this.shards = shards;
+        this.inboundPublication = inboundPublication;
+        this.idleStrategy = idleStrategy;
+    }
+
+    List<Agent> agents()
+    {
+        return Arrays.asList(shards);
+    }
+
+    void add(final ReceiverEndPoint endPoint)
+    {
+        final int shardId = (int)Math.abs(endPoint.connectionId() % shards.length);
+        shards[shardId].add(endPoint);
+    }
+
+    // The shard only holds its work lock for a single duty cycle, so the Framer only ever waits for the rest of the
+    // one that it has been recalled in the middle of. It doesn't wait for a back-pressured end point to catch up
+    // with the inbound library stream, returning true instead, so that the Framer can retry its messages.
+    boolean recall(final ReceiverEndPoint endPoint)
+    {
+        final FramerShard shard = endPoint.shard();
+        final IdleStrategy idleStrategy = this.idleStrategy;
+
+        idleStrategy.reset();
+        int result;
+        while ((result = shard.tryRecall(endPoint)) == FramerShard.BUSY)
+        {
+            idleStrategy.idle();
+        }
+
+        takeBack(endPoint);
+
+        return result == FramerShard.RECALLED_BACKPRESSURED;
+    }
+
+    int doWork()
+    {
+        int workCount = 0;
+        final FramerShard[] shards = this.shards;
+        for (final FramerShard shard : shards)
+        {
+            workCount += takeReleasedEndPoints(shard) + shard.runFramerTasks();
+        }
+
+        return workCount + completeDisconnects();
+    }
+
+    private int takeReleasedEndPoints(final FramerShard shard)
+    {
+        int released = 0;
+        ReceiverEndPoint endPoint;
+        while ((endPoint = shard.pollReleased()) != null)
+        {
+            // Unless the Framer has already recalled it.
+            if (endPoint.shard() != null)
+            {
+                takeBack(endPoint);
+                released++;
+            }
+        }
+
+        return released;
+    }
+
+    private void takeBack(final ReceiverEndPoint endPoint)
+    {
+        endPoint.offShard(inboundPublication);
+        if (endPoint.disconnectedOnShard())
+        {
+            disconnectedEndPoints.add(endPoint);
+        }
+    }
+
+    int completeDisconnects()
+    {
+        final List<ReceiverEndPoint> disconnectedEndPoints = this.disconnectedEndPoints;
+        int completed = 0;
+        while (!disconnectedEndPoints.isEmpty())
+        {
+            final ReceiverEndPoint endPoint = disconnectedEndPoints.remove(disconnectedEndPoints.size() - 1);
+            // Unless it has already been closed by the Framer, eg: due to a library requesting a disconnect.
+            if (!endPoint.hasDisconnected())
+            {
+                endPoint.onShardDisconnect();
+            }
+            completed++;
+        }
+
+        return completed;
+    }
+}
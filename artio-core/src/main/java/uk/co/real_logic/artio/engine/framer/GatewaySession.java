@@ -114,6 +114,11 @@ class GatewaySession implements SessionInfo, SessionProcessHandler
         return address;
     }
 
+    ReceiverEndPoint receiverEndPoint()
+    {
+        return receiverEndPoint;
+    }
+
     public long sessionId()
     {
         return sessionId;
@@ -129,10 +134,11 @@ class GatewaySession implements SessionInfo, SessionProcessHandler
         final InternalSession session,
         final BlockablePosition blockablePosition)
     {
+        // Taken back from any framer shard before the session parser starts seeing its messages.
+        receiverEndPoint.libraryId(ENGINE_LIBRARY_ID);
         this.sessionParser = sessionParser;
         this.session = session;
         this.session.sessionProcessHandler(this);
-        receiverEndPoint.libraryId(ENGINE_LIBRARY_ID);
         senderEndPoint.libraryId(ENGINE_LIBRARY_ID, blockablePosition);
     }
 
@@ -623,6 +623,12 @@ class GatewaySessions
             final CompositeKey compositeKey = sessionIdStrategy.onAcceptLogon(header);
             sessionContext = sessionContexts.onLogon(compositeKey, fixDictionary);
 
+            if (sessionContext == DUPLICATE_SESSION && framer.pollShardedSessionDisconnect(
+                sessionContexts.newSessionContext(compositeKey, fixDictionary).sessionId()))
+            {
+                sessionContext = sessionContexts.onLogon(compositeKey, fixDictionary);
+            }
+
             if (sessionContext == DUPLICATE_SESSION)
             {
                 reject(DisconnectReason.DUPLICATE_SESSION);
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.EpochClock;
+import org.agrona.concurrent.ManyToOneConcurrentLinkedQueue;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
+
+/**
+ * Runs the Framer's outbound path, that sends messages from libraries and replays to TCP connections, as its own
+ * agent. See {@link uk.co.real_logic.artio.engine.EngineConfiguration#outboundSenderAgent(boolean)}.
+ *
+ * Sender end points are guarded by the outbound lock, which this agent holds for its duty cycle and the Framer
+ * takes whenever it adds, removes or reassigns them. Any message on the library stream that isn't a FIX message
+ * controls libraries or sessions, so polling the stream stops at it until the Framer has handled it. This keeps
+ * those messages in order with the FIX messages around them. Work that the sender hands back to the Framer is run
+ * under the same lock, ahead of those control messages.
+ */
+class OutboundSender implements Agent
+{
+    private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
+    private final ManyToOneConcurrentLinkedQueue<Runnable> framerTasks = new ManyToOneConcurrentLinkedQueue<>();
+
+    private final ReentrantLock outboundLock;
+    private final Framer framer;
+    private final EpochClock epochClock;
+    private final String agentNamePrefix;
+
+    private volatile boolean libraryControlMessagePending = false;
+
+    // Only accessed whilst holding the outbound lock.
+    private boolean isPolling = false;
+
+    OutboundSender(
+        final ReentrantLock outboundLock,
+        final Framer framer,
+        final EpochClock epochClock,
+        final String agentNamePrefix)
+    {
+        this.outboundLock = outboundLock;
+        this.framer = framer;
+        this.epochClock = epochClock;
+        this.agentNamePrefix = agentNamePrefix;
+    }
+
+    public int doWork()
+    {
+        final long timeInMs = epochClock.time();
+        final ReentrantLock outboundLock = this.outboundLock;
+        outboundLock.lock();
+        try
+        {
+            isPolling = true;
+            return framer.sendOutbound(timeInMs, !libraryControlMessagePending);
+        }
+        finally
+        {
+            isPolling = false;
+            outboundLock.unlock();
+        }
+    }
+
+    ControlledFragmentHandler libraryFragmentHandler(final ControlledFragmentHandler libraryHandler)
+    {
+        return (buffer, offset, length, header) ->
+        {
+            if (isPolling && messageHeader.wrap(buffer, offset).templateId() != FixMessageDecoder.TEMPLATE_ID)
+            {
+                libraryControlMessagePending = true;
+                return ABORT;
+            }
+
+            return libraryHandler.onFragment(buffer, offset, length, header);
+        };
+    }
+
+    // Sender end points report disconnects and slow status changes to the Framer, which has to handle them on its
+    // own thread.
+    boolean isOnOutboundSenderDutyCycle()
+    {
+        return outboundLock.isHeldByCurrentThread() && isPolling;
+    }
+
+    void runOnFramer(final Runnable task)
+    {
+        framerTasks.offer(task);
+    }
+
+    // Framer thread methods
+
+    int doFramerWork()
+    {
+        if (framerTasks.isEmpty() && !libraryControlMessagePending)
+        {
+            return 0;
+        }
+
+        // Tasks are run whilst holding the outbound lock, before any library control messages are polled, so that
+        // a disconnect or slow status that the sender reported can't be overtaken by the Framer handling messages
+        // that came after it on the library stream.
+        int workCount = 0;
+        outboundLock.lock();
+        try
+        {
+            Runnable task;
+            while ((task = framerTasks.poll()) != null)
+            {
+                task.run();
+                workCount++;
+            }
+
+            if (libraryControlMessagePending)
+            {
+                libraryControlMessagePending = false;
+                workCount += framer.pollLibraryControlMessages();
+            }
+        }
+        finally
+        {
+            outboundLock.unlock();
+        }
+
+        return workCount;
+    }
+
+    public String roleName()
+    {
+        return agentNamePrefix + "OutboundSender";
+    }
+}
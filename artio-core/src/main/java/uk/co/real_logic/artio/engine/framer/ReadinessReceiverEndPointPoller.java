@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.collections.Long2ObjectHashMap;
+import uk.co.real_logic.artio.messages.DisconnectReason;
+
+import java.io.IOException;
+
+/**
+ * Only ever polls the end points that the selector has reported as readable, so idle connections aren't touched.
+ * The selected keys are worked through as a batch over as many duty cycles as it takes to poll them within the
+ * limit and the selector is only asked for more readable end points once the batch is empty.
+ */
+class ReadinessReceiverEndPointPoller extends ReceiverEndPointPoller
+{
+    private final Long2ObjectHashMap<ReceiverEndPoint> connectionIdToEndPoint = new Long2ObjectHashMap<>();
+    private final int readyEndPointLimit;
+
+    ReadinessReceiverEndPointPoller(final int readyEndPointLimit)
+    {
+        this.readyEndPointLimit = readyEndPointLimit;
+    }
+
+    void add(final ReceiverEndPoint endPoint)
+    {
+        connectionIdToEndPoint.put(endPoint.connectionId(), endPoint);
+        register(endPoint);
+    }
+
+    ReceiverEndPoint remove(final long connectionId)
+    {
+        return connectionIdToEndPoint.remove(connectionId);
+    }
+
+    int size()
+    {
+        return connectionIdToEndPoint.size();
+    }
+
+    void closeAll(final DisconnectReason reason)
+    {
+        connectionIdToEndPoint.values().forEach(receiverEndPoint -> receiverEndPoint.close(reason));
+    }
+
+    int pollReadyEndPoints(final int numRequiredPollingEndPoints) throws IOException
+    {
+        if (selectedKeySet.size() == 0)
+        {
+            if (connectionIdToEndPoint.isEmpty())
+            {
+                return 0;
+            }
+
+            selector.selectNow();
+        }
+
+        return pollSelectedKeys(readyEndPointLimit);
+    }
+}
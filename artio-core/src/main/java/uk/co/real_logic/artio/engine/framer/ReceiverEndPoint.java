@@ -28,6 +28,7 @@ import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 import uk.co.real_logic.artio.engine.ByteBufferUtil;
 import uk.co.real_logic.artio.messages.DisconnectReason;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.util.ChecksumCalculator;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
 import java.io.IOException;
@@ -75,9 +76,10 @@ class ReceiverEndPoint
     private static final int BREAK = -1;
 
     private static final int UNKNOWN_INDEX_BACKPRESSURED = -2;
+    private static final int BACK_PRESSURED = -1;
+    private static final int AUTHENTICATING = -2;
 
     private final TcpChannel channel;
-    private final GatewayPublication publication;
     private final long connectionId;
     private final SessionContexts sessionContexts;
     private final AtomicCounter messagesRead;
@@ -89,12 +91,17 @@ class ReceiverEndPoint
     private final GatewaySessions gatewaySessions;
     private final Clock clock;
     private final AcceptorFixDictionaryLookup acceptorFixDictionaryLookup;
+    private final ChecksumCalculator checksumCalculator;
+    private final int compactionThreshold;
 
+    private GatewayPublication publication;
     private int libraryId;
     private GatewaySession gatewaySession;
     private long sessionId;
     private int sequenceIndex;
     private int usedBufferData = 0;
+    // Data before this offset has been consumed but not yet compacted away, see consumeBufferData().
+    private int startOfData = 0;
     private boolean hasDisconnected = false;
     private SelectionKey selectionKey;
     private boolean isPaused = false;
@@ -104,6 +111,18 @@ class ReceiverEndPoint
     private int pendingAcceptorLogonMsgLength;
     private long lastReadTimestamp;
 
+    // Framing state of an incomplete message at the start of the buffer, kept between reads so that the bytes
+    // already framed aren't scanned again when the rest of the message arrives.
+    private boolean hasPendingFrame = false;
+    private int pendingStartOfBodyLength;
+    private int pendingEndOfBodyLength;
+    private int pendingScanPosition;
+
+    // Set by the Framer whilst this end point is handed over to a framer shard, which publishes onto its own
+    // stream. Everything else stays owned by the Framer thread.
+    private FramerShard shard;
+    private boolean disconnectedOnShard = false;
+
     ReceiverEndPoint(
         final TcpChannel channel,
         final int bufferSize,
@@ -118,7 +137,8 @@ class ReceiverEndPoint
         final int libraryId,
         final GatewaySessions gatewaySessions,
         final Clock clock,
-        final AcceptorFixDictionaryLookup acceptorFixDictionaryLookup)
+        final AcceptorFixDictionaryLookup acceptorFixDictionaryLookup,
+        final ChecksumCalculator checksumCalculator)
     {
         Objects.requireNonNull(publication, "publication");
         Objects.requireNonNull(sessionContexts, "sessionContexts");
@@ -138,9 +158,11 @@ class ReceiverEndPoint
         this.gatewaySessions = gatewaySessions;
         this.clock = clock;
         this.acceptorFixDictionaryLookup = acceptorFixDictionaryLookup;
+        this.checksumCalculator = checksumCalculator;
 
         byteBuffer = ByteBuffer.allocateDirect(bufferSize);
         buffer = new MutableAsciiBuffer(byteBuffer);
+        compactionThreshold = bufferSize / 4;
     }
 
     public long connectionId()
@@ -220,7 +242,8 @@ class ReceiverEndPoint
         // the new session in initialAcceptedSessionOwner=SOLE_LIBRARY
         if (isPaused)
         {
-            moveRemainingDataToBufferStart(offset);
+            consumeBufferData(offset);
+            pendingAcceptorLogonMsgOffset = startOfData;
             return offset;
         }
 
@@ -238,11 +261,13 @@ class ReceiverEndPoint
 
             // Move any data received after the logon message.
             offset += length;
-            moveRemainingDataToBufferStart(offset);
+            consumeBufferData(offset);
             return offset;
         }
         else
         {
+            // Back-pressured, the logon message is now at the start of the buffer's data.
+            pendingAcceptorLogonMsgOffset = startOfData;
             return offset;
         }
     }
@@ -276,7 +301,7 @@ class ReceiverEndPoint
     // false - needs to be retried, aka back-pressured
     private boolean frameMessages(final long readTimestamp)
     {
-        int offset = 0;
+        int offset = startOfData;
         while (true)
         {
             if (usedBufferData < offset + SessionConstants.MIN_MESSAGE_SIZE) // Need more data
@@ -286,16 +311,35 @@ class ReceiverEndPoint
             }
             try
             {
-                final int startOfBodyLength = scanForBodyLength(offset, readTimestamp);
-                if (startOfBodyLength < 0)
+                final int startOfBodyLength;
+                int endOfBodyLength = UNKNOWN_INDEX;
+                final int scanPosition;
+                if (offset == startOfData && hasPendingFrame)
+                {
+                    hasPendingFrame = false;
+                    startOfBodyLength = offset + pendingStartOfBodyLength;
+                    endOfBodyLength = pendingEndOfBodyLength == UNKNOWN_INDEX ?
+                        UNKNOWN_INDEX : offset + pendingEndOfBodyLength;
+                    scanPosition = offset + pendingScanPosition;
+                }
+                else
                 {
-                    return startOfBodyLength == UNKNOWN_INDEX;
+                    startOfBodyLength = scanForBodyLength(offset, readTimestamp);
+                    if (startOfBodyLength < 0)
+                    {
+                        return startOfBodyLength == UNKNOWN_INDEX;
+                    }
+                    scanPosition = startOfBodyLength + 1;
                 }
 
-                final int endOfBodyLength = scanEndOfBodyLength(startOfBodyLength);
-                if (endOfBodyLength == UNKNOWN_INDEX) // Need more data
+                if (endOfBodyLength == UNKNOWN_INDEX)
                 {
-                    break;
+                    endOfBodyLength = scanEndOfBodyLength(scanPosition);
+                    if (endOfBodyLength == UNKNOWN_INDEX) // Need more data
+                    {
+                        pendFrame(offset, startOfBodyLength, UNKNOWN_INDEX, usedBufferData);
+                        break;
+                    }
                 }
 
                 final int startOfChecksumTag = endOfBodyLength + getBodyLength(startOfBodyLength, endOfBodyLength);
@@ -303,6 +347,7 @@ class ReceiverEndPoint
                 final int endOfChecksumTag = startOfChecksumTag + MIN_CHECKSUM_SIZE;
                 if (endOfChecksumTag >= usedBufferData)
                 {
+                    pendFrame(offset, startOfBodyLength, endOfBodyLength, endOfChecksumTag);
                     break;
                 }
 
@@ -317,40 +362,19 @@ class ReceiverEndPoint
                 }
 
                 final int startOfChecksumValue = startOfChecksumTag + MIN_CHECKSUM_SIZE;
-                final int endOfMessage = scanEndOfMessage(startOfChecksumValue);
+                final int endOfMessage = scanEndOfMessage(Math.max(startOfChecksumValue, scanPosition));
                 if (endOfMessage == UNKNOWN_INDEX)
                 {
                     // Need more data
+                    pendFrame(offset, startOfBodyLength, endOfBodyLength, usedBufferData);
                     break;
                 }
 
-                final long messageType = getMessageType(endOfBodyLength, endOfMessage);
-                final int length = (endOfMessage + 1) - offset;
-                if (!validateChecksum(endOfMessage, startOfChecksumValue, offset, startOfChecksumTag))
-                {
-                    DebugLogger.log(FIX_MESSAGE, "Invalidated: %s%n", buffer, offset, length);
-
-                    if (saveInvalidChecksumMessage(offset, messageType, length, readTimestamp))
-                    {
-                        return false;
-                    }
-                }
-                else
+                final int length = onFramedMessage(
+                    offset, endOfBodyLength, startOfChecksumTag, endOfMessage, readTimestamp);
+                if (length < 0)
                 {
-                    if (requiresAuthentication())
-                    {
-                        startAuthenticationFlow(offset, length, messageType);
-
-                        // Actually has a logon message in it's buffer, but we return true because it's not
-                        // a back-pressure scenario.
-                        return true;
-                    }
-
-                    messagesRead.incrementOrdered();
-                    if (!saveMessage(offset, messageType, length, readTimestamp))
-                    {
-                        return false;
-                    }
+                    return length == AUTHENTICATING;
                 }
 
                 offset += length;
@@ -366,10 +390,61 @@ class ReceiverEndPoint
             }
         }
 
-        moveRemainingDataToBufferStart(offset);
+        consumeBufferData(offset);
         return true;
     }
 
+    // returns the length of the message, BACK_PRESSURED or AUTHENTICATING
+    private int onFramedMessage(
+        final int offset,
+        final int endOfBodyLength,
+        final int startOfChecksumTag,
+        final int endOfMessage,
+        final long readTimestamp)
+    {
+        final int startOfChecksumValue = startOfChecksumTag + MIN_CHECKSUM_SIZE;
+        final long messageType = getMessageType(endOfBodyLength, endOfMessage);
+        final int length = (endOfMessage + 1) - offset;
+        if (!validateChecksum(endOfMessage, startOfChecksumValue, offset, startOfChecksumTag))
+        {
+            DebugLogger.log(FIX_MESSAGE, "Invalidated: %s%n", buffer, offset, length);
+
+            if (saveInvalidChecksumMessage(offset, messageType, length, readTimestamp))
+            {
+                return BACK_PRESSURED;
+            }
+        }
+        else
+        {
+            if (requiresAuthentication())
+            {
+                startAuthenticationFlow(offset, length, messageType);
+
+                // Actually has a logon message in it's buffer, but framing stops without being retried because
+                // it's not a back-pressure scenario.
+                return AUTHENTICATING;
+            }
+
+            messagesRead.incrementOrdered();
+            if (!saveMessage(offset, messageType, length, readTimestamp))
+            {
+                return BACK_PRESSURED;
+            }
+        }
+
+        return length;
+    }
+
+    // Positions are stored relative to the start of the message, which becomes the start of the buffer's data
+    private void pendFrame(
+        final int offset, final int startOfBodyLength, final int endOfBodyLength, final int scanPosition)
+    {
+        hasPendingFrame = true;
+        pendingStartOfBodyLength = startOfBodyLength - offset;
+        pendingEndOfBodyLength = endOfBodyLength == UNKNOWN_INDEX ? UNKNOWN_INDEX : endOfBodyLength - offset;
+        pendingScanPosition = scanPosition - offset;
+    }
+
     private int onInvalidBodyLength(final int offset, final int startOfChecksumTag, final long readTimestamp)
     {
         int checksumTagScanPoint = startOfChecksumTag + 1;
@@ -397,7 +472,7 @@ class ReceiverEndPoint
             return offset;
         }
 
-        moveRemainingDataToBufferStart(endOfMessage);
+        consumeBufferData(endOfMessage);
         return offset;
     }
 
@@ -413,7 +488,7 @@ class ReceiverEndPoint
         final int startOfChecksumTag)
     {
         final int expectedChecksum = buffer.getInt(startOfChecksumValue - 1, endOfMessage);
-        final int computedChecksum = buffer.computeChecksum(offset, startOfChecksumTag + 1);
+        final int computedChecksum = checksumCalculator.computeChecksum(buffer, offset, startOfChecksumTag + 1);
         return expectedChecksum == computedChecksum;
     }
 
@@ -447,9 +522,9 @@ class ReceiverEndPoint
         return invalidateMessage(offset, readTimestamp) ? UNKNOWN_INDEX_BACKPRESSURED : UNKNOWN_INDEX;
     }
 
-    private int scanEndOfBodyLength(final int startOfBodyLength)
+    private int scanEndOfBodyLength(final int scanPosition)
     {
-        return buffer.scan(startOfBodyLength + 1, usedBufferData - 1, START_OF_HEADER);
+        return buffer.scan(scanPosition, usedBufferData - 1, START_OF_HEADER);
     }
 
     private int scanNextField(final int startScan)
@@ -489,7 +564,7 @@ class ReceiverEndPoint
         final boolean backPressured = Pressure.isBackPressured(position);
         if (backPressured)
         {
-            moveRemainingDataToBufferStart(offset);
+            consumeBufferData(offset);
         }
 
         return backPressured;
@@ -517,8 +592,16 @@ class ReceiverEndPoint
         {
             if (isUserRequest)
             {
-                gatewaySessions.onUserRequest(
-                    buffer, offset, length, gatewaySession.fixDictionary(), connectionId, sessionId);
+                if (shard != null)
+                {
+                    shard.onUserRequest(
+                        buffer, offset, length, gatewaySession.fixDictionary(), connectionId, sessionId);
+                }
+                else
+                {
+                    gatewaySessions.onUserRequest(
+                        buffer, offset, length, gatewaySession.fixDictionary(), connectionId, sessionId);
+                }
             }
 
             passwordCleaner.clean(buffer, offset, length);
@@ -543,7 +626,7 @@ class ReceiverEndPoint
 
         if (Pressure.isBackPressured(position))
         {
-            moveRemainingDataToBufferStart(offset);
+            consumeBufferData(messageOffset);
             return false;
         }
         else
@@ -594,10 +677,26 @@ class ReceiverEndPoint
         }
     }
 
-    private void moveRemainingDataToBufferStart(final int offset)
+    // Marks the data before offset as consumed. Remaining data is only copied back to the start of the buffer once
+    // there's little space left to read into, rather than after every read that ends part way through a message.
+    private void consumeBufferData(final int offset)
     {
-        usedBufferData -= offset;
-        buffer.putBytes(0, buffer, offset, usedBufferData);
+        if (offset >= usedBufferData)
+        {
+            startOfData = 0;
+            usedBufferData = 0;
+        }
+        else if (byteBuffer.capacity() - usedBufferData < compactionThreshold)
+        {
+            startOfData = 0;
+            usedBufferData -= offset;
+            buffer.putBytes(0, buffer, offset, usedBufferData);
+        }
+        else
+        {
+            startOfData = offset;
+        }
+
         // position set to ensure that back pressure is applied to TCP when read(byteBuffer) called.
         ByteBufferUtil.position(byteBuffer, usedBufferData);
     }
@@ -655,7 +754,7 @@ class ReceiverEndPoint
 
     private void clearBuffer()
     {
-        moveRemainingDataToBufferStart(usedBufferData);
+        consumeBufferData(usedBufferData);
     }
 
     private boolean saveInvalidChecksumMessage(
@@ -706,6 +805,20 @@ class ReceiverEndPoint
     }
 
     private void onDisconnectDetected()
+    {
+        if (shard != null)
+        {
+            // Completed by the Framer once the shard has released this end point.
+            disconnectedOnShard = true;
+            shard.release(this);
+        }
+        else
+        {
+            completeDisconnect(REMOTE_DISCONNECT);
+        }
+    }
+
+    void onShardDisconnect()
     {
         completeDisconnect(REMOTE_DISCONNECT);
     }
@@ -749,6 +862,14 @@ class ReceiverEndPoint
         selectionKey = channel.register(selector, OP_READ, this);
     }
 
+    void deregister()
+    {
+        if (selectionKey != null)
+        {
+            selectionKey.cancel();
+        }
+    }
+
     public int libraryId()
     {
         return libraryId;
@@ -756,6 +877,7 @@ class ReceiverEndPoint
 
     public void libraryId(final int libraryId)
     {
+        recallFromShard();
         this.libraryId = libraryId;
     }
 
@@ -766,12 +888,49 @@ class ReceiverEndPoint
 
     void pause()
     {
+        recallFromShard();
         isPaused = true;
     }
 
     void play()
     {
         isPaused = false;
+        framer.receiverEndPointPlayed(this);
+    }
+
+    boolean isPaused()
+    {
+        return isPaused;
+    }
+
+    void onShard(final FramerShard shard, final GatewayPublication shardPublication)
+    {
+        this.shard = shard;
+        this.publication = shardPublication;
+    }
+
+    void offShard(final GatewayPublication inboundPublication)
+    {
+        this.shard = null;
+        this.publication = inboundPublication;
+    }
+
+    FramerShard shard()
+    {
+        return shard;
+    }
+
+    boolean disconnectedOnShard()
+    {
+        return disconnectedOnShard;
+    }
+
+    private void recallFromShard()
+    {
+        if (shard != null)
+        {
+            framer.recallFromShard(this);
+        }
     }
 
     public String toString()
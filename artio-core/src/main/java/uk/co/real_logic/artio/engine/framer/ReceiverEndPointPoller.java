@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.LangUtil;
+import org.agrona.nio.TransportPoller;
+import uk.co.real_logic.artio.engine.ReceiverPollingPolicy;
+import uk.co.real_logic.artio.messages.DisconnectReason;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+
+/**
+ * Decides which of the receiver end points that don't require polling on every duty cycle get polled, owning the
+ * selector that they're registered with.
+ */
+abstract class ReceiverEndPointPoller extends TransportPoller
+{
+    // Endpoints that have read data out of the TCP layer but have been back-pressured when attempting to write
+    // the data into the Aeron stream. Polling stops at the first one, so there's usually only one of these, but an
+    // end point that's recalled from a framer shard whilst back-pressured brings its back-pressure with it.
+    private final ArrayList<ReceiverEndPoint> backpressuredEndPoints = new ArrayList<>();
+
+    static ReceiverEndPointPoller of(final ReceiverPollingPolicy policy, final int readyEndPointLimit)
+    {
+        switch (policy)
+        {
+            case READINESS:
+                return new ReadinessReceiverEndPointPoller(readyEndPointLimit);
+
+            case ADAPTIVE:
+            default:
+                return new AdaptiveReceiverEndPointPoller();
+        }
+    }
+
+    abstract void add(ReceiverEndPoint endPoint);
+
+    // returns the removed end point, or null if there isn't one for this connection
+    abstract ReceiverEndPoint remove(long connectionId);
+
+    abstract int size();
+
+    abstract void closeAll(DisconnectReason reason);
+
+    abstract int pollReadyEndPoints(int numRequiredPollingEndPoints) throws IOException;
+
+    int poll(final int numRequiredPollingEndPoints) throws IOException
+    {
+        if (!retryBackpressuredEndPoints())
+        {
+            return 0;
+        }
+
+        return pollReadyEndPoints(numRequiredPollingEndPoints);
+    }
+
+    // returns true once no end point is back-pressured, retrying them in the order that they were back-pressured
+    boolean retryBackpressuredEndPoints()
+    {
+        final ArrayList<ReceiverEndPoint> backpressuredEndPoints = this.backpressuredEndPoints;
+        while (!backpressuredEndPoints.isEmpty())
+        {
+            if (!backpressuredEndPoints.get(0).retryFrameMessages())
+            {
+                return false;
+            }
+
+            backpressuredEndPoints.remove(0);
+        }
+
+        return true;
+    }
+
+    boolean isBackpressured(final ReceiverEndPoint endPoint)
+    {
+        return backpressuredEndPoints.contains(endPoint);
+    }
+
+    // Takes over retrying an end point that was back-pressured whilst being polled elsewhere.
+    void addBackpressured(final ReceiverEndPoint endPoint)
+    {
+        backpressuredEndPoints.add(endPoint);
+    }
+
+    // returns true if the end point was still back-pressured, in which case this poller no longer retries it.
+    boolean removeBackpressured(final ReceiverEndPoint endPoint)
+    {
+        return backpressuredEndPoints.remove(endPoint);
+    }
+
+    void register(final ReceiverEndPoint endPoint)
+    {
+        try
+        {
+            endPoint.register(selector);
+        }
+        catch (final IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+    }
+
+    void selectNowToForceProcessing()
+    {
+        try
+        {
+            selector.selectNow();
+        }
+        catch (final IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+    }
+
+    // Polls the selected keys from the start, up to limit, returns the number of bytes received.
+    int pollSelectedKeys(final int limit)
+    {
+        int bytesReceived = 0;
+        final SelectionKey[] keys = selectedKeySet.keys();
+        final int size = Math.min(selectedKeySet.size(), limit);
+        int i;
+        for (i = 0; i < size; i++)
+        {
+            final SelectionKey key = keys[i];
+            if (!key.isValid())
+            {
+                continue;
+            }
+
+            final ReceiverEndPoint endPoint = (ReceiverEndPoint)key.attachment();
+            final int polledBytes = endPoint.poll();
+            if (polledBytes < 0)
+            {
+                backpressuredEndPoints.add(endPoint);
+                bytesReceived -= polledBytes;
+                break;
+            }
+
+            bytesReceived += polledBytes;
+        }
+
+        // check we need to reset
+        if (i != 0)
+        {
+            selectedKeySet.reset(i);
+        }
+
+        return bytesReceived;
+    }
+}
@@ -18,31 +18,37 @@ package uk.co.real_logic.artio.engine.framer;
 import org.agrona.ErrorHandler;
 import org.agrona.LangUtil;
 import org.agrona.collections.ArrayUtil;
-import org.agrona.nio.TransportPoller;
+import org.agrona.collections.Long2ObjectHashMap;
 import uk.co.real_logic.artio.messages.DisconnectReason;
 
 import java.io.IOException;
-import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
 import java.util.stream.Stream;
 
 import static org.agrona.collections.ArrayUtil.UNKNOWN_INDEX;
+import static uk.co.real_logic.artio.engine.FixEngine.ENGINE_LIBRARY_ID;
 import static uk.co.real_logic.artio.messages.DisconnectReason.ENGINE_SHUTDOWN;
 
-class ReceiverEndPoints extends TransportPoller
+class ReceiverEndPoints implements AutoCloseable
 {
     private final ErrorHandler errorHandler;
+    private final ReceiverEndPointPoller poller;
 
     // Authentication flow requires periodic polling of the receiver end points until the authentication is
     // complete, so these endpoints are always polled, rather than using the selector.
     private ReceiverEndPoint[] requiredPollingEndPoints = new ReceiverEndPoint[0];
-    private ReceiverEndPoint[] endPoints = new ReceiverEndPoint[0];
-    // An endpoint that has read data out of the TCP layer but has been back-pressured when attempting to write
-    // the data into the Aeron stream.
-    private ReceiverEndPoint backpressuredEndPoint = null;
 
-    ReceiverEndPoints(final ErrorHandler errorHandler)
+    // null when no framer shards are configured, otherwise end points of sessions owned by a library are polled
+    // on the shards. They stay in this map, including whilst recalled, until they've been closed.
+    private final FramerShards shards;
+    private final Long2ObjectHashMap<ReceiverEndPoint> shardedEndPoints = new Long2ObjectHashMap<>();
+
+    ReceiverEndPoints(
+        final ErrorHandler errorHandler, final ReceiverEndPointPoller poller, final FramerShards shards)
     {
         this.errorHandler = errorHandler;
+        this.poller = poller;
+        this.shards = shards;
     }
 
     void add(final ReceiverEndPoint endPoint)
@@ -53,39 +59,115 @@ class ReceiverEndPoints extends TransportPoller
         }
         else
         {
-            addToNormalEndpoints(endPoint);
+            addToNormalEndPoints(endPoint);
         }
     }
 
-    private void addToNormalEndpoints(final ReceiverEndPoint endPoint)
+    private void addToNormalEndPoints(final ReceiverEndPoint endPoint)
     {
-        try
+        if (isShardable(endPoint))
         {
-            endPoints = ArrayUtil.add(endPoints, endPoint);
-            endPoint.register(selector);
+            shardedEndPoints.put(endPoint.connectionId(), endPoint);
+            shards.add(endPoint);
         }
-        catch (final IOException ex)
+        else
         {
-            LangUtil.rethrowUnchecked(ex);
+            poller.add(endPoint);
+        }
+    }
+
+    // Engine managed sessions are parsed on the Framer thread, so they're never sharded.
+    private boolean isShardable(final ReceiverEndPoint endPoint)
+    {
+        return shards != null &&
+            endPoint.libraryId() != ENGINE_LIBRARY_ID &&
+            !endPoint.isPaused() &&
+            !endPoint.hasDisconnected();
+    }
+
+    void recall(final ReceiverEndPoint endPoint)
+    {
+        takeBackFromShard(endPoint);
+
+        // Disconnected end points are completed, and then removed, by the Framer.
+        if (!endPoint.disconnectedOnShard())
+        {
+            shardedEndPoints.remove(endPoint.connectionId());
+            poller.add(endPoint);
+        }
+    }
+
+    // Polls a sharded end point on the Framer thread in order to check whether it has disconnected.
+    boolean pollShardedDisconnect(final ReceiverEndPoint endPoint)
+    {
+        if (endPoint == null || endPoint.shard() == null)
+        {
+            return false;
+        }
+
+        recall(endPoint);
+        if (endPoint.disconnectedOnShard())
+        {
+            shards.completeDisconnects();
+        }
+        else if (!poller.isBackpressured(endPoint))
+        {
+            endPoint.poll();
+        }
+
+        return endPoint.hasDisconnected();
+    }
+
+    // The Framer's poller takes over retrying the messages of an end point that's back-pressured on its shard, in the
+    // same way as it retries its own, before it polls anything else.
+    private void takeBackFromShard(final ReceiverEndPoint endPoint)
+    {
+        if (shards.recall(endPoint))
+        {
+            poller.addBackpressured(endPoint);
+        }
+    }
+
+    void onPlay(final ReceiverEndPoint endPoint)
+    {
+        if (isShardable(endPoint) &&
+            !poller.isBackpressured(endPoint) &&
+            poller.remove(endPoint.connectionId()) != null)
+        {
+            endPoint.deregister();
+            poller.selectNowToForceProcessing();
+            shardedEndPoints.put(endPoint.connectionId(), endPoint);
+            shards.add(endPoint);
         }
     }
 
     void removeConnection(final long connectionId, final DisconnectReason reason)
     {
-        final ReceiverEndPoint[] endPoints = this.endPoints;
-        int index = findAndCloseEndPoint(connectionId, reason, endPoints);
+        ReceiverEndPoint endPoint = poller.remove(connectionId);
+        if (endPoint == null)
+        {
+            endPoint = shardedEndPoints.remove(connectionId);
+            if (endPoint != null && endPoint.shard() != null)
+            {
+                takeBackFromShard(endPoint);
+            }
+        }
 
-        if (index != UNKNOWN_INDEX)
+        if (endPoint != null)
         {
-            this.endPoints = ArrayUtil.remove(endPoints, index);
+            endPoint.close(reason);
         }
         else
         {
-            index = findAndCloseEndPoint(connectionId, reason, requiredPollingEndPoints);
+            final int index = findEndPoint(connectionId, requiredPollingEndPoints);
+            if (index != UNKNOWN_INDEX)
+            {
+                requiredPollingEndPoints[index].close(reason);
+            }
             this.requiredPollingEndPoints = ArrayUtil.remove(requiredPollingEndPoints, index);
         }
 
-        selectNowToForceProcessing();
+        poller.selectNowToForceProcessing();
     }
 
     void receiverEndPointPollingOptional(final long connectionId)
@@ -96,7 +178,7 @@ class ReceiverEndPoints extends TransportPoller
         {
             final ReceiverEndPoint endPoint = requiredPollingEndPoints[index];
             this.requiredPollingEndPoints = ArrayUtil.remove(requiredPollingEndPoints, index);
-            addToNormalEndpoints(endPoint);
+            addToNormalEndPoints(endPoint);
         }
         else
         {
@@ -106,20 +188,7 @@ class ReceiverEndPoints extends TransportPoller
         }
     }
 
-    private int findAndCloseEndPoint(
-        final long connectionId,
-        final DisconnectReason reason,
-        final ReceiverEndPoint[] endPoints)
-    {
-        final int index = findEndPoint(connectionId, endPoints);
-        if (index != UNKNOWN_INDEX)
-        {
-            endPoints[index].close(reason);
-        }
-        return index;
-    }
-
-    private int findEndPoint(final long connectionId, final ReceiverEndPoint[] endPoints)
+    static int findEndPoint(final long connectionId, final ReceiverEndPoint[] endPoints)
     {
         int index = UNKNOWN_INDEX;
         final int length = endPoints.length;
@@ -135,40 +204,15 @@ class ReceiverEndPoints extends TransportPoller
         return index;
     }
 
-    private void selectNowToForceProcessing()
-    {
-        try
-        {
-            selector.selectNow();
-        }
-        catch (final IOException ex)
-        {
-            LangUtil.rethrowUnchecked(ex);
-        }
-    }
-
     int pollEndPoints()
     {
         int bytesReceived = 0;
         try
         {
             final ReceiverEndPoint[] requiredPollingEndPoints = this.requiredPollingEndPoints;
-            final ReceiverEndPoint backpressuredEndPoint = this.backpressuredEndPoint;
             final int numRequiredPollingEndPoints = requiredPollingEndPoints.length;
 
-            if (backpressuredEndPoint != null)
-            {
-                if (backpressuredEndPoint.retryFrameMessages())
-                {
-                    this.backpressuredEndPoint = null;
-
-                    bytesReceived += pollNormalEndPoints(numRequiredPollingEndPoints);
-                }
-            }
-            else
-            {
-                bytesReceived += pollNormalEndPoints(numRequiredPollingEndPoints);
-            }
+            bytesReceived += poller.poll(numRequiredPollingEndPoints);
 
             bytesReceived = pollArray(bytesReceived, requiredPollingEndPoints, numRequiredPollingEndPoints);
         }
@@ -180,47 +224,12 @@ class ReceiverEndPoints extends TransportPoller
         return bytesReceived;
     }
 
-    private int pollNormalEndPoints(final int numRequiredPollingEndPoints) throws IOException
+    int pollShards()
     {
-        int bytesReceived = 0;
-        final ReceiverEndPoint[] endPoints = this.endPoints;
-        final int numEndPoints = endPoints.length;
-        final int threshold = ITERATION_THRESHOLD - numRequiredPollingEndPoints;
-        if (numEndPoints <= threshold)
-        {
-            bytesReceived = pollArray(bytesReceived, endPoints, numEndPoints);
-        }
-        else
-        {
-            selector.selectNow();
-
-            final SelectionKey[] keys = selectedKeySet.keys();
-            final int size = selectedKeySet.size();
-            int i;
-            for (i = 0; i < size; i++)
-            {
-                final ReceiverEndPoint endPoint = (ReceiverEndPoint)keys[i].attachment();
-                final int polledBytes = endPoint.poll();
-                if (polledBytes < 0)
-                {
-                    backpressuredEndPoint = endPoint;
-                    bytesReceived -= polledBytes;
-                    break;
-                }
-
-                bytesReceived += polledBytes;
-            }
-
-            // check we need to reset
-            if (i != 0)
-            {
-                selectedKeySet.reset(i);
-            }
-        }
-        return bytesReceived;
+        return shards == null ? 0 : shards.doWork();
     }
 
-    private int pollArray(
+    static int pollArray(
         final int bytesAlreadyReceived, final ReceiverEndPoint[] endPoints, final int numRequiredPollingEndPoints)
     {
         int bytesReceived = bytesAlreadyReceived;
@@ -233,24 +242,37 @@ class ReceiverEndPoints extends TransportPoller
 
     int size()
     {
-        return requiredPollingEndPoints.length + endPoints.length;
+        return requiredPollingEndPoints.length + poller.size() + shardedEndPoints.size();
     }
 
     void closeRequiredPollingEndPoints()
     {
-        closeAll(requiredPollingEndPoints);
+        closeAll(requiredPollingEndPoints, ENGINE_SHUTDOWN);
         requiredPollingEndPoints = new ReceiverEndPoint[0];
     }
 
     public void close()
     {
         closeRequiredPollingEndPoints();
-        closeAll(endPoints);
-        super.close();
+        poller.closeAll(ENGINE_SHUTDOWN);
+        poller.close();
+
+        if (shards != null)
+        {
+            for (final ReceiverEndPoint endPoint : new ArrayList<>(shardedEndPoints.values()))
+            {
+                if (endPoint.shard() != null)
+                {
+                    shards.recall(endPoint);
+                }
+                endPoint.close(ENGINE_SHUTDOWN);
+            }
+            shardedEndPoints.clear();
+        }
     }
 
-    private void closeAll(final ReceiverEndPoint[] endPoints)
+    static void closeAll(final ReceiverEndPoint[] endPoints, final DisconnectReason reason)
     {
-        Stream.of(endPoints).forEach(receiverEndPoint -> receiverEndPoint.close(ENGINE_SHUTDOWN));
+        Stream.of(endPoints).forEach(receiverEndPoint -> receiverEndPoint.close(reason));
     }
 }
@@ -22,6 +22,7 @@ import org.agrona.ErrorHandler;
 import org.agrona.concurrent.status.AtomicCounter;
 import uk.co.real_logic.artio.DebugLogger;
 import uk.co.real_logic.artio.engine.ByteBufferUtil;
+import uk.co.real_logic.artio.engine.SenderFlushPolicy;
 import uk.co.real_logic.artio.engine.SenderSequenceNumber;
 import uk.co.real_logic.artio.engine.logger.ArchiveDescriptor;
 import uk.co.real_logic.artio.messages.DisconnectReason;
@@ -29,6 +30,7 @@ import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.locks.Lock;
 
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 import static uk.co.real_logic.artio.LogTag.FIX_MESSAGE_TCP;
@@ -40,6 +42,7 @@ import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
 class SenderEndPoint
 {
     private static final int HEADER_LENGTH = MessageHeaderDecoder.ENCODED_LENGTH;
+    private static final int MAX_COALESCED_MESSAGES = 256;
 
     private final long connectionId;
     private final TcpChannel channel;
@@ -52,6 +55,18 @@ class SenderEndPoint
     private final StreamTracker outboundTracker;
     private final StreamTracker replayTracker;
     private final SenderSequenceNumber senderSequenceNumber;
+    // Held whilst handing the end point over between libraries, see Framer.outboundLock().
+    private final Lock outboundLock;
+
+    // Coalescing state, the buffer is null under the IMMEDIATE flush policy.
+    private final ByteBuffer coalescingBuffer;
+    private final boolean flushAtThreshold;
+    private final ByteBuffer[] gatherBuffers = new ByteBuffer[2];
+    private final long[] coalescedPositions;
+    private final int[] coalescedLengths;
+    private final StreamTracker[] coalescedTrackers;
+    private int coalescedCount;
+    private long coalescedTimeInMs;
 
     private int libraryId;
     private long sessionId;
@@ -71,7 +86,10 @@ class SenderEndPoint
         final int maxBytesInBuffer,
         final long slowConsumerTimeoutInMs,
         final long timeInMs,
-        final SenderSequenceNumber senderSequenceNumber)
+        final SenderSequenceNumber senderSequenceNumber,
+        final SenderFlushPolicy flushPolicy,
+        final int flushThresholdInBytes,
+        final Lock outboundLock)
     {
         this.connectionId = connectionId;
         this.libraryId = libraryId;
@@ -83,10 +101,27 @@ class SenderEndPoint
         this.maxBytesInBuffer = maxBytesInBuffer;
         this.slowConsumerTimeoutInMs = slowConsumerTimeoutInMs;
         this.senderSequenceNumber = senderSequenceNumber;
+        this.outboundLock = outboundLock;
 
         outboundTracker = new StreamTracker(outboundBlockablePosition);
         replayTracker = new StreamTracker(replayBlockablePosition);
         sendingTimeoutTimeInMs = timeInMs + slowConsumerTimeoutInMs;
+
+        if (flushPolicy == SenderFlushPolicy.IMMEDIATE)
+        {
+            coalescingBuffer = null;
+            coalescedPositions = null;
+            coalescedLengths = null;
+            coalescedTrackers = null;
+        }
+        else
+        {
+            coalescingBuffer = ByteBuffer.allocateDirect(Math.min(flushThresholdInBytes, maxBytesInBuffer));
+            coalescedPositions = new long[MAX_COALESCED_MESSAGES];
+            coalescedLengths = new int[MAX_COALESCED_MESSAGES];
+            coalescedTrackers = new StreamTracker[MAX_COALESCED_MESSAGES];
+        }
+        flushAtThreshold = flushPolicy == SenderFlushPolicy.BYTE_THRESHOLD;
     }
 
     void onOutboundMessage(
@@ -169,6 +204,13 @@ class SenderEndPoint
             return;
         }
 
+        if (coalescingBuffer != null)
+        {
+            coalesceFramedMessage(directBuffer, offset, bodyLength, timeInMs, position, tracker);
+
+            return;
+        }
+
         try
         {
             final int written = writeFramedMessage(directBuffer, offset, bodyLength, timeInMs);
@@ -188,6 +230,153 @@ class SenderEndPoint
         }
     }
 
+    // Messages are copied rather than referenced since the fragment's buffer can be reused once it has been handled.
+    private void coalesceFramedMessage(
+        final DirectBuffer directBuffer,
+        final int offset,
+        final int bodyLength,
+        final long timeInMs,
+        final long position,
+        final StreamTracker tracker)
+    {
+        final ByteBuffer coalescingBuffer = this.coalescingBuffer;
+        if (bodyLength > coalescingBuffer.remaining() || coalescedCount == MAX_COALESCED_MESSAGES)
+        {
+            // Write out the coalesced messages along with this one.
+            final ByteBuffer buffer = directBuffer.byteBuffer();
+            ByteBufferUtil.limit(buffer, offset + bodyLength);
+            ByteBufferUtil.position(buffer, offset);
+            writeCoalescedMessages(buffer, bodyLength, position, tracker, timeInMs);
+
+            return;
+        }
+
+        directBuffer.getBytes(offset, coalescingBuffer, bodyLength);
+        final int index = coalescedCount;
+        coalescedPositions[index] = position;
+        coalescedLengths[index] = bodyLength;
+        coalescedTrackers[index] = tracker;
+        coalescedCount = index + 1;
+        coalescedTimeInMs = timeInMs;
+
+        if (flushAtThreshold && !coalescingBuffer.hasRemaining())
+        {
+            flush();
+        }
+    }
+
+    boolean hasCoalescedMessages()
+    {
+        return coalescedCount > 0;
+    }
+
+    void flush()
+    {
+        if (coalescedCount > 0)
+        {
+            writeCoalescedMessages(null, 0, 0, null, coalescedTimeInMs);
+        }
+    }
+
+    private void writeCoalescedMessages(
+        final ByteBuffer extraBuffer,
+        final int extraLength,
+        final long extraPosition,
+        final StreamTracker extraTracker,
+        final long timeInMs)
+    {
+        final ByteBuffer coalescingBuffer = this.coalescingBuffer;
+        coalescingBuffer.flip();
+
+        final int written;
+        try
+        {
+            if (extraBuffer == null)
+            {
+                written = channel.write(coalescingBuffer);
+            }
+            else
+            {
+                final ByteBuffer[] gatherBuffers = this.gatherBuffers;
+                gatherBuffers[0] = coalescingBuffer;
+                gatherBuffers[1] = extraBuffer;
+                // Bounded by the coalescing buffer's capacity plus the length of a single message.
+                written = (int)channel.write(gatherBuffers);
+                gatherBuffers[1] = null;
+            }
+
+            final int writtenFromCoalescingBuffer = coalescingBuffer.position();
+            DebugLogger.log(FIX_MESSAGE_TCP, "Written  %s%n", coalescingBuffer, writtenFromCoalescingBuffer);
+            if (extraBuffer != null)
+            {
+                DebugLogger.log(FIX_MESSAGE_TCP, "Written  %s%n", extraBuffer, written - writtenFromCoalescingBuffer);
+            }
+            updateSendingTimeoutTimeInMs(timeInMs, written);
+        }
+        catch (final IOException ex)
+        {
+            coalescingBuffer.clear();
+            coalescedCount = 0;
+            onError(ex);
+            return;
+        }
+
+        coalescingBuffer.clear();
+
+        // Account for the messages in order so that a partial write is handled the same way as in the
+        // IMMEDIATE case: the first unwritten message makes this a slow consumer and the rest are dropped behind.
+        final int count = coalescedCount;
+        coalescedCount = 0;
+        int remainingWritten = written;
+        int droppedBytes = 0;
+        for (int i = 0; i < count; i++)
+        {
+            final int bodyLength = coalescedLengths[i];
+            final StreamTracker tracker = coalescedTrackers[i];
+            coalescedTrackers[i] = null;
+            if (remainingWritten < bodyLength)
+            {
+                droppedBytes += onMessageNotWritten(remainingWritten, bodyLength, coalescedPositions[i], tracker);
+                remainingWritten = 0;
+            }
+            else
+            {
+                tracker.sentPosition = coalescedPositions[i];
+                remainingWritten -= bodyLength;
+            }
+        }
+
+        if (extraBuffer != null)
+        {
+            if (remainingWritten < extraLength)
+            {
+                droppedBytes += onMessageNotWritten(remainingWritten, extraLength, extraPosition, extraTracker);
+            }
+            else
+            {
+                extraTracker.sentPosition = extraPosition;
+            }
+        }
+
+        if (droppedBytes > 0)
+        {
+            dropFurtherBehind(droppedBytes);
+        }
+    }
+
+    // returns the number of bytes to drop further behind by
+    private int onMessageNotWritten(
+        final int written, final int bodyLength, final long position, final StreamTracker tracker)
+    {
+        if (isSlowConsumer())
+        {
+            return bodyLength;
+        }
+
+        becomeSlowConsumer(written, bodyLength, position, tracker);
+        return 0;
+    }
+
     private void dropFurtherBehind(final int bodyLength)
     {
         final long bytesInBuffer = bytesInBufferWeak() + bodyLength;
@@ -264,8 +453,16 @@ class SenderEndPoint
 
     public void libraryId(final int libraryId, final BlockablePosition blockablePosition)
     {
-        this.libraryId = libraryId;
-        this.outboundTracker.blockablePosition = blockablePosition;
+        outboundLock.lock();
+        try
+        {
+            this.libraryId = libraryId;
+            this.outboundTracker.blockablePosition = blockablePosition;
+        }
+        finally
+        {
+            outboundLock.unlock();
+        }
     }
 
     public int libraryId()
@@ -275,6 +472,7 @@ class SenderEndPoint
 
     public void close()
     {
+        coalescedCount = 0;
         bytesInBuffer.close();
         invalidLibraryAttempts.close();
     }
@@ -435,9 +633,18 @@ class SenderEndPoint
         return bytesInBuffer.getWeak();
     }
 
+    // Read by the outbound sender whilst it routes library messages, so it's handed over in the same way as the library
     void sessionId(final long sessionId)
     {
-        this.sessionId = sessionId;
+        outboundLock.lock();
+        try
+        {
+            this.sessionId = sessionId;
+        }
+        finally
+        {
+            outboundLock.unlock();
+        }
     }
 
     long sessionId()
@@ -24,6 +24,8 @@ import uk.co.real_logic.artio.engine.FixEngine;
 import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.LongToIntFunction;
 
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
@@ -35,6 +37,7 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
     private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
     private final FixMessageDecoder fixMessage = new FixMessageDecoder();
     private final Long2ObjectHashMap<SenderEndPoint> connectionIdToSenderEndpoint = new Long2ObjectHashMap<>();
+    private final List<SenderEndPoint> endPointsWithCoalescedMessages = new ArrayList<>();
     private final ErrorHandler errorHandler;
     private final LongToIntFunction libraryLookup = this::libraryLookup;
 
@@ -84,7 +87,9 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
         final SenderEndPoint endPoint = connectionIdToSenderEndpoint.get(connectionId);
         if (endPoint != null)
         {
+            final boolean hadCoalescedMessages = endPoint.hasCoalescedMessages();
             endPoint.onOutboundMessage(libraryId, buffer, offset, length, sequenceNumber, position, timeInMs);
+            onCoalescedMessage(endPoint, hadCoalescedMessages);
         }
     }
 
@@ -94,7 +99,10 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
         final SenderEndPoint endPoint = connectionIdToSenderEndpoint.get(connectionId);
         if (endPoint != null)
         {
-            return endPoint.onReplayMessage(buffer, offset, length, timeInMs, position);
+            final boolean hadCoalescedMessages = endPoint.hasCoalescedMessages();
+            final Action action = endPoint.onReplayMessage(buffer, offset, length, timeInMs, position);
+            onCoalescedMessage(endPoint, hadCoalescedMessages);
+            return action;
         }
         else
         {
@@ -126,6 +134,38 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
         }
     }
 
+    private void onCoalescedMessage(final SenderEndPoint endPoint, final boolean hadCoalescedMessages)
+    {
+        if (!hadCoalescedMessages && endPoint.hasCoalescedMessages())
+        {
+            endPointsWithCoalescedMessages.add(endPoint);
+        }
+    }
+
+    // Writes out any messages that end points have coalesced during a poll, this must be called before the
+    // slow peekers are polled so that they see the up to date sent positions.
+    int flush()
+    {
+        final List<SenderEndPoint> endPoints = this.endPointsWithCoalescedMessages;
+        final int size = endPoints.size();
+        for (int i = 0; i < size; i++)
+        {
+            endPoints.get(i).flush();
+        }
+        endPoints.clear();
+
+        return size;
+    }
+
+    void flush(final long connectionId)
+    {
+        final SenderEndPoint senderEndPoint = connectionIdToSenderEndpoint.get(connectionId);
+        if (senderEndPoint != null)
+        {
+            senderEndPoint.flush();
+        }
+    }
+
     private void logReplayError(final long connectionId, final DirectBuffer buffer, final int offset, final int length)
     {
         errorHandler.onError(new IllegalArgumentException(String.format(
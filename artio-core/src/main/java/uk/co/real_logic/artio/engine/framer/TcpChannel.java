@@ -20,11 +20,12 @@ import org.agrona.LangUtil;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 
-public class TcpChannel implements AutoCloseable
+public class TcpChannel implements GatheringByteChannel
 {
     private final SocketChannel socketChannel;
     private final String remoteAddress;
@@ -50,11 +51,26 @@ public class TcpChannel implements AutoCloseable
         return socketChannel.write(src);
     }
 
+    public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException
+    {
+        return socketChannel.write(srcs, offset, length);
+    }
+
+    public long write(final ByteBuffer[] srcs) throws IOException
+    {
+        return socketChannel.write(srcs);
+    }
+
     public int read(final ByteBuffer dst) throws IOException
     {
         return socketChannel.read(dst);
     }
 
+    public boolean isOpen()
+    {
+        return socketChannel.isOpen();
+    }
+
     public void close()
     {
         if (socketChannel.isOpen())
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.AtomicBuffer;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+
+/**
+ * Writes fix messages into rolling memory mapped files as length prefixed binary records.
+ * <p>
+ * Length of the fix message (int)
+ * Timestamp (long)
+ * Fix session id (long)
+ * Ascii fix message
+ * <p>
+ * The length is written last, so a reader tailing the file never sees a record that's partially written. A length of
+ * zero marks the end of the records that have been written so far.
+ */
+public class BinaryFixMessageSink implements FixMessageSink
+{
+    public static final int LENGTH_OFFSET = 0;
+    public static final int TIMESTAMP_OFFSET = LENGTH_OFFSET + SIZE_OF_INT;
+    public static final int SESSION_ID_OFFSET = TIMESTAMP_OFFSET + SIZE_OF_LONG;
+    public static final int HEADER_LENGTH = SESSION_ID_OFFSET + SIZE_OF_LONG;
+
+    private final RollingMappedFile file;
+
+    public BinaryFixMessageSink(final RollingMappedFile file)
+    {
+        this.file = file;
+    }
+
+    public void onMessage(
+        final FixMessageDecoder message, final DirectBuffer buffer, final int offset, final int length)
+    {
+        final RollingMappedFile file = this.file;
+        final int recordOffset = file.claim(HEADER_LENGTH + length);
+        final AtomicBuffer fileBuffer = file.buffer();
+        fileBuffer.putLong(recordOffset + TIMESTAMP_OFFSET, message.timestamp());
+        fileBuffer.putLong(recordOffset + SESSION_ID_OFFSET, message.session());
+        fileBuffer.putBytes(recordOffset + HEADER_LENGTH, buffer, offset, length);
+        fileBuffer.putIntOrdered(recordOffset + LENGTH_OFFSET, length);
+    }
+
+    public void close()
+    {
+        file.close();
+    }
+}
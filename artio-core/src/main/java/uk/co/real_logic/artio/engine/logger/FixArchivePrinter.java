@@ -20,9 +20,11 @@ import org.agrona.DirectBuffer;
 import uk.co.real_logic.artio.CommonConfiguration;
 import uk.co.real_logic.artio.decoder.SessionHeaderDecoder;
 import uk.co.real_logic.artio.dictionary.FixDictionary;
+import uk.co.real_logic.artio.dictionary.generation.GenerationUtil;
 import uk.co.real_logic.artio.messages.FixMessageDecoder;
 
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static java.lang.Long.parseLong;
 import static uk.co.real_logic.artio.CommonConfiguration.DEFAULT_OUTBOUND_LIBRARY_STREAM;
@@ -41,9 +43,13 @@ public final class FixArchivePrinter
     {
         String aeronDirectoryName = null;
         String aeronChannel = null;
+        String logFileDir = null;
         int queryStreamId = DEFAULT_OUTBOUND_LIBRARY_STREAM;
         int archiveScannerStreamId = DEFAULT_ARCHIVE_SCANNER_STREAM;
-        FixMessagePredicate predicate = FixMessagePredicates.alwaysTrue();
+        long[] messageTypes = new long[0];
+        long[] fixSessionIds = new long[0];
+        long beginTimestampInclusive = Long.MIN_VALUE;
+        long endTimestampExclusive = Long.MAX_VALUE;
         boolean follow = false;
         Class<? extends FixDictionary> fixDictionaryType = FixDictionary.findDefault();
 
@@ -74,40 +80,21 @@ public final class FixArchivePrinter
             switch (optionName)
             {
                 case "from":
-                    predicate = from(parseLong(optionValue)).and(predicate);
+                    beginTimestampInclusive = parseLong(optionValue);
                     break;
 
                 case "to":
-                    predicate = to(parseLong(optionValue)).and(predicate);
+                    endTimestampExclusive = parseLong(optionValue);
                     break;
 
                 case "message-types":
-                    final String[] messageTypes = optionValue.split(",");
-                    predicate = messageTypeOf(messageTypes).and(predicate);
-                    break;
-
-                case "sender-comp-id":
-                    headerPredicate = safeAnd(headerPredicate, senderCompIdOf(optionValue));
-                    break;
-
-                case "target-comp-id":
-                    headerPredicate = safeAnd(headerPredicate, targetCompIdOf(optionValue));
-                    break;
-
-                case "sender-sub-id":
-                    headerPredicate = safeAnd(headerPredicate, senderSubIdOf(optionValue));
-                    break;
-
-                case "target-sub-id":
-                    headerPredicate = safeAnd(headerPredicate, targetSubIdOf(optionValue));
-                    break;
-
-                case "sender-location-id":
-                    headerPredicate = safeAnd(headerPredicate, senderLocationIdOf(optionValue));
+                    messageTypes = Stream.of(optionValue.split(","))
+                        .mapToLong(GenerationUtil::packMessageType)
+                        .toArray();
                     break;
 
-                case "target-location-id":
-                    headerPredicate = safeAnd(headerPredicate, targetLocationIdOf(optionValue));
+                case "session-ids":
+                    fixSessionIds = Stream.of(optionValue.split(",")).mapToLong(Long::parseLong).toArray();
                     break;
 
                 case "query-stream-id":
@@ -126,17 +113,52 @@ public final class FixArchivePrinter
                     aeronChannel = optionValue;
                     break;
 
+                case "log-file-dir":
+                    logFileDir = optionValue;
+                    break;
+
                 case "fix-dictionary":
                     fixDictionaryType = FixDictionary.find(optionValue);
                     break;
+
+                default:
+                    headerPredicate = headerOption(optionName, optionValue, headerPredicate);
             }
         }
 
         requiredArgument(aeronDirectoryName, "aeron-dir-name");
         requiredArgument(aeronChannel, "aeron-channel");
 
-        scanArchive(aeronDirectoryName, aeronChannel, queryStreamId, predicate, follow, headerPredicate,
-            archiveScannerStreamId, fixDictionaryType);
+        scanArchive(aeronDirectoryName, aeronChannel, logFileDir, queryStreamId, messageTypes, fixSessionIds, follow,
+            headerPredicate, archiveScannerStreamId, fixDictionaryType, beginTimestampInclusive, endTimestampExclusive);
+    }
+
+    private static Predicate<SessionHeaderDecoder> headerOption(
+        final String optionName, final String optionValue, final Predicate<SessionHeaderDecoder> headerPredicate)
+    {
+        switch (optionName)
+        {
+            case "sender-comp-id":
+                return safeAnd(headerPredicate, senderCompIdOf(optionValue));
+
+            case "target-comp-id":
+                return safeAnd(headerPredicate, targetCompIdOf(optionValue));
+
+            case "sender-sub-id":
+                return safeAnd(headerPredicate, senderSubIdOf(optionValue));
+
+            case "target-sub-id":
+                return safeAnd(headerPredicate, targetSubIdOf(optionValue));
+
+            case "sender-location-id":
+                return safeAnd(headerPredicate, senderLocationIdOf(optionValue));
+
+            case "target-location-id":
+                return safeAnd(headerPredicate, targetLocationIdOf(optionValue));
+
+            default:
+                return headerPredicate;
+        }
     }
 
     private static void requiredArgument(final int eqIndex)
@@ -152,15 +174,19 @@ public final class FixArchivePrinter
     private static void scanArchive(
         final String aeronDirectoryName,
         final String aeronChannel,
+        final String logFileDir,
         final int queryStreamId,
-        final FixMessagePredicate otherPredicate,
+        final long[] messageTypes,
+        final long[] fixSessionIds,
         final boolean follow,
         final Predicate<SessionHeaderDecoder> headerPredicate,
         final int archiveScannerStreamId,
-        final Class<? extends FixDictionary> fixDictionaryType)
+        final Class<? extends FixDictionary> fixDictionaryType,
+        final long beginTimestampInclusive,
+        final long endTimestampExclusive)
     {
         final FixDictionary fixDictionary = FixDictionary.of(fixDictionaryType);
-        FixMessagePredicate predicate = otherPredicate;
+        FixMessagePredicate predicate = FixMessagePredicates.alwaysTrue();
         if (headerPredicate != null)
         {
             predicate = whereHeader(fixDictionary, headerPredicate).and(predicate);
@@ -168,15 +194,43 @@ public final class FixArchivePrinter
 
         final FixArchiveScanner.Context context = new FixArchiveScanner.Context()
             .aeronDirectoryName(aeronDirectoryName)
-            .idleStrategy(CommonConfiguration.backoffIdleStrategy());
+            .idleStrategy(CommonConfiguration.backoffIdleStrategy())
+            .logFileDir(logFileDir);
 
         final FixArchiveScanner scanner = new FixArchiveScanner(context);
-        scanner.scan(
-            aeronChannel,
-            queryStreamId,
-            filterBy(FixArchivePrinter::print, predicate),
-            follow,
-            archiveScannerStreamId);
+        if (follow)
+        {
+            // The secondary index can't be used to follow a recording that's still being archived.
+            if (messageTypes.length > 0)
+            {
+                predicate = messageTypeOf(messageTypes).and(predicate);
+            }
+            if (fixSessionIds.length > 0)
+            {
+                predicate = sessionIdOf(fixSessionIds).and(predicate);
+            }
+
+            scanner.scan(
+                aeronChannel,
+                queryStreamId,
+                filterBy(FixArchivePrinter::print, predicate),
+                true,
+                archiveScannerStreamId,
+                beginTimestampInclusive,
+                endTimestampExclusive);
+        }
+        else
+        {
+            scanner.scan(
+                aeronChannel,
+                queryStreamId,
+                filterBy(FixArchivePrinter::print, predicate),
+                archiveScannerStreamId,
+                messageTypes,
+                fixSessionIds,
+                beginTimestampInclusive,
+                endTimestampExclusive);
+        }
     }
 
     private static void requiredArgument(final String argument, final String description)
@@ -204,6 +258,12 @@ public final class FixArchivePrinter
             "Specifies the aeron channel that was used to by the engine",
             true);
 
+        printOption(
+            "log-file-dir",
+            "Specifies the logFileDir of the engine, its time index and secondary index, when enabled, are used " +
+            "to only scan the parts of the archive that can contain matching messages",
+            false);
+
         printOption(
             "from",
             "Time in precision of CommonConfiguration.clock() that messages are not earlier than",
@@ -216,6 +276,10 @@ public final class FixArchivePrinter
             "message-types",
             "Comma separated list of the message types (35=) that are printed",
             false);
+        printOption(
+            "session-ids",
+            "Comma separated list of the fix session ids, allocated by the engine, whose messages are printed",
+            false);
         printOption(
             "sender-comp-id",
             "Only print messages where the header's sender comp id field matches this",
@@ -20,15 +20,19 @@ import io.aeron.FragmentAssembler;
 import io.aeron.Image;
 import io.aeron.Subscription;
 import io.aeron.archive.client.AeronArchive;
+import org.agrona.collections.LongArrayList;
+import org.agrona.collections.LongHashSet;
 import org.agrona.concurrent.IdleStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.LongStream;
 
 import static io.aeron.CommonContext.IPC_CHANNEL;
 import static io.aeron.archive.client.AeronArchive.NULL_LENGTH;
 import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
 import static java.util.Comparator.comparingLong;
+import static uk.co.real_logic.artio.engine.logger.FixMessagePredicates.*;
 
 /**
  * Scan the archive for fix messages. Can be combined with predicates to create rich queries.
@@ -42,11 +46,13 @@ public class FixArchiveScanner implements AutoCloseable
     private final Aeron aeron;
     private final AeronArchive aeronArchive;
     private final IdleStrategy idleStrategy;
+    private final String logFileDir;
 
     public static class Context
     {
         private String aeronDirectoryName;
         private IdleStrategy idleStrategy;
+        private String logFileDir;
 
         public Context()
         {
@@ -73,11 +79,32 @@ public class FixArchiveScanner implements AutoCloseable
         {
             return idleStrategy;
         }
+
+        /**
+         * Sets the log file directory of the engine that recorded the archive. When it's set, scans of a range of
+         * timestamps use the engine's time index, if it has one, to only replay the parts of recordings that are in
+         * that range.
+         *
+         * @param logFileDir the engine's log file directory.
+         * @return this
+         * @see uk.co.real_logic.artio.engine.EngineConfiguration#logFileDir(String)
+         */
+        public Context logFileDir(final String logFileDir)
+        {
+            this.logFileDir = logFileDir;
+            return this;
+        }
+
+        public String logFileDir()
+        {
+            return logFileDir;
+        }
     }
 
     public FixArchiveScanner(final Context context)
     {
         this.idleStrategy = context.idleStrategy();
+        this.logFileDir = context.logFileDir();
 
         final Aeron.Context aeronContext = new Aeron.Context().aeronDirectoryName(context.aeronDirectoryName());
         aeron = Aeron.connect(aeronContext);
@@ -90,6 +117,59 @@ public class FixArchiveScanner implements AutoCloseable
         final FixMessageConsumer handler,
         final boolean follow,
         final int archiveScannerStreamId)
+    {
+        scan(
+            aeronChannel, queryStreamId, handler, follow, archiveScannerStreamId, null, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Scan the archive for fix messages with a timestamp in the given range. If the
+     * {@link Context#logFileDir(String)} is set and the engine built a time index, see
+     * {@link uk.co.real_logic.artio.engine.EngineConfiguration#timeIndex(boolean)}, then only the parts of each
+     * recording that the time index places in the range are replayed, otherwise whole recordings are replayed and
+     * filtered.
+     *
+     * @param aeronChannel the channel of the recorded stream.
+     * @param queryStreamId the id of the recorded stream.
+     * @param handler the handler that's passed the messages in the range.
+     * @param follow true to carry on scanning a recording that's still being archived.
+     * @param archiveScannerStreamId the stream id to replay the recordings on.
+     * @param beginTimestampInclusive the message's timestamp must be &gt;= this value.
+     * @param endTimestampExclusive the message's timestamp must be &lt; this value.
+     * @see FixMessagePredicates#between(long, long)
+     */
+    public void scan(
+        final String aeronChannel,
+        final int queryStreamId,
+        final FixMessageConsumer handler,
+        final boolean follow,
+        final int archiveScannerStreamId,
+        final long beginTimestampInclusive,
+        final long endTimestampExclusive)
+    {
+        final TimeIndexReader timeIndex = logFileDir == null ?
+            null : new TimeIndexReader(TimeIndexDescriptor.timeIndexFile(logFileDir, queryStreamId));
+
+        scan(
+            aeronChannel,
+            queryStreamId,
+            filterBy(handler, between(beginTimestampInclusive, endTimestampExclusive)),
+            follow,
+            archiveScannerStreamId,
+            timeIndex,
+            beginTimestampInclusive,
+            endTimestampExclusive);
+    }
+
+    private void scan(
+        final String aeronChannel,
+        final int queryStreamId,
+        final FixMessageConsumer handler,
+        final boolean follow,
+        final int archiveScannerStreamId,
+        final TimeIndexReader timeIndex,
+        final long beginTimestampInclusive,
+        final long endTimestampExclusive)
     {
         final LogEntryHandler logEntryHandler = new LogEntryHandler(handler);
         final FragmentAssembler fragmentAssembler = new FragmentAssembler(logEntryHandler);
@@ -103,47 +183,140 @@ public class FixArchiveScanner implements AutoCloseable
                 final long recordingId = archiveLocation.recordingId;
                 final boolean stillArchiving = archiveLocation.stopPosition == NULL_POSITION;
 
-                final long stopPosition;
-                final long length;
+                long startPosition = archiveLocation.startPosition;
+                long stopPosition;
                 if (stillArchiving)
                 {
-                    if (follow)
-                    {
-                        length = NULL_LENGTH;
-                        stopPosition = NULL_POSITION;
-                    }
-                    else
-                    {
-                        stopPosition = aeronArchive.getRecordingPosition(recordingId);
-                        length = stopPosition - archiveLocation.startPosition;
-                    }
+                    stopPosition = follow ? NULL_POSITION : aeronArchive.getRecordingPosition(recordingId);
                 }
                 else
                 {
                     stopPosition = archiveLocation.stopPosition;
-                    length = stopPosition - archiveLocation.startPosition;
                 }
 
-                if (length != 0)
+                if (timeIndex != null)
                 {
-                    final int sessionId = (int)aeronArchive.startReplay(
-                        recordingId,
-                        archiveLocation.startPosition,
-                        length,
-                        IPC_CHANNEL,
-                        archiveScannerStreamId);
+                    startPosition = timeIndex.startPosition(recordingId, beginTimestampInclusive, startPosition);
+                    stopPosition = timeIndex.stopPosition(recordingId, endTimestampExclusive, stopPosition);
+                }
 
-                    final Image image = lookupImage(replaySubscription, sessionId);
+                replay(
+                    replaySubscription, fragmentAssembler, archiveScannerStreamId,
+                    recordingId, startPosition, stopPosition);
+            });
+        }
+    }
 
-                    while (stopPosition == NULL_POSITION || image.position() < stopPosition)
+    /**
+     * Scan the archive for fix messages that have one of the given message types and fix session ids, with a
+     * timestamp in the given range. If the {@link Context#logFileDir(String)} is set and the engine was configured
+     * to build a secondary index then only the parts of each recording that contain matching messages are replayed,
+     * otherwise whole recordings are replayed and filtered.
+     *
+     * @param aeronChannel the channel of the recorded stream.
+     * @param queryStreamId the id of the recorded stream.
+     * @param handler the handler that's passed the matching messages.
+     * @param archiveScannerStreamId the stream id to replay the recordings on.
+     * @param messageTypes the packed message types to match, or an empty array to match any message type.
+     * @param fixSessionIds the fix session ids to match, or an empty array to match any session.
+     * @param beginTimestampInclusive the message's timestamp must be &gt;= this value.
+     * @param endTimestampExclusive the message's timestamp must be &lt; this value.
+     * @see uk.co.real_logic.artio.engine.EngineConfiguration#secondaryIndex(boolean)
+     * @see uk.co.real_logic.artio.dictionary.generation.GenerationUtil#packMessageType(String)
+     */
+    public void scan(
+        final String aeronChannel,
+        final int queryStreamId,
+        final FixMessageConsumer handler,
+        final int archiveScannerStreamId,
+        final long[] messageTypes,
+        final long[] fixSessionIds,
+        final long beginTimestampInclusive,
+        final long endTimestampExclusive)
+    {
+        FixMessagePredicate predicate = between(beginTimestampInclusive, endTimestampExclusive);
+        if (messageTypes.length > 0)
+        {
+            predicate = messageTypeOf(messageTypes).and(predicate);
+        }
+        if (fixSessionIds.length > 0)
+        {
+            predicate = sessionIdOf(fixSessionIds).and(predicate);
+        }
+        final FixMessageConsumer filteredHandler = filterBy(handler, predicate);
+
+        if (logFileDir == null ||
+            SecondaryIndexDescriptor.secondaryIndexSegments(logFileDir, queryStreamId).length == 0)
+        {
+            scan(
+                aeronChannel, queryStreamId, filteredHandler, false, archiveScannerStreamId,
+                beginTimestampInclusive, endTimestampExclusive);
+            return;
+        }
+
+        final SecondaryIndexReader secondaryIndex = new SecondaryIndexReader(
+            logFileDir, queryStreamId, beginTimestampInclusive, endTimestampExclusive);
+        final LongHashSet messageTypeSet = new LongHashSet();
+        LongStream.of(messageTypes).forEach(messageTypeSet::add);
+        final LongHashSet fixSessionIdSet = new LongHashSet();
+        LongStream.of(fixSessionIds).forEach(fixSessionIdSet::add);
+
+        final FragmentAssembler fragmentAssembler = new FragmentAssembler(new LogEntryHandler(filteredHandler));
+        final List<ArchiveLocation> archiveLocations = lookupArchiveLocations(aeronChannel, queryStreamId);
+        final LongArrayList ranges = new LongArrayList();
+
+        try (Subscription replaySubscription = aeron.addSubscription(IPC_CHANNEL, archiveScannerStreamId))
+        {
+            archiveLocations.forEach(archiveLocation ->
+            {
+                final long recordingId = archiveLocation.recordingId;
+                ranges.clear();
+                secondaryIndex.ranges(recordingId, messageTypeSet, fixSessionIdSet, ranges);
+
+                for (int i = 0, size = ranges.size(); i < size; i += 2)
+                {
+                    long stopPosition = ranges.getLong(i + 1);
+                    if (stopPosition == NULL_POSITION)
                     {
-                        idleStrategy.idle(image.poll(fragmentAssembler, 10));
+                        stopPosition = archiveLocation.stopPosition == NULL_POSITION ?
+                            aeronArchive.getRecordingPosition(recordingId) : archiveLocation.stopPosition;
                     }
+
+                    replay(
+                        replaySubscription, fragmentAssembler, archiveScannerStreamId,
+                        recordingId, ranges.getLong(i), stopPosition);
                 }
             });
         }
     }
 
+    private void replay(
+        final Subscription replaySubscription,
+        final FragmentAssembler fragmentAssembler,
+        final int archiveScannerStreamId,
+        final long recordingId,
+        final long startPosition,
+        final long stopPosition)
+    {
+        final long length = stopPosition == NULL_POSITION ? NULL_LENGTH : stopPosition - startPosition;
+        if (length > 0 || length == NULL_LENGTH)
+        {
+            final int sessionId = (int)aeronArchive.startReplay(
+                recordingId,
+                startPosition,
+                length,
+                IPC_CHANNEL,
+                archiveScannerStreamId);
+
+            final Image image = lookupImage(replaySubscription, sessionId);
+
+            while (stopPosition == NULL_POSITION || image.position() < stopPosition)
+            {
+                idleStrategy.idle(image.poll(fragmentAssembler, 10));
+            }
+        }
+    }
+
     private Image lookupImage(final Subscription replaySubscription, final int sessionId)
     {
         Image image = null;
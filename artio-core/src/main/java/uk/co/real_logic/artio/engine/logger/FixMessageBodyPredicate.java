@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.DirectBuffer;
+
+/**
+ * A criteria for filtering fix messages that reads the ascii fix message in place, rather than copying it out.
+ *
+ * @see FixMessagePredicates#whereBody(FixMessageBodyPredicate)
+ */
+@FunctionalInterface
+public interface FixMessageBodyPredicate
+{
+    /**
+     * Tests a fix message.
+     *
+     * @param buffer the buffer where the ascii fix message is stored.
+     * @param offset the offset where the fix message begins within the buffer.
+     * @param length the length of the fix message in bytes.
+     * @return true if the message matches, false otherwise.
+     */
+    boolean test(DirectBuffer buffer, int offset, int length);
+}
@@ -18,9 +18,13 @@ package uk.co.real_logic.artio.engine.logger;
 import io.aeron.Aeron;
 import io.aeron.FragmentAssembler;
 import io.aeron.Subscription;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
 import org.agrona.concurrent.Agent;
 import org.agrona.concurrent.AgentRunner;
 import uk.co.real_logic.artio.CommonConfiguration;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
 
 import java.util.function.Consumer;
 
@@ -36,8 +40,12 @@ import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_OUTBOUND
  * Main method is provided as an example of usage - when integrating into your specific system you should pass in the
  * library aeron channel and stream ids used by your {@link uk.co.real_logic.artio.engine.EngineConfiguration}.
  *
- * Since this class generates Java objects for every message that passes through the system you're recommended to run
- * it in a different process to the normal Artio Engine if you're operating in a latency sensitive environment.
+ * When constructed with a {@link Consumer} of Strings this class generates Java objects for every message that passes
+ * through the system, so you're recommended to run it in a different process to the normal Artio Engine if you're
+ * operating in a latency sensitive environment. A {@link FixMessageSink} is handed each message as a slice of the
+ * buffer that it was read from instead, for example {@link BinaryFixMessageSink} or {@link TextFixMessageSink}, so
+ * along with a predicate from {@link FixMessagePredicates#whereBody(FixMessageBodyPredicate)} messages can be logged
+ * without allocating.
  */
 public class FixMessageLogger implements Agent
 {
@@ -66,6 +74,8 @@ public class FixMessageLogger implements Agent
     private final Subscription inboundSubscription;
     private final Subscription replaySubscription;
     private final FragmentAssembler fragmentAssembler;
+    private final FixMessageSink sink;
+    private final FixMessagePredicate predicate;
 
     public FixMessageLogger(
         final Consumer<String> fixMessageConsumer,
@@ -75,14 +85,51 @@ public class FixMessageLogger implements Agent
         final int outboundStreamId,
         final int outboundReplayStreamId)
     {
+        this(
+            (message, buffer, offset, length) -> fixMessageConsumer.accept(message.body()),
+            FixMessagePredicates.alwaysTrue(),
+            context,
+            libraryAeronChannel,
+            inboundStreamId,
+            outboundStreamId,
+            outboundReplayStreamId);
+    }
+
+    public FixMessageLogger(
+        final FixMessageSink sink,
+        final FixMessagePredicate predicate,
+        final Aeron.Context context,
+        final String libraryAeronChannel,
+        final int inboundStreamId,
+        final int outboundStreamId,
+        final int outboundReplayStreamId)
+    {
+        this.sink = sink;
+        this.predicate = predicate;
+
         aeron = Aeron.connect(context);
         inboundSubscription = aeron.addSubscription(libraryAeronChannel, inboundStreamId);
         outboundSubscription = aeron.addSubscription(libraryAeronChannel, outboundStreamId);
         replaySubscription = aeron.addSubscription(libraryAeronChannel, outboundReplayStreamId);
 
-        final LogEntryHandler logEntryHandler = new LogEntryHandler((message, buffer, offset, length, header) ->
-            fixMessageConsumer.accept(message.body()));
-        fragmentAssembler = new FragmentAssembler(logEntryHandler);
+        fragmentAssembler = new FragmentAssembler(new LogEntryHandler(this::onMessage));
+    }
+
+    private void onMessage(
+        final FixMessageDecoder message,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final Header header)
+    {
+        final int limit = message.limit();
+        if (predicate.test(message))
+        {
+            // Reset incase the predicate has read the body
+            message.limit(limit);
+            final int bodyLength = message.bodyLength();
+            sink.onMessage(message, buffer, limit + FixMessageDecoder.bodyHeaderLength(), bodyLength);
+        }
     }
 
     public int doWork()
@@ -95,7 +142,7 @@ public class FixMessageLogger implements Agent
 
     public void onClose()
     {
-        aeron.close();
+        CloseHelper.closeAll(aeron, sink);
     }
 
     public String roleName()
@@ -22,6 +22,7 @@ import java.util.regex.Pattern;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
+import org.agrona.DirectBuffer;
 import org.agrona.ExpandableArrayBuffer;
 import org.agrona.collections.LongHashSet;
 
@@ -31,10 +32,14 @@ import uk.co.real_logic.artio.dictionary.FixDictionary;
 import uk.co.real_logic.artio.dictionary.generation.CodecUtil;
 import uk.co.real_logic.artio.dictionary.generation.GenerationUtil;
 import uk.co.real_logic.artio.engine.framer.MessageTypeExtractor;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.util.AsciiBuffer;
 import uk.co.real_logic.artio.util.BufferAsciiSequence;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static uk.co.real_logic.artio.dictionary.SessionConstants.START_OF_HEADER;
+
 /**
  * Filters to be used in conjunction with {@link FixArchiveScanner}.
  */
@@ -139,6 +144,20 @@ public final class FixMessagePredicates
         return messageTypeOf(hashSet);
     }
 
+    /**
+     * Filter messages by the fix session id that the engine has allocated to their session.
+     *
+     * @param fixSessionIds the fix session ids of the sessions to match.
+     * @return the resulting predicate.
+     */
+    public static FixMessagePredicate sessionIdOf(final long... fixSessionIds)
+    {
+        final LongHashSet hashSet = new LongHashSet();
+        LongStream.of(fixSessionIds)
+                  .forEach(hashSet::add);
+        return (message) -> hashSet.contains(message.session());
+    }
+
     private static FixMessagePredicate messageTypeOf(final LongHashSet hashSet)
     {
         return (message) ->
@@ -258,6 +277,89 @@ public final class FixMessagePredicates
         };
     }
 
+    /**
+     * Filter messages by testing their ascii fix message in place, without copying it or allocating.
+     *
+     * @param predicate the predicate to test the fix message with.
+     * @return the resulting predicate.
+     */
+    public static FixMessagePredicate whereBody(final FixMessageBodyPredicate predicate)
+    {
+        return message ->
+        {
+            final int length = message.bodyLength();
+            final int offset = message.limit() + FixMessageDecoder.bodyHeaderLength();
+            return predicate.test(message.buffer(), offset, length);
+        };
+    }
+
+    /**
+     * Filter messages by whether their ascii fix message contains the given value, without allocating.
+     *
+     * @param value the ascii value that the fix message must contain.
+     * @return the resulting predicate.
+     */
+    public static FixMessagePredicate bodyContains(final String value)
+    {
+        final byte[] valueBytes = value.getBytes(US_ASCII);
+        return whereBody((buffer, offset, length) ->
+        {
+            final int lastStart = offset + length - valueBytes.length;
+            for (int start = offset; start <= lastStart; start++)
+            {
+                if (matches(buffer, start, valueBytes))
+                {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Filter messages by whether their ascii fix message has a field with the given tag and value, without
+     * allocating.
+     *
+     * @param tag the tag of the field.
+     * @param value the value that the field must have.
+     * @return the resulting predicate.
+     */
+    public static FixMessagePredicate fieldOf(final int tag, final String value)
+    {
+        final byte[] fieldBytes = (tag + "=" + value + (char)START_OF_HEADER).getBytes(US_ASCII);
+        return whereBody((buffer, offset, length) ->
+        {
+            final int end = offset + length;
+            int fieldStart = offset;
+            while (fieldStart + fieldBytes.length <= end)
+            {
+                if (matches(buffer, fieldStart, fieldBytes))
+                {
+                    return true;
+                }
+
+                while (fieldStart < end && buffer.getByte(fieldStart) != START_OF_HEADER)
+                {
+                    fieldStart++;
+                }
+                fieldStart++;
+            }
+            return false;
+        });
+    }
+
+    private static boolean matches(final DirectBuffer buffer, final int offset, final byte[] expected)
+    {
+        for (int i = 0; i < expected.length; i++)
+        {
+            if (buffer.getByte(offset + i) != expected[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static FixMessagePredicate alwaysTrue()
     {
         return message -> true;
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.DirectBuffer;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+
+/**
+ * Receives the fix messages that a {@link FixMessageLogger} reads as a slice of the buffer that they were read from,
+ * so that they can be logged without allocating.
+ *
+ * @see BinaryFixMessageSink
+ * @see TextFixMessageSink
+ */
+@FunctionalInterface
+public interface FixMessageSink extends AutoCloseable
+{
+    /**
+     * Callback invoked for each fix message that the logger reads.
+     *
+     * @param message the message header, can be used to read properties about the message, eg its timestamp.
+     * @param buffer the buffer where the ascii fix message is stored, only valid during the callback.
+     * @param offset the offset where the fix message begins within the buffer.
+     * @param length the length of the fix message in bytes.
+     */
+    void onMessage(FixMessageDecoder message, DirectBuffer buffer, int offset, int length);
+
+    default void close()
+    {
+    }
+}
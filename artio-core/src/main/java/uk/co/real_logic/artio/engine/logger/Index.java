@@ -39,6 +39,18 @@ public interface Index extends FragmentHandler, AutoCloseable
      */
     void readLastPosition(IndexedPositionConsumer consumer);
 
+    /**
+     * Whether the engine needs this index to have caught up with the archive before it starts. Indices that are only
+     * used in order to replay or scan the archive can be caught up in the background instead.
+     *
+     * @return true if the index needs to have caught up before the engine starts, false otherwise.
+     * @see IndexCatchUp
+     */
+    default boolean requiredOnStartup()
+    {
+        return true;
+    }
+
     /**
      * Optional method to perform some period work on the index, eg compaction or updating another system.
      *
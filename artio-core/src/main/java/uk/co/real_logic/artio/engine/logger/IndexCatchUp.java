@@ -0,0 +1,650 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.Aeron;
+import io.aeron.ChannelUri;
+import io.aeron.Image;
+import io.aeron.Subscription;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.client.ArchiveException;
+import org.agrona.CloseHelper;
+import org.agrona.ErrorHandler;
+import org.agrona.LangUtil;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.AgentInvoker;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.status.AtomicCounter;
+import uk.co.real_logic.artio.CommonConfiguration;
+import uk.co.real_logic.artio.DebugLogger;
+import uk.co.real_logic.artio.LogTag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.aeron.CommonContext.IPC_CHANNEL;
+
+/**
+ * Catches indices up with the parts of the archive's recordings that they haven't indexed yet, for example after
+ * the engine has crashed, before the {@link Indexer}s start indexing live messages.
+ *
+ * Each index is caught up by a single thread, which replays all of the recordings that the index is behind on
+ * concurrently. Up to {@code parallelism} indices, from both the inbound and the outbound streams, are caught up in
+ * parallel. Indices that aren't {@link Index#requiredOnStartup()} can optionally be caught up in the background
+ * whilst the engine is running, in which case the {@link Replayer} waits until they have.
+ *
+ * The {@link Indexer}s keep indexing live messages with their other indices whilst a background index catches up,
+ * and record the live position that they've reached in each recording. The index is then handed over to its
+ * Indexer in two rounds. It first catches up with the live positions that the Indexer has reached, whilst the
+ * Indexer carries on. It then catches up with the few live messages that the Indexer has polled since, whilst the
+ * Indexer briefly stops polling, so that the index carries on from exactly where it's caught up to.
+ *
+ * If an index fails whilst catching up it's caught up again from the positions that it has written, so that it
+ * never misses any messages.
+ */
+public class IndexCatchUp implements AutoCloseable
+{
+    private static final int LIMIT = 20;
+    private static final long CLOSE_TIMEOUT_IN_MS = 10_000;
+    private static final long RETRY_INTERVAL_IN_MS = 100;
+
+    private final List<IndexReplays> requiredIndices = new ArrayList<>();
+    private final List<IndexReplays> backgroundIndices = new ArrayList<>();
+    private final AtomicInteger remainingIndices = new AtomicInteger();
+
+    private final AeronArchive aeronArchive;
+    private final Aeron aeron;
+    private final AgentInvoker aeronInvoker;
+    private final ErrorHandler errorHandler;
+    private final int archiveReplayStream;
+    private final int parallelism;
+    private final boolean background;
+    private final AtomicCounter remainingBytes;
+    private final String agentNamePrefix;
+
+    private volatile boolean closed;
+    private ExecutorService executor;
+
+    public IndexCatchUp(
+        final AeronArchive aeronArchive,
+        final ErrorHandler errorHandler,
+        final int archiveReplayStream,
+        final int parallelism,
+        final boolean background,
+        final AtomicCounter remainingBytes,
+        final String agentNamePrefix)
+    {
+        this.aeronArchive = aeronArchive;
+        this.errorHandler = errorHandler;
+        this.archiveReplayStream = archiveReplayStream;
+        this.parallelism = parallelism;
+        this.background = background;
+        this.remainingBytes = remainingBytes;
+        this.agentNamePrefix = agentNamePrefix;
+
+        aeron = aeronArchive.context().aeron();
+        aeronInvoker = aeron.conductorAgentInvoker();
+    }
+
+    // Returns the indices that are caught up in the background, which the Indexer hands live messages to once
+    // they have caught up.
+    List<IndexReplays> add(final List<Index> indices)
+    {
+        final List<IndexReplays> addedBackgroundIndices = new ArrayList<>();
+        for (int i = 0, size = indices.size(); i < size; i++)
+        {
+            final Index index = indices.get(i);
+            // An Aeron client that's driven by an invoker can't be used by multiple threads.
+            final boolean inBackground = background && !index.requiredOnStartup() && aeronInvoker == null;
+            final IndexReplays replays = new IndexReplays(index, inBackground);
+            index.readLastPosition(replays);
+            if (!replays.isComplete())
+            {
+                remainingIndices.incrementAndGet();
+                if (inBackground)
+                {
+                    backgroundIndices.add(replays);
+                    addedBackgroundIndices.add(replays);
+                }
+                else
+                {
+                    requiredIndices.add(replays);
+                }
+            }
+        }
+
+        return addedBackgroundIndices;
+    }
+
+    /**
+     * Catches up all of the indices that have been added, returning once those that are required on startup have
+     * caught up.
+     */
+    public void run()
+    {
+        final List<IndexReplays> requiredIndices = this.requiredIndices;
+        final List<IndexReplays> backgroundIndices = this.backgroundIndices;
+
+        if (aeronInvoker != null)
+        {
+            catchUpOnThisThread(requiredIndices);
+            return;
+        }
+
+        final int indexCount = requiredIndices.size() + backgroundIndices.size();
+        if (indexCount == 0)
+        {
+            return;
+        }
+
+        final CountDownLatch requiredLatch = new CountDownLatch(requiredIndices.size());
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.min(parallelism, indexCount), runnable ->
+        {
+            final Thread thread = new Thread(
+                runnable, agentNamePrefix + "IndexCatchUp-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int i = 0, size = requiredIndices.size(); i < size; i++)
+        {
+            final IndexReplays replays = requiredIndices.get(i);
+            executor.execute(() ->
+            {
+                replays.catchUp();
+                requiredLatch.countDown();
+            });
+        }
+
+        for (int i = 0, size = backgroundIndices.size(); i < size; i++)
+        {
+            executor.execute(backgroundIndices.get(i)::catchUp);
+        }
+
+        executor.shutdown();
+
+        try
+        {
+            requiredLatch.await();
+        }
+        catch (final InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            LangUtil.rethrowUnchecked(ex);
+        }
+    }
+
+    private void catchUpOnThisThread(final List<IndexReplays> indices)
+    {
+        final IdleStrategy idleStrategy = CommonConfiguration.backoffIdleStrategy();
+        while (!allComplete(indices) && !closed)
+        {
+            int work = 0;
+            for (int i = 0, size = indices.size(); i < size; i++)
+            {
+                work += indices.get(i).poll();
+            }
+
+            if (work == 0)
+            {
+                aeronInvoker.invoke();
+                idleStrategy.idle();
+            }
+            else
+            {
+                idleStrategy.reset();
+            }
+        }
+
+        for (int i = 0, size = indices.size(); i < size; i++)
+        {
+            final IndexReplays replays = indices.get(i);
+            replays.replays.forEach(RecordingReplay::close);
+            if (replays.isComplete())
+            {
+                remainingIndices.decrementAndGet();
+            }
+        }
+    }
+
+    private static boolean allComplete(final List<IndexReplays> indices)
+    {
+        for (int i = 0, size = indices.size(); i < size; i++)
+        {
+            if (!indices.get(i).isComplete())
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Find out whether all of the indices have caught up, after which the indices can be used on other threads.
+     *
+     * @return true if all of the indices have caught up, false otherwise.
+     */
+    public boolean isComplete()
+    {
+        return remainingIndices.get() == 0;
+    }
+
+    /**
+     * Stops any catch up that's still in progress in the background, leaving it incomplete.
+     */
+    public void close()
+    {
+        closed = true;
+
+        final ExecutorService executor = this.executor;
+        if (executor != null)
+        {
+            try
+            {
+                executor.awaitTermination(CLOSE_TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
+            }
+            catch (final InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Owned by a single thread at a time, whilst it's catching up the index. The hand off state of a background
+    // index is shared with its Indexer.
+    final class IndexReplays implements IndexedPositionConsumer
+    {
+        private static final int CATCHING_UP = 0;
+        private static final int AWAITING_LIVE_POSITIONS = 1;
+        private static final int CATCHING_UP_TO_LIVE_POSITIONS = 2;
+        private static final int AWAITING_FROZEN_LIVE_POSITIONS = 3;
+        private static final int CATCHING_UP_TO_FROZEN_LIVE_POSITIONS = 4;
+        private static final int LIVE = 5;
+        private static final int ABANDONED = 6;
+
+        private final List<RecordingReplay> replays = new ArrayList<>();
+        private final Long2LongHashMap recordingIdToLastPosition = new Long2LongHashMap(AeronArchive.NULL_POSITION);
+        private final Index index;
+        private final boolean background;
+
+        private int remainingReplays;
+
+        private volatile int handOffState = CATCHING_UP;
+        private volatile Long2LongHashMap recordingIdToLivePosition;
+
+        IndexReplays(final Index index, final boolean background)
+        {
+            this.index = index;
+            this.background = background;
+        }
+
+        public void accept(final int aeronSessionId, final long recordingId, final long indexStoppedPosition)
+        {
+            recordingIdToLastPosition.put(recordingId, indexStoppedPosition);
+            try
+            {
+                final long recordingStoppedPosition = aeronArchive.getStopPosition(recordingId);
+                if (recordingStoppedPosition > indexStoppedPosition)
+                {
+                    DebugLogger.log(
+                        LogTag.INDEX,
+                        "Catchup [%s]: recordingId = %d, recordingStopped @ %d, indexStopped @ %d%n",
+                        index.getName(),
+                        recordingId,
+                        recordingStoppedPosition,
+                        indexStoppedPosition);
+
+                    replays.add(new RecordingReplay(recordingId, indexStoppedPosition, recordingStoppedPosition));
+                    remainingReplays++;
+                    remainingBytes.getAndAdd(recordingStoppedPosition - indexStoppedPosition);
+                }
+            }
+            catch (final ArchiveException ex)
+            {
+                errorHandler.onError(ex);
+            }
+        }
+
+        void catchUp()
+        {
+            final IdleStrategy idleStrategy = CommonConfiguration.backoffIdleStrategy();
+            boolean caughtUp = false;
+            boolean failed = false;
+            try
+            {
+                while (!caughtUp && !closed)
+                {
+                    try
+                    {
+                        if (failed)
+                        {
+                            failed = false;
+                            restart();
+                        }
+
+                        catchUpReplays(idleStrategy);
+                        if (background)
+                        {
+                            catchUpToLivePositions(AWAITING_LIVE_POSITIONS, idleStrategy);
+                            catchUpToLivePositions(AWAITING_FROZEN_LIVE_POSITIONS, idleStrategy);
+                        }
+                        caughtUp = !closed;
+                    }
+                    catch (final Throwable ex)
+                    {
+                        // An index that has missed messages must never be handed live ones, or be used for replays.
+                        errorHandler.onError(ex);
+                        awaitRetry(idleStrategy);
+                        failed = true;
+                    }
+                }
+            }
+            finally
+            {
+                replays.forEach(RecordingReplay::close);
+                if (background)
+                {
+                    handOffState = caughtUp ? LIVE : ABANDONED;
+                }
+
+                if (caughtUp)
+                {
+                    remainingIndices.decrementAndGet();
+                }
+            }
+        }
+
+        private void awaitRetry(final IdleStrategy idleStrategy)
+        {
+            // The Indexer carries on polling live messages whilst the index waits to catch up again.
+            if (background)
+            {
+                handOffState = CATCHING_UP;
+            }
+
+            final long retryTimeInMs = System.currentTimeMillis() + RETRY_INTERVAL_IN_MS;
+            while (System.currentTimeMillis() < retryTimeInMs && !closed)
+            {
+                idleStrategy.idle();
+            }
+            idleStrategy.reset();
+        }
+
+        // Catches up again from the positions that the index has indexed up to, which it writes in doWork.
+        private void restart()
+        {
+            final List<RecordingReplay> replays = this.replays;
+            for (int i = 0, size = replays.size(); i < size; i++)
+            {
+                replays.get(i).cancel();
+            }
+            replays.clear();
+            remainingReplays = 0;
+
+            index.doWork();
+            index.readLastPosition(this);
+        }
+
+        private void catchUpReplays(final IdleStrategy idleStrategy)
+        {
+            while (!isComplete() && !closed)
+            {
+                if (poll() == 0)
+                {
+                    idleStrategy.idle();
+                }
+                else
+                {
+                    idleStrategy.reset();
+                }
+            }
+        }
+
+        private void catchUpToLivePositions(final int awaitingState, final IdleStrategy idleStrategy)
+        {
+            handOffState = awaitingState;
+            while (handOffState == awaitingState && !closed)
+            {
+                idleStrategy.idle();
+            }
+            idleStrategy.reset();
+
+            if (!closed)
+            {
+                recordingIdToLivePosition.longForEach(this::addLiveReplay);
+                catchUpReplays(idleStrategy);
+            }
+        }
+
+        private void addLiveReplay(final long recordingId, final long livePosition)
+        {
+            final long indexedPosition = indexedPosition(recordingId);
+            if (livePosition > indexedPosition)
+            {
+                DebugLogger.log(
+                    LogTag.INDEX,
+                    "Catchup [%s]: recordingId = %d, live @ %d, indexStopped @ %d%n",
+                    index.getName(),
+                    recordingId,
+                    livePosition,
+                    indexedPosition);
+
+                replays.add(new RecordingReplay(recordingId, indexedPosition, livePosition));
+                remainingReplays++;
+                remainingBytes.getAndAdd(livePosition - indexedPosition);
+            }
+        }
+
+        // Recordings that the index hasn't indexed at all yet were started whilst it was catching up.
+        private long indexedPosition(final long recordingId)
+        {
+            long indexedPosition = recordingIdToLastPosition.get(recordingId);
+            final List<RecordingReplay> replays = this.replays;
+            for (int i = 0, size = replays.size(); i < size; i++)
+            {
+                final RecordingReplay replay = replays.get(i);
+                if (replay.recordingId == recordingId)
+                {
+                    indexedPosition = Math.max(indexedPosition, replay.stopPosition);
+                }
+            }
+
+            return indexedPosition == AeronArchive.NULL_POSITION ?
+                aeronArchive.getStartPosition(recordingId) : indexedPosition;
+        }
+
+        int poll()
+        {
+            if (isComplete())
+            {
+                return 0;
+            }
+
+            int work = 0;
+            final List<RecordingReplay> replays = this.replays;
+            for (int i = 0, size = replays.size(); i < size; i++)
+            {
+                work += replays.get(i).poll(this);
+            }
+
+            // Indices write the positions that they've indexed up to in doWork, so this stops a restart from
+            // indexing what has already been caught up again.
+            return work + index.doWork();
+        }
+
+        boolean isComplete()
+        {
+            return remainingReplays == 0;
+        }
+
+        void onReplayComplete()
+        {
+            remainingReplays--;
+        }
+
+        Index index()
+        {
+            return index;
+        }
+
+        /**
+         * Called by the Indexer, which must not poll any more live messages whilst this returns true.
+         *
+         * @param recordingIdToLivePosition the position up to which the Indexer has polled each recording.
+         * @return true if the Indexer needs to stop polling live messages until the index has caught up with them.
+         */
+        boolean offerLivePositions(final Long2LongHashMap recordingIdToLivePosition)
+        {
+            final int handOffState = this.handOffState;
+            if (handOffState == AWAITING_LIVE_POSITIONS || handOffState == AWAITING_FROZEN_LIVE_POSITIONS)
+            {
+                final Long2LongHashMap livePositions = new Long2LongHashMap(AeronArchive.NULL_POSITION);
+                recordingIdToLivePosition.longForEach(livePositions::put);
+                this.recordingIdToLivePosition = livePositions;
+                this.handOffState = handOffState + 1;
+                return handOffState == AWAITING_FROZEN_LIVE_POSITIONS;
+            }
+
+            return handOffState == CATCHING_UP_TO_FROZEN_LIVE_POSITIONS;
+        }
+
+        /**
+         * Called by the Indexer to find out whether it can hand live messages to the index.
+         *
+         * @return true if the index has caught up and can be handed live messages.
+         */
+        boolean isLive()
+        {
+            return handOffState == LIVE;
+        }
+
+        /**
+         * Called by the Indexer to find out whether the index has stopped catching up without having caught up, in
+         * which case it must not be handed any more live messages.
+         *
+         * @return true if the index has been abandoned.
+         */
+        boolean isAbandoned()
+        {
+            return handOffState == ABANDONED;
+        }
+    }
+
+    private final class RecordingReplay implements AutoCloseable
+    {
+        private final long recordingId;
+        private final long stopPosition;
+
+        private long position;
+        private Subscription subscription;
+        private Image image;
+        private boolean complete;
+
+        RecordingReplay(final long recordingId, final long position, final long stopPosition)
+        {
+            this.recordingId = recordingId;
+            this.position = position;
+            this.stopPosition = stopPosition;
+        }
+
+        int poll(final IndexReplays indexReplays)
+        {
+            if (complete)
+            {
+                return 0;
+            }
+
+            try
+            {
+                if (subscription == null)
+                {
+                    // Each replay has its own subscription, so concurrent replays don't hold each other up.
+                    final long replaySessionId = aeronArchive.startReplay(
+                        recordingId, position, stopPosition - position, IPC_CHANNEL, archiveReplayStream);
+                    subscription = aeron.addSubscription(
+                        ChannelUri.addSessionId(IPC_CHANNEL, (int)replaySessionId), archiveReplayStream);
+                    return 1;
+                }
+
+                if (image == null)
+                {
+                    if (subscription.imageCount() == 0)
+                    {
+                        aeronArchive.checkForErrorResponse();
+                        return 0;
+                    }
+
+                    image = subscription.imageAtIndex(0);
+                }
+            }
+            catch (final ArchiveException ex)
+            {
+                errorHandler.onError(ex);
+                complete(indexReplays);
+                return 1;
+            }
+
+            final int fragments = image.poll(indexReplays.index, LIMIT);
+            final long newPosition = image.position();
+            remainingBytes.getAndAdd(position - newPosition);
+            position = newPosition;
+
+            if (newPosition >= stopPosition || image.isClosed())
+            {
+                complete(indexReplays);
+            }
+
+            return fragments;
+        }
+
+        void cancel()
+        {
+            if (!complete)
+            {
+                remainingBytes.getAndAdd(position - stopPosition);
+                complete = true;
+            }
+            close();
+        }
+
+        void complete(final IndexReplays indexReplays)
+        {
+            if (complete)
+            {
+                return;
+            }
+
+            remainingBytes.getAndAdd(position - stopPosition);
+            position = stopPosition;
+            complete = true;
+            close();
+            indexReplays.onReplayComplete();
+        }
+
+        public void close()
+        {
+            CloseHelper.close(subscription);
+            subscription = null;
+        }
+    }
+}
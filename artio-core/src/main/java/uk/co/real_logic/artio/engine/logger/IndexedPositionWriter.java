@@ -24,6 +24,8 @@ import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
 import uk.co.real_logic.artio.storage.messages.IndexedPositionDecoder;
 import uk.co.real_logic.artio.storage.messages.IndexedPositionEncoder;
 
+import java.util.Arrays;
+
 import static uk.co.real_logic.artio.engine.SectorFramer.OUT_OF_SPACE;
 
 /**
@@ -47,6 +49,12 @@ class IndexedPositionWriter
     private final ErrorHandler errorHandler;
     private final ChecksumFramer checksumFramer;
 
+    // Positions that have been indexed, but not yet written, so that they're written along with their checksums
+    private int[] stagedAeronSessionIds = new int[4];
+    private long[] stagedRecordingIds = new long[4];
+    private long[] stagedPositions = new long[4];
+    private int stagedCount;
+
     IndexedPositionWriter(
         final AtomicBuffer buffer,
         final ErrorHandler errorHandler,
@@ -83,7 +91,8 @@ class IndexedPositionWriter
         }
     }
 
-    void indexedUpTo(final int aeronSessionId, final long recordingId, final long position)
+    // returns the offset of the session's record, or OUT_OF_SPACE if it couldn't be recorded
+    int indexedUpTo(final int aeronSessionId, final long recordingId, final long position)
     {
         final Int2IntHashMap recordOffsets = this.recordOffsets;
 
@@ -99,12 +108,12 @@ class IndexedPositionWriter
             while (true)
             {
                 offset = checksumFramer.claim(offset, RECORD_LENGTH);
-                if (position == OUT_OF_SPACE)
+                if (offset == OUT_OF_SPACE)
                 {
                     errorHandler.onError(new IllegalStateException(String.format(
                         "Unable to record new session (%d), indexed position buffer full",
                         aeronSessionId)));
-                    return;
+                    return OUT_OF_SPACE;
                 }
 
                 decoder.wrap(buffer, offset, actingBlockLength, actingVersion);
@@ -117,7 +126,7 @@ class IndexedPositionWriter
 
                     recordOffsets.put(aeronSessionId, offset);
                     putPosition(position, buffer, offset);
-                    return;
+                    return offset;
                 }
 
                 offset += RECORD_LENGTH;
@@ -126,11 +135,64 @@ class IndexedPositionWriter
         else
         {
             putPosition(position, buffer, offset);
+            return offset;
+        }
+    }
+
+    // Stages a position to be written by the next call to writeStaged(), only the latest one per session is kept
+    void stageIndexedUpTo(final int aeronSessionId, final long recordingId, final long position)
+    {
+        final int stagedCount = this.stagedCount;
+        final int[] stagedAeronSessionIds = this.stagedAeronSessionIds;
+        for (int i = 0; i < stagedCount; i++)
+        {
+            if (stagedAeronSessionIds[i] == aeronSessionId)
+            {
+                stagedRecordingIds[i] = recordingId;
+                stagedPositions[i] = position;
+                return;
+            }
+        }
+
+        if (stagedCount == stagedAeronSessionIds.length)
+        {
+            final int newLength = stagedCount * 2;
+            this.stagedAeronSessionIds = Arrays.copyOf(stagedAeronSessionIds, newLength);
+            stagedRecordingIds = Arrays.copyOf(stagedRecordingIds, newLength);
+            stagedPositions = Arrays.copyOf(stagedPositions, newLength);
+        }
+
+        this.stagedAeronSessionIds[stagedCount] = aeronSessionId;
+        stagedRecordingIds[stagedCount] = recordingId;
+        stagedPositions[stagedCount] = position;
+        this.stagedCount = stagedCount + 1;
+    }
+
+    // Writes the staged positions and then updates the checksums once for all of them
+    int writeStaged()
+    {
+        final int stagedCount = this.stagedCount;
+        if (stagedCount == 0)
+        {
+            return 0;
         }
+
+        final int[] stagedAeronSessionIds = this.stagedAeronSessionIds;
+        final long[] stagedRecordingIds = this.stagedRecordingIds;
+        final long[] stagedPositions = this.stagedPositions;
+        for (int i = 0; i < stagedCount; i++)
+        {
+            indexedUpTo(stagedAeronSessionIds[i], stagedRecordingIds[i], stagedPositions[i]);
+        }
+        updateChecksums();
+        this.stagedCount = 0;
+
+        return stagedCount;
     }
 
     void close()
     {
+        writeStaged();
         updateChecksums();
     }
 
@@ -139,6 +201,11 @@ class IndexedPositionWriter
         checksumFramer.updateChecksums();
     }
 
+    void updateChecksum(final int sectorStart)
+    {
+        checksumFramer.updateChecksum(sectorStart);
+    }
+
     AtomicBuffer buffer()
     {
         return buffer;
@@ -15,31 +15,27 @@
  */
 package uk.co.real_logic.artio.engine.logger;
 
-import io.aeron.Image;
 import io.aeron.Subscription;
-import io.aeron.archive.client.AeronArchive;
-import io.aeron.archive.client.ArchiveException;
 import io.aeron.logbuffer.ControlledFragmentHandler;
 import io.aeron.logbuffer.Header;
 import org.agrona.DirectBuffer;
-import org.agrona.ErrorHandler;
 import org.agrona.collections.CollectionUtil;
+import org.agrona.collections.Long2LongHashMap;
 import org.agrona.concurrent.Agent;
-import org.agrona.concurrent.AgentInvoker;
-import org.agrona.concurrent.IdleStrategy;
-import uk.co.real_logic.artio.CommonConfiguration;
 import uk.co.real_logic.artio.DebugLogger;
 import uk.co.real_logic.artio.LogTag;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 import uk.co.real_logic.artio.engine.CompletionPosition;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import static io.aeron.CommonContext.IPC_CHANNEL;
+import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 
 /**
- * Incrementally builds indexes by polling a subscription.
+ * Incrementally builds indexes by polling a subscription. Indices that an {@link IndexCatchUp} is catching up with
+ * the archive in the background are only handed live messages once they have caught up with them.
  */
 @SuppressWarnings("ForLoopReplaceableByForEach")
 public class Indexer implements Agent, ControlledFragmentHandler
@@ -47,100 +43,90 @@ public class Indexer implements Agent, ControlledFragmentHandler
     private static final int LIMIT = 20;
 
     private final List<Index> indices;
+    private final List<Index> liveIndices;
+    private final List<IndexCatchUp.IndexReplays> backgroundIndices;
+    private final Long2LongHashMap recordingIdToLivePosition = new Long2LongHashMap(NULL_POSITION);
     private final Subscription subscription;
+    private final RecordingIdLookup recordingIdLookup;
     private final String agentNamePrefix;
     private final CompletionPosition completionPosition;
-    private final int archiveReplayStream;
+    private final IndexCatchUp catchUp;
     private final boolean gracefulShutdown;
 
+    private boolean frozen;
+
     public Indexer(
         final List<Index> indices,
         final Subscription subscription,
+        final RecordingIdLookup recordingIdLookup,
         final String agentNamePrefix,
         final CompletionPosition completionPosition,
-        final AeronArchive aeronArchive,
-        final ErrorHandler errorHandler,
-        final int archiveReplayStream,
+        final IndexCatchUp catchUp,
         final boolean gracefulShutdown)
     {
         this.indices = indices;
         this.subscription = subscription;
+        this.recordingIdLookup = recordingIdLookup;
         this.agentNamePrefix = agentNamePrefix;
         this.completionPosition = completionPosition;
-        this.archiveReplayStream = archiveReplayStream;
+        this.catchUp = catchUp;
         this.gracefulShutdown = gracefulShutdown;
-        catchIndexUp(aeronArchive, errorHandler);
+        backgroundIndices = catchUp.add(indices);
+        liveIndices = new ArrayList<>(indices);
+        for (int i = 0, size = backgroundIndices.size(); i < size; i++)
+        {
+            liveIndices.remove(backgroundIndices.get(i).index());
+        }
     }
 
     public int doWork()
     {
-        return subscription.controlledPoll(this, LIMIT) + CollectionUtil.sum(indices, Index::doWork);
+        int work = 0;
+        if (!backgroundIndices.isEmpty())
+        {
+            work += handOffBackgroundIndices();
+        }
+
+        if (!frozen)
+        {
+            work += subscription.controlledPoll(this, LIMIT);
+        }
+
+        return work + CollectionUtil.sum(liveIndices, Index::doWork);
     }
 
-    private void catchIndexUp(final AeronArchive aeronArchive, final ErrorHandler errorHandler)
+    private int handOffBackgroundIndices()
     {
-        final IdleStrategy idleStrategy = CommonConfiguration.backoffIdleStrategy();
-        final AgentInvoker aeronInvoker = aeronArchive.context().aeron().conductorAgentInvoker();
-
-        for (int i = 0, size = indices.size(); i < size; i++)
+        int work = 0;
+        boolean frozen = false;
+        final List<IndexCatchUp.IndexReplays> backgroundIndices = this.backgroundIndices;
+        for (int i = backgroundIndices.size() - 1; i >= 0; i--)
         {
-            final Index index = indices.get(i);
-
-            index.readLastPosition((aeronSessionId, recordingId, indexStoppedPosition) ->
+            final IndexCatchUp.IndexReplays replays = backgroundIndices.get(i);
+            if (replays.isLive())
+            {
+                // Live messages that the index has already caught up with are never polled again.
+                liveIndices.add(replays.index());
+                backgroundIndices.remove(i);
+                work++;
+            }
+            else if (replays.isAbandoned())
+            {
+                backgroundIndices.remove(i);
+            }
+            else
             {
-                try
-                {
-                    final long recordingStoppedPosition = aeronArchive.getStopPosition(recordingId);
-                    if (recordingStoppedPosition > indexStoppedPosition)
-                    {
-                        DebugLogger.log(
-                            LogTag.INDEX,
-                            "Catchup [%s]: recordingId = %d, recordingStopped @ %d, indexStopped @ %d%n",
-                            index.getName(),
-                            recordingId,
-                            recordingStoppedPosition,
-                            indexStoppedPosition);
-
-                        final long length = recordingStoppedPosition - indexStoppedPosition;
-                        try (Subscription subscription = aeronArchive.replay(
-                            recordingId, indexStoppedPosition, length, IPC_CHANNEL, archiveReplayStream))
-                        {
-                            // Only do 1 replay at a time
-                            while (subscription.imageCount() != 1)
-                            {
-                                idle(idleStrategy, aeronInvoker);
-                                aeronArchive.checkForErrorResponse();
-                            }
-                            idleStrategy.reset();
-
-                            final Image replayImage = subscription.imageAtIndex(0);
-
-                            while (replayImage.position() < recordingStoppedPosition)
-                            {
-                                replayImage.poll(index, LIMIT);
-
-                                idle(idleStrategy, aeronInvoker);
-                            }
-                            idleStrategy.reset();
-                        }
-                    }
-                }
-                catch (final ArchiveException ex)
-                {
-                    errorHandler.onError(ex);
-                }
-            });
+                frozen |= replays.offerLivePositions(recordingIdToLivePosition);
+            }
         }
-    }
 
-    private void idle(final IdleStrategy idleStrategy, final AgentInvoker aeronInvoker)
-    {
-        if (aeronInvoker != null)
+        if (backgroundIndices.isEmpty())
         {
-            aeronInvoker.invoke();
+            recordingIdToLivePosition.clear();
         }
+        this.frozen = frozen;
 
-        idleStrategy.idle();
+        return work;
     }
 
     public Action onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
@@ -155,17 +141,26 @@ public class Indexer implements Agent, ControlledFragmentHandler
             streamId,
             aeronSessionId);
 
-        for (int i = 0, size = indices.size(); i < size; i++)
+        final List<Index> liveIndices = this.liveIndices;
+        for (int i = 0, size = liveIndices.size(); i < size; i++)
         {
-            final Index index = indices.get(i);
+            final Index index = liveIndices.get(i);
             index.onFragment(buffer, offset, length, header);
         }
 
+        // Background indices catch up with the messages that they miss here from the archive.
+        if (!backgroundIndices.isEmpty())
+        {
+            recordingIdToLivePosition.put(recordingIdLookup.getRecordingId(aeronSessionId), endPosition);
+        }
+
         return CONTINUE;
     }
 
     public void onClose()
     {
+        catchUp.close();
+
         if (gracefulShutdown)
         {
             quiesce();
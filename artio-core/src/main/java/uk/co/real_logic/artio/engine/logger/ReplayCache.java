@@ -0,0 +1,266 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.logbuffer.Header;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.ErrorHandler;
+import org.agrona.collections.Hashing;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import uk.co.real_logic.artio.engine.SequenceNumberExtractor;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.messages.FixMessageEncoder;
+import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+
+import java.nio.ByteBuffer;
+
+import static io.aeron.logbuffer.FrameDescriptor.BEGIN_FRAG_FLAG;
+import static io.aeron.logbuffer.FrameDescriptor.UNFRAGMENTED;
+import static uk.co.real_logic.artio.engine.SequenceNumberExtractor.NO_SEQUENCE_NUMBER;
+import static uk.co.real_logic.artio.messages.FixMessageDecoder.bodyHeaderLength;
+import static uk.co.real_logic.artio.messages.FixMessageDecoder.metaDataHeaderLength;
+import static uk.co.real_logic.artio.messages.FixMessageDecoder.metaDataSinceVersion;
+import static uk.co.real_logic.artio.messages.MessageStatus.OK;
+
+/**
+ * A set-associative, off-heap cache of the most recently sent messages, keyed by their fix session id, sequence
+ * index and sequence number, so that resend requests for them can be served without a replay from the archive.
+ *
+ * Each set has a fixed number of slots, each of which holds a single unfragmented message frame. Consecutive
+ * sequence numbers of a session map to consecutive sets, and the oldest message within a set is evicted first.
+ *
+ * It's written to by the outbound {@link Indexer} and read from by the {@link Replayer}, which both run on the
+ * archiving agent's thread.
+ */
+public class ReplayCache implements Index
+{
+    static final int MISSING = -1;
+
+    static final int SESSION_ID_OFFSET = 0;
+    static final int SEQUENCE_INDEX_OFFSET = SESSION_ID_OFFSET + BitUtil.SIZE_OF_LONG;
+    static final int SEQUENCE_NUMBER_OFFSET = SEQUENCE_INDEX_OFFSET + BitUtil.SIZE_OF_INT;
+    static final int LENGTH_OFFSET = SEQUENCE_NUMBER_OFFSET + BitUtil.SIZE_OF_INT;
+    static final int SLOT_HEADER_LENGTH = LENGTH_OFFSET + BitUtil.SIZE_OF_LONG;
+
+    private final MessageHeaderDecoder frameHeaderDecoder = new MessageHeaderDecoder();
+    private final FixMessageDecoder messageFrame = new FixMessageDecoder();
+
+    private final int requiredStreamId;
+    private final int setSize;
+    private final int setMask;
+    private final int slotSize;
+    private final int setLength;
+    private final int maxMessageLength;
+    private final int[] nextVictims;
+    private final UnsafeBuffer buffer;
+    private final SequenceNumberExtractor sequenceNumberExtractor;
+    private final AtomicCounter hits;
+    private final AtomicCounter misses;
+
+    public ReplayCache(
+        final int requiredStreamId,
+        final int numSets,
+        final int setSize,
+        final int slotSize,
+        final ErrorHandler errorHandler,
+        final AtomicCounter hits,
+        final AtomicCounter misses)
+    {
+        if (!BitUtil.isPowerOfTwo(numSets))
+        {
+            throw new IllegalArgumentException("numSets must be a power of two: " + numSets);
+        }
+
+        this.requiredStreamId = requiredStreamId;
+        this.setSize = setSize;
+        this.hits = hits;
+        this.misses = misses;
+
+        setMask = numSets - 1;
+        this.slotSize = BitUtil.align(slotSize, BitUtil.SIZE_OF_LONG);
+        setLength = setSize * this.slotSize;
+        maxMessageLength = this.slotSize - SLOT_HEADER_LENGTH;
+        nextVictims = new int[numSets];
+        buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(numSets * setLength));
+        sequenceNumberExtractor = new SequenceNumberExtractor(errorHandler);
+    }
+
+    public void onFragment(final DirectBuffer srcBuffer, final int srcOffset, final int srcLength, final Header header)
+    {
+        final byte flags = header.flags();
+        final boolean unfragmented = (flags & UNFRAGMENTED) == UNFRAGMENTED;
+        if (header.streamId() != requiredStreamId || !(unfragmented || (flags & BEGIN_FRAG_FLAG) == BEGIN_FRAG_FLAG))
+        {
+            return;
+        }
+
+        int offset = srcOffset;
+        frameHeaderDecoder.wrap(srcBuffer, offset);
+        if (frameHeaderDecoder.templateId() != FixMessageEncoder.TEMPLATE_ID)
+        {
+            return;
+        }
+
+        final int actingBlockLength = frameHeaderDecoder.blockLength();
+        final int version = frameHeaderDecoder.version();
+        offset += frameHeaderDecoder.encodedLength();
+        messageFrame.wrap(srcBuffer, offset, actingBlockLength, version);
+        if (messageFrame.status() != OK)
+        {
+            return;
+        }
+
+        offset += actingBlockLength;
+        if (version >= metaDataSinceVersion())
+        {
+            offset += metaDataHeaderLength() + messageFrame.metaDataLength();
+            messageFrame.skipMetaData();
+        }
+        offset += bodyHeaderLength();
+
+        final int sequenceNumber = sequenceNumberExtractor.extract(srcBuffer, offset, messageFrame.bodyLength());
+        if (sequenceNumber != NO_SEQUENCE_NUMBER)
+        {
+            final long sessionId = messageFrame.session();
+            final int sequenceIndex = messageFrame.sequenceIndex();
+
+            // Messages that don't fit into a slot must still replace an older message with the same key.
+            if (unfragmented && srcLength <= maxMessageLength)
+            {
+                put(sessionId, sequenceIndex, sequenceNumber, srcBuffer, srcOffset, srcLength);
+            }
+            else
+            {
+                remove(sessionId, sequenceIndex, sequenceNumber);
+            }
+        }
+    }
+
+    void put(
+        final long sessionId,
+        final int sequenceIndex,
+        final int sequenceNumber,
+        final DirectBuffer srcBuffer,
+        final int srcOffset,
+        final int srcLength)
+    {
+        final int set = set(sessionId, sequenceIndex, sequenceNumber);
+        int slotOffset = slotOffset(set, sessionId, sequenceIndex, sequenceNumber);
+        if (slotOffset == MISSING)
+        {
+            final int[] nextVictims = this.nextVictims;
+            final int victim = nextVictims[set];
+            nextVictims[set] = victim + 1 == setSize ? 0 : victim + 1;
+            slotOffset = set * setLength + victim * slotSize;
+        }
+
+        final UnsafeBuffer buffer = this.buffer;
+        buffer.putLong(slotOffset + SESSION_ID_OFFSET, sessionId);
+        buffer.putInt(slotOffset + SEQUENCE_INDEX_OFFSET, sequenceIndex);
+        buffer.putInt(slotOffset + SEQUENCE_NUMBER_OFFSET, sequenceNumber);
+        buffer.putInt(slotOffset + LENGTH_OFFSET, srcLength);
+        buffer.putBytes(slotOffset + SLOT_HEADER_LENGTH, srcBuffer, srcOffset, srcLength);
+    }
+
+    private void remove(final long sessionId, final int sequenceIndex, final int sequenceNumber)
+    {
+        final int slotOffset = slotOffset(
+            set(sessionId, sequenceIndex, sequenceNumber), sessionId, sequenceIndex, sequenceNumber);
+        if (slotOffset != MISSING)
+        {
+            buffer.putInt(slotOffset + LENGTH_OFFSET, 0);
+        }
+    }
+
+    /**
+     * Find the offset of a cached message frame within {@link #buffer()}.
+     *
+     * @param sessionId the fix session id of the message.
+     * @param sequenceIndex the sequence index of the message.
+     * @param sequenceNumber the sequence number of the message.
+     * @return the offset of the message frame or {@link #MISSING} if it isn't cached.
+     */
+    public int find(final long sessionId, final int sequenceIndex, final int sequenceNumber)
+    {
+        final int slotOffset = slotOffset(
+            set(sessionId, sequenceIndex, sequenceNumber), sessionId, sequenceIndex, sequenceNumber);
+        return slotOffset == MISSING ? MISSING : slotOffset + SLOT_HEADER_LENGTH;
+    }
+
+    /**
+     * Get the length of a cached message frame.
+     *
+     * @param messageOffset the offset returned by {@link #find(long, int, int)}.
+     * @return the length of the message frame.
+     */
+    public int length(final int messageOffset)
+    {
+        return buffer.getInt(messageOffset - SLOT_HEADER_LENGTH + LENGTH_OFFSET);
+    }
+
+    public DirectBuffer buffer()
+    {
+        return buffer;
+    }
+
+    void onHit()
+    {
+        hits.increment();
+    }
+
+    void onMiss()
+    {
+        misses.increment();
+    }
+
+    // Consecutive sequence numbers of a session go into consecutive sets
+    private int set(final long sessionId, final int sequenceIndex, final int sequenceNumber)
+    {
+        return (Hashing.hash(sessionId) + 31 * sequenceIndex + sequenceNumber) & setMask;
+    }
+
+    private int slotOffset(final int set, final long sessionId, final int sequenceIndex, final int sequenceNumber)
+    {
+        final UnsafeBuffer buffer = this.buffer;
+        final int slotSize = this.slotSize;
+        final int setOffset = set * setLength;
+        final int setEnd = setOffset + setLength;
+        for (int slotOffset = setOffset; slotOffset < setEnd; slotOffset += slotSize)
+        {
+            if (buffer.getInt(slotOffset + LENGTH_OFFSET) != 0 &&
+                buffer.getInt(slotOffset + SEQUENCE_NUMBER_OFFSET) == sequenceNumber &&
+                buffer.getLong(slotOffset + SESSION_ID_OFFSET) == sessionId &&
+                buffer.getInt(slotOffset + SEQUENCE_INDEX_OFFSET) == sequenceIndex)
+            {
+                return slotOffset;
+            }
+        }
+
+        return MISSING;
+    }
+
+    public void readLastPosition(final IndexedPositionConsumer consumer)
+    {
+        // Deliberately blank: the cache is only populated with messages sent after the engine has started.
+    }
+
+    public void close()
+    {
+        // Deliberately blank: the Replayer can still be reading from the buffer, so it's left to the GC to free.
+    }
+}
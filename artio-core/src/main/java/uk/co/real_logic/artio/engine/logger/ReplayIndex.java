@@ -28,12 +28,14 @@ import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.messages.FixMessageEncoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+import uk.co.real_logic.artio.storage.messages.ReplayIndexRecordDecoder;
 import uk.co.real_logic.artio.storage.messages.ReplayIndexRecordEncoder;
 
 import java.io.File;
 import java.nio.ByteBuffer;
 import java.util.function.LongFunction;
 
+import static io.aeron.archive.status.RecordingPos.NULL_RECORDING_ID;
 import static io.aeron.logbuffer.FrameDescriptor.*;
 import static org.agrona.UnsafeAccess.UNSAFE;
 import static uk.co.real_logic.artio.engine.SequenceNumberExtractor.NO_SEQUENCE_NUMBER;
@@ -52,13 +54,23 @@ import static uk.co.real_logic.artio.messages.MessageStatus.OK;
  * Head position counter
  * Tail position counter
  * Multiple ReplayIndexRecord entries
+ *
+ * By default each session's index is a single buffer that's used as a ring, so old records are overwritten. When
+ * the maximum number of segments is positive each session's index is instead a sequence of segment buffers, with
+ * the same layout, that are filled in order. Once a segment is full the index rolls over to a new segment and the
+ * oldest segments are deleted so that no more than the maximum number of segments are retained.
+ *
+ * Positions are only written once per poll of the indexer, so the fragments that were indexed after the last
+ * written position are indexed again when the index catches up on startup. A session's index skips the records of
+ * fragments that are at or before the last record that it has for the same recording, so they aren't duplicated.
  */
 public class ReplayIndex implements Index
 {
-    private final LongFunction<SessionIndex> newSessionIndex = SessionIndex::new;
+    private final LongFunction<SessionIndex> newSessionIndex;
     private final MessageHeaderDecoder frameHeaderDecoder = new MessageHeaderDecoder();
     private final FixMessageDecoder messageFrame = new FixMessageDecoder();
     private final ReplayIndexRecordEncoder replayIndexRecord = new ReplayIndexRecordEncoder();
+    private final ReplayIndexRecordDecoder lastReplayIndexRecord = new ReplayIndexRecordDecoder();
     private final MessageHeaderEncoder indexHeaderEncoder = new MessageHeaderEncoder();
 
     private final IndexedPositionWriter positionWriter;
@@ -70,6 +82,7 @@ public class ReplayIndex implements Index
     private final String logFileDir;
     private final int requiredStreamId;
     private final int indexFileSize;
+    private final int maxSegments;
     private final BufferFactory bufferFactory;
     private final AtomicBuffer positionBuffer;
     private final RecordingIdLookup recordingIdLookup;
@@ -78,6 +91,7 @@ public class ReplayIndex implements Index
         final String logFileDir,
         final int requiredStreamId,
         final int indexFileSize,
+        final int maxSegments,
         final int cacheNumSets,
         final int cacheSetSize,
         final BufferFactory bufferFactory,
@@ -88,12 +102,14 @@ public class ReplayIndex implements Index
         this.logFileDir = logFileDir;
         this.requiredStreamId = requiredStreamId;
         this.indexFileSize = indexFileSize;
+        this.maxSegments = maxSegments;
         this.bufferFactory = bufferFactory;
         this.positionBuffer = positionBuffer;
         this.recordingIdLookup = recordingIdLookup;
 
         sequenceNumberExtractor = new SequenceNumberExtractor(errorHandler);
         checkIndexFileSize(indexFileSize);
+        newSessionIndex = maxSegments > 0 ? SegmentedSessionIndex::new : RingSessionIndex::new;
         fixSessionIdToIndex = new Long2ObjectCache<>(cacheNumSets, cacheSetSize, SessionIndex::close);
         final String replayPositionPath = replayPositionPath(logFileDir, requiredStreamId);
         positionWriter = new IndexedPositionWriter(
@@ -173,8 +189,12 @@ public class ReplayIndex implements Index
 
         final int aeronSessionId = header.sessionId();
         final long recordingId = recordingIdLookup.getRecordingId(aeronSessionId);
-        positionWriter.indexedUpTo(aeronSessionId, recordingId, endPosition);
-        positionWriter.updateChecksums();
+        positionWriter.stageIndexedUpTo(aeronSessionId, recordingId, endPosition);
+    }
+
+    public int doWork()
+    {
+        return positionWriter.writeStaged();
     }
 
     public void close()
@@ -184,18 +204,88 @@ public class ReplayIndex implements Index
         IoUtil.unmap(positionBuffer.byteBuffer());
     }
 
+    public boolean requiredOnStartup()
+    {
+        return false;
+    }
+
     public void readLastPosition(final IndexedPositionConsumer consumer)
     {
         positionReader.readLastPosition(consumer);
     }
 
-    private final class SessionIndex implements AutoCloseable
+    private void writeIndexHeader(final AtomicBuffer buffer)
+    {
+        indexHeaderEncoder
+            .wrap(buffer, 0)
+            .blockLength(replayIndexRecord.sbeBlockLength())
+            .templateId(replayIndexRecord.sbeTemplateId())
+            .schemaId(replayIndexRecord.sbeSchemaId())
+            .version(replayIndexRecord.sbeSchemaVersion());
+    }
+
+    private void writeRecord(
+        final AtomicBuffer buffer,
+        final int offset,
+        final long beginPosition,
+        final int length,
+        final int sequenceNumber,
+        final int sequenceIndex,
+        final long recordingId)
+    {
+        replayIndexRecord
+            .wrap(buffer, offset)
+            .position(beginPosition)
+            .sequenceNumber(sequenceNumber)
+            .sequenceIndex(sequenceIndex)
+            .recordingId(recordingId)
+            .length(length);
+    }
+
+    private abstract class SessionIndex implements AutoCloseable
+    {
+        private long lastRecordingId = NULL_RECORDING_ID;
+        private long lastBeginPosition;
+
+        void readLastRecord(final AtomicBuffer buffer, final int offset)
+        {
+            final ReplayIndexRecordDecoder lastReplayIndexRecord = ReplayIndex.this.lastReplayIndexRecord;
+            lastReplayIndexRecord.wrap(
+                buffer, offset, replayIndexRecord.sbeBlockLength(), replayIndexRecord.sbeSchemaVersion());
+            lastRecordingId = lastReplayIndexRecord.recordingId();
+            lastBeginPosition = lastReplayIndexRecord.position();
+        }
+
+        void onRecord(
+            final long endPosition,
+            final int length,
+            final int sequenceNumber,
+            final int sequenceIndex,
+            final Header header)
+        {
+            final long recordingId = recordingIdLookup.getRecordingId(header.sessionId());
+            final long beginPosition = endPosition - length;
+            if (recordingId == lastRecordingId && beginPosition <= lastBeginPosition)
+            {
+                return;
+            }
+
+            appendRecord(beginPosition, length, sequenceNumber, sequenceIndex, recordingId);
+        }
+
+        abstract void appendRecord(
+            long beginPosition, int length, int sequenceNumber, int sequenceIndex, long recordingId);
+
+        public abstract void close();
+    }
+
+    private final class RingSessionIndex extends SessionIndex
     {
         private final ByteBuffer wrappedBuffer;
         private final AtomicBuffer buffer;
         private final int recordCapacity;
 
-        SessionIndex(final long fixSessionId)
+        RingSessionIndex(final long fixSessionId)
         {
             final File logFile = replayIndexFile(logFileDir, fixSessionId, requiredStreamId);
             final boolean exists = logFile.exists();
@@ -205,50 +295,131 @@ public class ReplayIndex implements Index
             recordCapacity = recordCapacity(buffer.capacity());
             if (!exists)
             {
-                indexHeaderEncoder
-                    .wrap(buffer, 0)
-                    .blockLength(replayIndexRecord.sbeBlockLength())
-                    .templateId(replayIndexRecord.sbeTemplateId())
-                    .schemaId(replayIndexRecord.sbeSchemaId())
-                    .version(replayIndexRecord.sbeSchemaVersion());
+                writeIndexHeader(buffer);
             }
             else
             {
                 // Reset the positions in order to avoid wraps at the start.
                 final long resetPosition = beginChange(buffer);
                 endChangeOrdered(buffer, resetPosition);
+                if (resetPosition > 0)
+                {
+                    readLastRecord(buffer, offset(resetPosition - RECORD_LENGTH, recordCapacity));
+                }
             }
         }
 
-        void onRecord(
-            final long endPosition,
+        void appendRecord(
+            final long beginPosition,
             final int length,
             final int sequenceNumber,
             final int sequenceIndex,
-            final Header header)
+            final long recordingId)
         {
             final long beginChangePosition = beginChange(buffer);
             final long changePosition = beginChangePosition + RECORD_LENGTH;
-            final int aeronSessionId = header.sessionId();
-            final long recordingId = recordingIdLookup.getRecordingId(aeronSessionId);
-            final long beginPosition = endPosition - length;
 
             beginChangeOrdered(buffer, changePosition);
             UNSAFE.storeFence();
 
             final int offset = offset(beginChangePosition, recordCapacity);
+            writeRecord(buffer, offset, beginPosition, length, sequenceNumber, sequenceIndex, recordingId);
 
-            replayIndexRecord
-                .wrap(buffer, offset)
-                .position(beginPosition)
-                .sequenceNumber(sequenceNumber)
-                .sequenceIndex(sequenceIndex)
-                .recordingId(recordingId)
-                .length(length);
+            endChangeOrdered(buffer, changePosition);
+        }
+
+        public void close()
+        {
+            IoUtil.unmap(wrappedBuffer);
+        }
+    }
+
+    private final class SegmentedSessionIndex extends SessionIndex
+    {
+        private final long fixSessionId;
+        private final UnsafeBuffer buffer = new UnsafeBuffer(0, 0);
+        private final int recordCapacity = recordCapacity(indexFileSize);
+
+        private ByteBuffer wrappedBuffer;
+        private int firstSegment;
+        private int currentSegment;
+
+        SegmentedSessionIndex(final long fixSessionId)
+        {
+            this.fixSessionId = fixSessionId;
+
+            final int[] segments = replayIndexSegments(logFileDir, fixSessionId, requiredStreamId);
+            if (segments.length == 0)
+            {
+                mapNewSegment(0);
+            }
+            else
+            {
+                firstSegment = segments[0];
+                currentSegment = segments[segments.length - 1];
+                wrappedBuffer = bufferFactory.map(
+                    replayIndexSegmentFile(logFileDir, fixSessionId, requiredStreamId, currentSegment),
+                    indexFileSize);
+                buffer.wrap(wrappedBuffer);
+
+                // Complete any record that was being written when the engine stopped.
+                final long resetPosition = beginChange(buffer);
+                endChangeOrdered(buffer, resetPosition);
+                if (resetPosition > 0)
+                {
+                    readLastRecord(buffer, segmentOffset(resetPosition - RECORD_LENGTH));
+                }
+            }
+        }
+
+        private void mapNewSegment(final int segment)
+        {
+            currentSegment = segment;
+            wrappedBuffer = bufferFactory.map(
+                replayIndexSegmentFile(logFileDir, fixSessionId, requiredStreamId, segment), indexFileSize);
+            buffer.wrap(wrappedBuffer);
+            writeIndexHeader(buffer);
+        }
+
+        void appendRecord(
+            final long beginPosition,
+            final int length,
+            final int sequenceNumber,
+            final int sequenceIndex,
+            final long recordingId)
+        {
+            long beginChangePosition = beginChange(buffer);
+            if (beginChangePosition + RECORD_LENGTH > recordCapacity)
+            {
+                rollSegment();
+                beginChangePosition = 0;
+            }
+
+            final long changePosition = beginChangePosition + RECORD_LENGTH;
+
+            beginChangeOrdered(buffer, changePosition);
+            UNSAFE.storeFence();
+
+            final int offset = segmentOffset(beginChangePosition);
+            writeRecord(buffer, offset, beginPosition, length, sequenceNumber, sequenceIndex, recordingId);
 
             endChangeOrdered(buffer, changePosition);
         }
 
+        // Readers may still have the deleted segments mapped, they stay readable until they're unmapped.
+        private void rollSegment()
+        {
+            IoUtil.unmap(wrappedBuffer);
+            mapNewSegment(currentSegment + 1);
+
+            while (currentSegment - firstSegment >= maxSegments)
+            {
+                IoUtil.delete(
+                    replayIndexSegmentFile(logFileDir, fixSessionId, requiredStreamId, firstSegment), true);
+                firstSegment++;
+            }
+        }
+
         public void close()
         {
             IoUtil.unmap(wrappedBuffer);
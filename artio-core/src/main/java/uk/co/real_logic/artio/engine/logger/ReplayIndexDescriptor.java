@@ -22,6 +22,7 @@ import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
 import uk.co.real_logic.artio.storage.messages.ReplayIndexRecordDecoder;
 
 import java.io.File;
+import java.util.Arrays;
 
 public final class ReplayIndexDescriptor
 {
@@ -47,6 +48,45 @@ public final class ReplayIndexDescriptor
         return new File(String.format(logFileDir + File.separator + "replay-index-%d-%d", fixSessionId, streamId));
     }
 
+    static File replayIndexSegmentFile(
+        final String logFileDir, final long fixSessionId, final int streamId, final int segment)
+    {
+        return new File(logFileDir + File.separator + segmentPrefix(fixSessionId, streamId) + segment);
+    }
+
+    /**
+     * Lists the segments of a segmented replay index that currently exist.
+     *
+     * @param logFileDir the directory that the index is in.
+     * @param fixSessionId the fix session that the index is for.
+     * @param streamId the stream that the index is for.
+     * @return the segment numbers, in ascending order.
+     */
+    static int[] replayIndexSegments(final String logFileDir, final long fixSessionId, final int streamId)
+    {
+        final String prefix = segmentPrefix(fixSessionId, streamId);
+        final String[] fileNames = new File(logFileDir).list((dir, name) -> name.startsWith(prefix));
+        if (fileNames == null)
+        {
+            return new int[0];
+        }
+
+        final int prefixLength = prefix.length();
+        final int[] segments = new int[fileNames.length];
+        for (int i = 0; i < fileNames.length; i++)
+        {
+            segments[i] = Integer.parseInt(fileNames[i].substring(prefixLength));
+        }
+        Arrays.sort(segments);
+
+        return segments;
+    }
+
+    private static String segmentPrefix(final long fixSessionId, final int streamId)
+    {
+        return "replay-index-" + fixSessionId + "-" + streamId + "-";
+    }
+
     public static UnsafeBuffer replayPositionBuffer(final String logFileDir, final int streamId)
     {
         final String pathname = replayPositionPath(logFileDir, streamId);
@@ -93,6 +133,12 @@ public final class ReplayIndexDescriptor
         return INITIAL_RECORD_OFFSET + ((int)changePosition & (capacity - 1));
     }
 
+    // Segments are never lapped, so their change positions are offsets from the first record.
+    static int segmentOffset(final long changePosition)
+    {
+        return INITIAL_RECORD_OFFSET + (int)changePosition;
+    }
+
     static void checkIndexFileSize(final int indexFileSize)
     {
         final int recordCapacity = recordCapacity(indexFileSize);
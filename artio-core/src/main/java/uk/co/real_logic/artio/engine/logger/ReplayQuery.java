@@ -21,6 +21,7 @@ import io.aeron.logbuffer.ControlledFragmentHandler;
 import org.agrona.CloseHelper;
 import org.agrona.ErrorHandler;
 import org.agrona.IoUtil;
+import org.agrona.collections.Int2ObjectHashMap;
 import org.agrona.collections.Long2ObjectCache;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.UnsafeBuffer;
@@ -29,6 +30,7 @@ import uk.co.real_logic.artio.LogTag;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.storage.messages.ReplayIndexRecordDecoder;
 
+import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.util.ArrayList;
@@ -51,7 +53,7 @@ public class ReplayQuery implements AutoCloseable
     private final MessageHeaderDecoder messageFrameHeader = new MessageHeaderDecoder();
     private final ReplayIndexRecordDecoder indexRecord = new ReplayIndexRecordDecoder();
 
-    private final LongFunction<SessionQuery> newSessionQuery = SessionQuery::new;
+    private final LongFunction<SessionQuery> newSessionQuery;
     private final Long2ObjectCache<SessionQuery> fixSessionToIndex;
     private final String logFileDir;
     private final ExistingBufferFactory indexBufferFactory;
@@ -60,6 +62,9 @@ public class ReplayQuery implements AutoCloseable
     private final AeronArchive aeronArchive;
     private final ErrorHandler errorHandler;
     private final int archiveReplayStream;
+    // Only the outbound index's records are in sequence index and number order, the inbound index also has the
+    // counterparty's resends and out of order messages, so it's read linearly rather than binary searched.
+    private final boolean sequenceOrderedIndex;
 
     private Subscription replaySubscription;
 
@@ -69,6 +74,8 @@ public class ReplayQuery implements AutoCloseable
         final int cacheSetSize,
         final ExistingBufferFactory indexBufferFactory,
         final int requiredStreamId,
+        final boolean segmentedIndex,
+        final boolean sequenceOrderedIndex,
         final IdleStrategy idleStrategy,
         final AeronArchive aeronArchive,
         final ErrorHandler errorHandler,
@@ -81,7 +88,9 @@ public class ReplayQuery implements AutoCloseable
         this.aeronArchive = aeronArchive;
         this.errorHandler = errorHandler;
         this.archiveReplayStream = archiveReplayStream;
+        this.sequenceOrderedIndex = sequenceOrderedIndex;
 
+        newSessionQuery = segmentedIndex ? SegmentedSessionQuery::new : RingSessionQuery::new;
         fixSessionToIndex = new Long2ObjectCache<>(cacheNumSets, cacheSetSize, SessionQuery::close);
     }
 
@@ -117,19 +126,93 @@ public class ReplayQuery implements AutoCloseable
         CloseHelper.close(replaySubscription);
     }
 
-    private final class SessionQuery implements AutoCloseable
+    private abstract class SessionQuery implements AutoCloseable
+    {
+        final long sessionId;
+
+        SessionQuery(final long sessionId)
+        {
+            this.sessionId = sessionId;
+        }
+
+        abstract ReplayOperation query(
+            ControlledFragmentHandler handler,
+            int beginSequenceNumber,
+            int beginSequenceIndex,
+            int endSequenceNumber,
+            int endSequenceIndex,
+            LogTag logTag);
+
+        public abstract void close();
+
+        ReplayOperation newReplayOperation(
+            final ControlledFragmentHandler handler, final List<RecordingRange> ranges, final LogTag logTag)
+        {
+            if (replaySubscription == null)
+            {
+                replaySubscription = aeronArchive.context().aeron().addSubscription(
+                    IPC_CHANNEL, archiveReplayStream);
+            }
+
+            DebugLogger.log(logTag,
+                "ReplayQuery : Built new replay operation with Recording Ranges: %s%n",
+                ranges);
+
+            return new ReplayOperation(
+                handler,
+                ranges,
+                aeronArchive,
+                errorHandler,
+                replaySubscription,
+                archiveReplayStream,
+                logTag);
+        }
+
+        RecordingRange addRange(
+            final List<RecordingRange> ranges,
+            final RecordingRange currentRange,
+            final int lastSequenceNumber,
+            final long beginPosition,
+            final int sequenceNumber,
+            final long recordingId,
+            final int readLength)
+        {
+            RecordingRange range = currentRange;
+            if (range == null)
+            {
+                range = new RecordingRange(recordingId, sessionId);
+            }
+            else if (range.recordingId != recordingId)
+            {
+                ranges.add(range);
+                range = new RecordingRange(recordingId, sessionId);
+            }
+
+            range.add(
+                beginPosition - FRAME_ALIGNMENT,
+                readLength + FRAME_ALIGNMENT);
+
+            // FIX messages can be fragmented, so number of range adds != count
+            if (lastSequenceNumber != sequenceNumber)
+            {
+                range.count++;
+            }
+            return range;
+        }
+    }
+
+    private final class RingSessionQuery extends SessionQuery
     {
         private final ByteBuffer wrappedBuffer;
-        private final long sessionId;
         private final UnsafeBuffer buffer;
         private final int capacity;
 
-        SessionQuery(final long sessionId)
+        RingSessionQuery(final long sessionId)
         {
+            super(sessionId);
             wrappedBuffer = indexBufferFactory.map(replayIndexFile(logFileDir, sessionId, requiredStreamId));
             buffer = new UnsafeBuffer(wrappedBuffer);
             capacity = recordCapacity(buffer.capacity());
-            this.sessionId = sessionId;
         }
 
         ReplayOperation query(
@@ -153,6 +236,11 @@ public class ReplayQuery implements AutoCloseable
 
             long iteratorPosition = getIteratorPosition();
             long stopIteratingPosition = iteratorPosition + capacity;
+            if (sequenceOrderedIndex)
+            {
+                iteratorPosition = searchStartPosition(
+                    iteratorPosition, beginSequenceNumber, beginSequenceIndex, actingBlockLength, actingVersion);
+            }
 
             int lastSequenceNumber = -1;
             while (iteratorPosition != stopIteratingPosition)
@@ -222,6 +310,52 @@ public class ReplayQuery implements AutoCloseable
             return newReplayOperation(handler, ranges, logTag);
         }
 
+        // Binary searches the records of a sequence ordered index for the first one that's at or after the start
+        // of the query. If the writer laps the search then the linear pass recovers, as it does
+        // when it's lapped itself.
+        private long searchStartPosition(
+            final long iteratorPosition,
+            final int beginSequenceNumber,
+            final int beginSequenceIndex,
+            final int actingBlockLength,
+            final int actingVersion)
+        {
+            final long indexedLength = iteratorPosition == 0 ?
+                Math.min(endChangeVolatile(buffer), capacity) : capacity;
+            long low = 0;
+            long high = indexedLength / RECORD_LENGTH;
+            while (low < high)
+            {
+                final long mid = (low + high) >>> 1;
+                final long changePosition = endChangeVolatile(buffer);
+
+                indexRecord.wrap(
+                    buffer, offset(iteratorPosition + mid * RECORD_LENGTH, capacity), actingBlockLength, actingVersion);
+                final int sequenceIndex = indexRecord.sequenceIndex();
+                final int sequenceNumber = indexRecord.sequenceNumber();
+
+                UNSAFE.loadFence(); // LoadLoad required so previous loads don't move past version check below.
+
+                if (changePosition != beginChangeVolatile(buffer))
+                {
+                    idleStrategy.idle();
+                    continue;
+                }
+                idleStrategy.reset();
+
+                if (isBefore(sequenceIndex, sequenceNumber, beginSequenceIndex, beginSequenceNumber))
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+
+            return iteratorPosition + low * RECORD_LENGTH;
+        }
+
         private long skipToStart(final int beginSequenceNumber, final long iteratorPosition, final int sequenceNumber)
         {
             if (sequenceNumber < beginSequenceNumber)
@@ -244,80 +378,271 @@ public class ReplayQuery implements AutoCloseable
             return iteratorPosition + jumpInBytes;
         }
 
-        private ReplayOperation newReplayOperation(
-            final ControlledFragmentHandler handler, final List<RecordingRange> ranges, final LogTag logTag)
+        private long getIteratorPosition()
         {
-            if (replaySubscription == null)
+            // positions on a monotonically increasing scale
+            long iteratorPosition = beginChangeVolatile(buffer);
+            // First iteration around you need to start at 0
+            if (iteratorPosition < capacity)
             {
-                replaySubscription = aeronArchive.context().aeron().addSubscription(
-                    IPC_CHANNEL, archiveReplayStream);
+                iteratorPosition = 0;
             }
+            return iteratorPosition;
+        }
 
-            DebugLogger.log(logTag,
-                "ReplayQuery : Built new replay operation with Recording Ranges: %s%n",
-                ranges);
+        public void close()
+        {
+            unmap(wrappedBuffer);
+        }
+    }
 
-            return new ReplayOperation(
-                handler,
-                ranges,
-                aeronArchive,
-                errorHandler,
-                replaySubscription,
-                archiveReplayStream,
-                logTag);
+    /**
+     * Queries a segmented index. When the index is sequence ordered, the segment that the query begins in is found by
+     * binary searching the first record of each segment, and then records are read in order from there. Segments are
+     * never lapped by the writer, so no retries are needed, but the oldest segments can be deleted by the writer's
+     * retention policy.
+     *
+     * The list of segments is cached, rather than listing the log directory for every query. The writer only adds a
+     * segment, or deletes the oldest ones, once the last segment is full, so the list is only refreshed then, or when
+     * a segment that it has turns out to have been deleted.
+     */
+    private final class SegmentedSessionQuery extends SessionQuery
+    {
+        private final Int2ObjectHashMap<UnsafeBuffer> segmentToBuffer = new Int2ObjectHashMap<>();
+
+        private int[] segments;
+
+        SegmentedSessionQuery(final long sessionId)
+        {
+            super(sessionId);
         }
 
-        private RecordingRange addRange(
-            final List<RecordingRange> ranges,
-            final RecordingRange currentRange,
-            final int lastSequenceNumber,
-            final long beginPosition,
-            final int sequenceNumber,
-            final long recordingId,
-            final int readLength)
+        ReplayOperation query(
+            final ControlledFragmentHandler handler,
+            final int beginSequenceNumber,
+            final int beginSequenceIndex,
+            final int endSequenceNumber,
+            final int endSequenceIndex,
+            final LogTag logTag)
         {
-            RecordingRange range = currentRange;
-            if (range == null)
+            final int[] segments = segments();
+
+            final boolean upToMostRecentMessage = endSequenceNumber == MOST_RECENT_MESSAGE;
+            final List<RecordingRange> ranges = new ArrayList<>();
+            RecordingRange currentRange = null;
+            int lastSequenceNumber = -1;
+
+            final int firstSegmentIndex = sequenceOrderedIndex ?
+                firstSegmentIndex(segments, beginSequenceNumber, beginSequenceIndex) : 0;
+            segments:
+            for (int i = firstSegmentIndex; i < segments.length; i++)
             {
-                range = new RecordingRange(recordingId, sessionId);
+                final UnsafeBuffer buffer = segmentBuffer(segments[i]);
+                if (buffer == null)
+                {
+                    continue;
+                }
+
+                messageFrameHeader.wrap(buffer, 0);
+                final int actingBlockLength = messageFrameHeader.blockLength();
+                final int actingVersion = messageFrameHeader.version();
+                final long endChangePosition = endChangeVolatile(buffer);
+                UNSAFE.loadFence(); // records before the end change position are completely written.
+
+                long changePosition = sequenceOrderedIndex && i == firstSegmentIndex ? searchStartPosition(
+                    buffer, endChangePosition, beginSequenceNumber, beginSequenceIndex) : 0;
+                for (; changePosition < endChangePosition; changePosition += RECORD_LENGTH)
+                {
+                    indexRecord.wrap(buffer, segmentOffset(changePosition), actingBlockLength, actingVersion);
+                    final int sequenceIndex = indexRecord.sequenceIndex();
+                    final int sequenceNumber = indexRecord.sequenceNumber();
+
+                    final boolean afterEnd = !upToMostRecentMessage && (sequenceIndex > endSequenceIndex ||
+                        (sequenceIndex == endSequenceIndex && sequenceNumber > endSequenceNumber));
+                    if (afterEnd)
+                    {
+                        break segments;
+                    }
+
+                    final boolean withinQueryRange = sequenceIndex > beginSequenceIndex ||
+                        (sequenceIndex == beginSequenceIndex && sequenceNumber >= beginSequenceNumber);
+                    if (withinQueryRange)
+                    {
+                        currentRange = addRange(
+                            ranges,
+                            currentRange,
+                            lastSequenceNumber,
+                            indexRecord.position(),
+                            sequenceNumber,
+                            indexRecord.recordingId(),
+                            indexRecord.length());
+                        lastSequenceNumber = sequenceNumber;
+                    }
+                }
             }
-            else if (range.recordingId != recordingId)
+
+            if (currentRange != null)
             {
-                ranges.add(range);
-                range = new RecordingRange(recordingId, sessionId);
+                ranges.add(currentRange);
             }
 
-            range.add(
-                beginPosition - FRAME_ALIGNMENT,
-                readLength + FRAME_ALIGNMENT);
+            return newReplayOperation(handler, ranges, logTag);
+        }
 
-            // FIX messages can be fragmented, so number of range adds != count
-            if (lastSequenceNumber != sequenceNumber)
+        // The last segment whose first record is before the beginning of the query, as the records of a fragmented
+        // message can span the end of a segment.
+        private int firstSegmentIndex(
+            final int[] segments, final int beginSequenceNumber, final int beginSequenceIndex)
+        {
+            int low = 0;
+            int high = segments.length - 1;
+            int firstSegmentIndex = 0;
+            while (low <= high)
             {
-                range.count++;
+                final int mid = (low + high) >>> 1;
+                final UnsafeBuffer buffer = segmentBuffer(segments[mid]);
+                if (buffer == null || endChangeVolatile(buffer) == 0)
+                {
+                    // Deleted segments are older than the query, empty ones are newer.
+                    if (buffer == null)
+                    {
+                        low = mid + 1;
+                    }
+                    else
+                    {
+                        high = mid - 1;
+                    }
+                    continue;
+                }
+
+                messageFrameHeader.wrap(buffer, 0);
+                indexRecord.wrap(
+                    buffer, segmentOffset(0), messageFrameHeader.blockLength(), messageFrameHeader.version());
+                if (isBefore(
+                    indexRecord.sequenceIndex(), indexRecord.sequenceNumber(), beginSequenceIndex, beginSequenceNumber))
+                {
+                    firstSegmentIndex = mid;
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid - 1;
+                }
             }
-            return range;
+
+            return firstSegmentIndex;
         }
 
-        private long getIteratorPosition()
+        // The first record of the segment that's at or after the start of the query.
+        private long searchStartPosition(
+            final UnsafeBuffer buffer,
+            final long endChangePosition,
+            final int beginSequenceNumber,
+            final int beginSequenceIndex)
         {
-            // positions on a monotonically increasing scale
-            long iteratorPosition = beginChangeVolatile(buffer);
-            // First iteration around you need to start at 0
-            if (iteratorPosition < capacity)
+            final int actingBlockLength = messageFrameHeader.blockLength();
+            final int actingVersion = messageFrameHeader.version();
+            long low = 0;
+            long high = endChangePosition / RECORD_LENGTH;
+            while (low < high)
             {
-                iteratorPosition = 0;
+                final long mid = (low + high) >>> 1;
+                indexRecord.wrap(buffer, segmentOffset(mid * RECORD_LENGTH), actingBlockLength, actingVersion);
+                if (isBefore(
+                    indexRecord.sequenceIndex(), indexRecord.sequenceNumber(), beginSequenceIndex, beginSequenceNumber))
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
             }
-            return iteratorPosition;
+
+            return low * RECORD_LENGTH;
         }
 
-        public void close()
+        private int[] segments()
         {
-            if (wrappedBuffer instanceof MappedByteBuffer)
+            int[] segments = this.segments;
+            if (segments == null || isLastSegmentFull(segments))
             {
-                IoUtil.unmap((MappedByteBuffer)wrappedBuffer);
+                segments = replayIndexSegments(logFileDir, sessionId, requiredStreamId);
+                unmapDeletedSegments(segments);
+                this.segments = segments;
             }
+
+            return segments;
+        }
+
+        private boolean isLastSegmentFull(final int[] segments)
+        {
+            if (segments.length == 0)
+            {
+                return true;
+            }
+
+            final UnsafeBuffer buffer = segmentBuffer(segments[segments.length - 1]);
+            return buffer == null || endChangeVolatile(buffer) + RECORD_LENGTH > recordCapacity(buffer.capacity());
+        }
+
+        private UnsafeBuffer segmentBuffer(final int segment)
+        {
+            UnsafeBuffer buffer = segmentToBuffer.get(segment);
+            if (buffer == null)
+            {
+                final File file = replayIndexSegmentFile(logFileDir, sessionId, requiredStreamId, segment);
+                if (!file.exists())
+                {
+                    // Deleted by the writer since the segments were listed.
+                    segments = null;
+                    return null;
+                }
+
+                buffer = new UnsafeBuffer(indexBufferFactory.map(file));
+                segmentToBuffer.put(segment, buffer);
+            }
+
+            return buffer;
+        }
+
+        private void unmapDeletedSegments(final int[] segments)
+        {
+            final int firstSegment = segments.length > 0 ? segments[0] : Integer.MAX_VALUE;
+            final Int2ObjectHashMap<UnsafeBuffer>.EntryIterator it = segmentToBuffer.entrySet().iterator();
+            while (it.hasNext())
+            {
+                it.next();
+                if (it.getIntKey() < firstSegment)
+                {
+                    unmap(it.getValue().byteBuffer());
+                    it.remove();
+                }
+            }
+        }
+
+        public void close()
+        {
+            segmentToBuffer.values().forEach(buffer -> unmap(buffer.byteBuffer()));
+            segmentToBuffer.clear();
         }
     }
 
+    private static boolean isBefore(
+        final int sequenceIndex,
+        final int sequenceNumber,
+        final int beginSequenceIndex,
+        final int beginSequenceNumber)
+    {
+        return sequenceIndex < beginSequenceIndex ||
+            (sequenceIndex == beginSequenceIndex && sequenceNumber < beginSequenceNumber);
+    }
+
+    private static void unmap(final ByteBuffer wrappedBuffer)
+    {
+        if (wrappedBuffer instanceof MappedByteBuffer)
+        {
+            IoUtil.unmap((MappedByteBuffer)wrappedBuffer);
+        }
+    }
 }
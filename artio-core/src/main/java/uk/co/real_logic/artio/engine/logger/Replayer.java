@@ -39,10 +39,12 @@ import uk.co.real_logic.artio.messages.MessageStatus;
 import uk.co.real_logic.artio.protocol.ProtocolHandler;
 import uk.co.real_logic.artio.protocol.ProtocolSubscription;
 import uk.co.real_logic.artio.util.AsciiBuffer;
+import uk.co.real_logic.artio.util.ChecksumCalculator;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
 import java.util.ArrayList;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
 
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.COMMIT;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
@@ -55,7 +57,8 @@ import static uk.co.real_logic.artio.messages.MessageStatus.OK;
  *
  * This agent subscribes to the stream of incoming fix data messages. It parses
  * Resend Request messages and searches the log, using the replay index to find
- * relevant messages to resend.
+ * relevant messages to resend. Recently sent messages are resent from the {@link ReplayCache}, when one is
+ * configured, rather than from the archive.
  */
 public class Replayer implements ProtocolHandler, Agent
 {
@@ -73,6 +76,7 @@ public class Replayer implements ProtocolHandler, Agent
     private final ArrayList<ReplayerSession> replayerSessions = new ArrayList<>();
 
     private final ReplayQuery replayQuery;
+    private final ReplayCache replayCache;
     private final ExclusivePublication publication;
     private final IdleStrategy idleStrategy;
     private final ErrorHandler errorHandler;
@@ -83,9 +87,12 @@ public class Replayer implements ProtocolHandler, Agent
     private final EpochClock clock;
     private final ReplayHandler replayHandler;
     private final SenderSequenceNumbers senderSequenceNumbers;
+    private final ChecksumCalculator checksumCalculator;
+    private final BooleanSupplier indicesCaughtUp;
 
     public Replayer(
         final ReplayQuery replayQuery,
+        final ReplayCache replayCache,
         final ExclusivePublication publication,
         final BufferClaim bufferClaim,
         final IdleStrategy idleStrategy,
@@ -97,9 +104,12 @@ public class Replayer implements ProtocolHandler, Agent
         final Set<String> gapfillOnReplayMessageTypes,
         final ReplayHandler replayHandler,
         final SenderSequenceNumbers senderSequenceNumbers,
-        final FixSessionCodecsFactory fixSessionCodecsFactory)
+        final FixSessionCodecsFactory fixSessionCodecsFactory,
+        final ChecksumCalculator checksumCalculator,
+        final BooleanSupplier indicesCaughtUp)
     {
         this.replayQuery = replayQuery;
+        this.replayCache = replayCache;
         this.publication = publication;
         this.bufferClaim = bufferClaim;
         this.idleStrategy = idleStrategy;
@@ -111,6 +121,8 @@ public class Replayer implements ProtocolHandler, Agent
         this.replayHandler = replayHandler;
         this.senderSequenceNumbers = senderSequenceNumbers;
         this.fixSessionCodecsFactory = fixSessionCodecsFactory;
+        this.checksumCalculator = checksumCalculator;
+        this.indicesCaughtUp = indicesCaughtUp;
 
         gapFillMessageTypes = new LongHashSet();
         gapfillOnReplayMessageTypes.forEach(messageTypeAsString ->
@@ -185,9 +197,11 @@ public class Replayer implements ProtocolHandler, Agent
                 sessionId,
                 sequenceIndex,
                 replayQuery,
+                replayCache,
                 message,
                 errorHandler,
-                encoder);
+                encoder,
+                checksumCalculator);
 
             replayerSession.query();
 
@@ -207,6 +221,13 @@ public class Replayer implements ProtocolHandler, Agent
     public int doWork()
     {
         int work = senderSequenceNumbers.poll();
+
+        // Resend requests wait for the replay index to catch up with the archive, rather than being gap filled.
+        if (!indicesCaughtUp.getAsBoolean())
+        {
+            return work;
+        }
+
         work += pollReplayerSessions();
         return work + inboundSubscription.controlledPoll(protocolSubscription, POLL_LIMIT);
     }
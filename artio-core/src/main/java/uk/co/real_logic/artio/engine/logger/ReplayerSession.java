@@ -36,6 +36,7 @@ import uk.co.real_logic.artio.engine.SequenceNumberExtractor;
 import uk.co.real_logic.artio.engine.framer.MessageTypeExtractor;
 import uk.co.real_logic.artio.messages.*;
 import uk.co.real_logic.artio.util.AsciiBuffer;
+import uk.co.real_logic.artio.util.ChecksumCalculator;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
@@ -43,6 +44,7 @@ import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 import static uk.co.real_logic.artio.LogTag.*;
 import static uk.co.real_logic.artio.dictionary.SessionConstants.SEQUENCE_RESET_MESSAGE_TYPE;
 import static uk.co.real_logic.artio.engine.FixEngine.ENGINE_LIBRARY_ID;
+import static uk.co.real_logic.artio.engine.logger.ReplayCache.MISSING;
 import static uk.co.real_logic.artio.engine.logger.Replayer.MESSAGE_FRAME_BLOCK_LENGTH;
 import static uk.co.real_logic.artio.messages.FixMessageDecoder.metaDataHeaderLength;
 import static uk.co.real_logic.artio.messages.FixMessageDecoder.metaDataSinceVersion;
@@ -54,6 +56,7 @@ class ReplayerSession implements ControlledFragmentHandler
 
     private enum State
     {
+        REPLAYING_CACHED,
         REPLAYING,
         CHECK_REPLAY,
         SEND_COMPLETE_MESSAGE
@@ -79,6 +82,7 @@ class ReplayerSession implements ControlledFragmentHandler
     private final SenderSequenceNumbers senderSequenceNumbers;
     private final ExclusivePublication publication;
     private final ReplayQuery replayQuery;
+    private final ReplayCache replayCache;
     private final ErrorHandler errorHandler;
     private final SequenceNumberExtractor sequenceNumberExtractor;
 
@@ -92,6 +96,11 @@ class ReplayerSession implements ControlledFragmentHandler
 
     private int beginGapFillSeqNum = NONE;
 
+    // Range of sequence numbers still to be replayed from the replay cache
+    private int nextCachedSeqNo;
+    private int endCachedSeqNo;
+    private int cachedReplayedMessages;
+
     private ReplayOperation replayOperation;
 
     private State state;
@@ -112,9 +121,11 @@ class ReplayerSession implements ControlledFragmentHandler
         final long sessionId,
         final int sequenceIndex,
         final ReplayQuery replayQuery,
+        final ReplayCache replayCache,
         final String message,
         final ErrorHandler errorHandler,
-        final GapFillEncoder gapFillEncoder)
+        final GapFillEncoder gapFillEncoder,
+        final ChecksumCalculator checksumCalculator)
     {
         this.bufferClaim = bufferClaim;
         this.idleStrategy = idleStrategy;
@@ -132,6 +143,7 @@ class ReplayerSession implements ControlledFragmentHandler
         this.message = message;
         this.errorHandler = errorHandler;
         this.replayQuery = replayQuery;
+        this.replayCache = replayCache;
         this.gapFillEncoder = gapFillEncoder;
 
         sequenceNumberExtractor = new SequenceNumberExtractor(errorHandler);
@@ -146,7 +158,8 @@ class ReplayerSession implements ControlledFragmentHandler
             this::onException,
             clock,
             publication.maxPayloadLength(),
-            LogTag.FIX_MESSAGE);
+            LogTag.FIX_MESSAGE,
+            checksumCalculator);
 
         state = State.REPLAYING;
     }
@@ -172,6 +185,29 @@ class ReplayerSession implements ControlledFragmentHandler
 
     void query()
     {
+        if (replayCache != null)
+        {
+            endCachedSeqNo = upToMostRecent ? senderSequenceNumbers.lastSentSequenceNumber(connectionId) : endSeqNo;
+            if (endCachedSeqNo >= beginSeqNo && replayCache.find(sessionId, sequenceIndex, beginSeqNo) != MISSING)
+            {
+                nextCachedSeqNo = beginSeqNo;
+                state = State.REPLAYING_CACHED;
+                return;
+            }
+        }
+
+        queryArchive(beginSeqNo);
+    }
+
+    // A resend request is counted as a replay cache miss when, and only when, any of it is replayed from the archive.
+    // It falls back to the archive at most once, so even a partial hit is counted exactly once.
+    private void queryArchive(final int beginSeqNo)
+    {
+        if (replayCache != null)
+        {
+            replayCache.onMiss();
+        }
+
         replayOperation = replayQuery.query(
             this,
             sessionId,
@@ -182,6 +218,36 @@ class ReplayerSession implements ControlledFragmentHandler
             CATCHUP);
     }
 
+    // Returns true once the whole range has been replayed from the cache. If a message that hasn't been replayed
+    // yet is no longer in the cache then the rest of the range is replayed from the archive.
+    private boolean replayFromCache()
+    {
+        final ReplayCache replayCache = this.replayCache;
+        final DirectBuffer buffer = replayCache.buffer();
+        while (nextCachedSeqNo <= endCachedSeqNo)
+        {
+            final int messageOffset = replayCache.find(sessionId, sequenceIndex, nextCachedSeqNo);
+            if (messageOffset == MISSING)
+            {
+                DebugLogger.log(REPLAY, "ReplayerSession: replay cache miss at %d%n", nextCachedSeqNo);
+                queryArchive(nextCachedSeqNo);
+                state = State.REPLAYING;
+                return false;
+            }
+
+            if (onFragment(buffer, messageOffset, replayCache.length(messageOffset), null) == ABORT)
+            {
+                return false;
+            }
+
+            cachedReplayedMessages++;
+            nextCachedSeqNo++;
+        }
+
+        replayCache.onHit();
+        return true;
+    }
+
     // Callback for the ReplayQuery:
     public Action onFragment(
         final DirectBuffer srcBuffer, final int srcOffset, final int srcLength, final Header header)
@@ -315,6 +381,15 @@ class ReplayerSession implements ControlledFragmentHandler
     {
         switch (state)
         {
+            case REPLAYING_CACHED:
+                DebugLogger.log(REPLAY_ATTEMPT, "ReplayerSession: REPLAYING_CACHED step");
+                if (replayFromCache())
+                {
+                    state = State.CHECK_REPLAY;
+                    return attempReplay();
+                }
+                return false;
+
             case REPLAYING:
                 DebugLogger.log(REPLAY_ATTEMPT, "ReplayerSession: REPLAYING step");
                 if (replayOperation.attemptReplay())
@@ -343,7 +418,8 @@ class ReplayerSession implements ControlledFragmentHandler
     private boolean completeReplay()
     {
         // Load state needed to complete the replay
-        final int replayedMessages = replayOperation.replayedMessages();
+        final int replayedMessages = replayOperation == null ?
+            cachedReplayedMessages : cachedReplayedMessages + replayOperation.replayedMessages();
 
         // If the last N messages were admin messages then we need to send a gapfill
         // after the replay query has run.
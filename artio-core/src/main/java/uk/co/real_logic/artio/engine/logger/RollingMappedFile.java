@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.CloseHelper;
+import org.agrona.IoUtil;
+import org.agrona.LangUtil;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+
+/**
+ * A series of memory mapped files of a fixed size that records are appended to. When a record doesn't fit into the
+ * remainder of the current file it's truncated to the length that has been written and a new file is started.
+ *
+ * Files are named prefix-index.log within the directory, starting at the first index that doesn't already exist.
+ * Not thread safe.
+ */
+public class RollingMappedFile implements AutoCloseable
+{
+    public static final String FILE_SUFFIX = ".log";
+
+    private final UnsafeBuffer buffer = new UnsafeBuffer(0, 0);
+    private final File directory;
+    private final String prefix;
+    private final int fileSize;
+
+    private int fileIndex;
+    private File file;
+    private FileChannel fileChannel;
+    private MappedByteBuffer mappedBuffer;
+    private int position;
+
+    public RollingMappedFile(final File directory, final String prefix, final int fileSize)
+    {
+        if (fileSize <= 0)
+        {
+            throw new IllegalArgumentException("File size must be positive: " + fileSize);
+        }
+
+        this.directory = directory;
+        this.prefix = prefix;
+        this.fileSize = fileSize;
+
+        IoUtil.ensureDirectoryExists(directory, directory.getAbsolutePath());
+        while (file(fileIndex).exists())
+        {
+            fileIndex++;
+        }
+        map();
+    }
+
+    /**
+     * Claims space for a record in the current file, rolling onto a new file if it doesn't fit.
+     *
+     * @param length the length of the record in bytes.
+     * @return the offset of the record within {@link #buffer()}.
+     * @throws IllegalArgumentException if the record is longer than the size of a file.
+     */
+    public int claim(final int length)
+    {
+        if (length > fileSize)
+        {
+            throw new IllegalArgumentException(String.format(
+                "Record of length %d is longer than the file size of %d", length, fileSize));
+        }
+
+        if (position + length > fileSize)
+        {
+            unmap();
+            fileIndex++;
+            map();
+        }
+
+        final int offset = position;
+        position = offset + length;
+        return offset;
+    }
+
+    /**
+     * Gets the buffer of the current file, which changes when a claim rolls onto a new file.
+     *
+     * @return the buffer of the current file.
+     */
+    public AtomicBuffer buffer()
+    {
+        return buffer;
+    }
+
+    public File file()
+    {
+        return file;
+    }
+
+    public File file(final int fileIndex)
+    {
+        return new File(directory, prefix + "-" + fileIndex + FILE_SUFFIX);
+    }
+
+    private void map()
+    {
+        file = file(fileIndex);
+        position = 0;
+        fileChannel = IoUtil.createEmptyFile(file, fileSize);
+        try
+        {
+            mappedBuffer = fileChannel.map(READ_WRITE, 0, fileSize);
+        }
+        catch (final IOException e)
+        {
+            CloseHelper.close(fileChannel);
+            LangUtil.rethrowUnchecked(e);
+        }
+        buffer.wrap(mappedBuffer);
+    }
+
+    private void unmap()
+    {
+        IoUtil.unmap(mappedBuffer);
+        try
+        {
+            fileChannel.truncate(position);
+        }
+        catch (final IOException e)
+        {
+            LangUtil.rethrowUnchecked(e);
+        }
+        finally
+        {
+            CloseHelper.close(fileChannel);
+        }
+    }
+
+    public void close()
+    {
+        if (fileChannel.isOpen())
+        {
+            unmap();
+        }
+    }
+}
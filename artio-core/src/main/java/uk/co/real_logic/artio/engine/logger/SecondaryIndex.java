@@ -0,0 +1,311 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.logbuffer.Header;
+import org.agrona.BitUtil;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ErrorHandler;
+import org.agrona.IoUtil;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.engine.framer.MessageTypeExtractor;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static io.aeron.logbuffer.FrameDescriptor.*;
+import static io.aeron.protocol.DataHeaderFlyweight.HEADER_LENGTH;
+import static java.nio.file.StandardOpenOption.*;
+import static uk.co.real_logic.artio.engine.logger.SecondaryIndexDescriptor.*;
+
+/**
+ * Builds an index of the message type, fix session id and timestamp of every FIX message on a given stream, so that
+ * a {@link FixArchiveScanner} can look up the positions of the messages that match a query and only replay those
+ * parts of the archive's recordings.
+ *
+ * Records are batched up and written to the file when the batch is full or when the {@link Indexer} has finished
+ * its poll. The indexed positions, which are stored in a separate file at
+ * {@link SecondaryIndexDescriptor#secondaryPositionPath(String, int)}, are only updated once the records up to
+ * them have been written, and before a new segment is started, so only the current segment can have records
+ * that are past the indexed positions.
+ *
+ * The file is split into segments, a new segment is started once the current one is at least segmentSize bytes
+ * long and, if maxSegments is positive, the oldest segments are deleted so that no more than maxSegments are
+ * retained.
+ */
+public class SecondaryIndex implements Index
+{
+    private static final int BATCH_SIZE_IN_RECORDS = 1024;
+    private static final long MISSING_POSITION = Long.MIN_VALUE;
+
+    private final MessageHeaderDecoder frameHeaderDecoder = new MessageHeaderDecoder();
+    private final FixMessageDecoder messageFrame = new FixMessageDecoder();
+    private final ByteBuffer batchByteBuffer = ByteBuffer.allocateDirect(BATCH_SIZE_IN_RECORDS * RECORD_LENGTH);
+    private final UnsafeBuffer batchBuffer = new UnsafeBuffer(batchByteBuffer);
+    private final Long2LongHashMap recordingIdToLastPosition = new Long2LongHashMap(MISSING_POSITION);
+
+    // Positions are staged in the position writer whilst their records are still in the batch
+    private int batchLength;
+
+    // The segments that are retained are oldestSegment to segment inclusive, the latter being written to
+    private int oldestSegment;
+    private int segment;
+    private long segmentLength;
+    private FileChannel indexFile;
+
+    private final String logFileDir;
+    private final int requiredStreamId;
+    private final long segmentSize;
+    private final int maxSegments;
+    private final AtomicBuffer positionBuffer;
+    private final ErrorHandler errorHandler;
+    private final RecordingIdLookup recordingIdLookup;
+    private final IndexedPositionWriter positionWriter;
+    private final IndexedPositionReader positionReader;
+
+    public SecondaryIndex(
+        final String logFileDir,
+        final int requiredStreamId,
+        final long segmentSize,
+        final int maxSegments,
+        final AtomicBuffer positionBuffer,
+        final ErrorHandler errorHandler,
+        final RecordingIdLookup recordingIdLookup)
+    {
+        this.logFileDir = logFileDir;
+        this.requiredStreamId = requiredStreamId;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.positionBuffer = positionBuffer;
+        this.errorHandler = errorHandler;
+        this.recordingIdLookup = recordingIdLookup;
+
+        positionWriter = new IndexedPositionWriter(
+            positionBuffer, errorHandler, 0, secondaryPositionPath(logFileDir, requiredStreamId));
+        positionReader = new IndexedPositionReader(positionBuffer);
+
+        final int[] segments = secondaryIndexSegments(logFileDir, requiredStreamId);
+        final int segmentCount = segments.length;
+        oldestSegment = segmentCount == 0 ? 0 : segments[0];
+        segment = segmentCount == 0 ? 0 : segments[segmentCount - 1];
+
+        // Messages that begin before the indexed position have already been indexed.
+        final Long2LongHashMap recordingIdToLastPosition = this.recordingIdToLastPosition;
+        positionReader.readLastPosition((aeronSessionId, recordingId, position) ->
+            recordingIdToLastPosition.put(recordingId, position - 1));
+        try
+        {
+            // Also truncates any partially written record.
+            indexFile = openSegment();
+            segmentLength = readLastPositions(indexFile);
+            indexFile.truncate(segmentLength);
+            indexFile.position(segmentLength);
+            deleteOldSegments();
+        }
+        catch (final IOException ex)
+        {
+            throw new IllegalStateException("Unable to open secondary index: " + segmentFile(segment), ex);
+        }
+    }
+
+    // Records that were written before a restart, but whose positions weren't, are caught up again. The last
+    // position of each recording stops them from being indexed twice.
+    private long readLastPositions(final FileChannel segmentFile) throws IOException
+    {
+        final Long2LongHashMap recordingIdToLastPosition = this.recordingIdToLastPosition;
+        return readRecords(segmentFile, batchByteBuffer, batchBuffer, (buffer, offset) ->
+        {
+            final long recordingId = buffer.getLong(offset + RECORDING_ID_OFFSET);
+            final long position = buffer.getLong(offset + POSITION_OFFSET);
+            if (position > recordingIdToLastPosition.get(recordingId))
+            {
+                recordingIdToLastPosition.put(recordingId, position);
+            }
+        });
+    }
+
+    private File segmentFile(final int segment)
+    {
+        return secondaryIndexSegmentFile(logFileDir, requiredStreamId, segment);
+    }
+
+    private FileChannel openSegment() throws IOException
+    {
+        return FileChannel.open(segmentFile(segment).toPath(), CREATE, READ, WRITE);
+    }
+
+    private void rollSegment() throws IOException
+    {
+        indexFile.close();
+        segment++;
+        segmentLength = 0;
+        indexFile = openSegment();
+        deleteOldSegments();
+    }
+
+    private void deleteOldSegments()
+    {
+        final int maxSegments = this.maxSegments;
+        if (maxSegments > 0)
+        {
+            while (segment - oldestSegment >= maxSegments)
+            {
+                IoUtil.deleteIfExists(segmentFile(oldestSegment));
+                oldestSegment++;
+            }
+        }
+    }
+
+    public void onFragment(
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final Header header)
+    {
+        if (header.streamId() != requiredStreamId)
+        {
+            return;
+        }
+
+        final int aeronSessionId = header.sessionId();
+        final long recordingId = recordingIdLookup.getRecordingId(aeronSessionId);
+        final long endPosition = header.position();
+        final byte flags = header.flags();
+
+        // Continuation fragments never start a message.
+        if ((flags & UNFRAGMENTED) == UNFRAGMENTED || (flags & BEGIN_FRAG_FLAG) == BEGIN_FRAG_FLAG)
+        {
+            final MessageHeaderDecoder frameHeaderDecoder = this.frameHeaderDecoder;
+            frameHeaderDecoder.wrap(buffer, offset);
+            if (frameHeaderDecoder.templateId() == FixMessageDecoder.TEMPLATE_ID)
+            {
+                final FixMessageDecoder messageFrame = this.messageFrame;
+                messageFrame.wrap(
+                    buffer,
+                    offset + frameHeaderDecoder.encodedLength(),
+                    frameHeaderDecoder.blockLength(),
+                    frameHeaderDecoder.version());
+
+                final long beginPosition = endPosition - BitUtil.align(HEADER_LENGTH + length, FRAME_ALIGNMENT);
+                if (beginPosition > recordingIdToLastPosition.get(recordingId))
+                {
+                    appendRecord(
+                        messageFrame.timestamp(),
+                        MessageTypeExtractor.getMessageType(messageFrame),
+                        messageFrame.session(),
+                        recordingId,
+                        beginPosition);
+                }
+            }
+        }
+
+        positionWriter.stageIndexedUpTo(aeronSessionId, recordingId, endPosition);
+    }
+
+    private void appendRecord(
+        final long timestamp,
+        final long messageType,
+        final long fixSessionId,
+        final long recordingId,
+        final long beginPosition)
+    {
+        if (batchLength == batchBuffer.capacity())
+        {
+            flush();
+        }
+
+        final UnsafeBuffer batchBuffer = this.batchBuffer;
+        final int offset = batchLength;
+        batchBuffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+        batchBuffer.putLong(offset + MESSAGE_TYPE_OFFSET, messageType);
+        batchBuffer.putLong(offset + FIX_SESSION_ID_OFFSET, fixSessionId);
+        batchBuffer.putLong(offset + RECORDING_ID_OFFSET, recordingId);
+        batchBuffer.putLong(offset + POSITION_OFFSET, beginPosition);
+        batchLength = offset + RECORD_LENGTH;
+
+        recordingIdToLastPosition.put(recordingId, beginPosition);
+    }
+
+    public int doWork()
+    {
+        return flush();
+    }
+
+    private int flush()
+    {
+        final int batchLength = this.batchLength;
+        if (batchLength > 0)
+        {
+            final ByteBuffer batchByteBuffer = this.batchByteBuffer;
+            batchByteBuffer.clear().limit(batchLength);
+            try
+            {
+                while (batchByteBuffer.hasRemaining())
+                {
+                    indexFile.write(batchByteBuffer);
+                }
+            }
+            catch (final IOException ex)
+            {
+                errorHandler.onError(ex);
+                return 0;
+            }
+            this.batchLength = 0;
+        }
+
+        final int positionsWritten = positionWriter.writeStaged();
+
+        segmentLength += batchLength;
+        if (batchLength > 0 && segmentLength >= segmentSize)
+        {
+            try
+            {
+                rollSegment();
+            }
+            catch (final IOException ex)
+            {
+                errorHandler.onError(ex);
+            }
+        }
+
+        return batchLength / RECORD_LENGTH + positionsWritten;
+    }
+
+    public void close()
+    {
+        flush();
+        positionWriter.close();
+        CloseHelper.close(indexFile);
+        IoUtil.unmap(positionBuffer.byteBuffer());
+    }
+
+    public boolean requiredOnStartup()
+    {
+        return false;
+    }
+
+    public void readLastPosition(final IndexedPositionConsumer consumer)
+    {
+        positionReader.readLastPosition(consumer);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.BitUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.REPLAY_POSITION_BUFFER_SIZE;
+
+/**
+ * A secondary index file consists of a fixed length record for every FIX message on the stream, appended in the
+ * order that they're indexed:
+ *
+ * Timestamp of the message
+ * Packed message type of the message
+ * Fix session id of the message
+ * Recording id
+ * Position of the start of the message within the recording
+ *
+ * The index is split into segment files, a new segment is started once the current one reaches the configured
+ * segment size and the oldest segments are deleted once more than the configured number of segments exist.
+ */
+public final class SecondaryIndexDescriptor
+{
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int MESSAGE_TYPE_OFFSET = TIMESTAMP_OFFSET + BitUtil.SIZE_OF_LONG;
+    static final int FIX_SESSION_ID_OFFSET = MESSAGE_TYPE_OFFSET + BitUtil.SIZE_OF_LONG;
+    static final int RECORDING_ID_OFFSET = FIX_SESSION_ID_OFFSET + BitUtil.SIZE_OF_LONG;
+    static final int POSITION_OFFSET = RECORDING_ID_OFFSET + BitUtil.SIZE_OF_LONG;
+
+    static final int RECORD_LENGTH = 40;
+
+    public static File secondaryIndexSegmentFile(final String logFileDir, final int streamId, final int segment)
+    {
+        return new File(logFileDir + File.separator + segmentPrefix(streamId) + segment);
+    }
+
+    /**
+     * Lists the segments of a secondary index that currently exist.
+     *
+     * @param logFileDir the directory that the index is in.
+     * @param streamId the stream that the index is for.
+     * @return the segment numbers, in ascending order.
+     */
+    static int[] secondaryIndexSegments(final String logFileDir, final int streamId)
+    {
+        final String prefix = segmentPrefix(streamId);
+        final String[] fileNames = new File(logFileDir).list((dir, name) -> name.startsWith(prefix));
+        if (fileNames == null)
+        {
+            return new int[0];
+        }
+
+        final int prefixLength = prefix.length();
+        final int[] segments = new int[fileNames.length];
+        for (int i = 0; i < fileNames.length; i++)
+        {
+            segments[i] = Integer.parseInt(fileNames[i].substring(prefixLength));
+        }
+        Arrays.sort(segments);
+
+        return segments;
+    }
+
+    private static String segmentPrefix(final int streamId)
+    {
+        return "secondary-index-" + streamId + "-";
+    }
+
+    /**
+     * Reads the complete records of a segment a chunk at a time, so that segments of any size can be read
+     * without holding them in memory.
+     *
+     * @param channel the segment to read.
+     * @param byteBuffer the buffer to read each chunk into, its capacity must be a multiple of the record length.
+     * @param buffer a buffer that wraps byteBuffer.
+     * @param consumer called with the offset of each record within buffer.
+     * @return the length of the complete records in the segment.
+     * @throws IOException if the segment can't be read.
+     */
+    static long readRecords(
+        final FileChannel channel,
+        final ByteBuffer byteBuffer,
+        final UnsafeBuffer buffer,
+        final RecordConsumer consumer) throws IOException
+    {
+        final long size = channel.size();
+        final long recordsLength = size - (size % RECORD_LENGTH);
+        long filePosition = 0;
+        while (filePosition < recordsLength)
+        {
+            byteBuffer.clear().limit((int)Math.min(byteBuffer.capacity(), recordsLength - filePosition));
+            while (byteBuffer.hasRemaining())
+            {
+                if (channel.read(byteBuffer, filePosition + byteBuffer.position()) < 0)
+                {
+                    throw new IOException("Secondary index segment was truncated whilst being read");
+                }
+            }
+
+            for (int offset = 0, limit = byteBuffer.limit(); offset < limit; offset += RECORD_LENGTH)
+            {
+                consumer.onRecord(buffer, offset);
+            }
+            filePosition += byteBuffer.limit();
+        }
+
+        return recordsLength;
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer
+    {
+        void onRecord(UnsafeBuffer buffer, int offset);
+    }
+
+    public static UnsafeBuffer secondaryPositionBuffer(final String logFileDir, final int streamId)
+    {
+        final String pathname = secondaryPositionPath(logFileDir, streamId);
+        return new UnsafeBuffer(LoggerUtil.map(new File(pathname), REPLAY_POSITION_BUFFER_SIZE));
+    }
+
+    static String secondaryPositionPath(final String logFileDir, final int streamId)
+    {
+        return logFileDir + File.separator + "secondary-positions-" + streamId;
+    }
+}
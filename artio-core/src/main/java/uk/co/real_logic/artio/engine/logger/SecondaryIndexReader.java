@@ -0,0 +1,255 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.collections.IntArrayList;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.LongArrayList;
+import org.agrona.collections.LongHashSet;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
+import static java.nio.file.StandardOpenOption.READ;
+import static uk.co.real_logic.artio.engine.logger.SecondaryIndexDescriptor.*;
+
+/**
+ * Reads the segments of a secondary index written by {@link SecondaryIndex}, building posting lists from each message
+ * type and fix session id to the messages of each recording that have it. Only the messages within the queried time
+ * range are kept, and the segments are read a chunk at a time, so memory use is bounded by the number of matching
+ * messages rather than the size of the index.
+ */
+class SecondaryIndexReader
+{
+    // Matching messages that are closer than this are replayed together rather than starting another replay.
+    static final long MAX_COALESCED_GAP = 64 * 1024;
+
+    private static final int CHUNK_SIZE_IN_RECORDS = 1024;
+
+    private static final LongFunction<RecordingSecondaryIndex> NEW_RECORDING_SECONDARY_INDEX =
+        (recordingId) -> new RecordingSecondaryIndex();
+
+    private final Long2ObjectHashMap<RecordingSecondaryIndex> recordingIdToIndex = new Long2ObjectHashMap<>();
+
+    SecondaryIndexReader(
+        final String logFileDir,
+        final int streamId,
+        final long beginTimestampInclusive,
+        final long endTimestampExclusive)
+    {
+        final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(CHUNK_SIZE_IN_RECORDS * RECORD_LENGTH);
+        final UnsafeBuffer buffer = new UnsafeBuffer(byteBuffer);
+        final RecordConsumer onRecord = (recordBuffer, offset) ->
+        {
+            final RecordingSecondaryIndex index = recordingIdToIndex.computeIfAbsent(
+                recordBuffer.getLong(offset + RECORDING_ID_OFFSET), NEW_RECORDING_SECONDARY_INDEX);
+            final long position = recordBuffer.getLong(offset + POSITION_OFFSET);
+            index.stopLastRecord(position);
+
+            final long timestamp = recordBuffer.getLong(offset + TIMESTAMP_OFFSET);
+            if (timestamp >= beginTimestampInclusive && timestamp < endTimestampExclusive)
+            {
+                index.add(
+                    recordBuffer.getLong(offset + MESSAGE_TYPE_OFFSET),
+                    recordBuffer.getLong(offset + FIX_SESSION_ID_OFFSET),
+                    position);
+            }
+        };
+
+        for (final int segment : secondaryIndexSegments(logFileDir, streamId))
+        {
+            final File file = secondaryIndexSegmentFile(logFileDir, streamId, segment);
+            try (FileChannel channel = FileChannel.open(file.toPath(), READ))
+            {
+                readRecords(channel, byteBuffer, buffer, onRecord);
+            }
+            catch (final NoSuchFileException ex)
+            {
+                // The segment has been deleted by the engine's retention since the segments were listed.
+            }
+            catch (final IOException ex)
+            {
+                throw new IllegalStateException("Unable to read secondary index: " + file, ex);
+            }
+        }
+    }
+
+    /**
+     * Find the ranges of a recording that contain the messages matching a query.
+     *
+     * @param recordingId the recording to query.
+     * @param messageTypes the packed message types to match, or empty to match any message type.
+     * @param fixSessionIds the fix session ids to match, or empty to match any session.
+     * @param ranges pairs of start and stop positions are added to this list, a stop position of
+     *               {@link io.aeron.archive.client.AeronArchive#NULL_POSITION} is the end of the recording.
+     */
+    void ranges(
+        final long recordingId,
+        final LongHashSet messageTypes,
+        final LongHashSet fixSessionIds,
+        final LongArrayList ranges)
+    {
+        final RecordingSecondaryIndex index = recordingIdToIndex.get(recordingId);
+        if (index == null)
+        {
+            return;
+        }
+
+        final IntArrayList candidates = index.candidates(messageTypes, fixSessionIds);
+        final boolean checkSessions = !messageTypes.isEmpty() && !fixSessionIds.isEmpty();
+        final long[] positions = index.positions;
+        final long[] stopPositions = index.stopPositions;
+
+        long rangeStart = NULL_POSITION;
+        long rangeStop = NULL_POSITION;
+        for (int i = 0, candidateCount = candidates.size(); i < candidateCount; i++)
+        {
+            final int recordIndex = candidates.getInt(i);
+            if (checkSessions && !fixSessionIds.contains(index.fixSessionIds[recordIndex]))
+            {
+                continue;
+            }
+
+            final long start = positions[recordIndex];
+            final long stop = stopPositions[recordIndex];
+            if (rangeStart != NULL_POSITION && start - rangeStop <= MAX_COALESCED_GAP)
+            {
+                rangeStop = stop;
+            }
+            else
+            {
+                if (rangeStart != NULL_POSITION)
+                {
+                    ranges.addLong(rangeStart);
+                    ranges.addLong(rangeStop);
+                }
+                rangeStart = start;
+                rangeStop = stop;
+            }
+        }
+
+        if (rangeStart != NULL_POSITION)
+        {
+            ranges.addLong(rangeStart);
+            ranges.addLong(rangeStop);
+        }
+    }
+
+    static final class RecordingSecondaryIndex
+    {
+        private final Long2ObjectHashMap<IntArrayList> messageTypeToRecords = new Long2ObjectHashMap<>();
+        private final Long2ObjectHashMap<IntArrayList> fixSessionIdToRecords = new Long2ObjectHashMap<>();
+        private final IntArrayList candidates = new IntArrayList();
+
+        // A message's stop position is the start of the next message of the recording in the index, whether or
+        // not that's within the time range, or NULL_POSITION if it's the last message.
+        private long[] fixSessionIds = new long[16];
+        private long[] positions = new long[16];
+        private long[] stopPositions = new long[16];
+        private int size;
+        private boolean lastRecordAdded;
+
+        void stopLastRecord(final long position)
+        {
+            if (lastRecordAdded)
+            {
+                stopPositions[size - 1] = position;
+                lastRecordAdded = false;
+            }
+        }
+
+        void add(final long messageType, final long fixSessionId, final long position)
+        {
+            if (size == positions.length)
+            {
+                fixSessionIds = Arrays.copyOf(fixSessionIds, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+                stopPositions = Arrays.copyOf(stopPositions, size * 2);
+            }
+
+            fixSessionIds[size] = fixSessionId;
+            positions[size] = position;
+            stopPositions[size] = NULL_POSITION;
+            lastRecordAdded = true;
+            messageTypeToRecords.computeIfAbsent(messageType, (key) -> new IntArrayList()).addInt(size);
+            fixSessionIdToRecords.computeIfAbsent(fixSessionId, (key) -> new IntArrayList()).addInt(size);
+            size++;
+        }
+
+        // The records that are in the posting lists of the message types if there are any, otherwise of the sessions,
+        // in position order.
+        IntArrayList candidates(final LongHashSet messageTypes, final LongHashSet fixSessionIds)
+        {
+            final IntArrayList candidates = this.candidates;
+            candidates.clear();
+
+            if (!messageTypes.isEmpty())
+            {
+                addPostingLists(messageTypeToRecords, messageTypes, candidates);
+            }
+            else if (!fixSessionIds.isEmpty())
+            {
+                addPostingLists(fixSessionIdToRecords, fixSessionIds, candidates);
+            }
+            else
+            {
+                for (int i = 0; i < size; i++)
+                {
+                    candidates.addInt(i);
+                }
+            }
+
+            return candidates;
+        }
+
+        private static void addPostingLists(
+            final Long2ObjectHashMap<IntArrayList> keyToRecords, final LongHashSet keys, final IntArrayList candidates)
+        {
+            int postingLists = 0;
+            final LongHashSet.LongIterator it = keys.iterator();
+            while (it.hasNext())
+            {
+                final IntArrayList records = keyToRecords.get(it.nextValue());
+                if (records != null)
+                {
+                    for (int i = 0, size = records.size(); i < size; i++)
+                    {
+                        candidates.addInt(records.getInt(i));
+                    }
+                    postingLists++;
+                }
+            }
+
+            if (postingLists > 1)
+            {
+                final int[] sorted = candidates.toIntArray();
+                Arrays.sort(sorted);
+                candidates.clear();
+                for (final int record : sorted)
+                {
+                    candidates.addInt(record);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.CloseHelper;
+import org.agrona.ErrorHandler;
+import org.agrona.LangUtil;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.CommonConfiguration;
+import uk.co.real_logic.artio.engine.ByteBufferUtil;
+import uk.co.real_logic.artio.engine.MappedFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static uk.co.real_logic.artio.engine.SectorFramer.SECTOR_SIZE;
+
+/**
+ * A redo log of the sectors of an index file that are about to be overwritten in place.
+ *
+ * The sectors are written to the journal and forced to disk before any of them are written to the index file, so
+ * a crash part way through updating the index file can be recovered from by applying the journal again. A crash
+ * whilst writing the journal leaves the index file untouched, and the journal's checksum fails to validate.
+ * <p>
+ * Checksum
+ * Sector Count
+ * Series of (Sector Offset, Sector Length, Sector Data) entries
+ */
+final class SectorJournal implements AutoCloseable
+{
+    private static final int CHECKSUM_OFFSET = 0;
+    private static final int SECTOR_COUNT_OFFSET = CHECKSUM_OFFSET + SIZE_OF_INT;
+    private static final int HEADER_LENGTH = SECTOR_COUNT_OFFSET + SIZE_OF_INT;
+    private static final int ENTRY_HEADER_LENGTH = SIZE_OF_INT + SIZE_OF_INT;
+
+    private final CRC32 crc32 = new CRC32();
+    private final ErrorHandler errorHandler;
+    private final FileChannel fileChannel;
+
+    private ByteBuffer byteBuffer;
+    private UnsafeBuffer buffer;
+
+    SectorJournal(final File file, final ErrorHandler errorHandler)
+    {
+        this.errorHandler = errorHandler;
+        fileChannel = open(file);
+        allocate(HEADER_LENGTH + ENTRY_HEADER_LENGTH + SECTOR_SIZE);
+    }
+
+    private static FileChannel open(final File file)
+    {
+        try
+        {
+            return FileChannel.open(file.toPath(), CREATE, READ, WRITE);
+        }
+        catch (final IOException e)
+        {
+            LangUtil.rethrowUnchecked(e);
+            return null;
+        }
+    }
+
+    /**
+     * Applies the journal left by a previous run to its index file, if it is complete, and then deletes it.
+     *
+     * @param file the location of the journal.
+     * @param indexFile the index file that the journal was written for.
+     * @param errorHandler the handler for io errors.
+     * @return true if sectors were applied to the index file, false otherwise.
+     */
+    static boolean recover(final File file, final MappedFile indexFile, final ErrorHandler errorHandler)
+    {
+        if (!file.exists())
+        {
+            return false;
+        }
+
+        boolean applied = false;
+        try
+        {
+            final ByteBuffer byteBuffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            final UnsafeBuffer buffer = new UnsafeBuffer(byteBuffer);
+            final int length = byteBuffer.capacity();
+            if (length >= HEADER_LENGTH &&
+                isComplete(buffer, buffer.getInt(SECTOR_COUNT_OFFSET), length, indexFile.buffer().capacity()))
+            {
+                final int sectorCount = buffer.getInt(SECTOR_COUNT_OFFSET);
+                final AtomicBuffer fileBuffer = indexFile.buffer();
+                int offset = HEADER_LENGTH;
+                for (int i = 0; i < sectorCount; i++)
+                {
+                    final int sectorOffset = buffer.getInt(offset);
+                    final int sectorLength = buffer.getInt(offset + SIZE_OF_INT);
+                    offset += ENTRY_HEADER_LENGTH;
+                    fileBuffer.putBytes(sectorOffset, buffer, offset, sectorLength);
+                    offset += sectorLength;
+                }
+                indexFile.force();
+                applied = sectorCount > 0;
+            }
+
+            Files.delete(file.toPath());
+        }
+        catch (final IOException e)
+        {
+            errorHandler.onError(e);
+        }
+
+        return applied;
+    }
+
+    // Validates the entries before any of them are applied, so a torn journal is ignored as a whole.
+    private static boolean isComplete(
+        final UnsafeBuffer buffer, final int sectorCount, final int length, final int indexCapacity)
+    {
+        int offset = HEADER_LENGTH;
+        for (int i = 0; i < sectorCount; i++)
+        {
+            if (offset + ENTRY_HEADER_LENGTH > length)
+            {
+                return false;
+            }
+
+            final int sectorOffset = buffer.getInt(offset);
+            final int sectorLength = buffer.getInt(offset + SIZE_OF_INT);
+            offset += ENTRY_HEADER_LENGTH;
+            if (sectorOffset < 0 || sectorLength < 0 || sectorLength > SECTOR_SIZE ||
+                sectorOffset + sectorLength > indexCapacity || offset + sectorLength > length)
+            {
+                return false;
+            }
+            offset += sectorLength;
+        }
+
+        return sectorCount >= 0 && buffer.getInt(CHECKSUM_OFFSET) == checksum(new CRC32(), buffer, offset);
+    }
+
+    /**
+     * Writes the given sectors of the in memory copy of an index into the journal and forces them to disk. Writing
+     * no sectors empties the journal, so that it can't be applied over an index file that has since been replaced.
+     *
+     * @param source the in memory copy of the index.
+     * @param sectorOffsets the offsets of the sectors to write.
+     * @param sectorCount the number of sectors to write.
+     * @return true if the journal was written, false if there was an io error.
+     */
+    boolean write(final AtomicBuffer source, final int[] sectorOffsets, final int sectorCount)
+    {
+        final int capacity = source.capacity();
+        int length = HEADER_LENGTH;
+        for (int i = 0; i < sectorCount; i++)
+        {
+            length += ENTRY_HEADER_LENGTH + Math.min(SECTOR_SIZE, capacity - sectorOffsets[i]);
+        }
+
+        if (length > byteBuffer.capacity())
+        {
+            allocate(length);
+        }
+
+        final UnsafeBuffer buffer = this.buffer;
+        int offset = HEADER_LENGTH;
+        for (int i = 0; i < sectorCount; i++)
+        {
+            final int sectorOffset = sectorOffsets[i];
+            final int sectorLength = Math.min(SECTOR_SIZE, capacity - sectorOffset);
+            buffer.putInt(offset, sectorOffset);
+            buffer.putInt(offset + SIZE_OF_INT, sectorLength);
+            offset += ENTRY_HEADER_LENGTH;
+            buffer.putBytes(offset, source, sectorOffset, sectorLength);
+            offset += sectorLength;
+        }
+        buffer.putInt(SECTOR_COUNT_OFFSET, sectorCount);
+        buffer.putInt(CHECKSUM_OFFSET, checksum(crc32, buffer, length));
+
+        final ByteBuffer byteBuffer = this.byteBuffer;
+        try
+        {
+            ByteBufferUtil.limit(byteBuffer, length);
+            ByteBufferUtil.position(byteBuffer, 0);
+            while (byteBuffer.hasRemaining())
+            {
+                fileChannel.write(byteBuffer, byteBuffer.position());
+            }
+
+            if (CommonConfiguration.FORCE_WRITES)
+            {
+                fileChannel.force(false);
+            }
+
+            return true;
+        }
+        catch (final IOException e)
+        {
+            errorHandler.onError(e);
+            return false;
+        }
+        finally
+        {
+            byteBuffer.clear();
+        }
+    }
+
+    // Covers the sector count as well as the entries
+    private static int checksum(final CRC32 crc32, final UnsafeBuffer buffer, final int length)
+    {
+        crc32.reset();
+        final ByteBuffer byteBuffer = buffer.byteBuffer();
+        ByteBufferUtil.limit(byteBuffer, length);
+        ByteBufferUtil.position(byteBuffer, SECTOR_COUNT_OFFSET);
+        crc32.update(byteBuffer);
+        byteBuffer.clear();
+        return (int)crc32.getValue();
+    }
+
+    private void allocate(final int length)
+    {
+        byteBuffer = ByteBuffer.allocateDirect(length);
+        buffer = new UnsafeBuffer(byteBuffer);
+    }
+
+    public void close()
+    {
+        CloseHelper.close(fileChannel);
+    }
+}
@@ -19,6 +19,7 @@ import org.agrona.CloseHelper;
 import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.LangUtil;
+import org.agrona.collections.Long2LongHashMap;
 import org.agrona.concurrent.AtomicBuffer;
 import uk.co.real_logic.artio.engine.SectorFramer;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
@@ -37,6 +38,8 @@ import static uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberEnc
 
 public class SequenceNumberIndexReader implements AutoCloseable
 {
+    private static final long MISSING_RECORD = -1L;
+
     private final MessageHeaderDecoder fileHeaderDecoder = new MessageHeaderDecoder();
     private final LastKnownSequenceNumberDecoder lastKnownDecoder = new LastKnownSequenceNumberDecoder();
     private final AtomicBuffer inMemoryBuffer;
@@ -45,6 +48,7 @@ public class SequenceNumberIndexReader implements AutoCloseable
     private final ErrorHandler errorHandler;
     private final RandomAccessFile metaDataFile;
     private final CRC32 checksum = new CRC32();
+    private final Long2LongHashMap recordOffsets = new Long2LongHashMap(MISSING_RECORD);
 
     public SequenceNumberIndexReader(
         final AtomicBuffer inMemoryBuffer,
@@ -80,6 +84,19 @@ public class SequenceNumberIndexReader implements AutoCloseable
 
     public int lastKnownSequenceNumber(final long sessionId)
     {
+        // Records never move whilst their session id is still in place, they're only cleared by a reset
+        final int cachedPosition = (int)recordOffsets.get(sessionId);
+        if (cachedPosition != MISSING_RECORD)
+        {
+            lastKnownDecoder.wrap(inMemoryBuffer, cachedPosition, BLOCK_LENGTH, SCHEMA_VERSION);
+            if (lastKnownDecoder.sessionId() == sessionId)
+            {
+                return lastKnownDecoder.sequenceNumber();
+            }
+
+            recordOffsets.remove(sessionId);
+        }
+
         int position = SequenceNumberIndexDescriptor.HEADER_SIZE;
         while (true)
         {
@@ -91,11 +108,19 @@ public class SequenceNumberIndexReader implements AutoCloseable
 
             lastKnownDecoder.wrap(inMemoryBuffer, position, BLOCK_LENGTH, SCHEMA_VERSION);
 
-            if (lastKnownDecoder.sessionId() == sessionId)
+            final long recordSessionId = lastKnownDecoder.sessionId();
+            if (recordSessionId == sessionId)
             {
+                recordOffsets.put(sessionId, position);
                 return lastKnownDecoder.sequenceNumber();
             }
 
+            // Records are written contiguously, so there are no more after the first unused one
+            if (recordSessionId == 0)
+            {
+                return UNK_SESSION;
+            }
+
             position += RECORD_SIZE;
         }
     }
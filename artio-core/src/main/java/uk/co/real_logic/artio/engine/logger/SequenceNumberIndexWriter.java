@@ -28,6 +28,7 @@ import org.agrona.concurrent.EpochClock;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 import uk.co.real_logic.artio.engine.ChecksumFramer;
 import uk.co.real_logic.artio.engine.MappedFile;
+import uk.co.real_logic.artio.engine.SectorFramer;
 import uk.co.real_logic.artio.engine.SequenceNumberExtractor;
 import uk.co.real_logic.artio.engine.framer.FramerContext;
 import uk.co.real_logic.artio.engine.framer.WriteMetaDataResponse;
@@ -42,6 +43,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
 import java.util.zip.CRC32;
@@ -56,6 +58,9 @@ import static uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberEnc
 /**
  * Writes updates into an in-memory buffer. This buffer is then flushed down to disk. A passing place
  * file is used to ensure that there's a recoverable option if it fails.
+ * <p>
+ * When journaling is enabled only the sectors that have changed since the last flush are written, in place, to
+ * the index file. They're written to a {@link SectorJournal} first so that an interrupted flush can be recovered.
  */
 public class SequenceNumberIndexWriter implements Index
 {
@@ -63,6 +68,8 @@ public class SequenceNumberIndexWriter implements Index
 
     private static final long MISSING_RECORD = -1L;
     private static final long UNINITIALISED = -1;
+    // Rewriting the whole file via the passing place is cheaper than journaling once this proportion has changed
+    private static final int FULL_REWRITE_SECTOR_DIVISOR = 4;
     static final int SEQUENCE_NUMBER_OFFSET = LastKnownSequenceNumberEncoder.sequenceNumberEncodingOffset();
     static final int META_DATA_OFFSET = LastKnownSequenceNumberEncoder.metaDataPositionEncodingOffset();
 
@@ -102,6 +109,14 @@ public class SequenceNumberIndexWriter implements Index
     private MappedFile writableFile;
     private MappedFile indexFile;
     private long nextRollPosition = UNINITIALISED;
+    // Records are claimed contiguously, so the directory of record offsets is complete once the file is loaded
+    private int nextRecordOffset = SequenceNumberIndexDescriptor.HEADER_SIZE;
+
+    // null unless journaling, the sectors that have changed are tracked either way
+    private final SectorJournal journal;
+    private final long[] dirtySectors;
+    private final int[] dirtySectorOffsets;
+    private final int sectorCount;
 
     private final EpochClock clock;
     private final long indexFileStateFlushTimeoutInMs;
@@ -116,13 +131,14 @@ public class SequenceNumberIndexWriter implements Index
         final RecordingIdLookup recordingIdLookup,
         final long indexFileStateFlushTimeoutInMs,
         final EpochClock clock,
-        final String metaDataDir)
+        final String metaDataDir,
+        final boolean journal)
     {
         this.inMemoryBuffer = inMemoryBuffer;
         this.indexFile = indexFile;
         this.errorHandler = errorHandler;
         this.streamId = streamId;
-        this.fileCapacity = indexFile.buffer().capacity();
+        this.fileCapacity = inMemoryBuffer.capacity();
         this.recordingIdLookup = recordingIdLookup;
         this.indexFileStateFlushTimeoutInMs = indexFileStateFlushTimeoutInMs;
         this.clock = clock;
@@ -134,13 +150,19 @@ public class SequenceNumberIndexWriter implements Index
         passingPlacePath = passingFile(indexFilePath).toPath();
         writableFile = MappedFile.map(writeableFile, fileCapacity);
         sequenceNumberExtractor = new SequenceNumberExtractor(errorHandler);
+        sectorCount = (fileCapacity + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        dirtySectors = new long[(sectorCount + Long.SIZE - 1) / Long.SIZE];
+        dirtySectorOffsets = new int[sectorCount];
 
         // TODO: Fsync parent directory
         indexedPositionsOffset = positionTableOffset(fileCapacity);
         checksumFramer = new ChecksumFramer(
             inMemoryBuffer, indexedPositionsOffset, errorHandler, 0, "SequenceNumberIndex");
+        SectorJournal sectorJournal = null;
         try
         {
+            final File journalFile = journalFile(indexFilePath);
+            SectorJournal.recover(journalFile, indexFile, errorHandler);
             initialiseBuffer();
             positions = new IndexedPositionWriter(
                 positionsBuffer(inMemoryBuffer, indexedPositionsOffset),
@@ -158,13 +180,24 @@ public class SequenceNumberIndexWriter implements Index
                 metaDataLocation = null;
                 metaDataFile = null;
             }
+
+            if (journal)
+            {
+                sectorJournal = new SectorJournal(journalFile, errorHandler);
+            }
         }
         catch (final Exception e)
         {
             CloseHelper.close(writableFile);
-            indexFile.close();
+            this.indexFile.close();
             throw e;
         }
+        this.journal = sectorJournal;
+
+        if (!fileHasBeenInitialized(this.indexFile.buffer()))
+        {
+            markDirty(0, fileCapacity);
+        }
     }
 
     private RandomAccessFile openMetaDataFile(final File metaDataLocation)
@@ -278,7 +311,11 @@ public class SequenceNumberIndexWriter implements Index
         checkTermRoll(buffer, srcOffset, endPosition, length);
 
         final long recordingId = recordingIdLookup.getRecordingId(aeronSessionId);
-        positions.indexedUpTo(aeronSessionId, recordingId, endPosition);
+        final int positionOffset = positions.indexedUpTo(aeronSessionId, recordingId, endPosition);
+        if (positionOffset != OUT_OF_SPACE)
+        {
+            markDirty(indexedPositionsOffset + positionOffset);
+        }
     }
 
     private boolean onFixMessage(
@@ -453,8 +490,10 @@ public class SequenceNumberIndexWriter implements Index
     void resetSequenceNumbers()
     {
         inMemoryBuffer.setMemory(0, indexedPositionsOffset, (byte)0);
+        markDirty(0, indexedPositionsOffset);
         initialiseBlankBuffer();
         recordOffsets.clear();
+        nextRecordOffset = SequenceNumberIndexDescriptor.HEADER_SIZE;
         resetMetaDataFile();
     }
 
@@ -492,14 +531,91 @@ public class SequenceNumberIndexWriter implements Index
 
     private void updateFile()
     {
-        checksumFramer.updateChecksums();
-        positions.updateChecksums();
-        saveFile();
-        flipFiles();
+        if (journal != null && dirtySectorCount() <= sectorCount / FULL_REWRITE_SECTOR_DIVISOR)
+        {
+            saveDirtySectors();
+        }
+        else
+        {
+            // The file is being replaced, so an old journal mustn't be applied over it
+            if (journal == null || journal.write(inMemoryBuffer, dirtySectorOffsets, 0))
+            {
+                checksumFramer.updateChecksums();
+                positions.updateChecksums();
+                saveFile();
+                flipFiles();
+                Arrays.fill(dirtySectors, 0L);
+            }
+        }
         hasSavedRecordSinceFileUpdate = false;
         lastUpdatedFileTimeInMs = clock.time();
     }
 
+    private void saveDirtySectors()
+    {
+        final long[] dirtySectors = this.dirtySectors;
+        final int[] dirtySectorOffsets = this.dirtySectorOffsets;
+        final int indexedPositionsOffset = this.indexedPositionsOffset;
+
+        int dirtySectorCount = 0;
+        for (int i = 0; i < dirtySectors.length; i++)
+        {
+            long dirtySectorBits = dirtySectors[i];
+            while (dirtySectorBits != 0)
+            {
+                final int sectorStart = (i * Long.SIZE + Long.numberOfTrailingZeros(dirtySectorBits)) * SECTOR_SIZE;
+                dirtySectorBits &= dirtySectorBits - 1;
+
+                if (sectorStart < indexedPositionsOffset)
+                {
+                    checksumFramer.updateChecksum(sectorStart);
+                }
+                else
+                {
+                    positions.updateChecksum(sectorStart - indexedPositionsOffset);
+                }
+                dirtySectorOffsets[dirtySectorCount++] = sectorStart;
+            }
+        }
+
+        if (dirtySectorCount > 0 && journal.write(inMemoryBuffer, dirtySectorOffsets, dirtySectorCount))
+        {
+            final AtomicBuffer fileBuffer = indexFile.buffer();
+            for (int i = 0; i < dirtySectorCount; i++)
+            {
+                final int sectorStart = dirtySectorOffsets[i];
+                fileBuffer.putBytes(
+                    sectorStart, inMemoryBuffer, sectorStart, Math.min(SECTOR_SIZE, fileCapacity - sectorStart));
+            }
+            indexFile.force();
+            Arrays.fill(dirtySectors, 0L);
+        }
+    }
+
+    private int dirtySectorCount()
+    {
+        int dirtySectorCount = 0;
+        for (final long dirtySectorBits : dirtySectors)
+        {
+            dirtySectorCount += Long.bitCount(dirtySectorBits);
+        }
+        return dirtySectorCount;
+    }
+
+    private void markDirty(final int offset)
+    {
+        final int sector = offset / SECTOR_SIZE;
+        dirtySectors[sector / Long.SIZE] |= 1L << sector;
+    }
+
+    private void markDirty(final int offset, final int length)
+    {
+        for (int sectorStart = offset; sectorStart < offset + length; sectorStart += SECTOR_SIZE)
+        {
+            markDirty(sectorStart);
+        }
+    }
+
     private void saveFile()
     {
         writableFile.buffer().putBytes(0, inMemoryBuffer, 0, fileCapacity);
@@ -569,6 +685,7 @@ public class SequenceNumberIndexWriter implements Index
         {
             indexFile.close();
             writableFile.close();
+            CloseHelper.close(journal);
 
             if (metaDataFile != null)
             {
@@ -595,32 +712,20 @@ public class SequenceNumberIndexWriter implements Index
         int position = (int)recordOffsets.get(sessionId);
         if (position == MISSING_RECORD)
         {
-            position = SequenceNumberIndexDescriptor.HEADER_SIZE;
-            while (true)
+            position = nextRecordOffset == OUT_OF_SPACE ?
+                OUT_OF_SPACE : checksumFramer.claim(nextRecordOffset, RECORD_SIZE);
+            if (position == OUT_OF_SPACE)
             {
-                position = checksumFramer.claim(position, RECORD_SIZE);
-                if (position == OUT_OF_SPACE)
-                {
-                    errorHandler.onError(new IllegalStateException(
-                        "Sequence Number Index out of space, can't claim slot for " + sessionId));
-                    return position;
-                }
-
-                lastKnownDecoder.wrap(inMemoryBuffer, position, RECORD_SIZE, SCHEMA_VERSION);
-                if (lastKnownDecoder.sequenceNumber() == 0)
-                {
-                    createNewRecord(newSequenceNumber, sessionId, position);
-                    hasSavedRecordSinceFileUpdate = true;
-                    return position;
-                }
-                else if (lastKnownDecoder.sessionId() == sessionId)
-                {
-                    updateSequenceNumber(newSequenceNumber, position);
-                    return position;
-                }
-
-                position += RECORD_SIZE;
+                nextRecordOffset = OUT_OF_SPACE;
+                errorHandler.onError(new IllegalStateException(
+                    "Sequence Number Index out of space, can't claim slot for " + sessionId));
+                return position;
             }
+
+            createNewRecord(newSequenceNumber, sessionId, position);
+            nextRecordOffset = position + RECORD_SIZE;
+            hasSavedRecordSinceFileUpdate = true;
+            return position;
         }
         else
         {
@@ -674,7 +779,15 @@ public class SequenceNumberIndexWriter implements Index
         final AtomicBuffer fileBuffer = indexFile.buffer();
         if (fileHasBeenInitialized(fileBuffer))
         {
-            readFile(fileBuffer);
+            if (fileBuffer.capacity() == fileCapacity)
+            {
+                readFile(fileBuffer);
+            }
+            else
+            {
+                resizeFile(fileBuffer);
+            }
+            loadRecordOffsets();
         }
         else if (Files.exists(passingPlacePath))
         {
@@ -695,9 +808,147 @@ public class SequenceNumberIndexWriter implements Index
         else
         {
             initialiseBlankBuffer();
+            if (fileBuffer.capacity() != fileCapacity)
+            {
+                checksumFramer.updateChecksums();
+                replaceIndexFile();
+            }
+        }
+    }
+
+    // A single pass on load, rather than on the first message of each session
+    private void loadRecordOffsets()
+    {
+        int position = SequenceNumberIndexDescriptor.HEADER_SIZE;
+        while (true)
+        {
+            position = checksumFramer.claim(position, RECORD_SIZE);
+            if (position == OUT_OF_SPACE)
+            {
+                nextRecordOffset = OUT_OF_SPACE;
+                return;
+            }
+
+            lastKnownDecoder.wrap(inMemoryBuffer, position, RECORD_SIZE, SCHEMA_VERSION);
+            final long sessionId = lastKnownDecoder.sessionId();
+            if (sessionId == 0)
+            {
+                nextRecordOffset = position;
+                return;
+            }
+
+            recordOffsets.put(sessionId, position);
+            position += RECORD_SIZE;
+        }
+    }
+
+    // The configured size of the index has changed, so its records and indexed positions are copied into the
+    // layout for the new size, which is written out in full before it replaces the old file.
+    private void resizeFile(final AtomicBuffer fileBuffer)
+    {
+        final int oldCapacity = fileBuffer.capacity();
+        final int oldPositionsOffset = positionTableOffset(oldCapacity);
+        final AtomicBuffer oldPositionsBuffer = positionsBuffer(fileBuffer, oldPositionsOffset);
+        new ChecksumFramer(fileBuffer, oldPositionsOffset, errorHandler, 0, "SequenceNumberIndex")
+            .validateCheckSums();
+        new ChecksumFramer(
+            oldPositionsBuffer, oldPositionsBuffer.capacity(), errorHandler, oldPositionsOffset, "SequenceNumberIndex")
+            .validateCheckSums();
+
+        inMemoryBuffer.setMemory(0, fileCapacity, (byte)0);
+        initialiseBlankBuffer();
+        copyRecords(
+            fileBuffer,
+            new SectorFramer(oldPositionsOffset),
+            SequenceNumberIndexDescriptor.HEADER_SIZE,
+            inMemoryBuffer,
+            checksumFramer,
+            RECORD_SIZE,
+            0);
+
+        final AtomicBuffer positionsBuffer = positionsBuffer(inMemoryBuffer, indexedPositionsOffset);
+        final ChecksumFramer positionsFramer = new ChecksumFramer(
+            positionsBuffer, positionsBuffer.capacity(), errorHandler, indexedPositionsOffset, "SequenceNumberIndex");
+        positionsBuffer.putBytes(0, oldPositionsBuffer, 0, IndexedPositionWriter.HEADER_LENGTH);
+        copyRecords(
+            oldPositionsBuffer,
+            new SectorFramer(oldPositionsBuffer.capacity()),
+            IndexedPositionWriter.HEADER_LENGTH,
+            positionsBuffer,
+            positionsFramer,
+            IndexedPositionWriter.RECORD_LENGTH,
+            IndexedPositionWriter.POSITION_OFFSET);
+
+        checksumFramer.updateChecksums();
+        positionsFramer.updateChecksums();
+        replaceIndexFile();
+    }
+
+    // Copies the records that have been written, identified by a non-zero long at usedOffset, compacting them
+    private void copyRecords(
+        final AtomicBuffer srcBuffer,
+        final SectorFramer srcFramer,
+        final int headerLength,
+        final AtomicBuffer destBuffer,
+        final SectorFramer destFramer,
+        final int recordLength,
+        final int usedOffset)
+    {
+        int srcPosition = headerLength;
+        int destPosition = headerLength;
+        while (true)
+        {
+            srcPosition = srcFramer.claim(srcPosition, recordLength);
+            if (srcPosition == OUT_OF_SPACE)
+            {
+                return;
+            }
+
+            if (srcBuffer.getLong(srcPosition + usedOffset) != 0)
+            {
+                destPosition = destFramer.claim(destPosition, recordLength);
+                if (destPosition == OUT_OF_SPACE)
+                {
+                    errorHandler.onError(new IllegalStateException(String.format(
+                        "Sequence Number Index of size %d is too small for the records of the existing file",
+                        fileCapacity)));
+                    return;
+                }
+
+                destBuffer.putBytes(destPosition, srcBuffer, srcPosition, recordLength);
+                destPosition += recordLength;
+            }
+
+            srcPosition += recordLength;
         }
     }
 
+    // Writes the in memory buffer to a writable file of the right size and then renames it over the index file.
+    private void replaceIndexFile()
+    {
+        writableFile.close();
+        try
+        {
+            Files.deleteIfExists(writablePath);
+        }
+        catch (final IOException e)
+        {
+            LangUtil.rethrowUnchecked(e);
+        }
+        writableFile = MappedFile.map(writablePath.toFile(), fileCapacity);
+        saveFile();
+
+        writableFile.close();
+        indexFile.close();
+        if (!rename(writablePath, indexPath))
+        {
+            throw new IllegalStateException(String.format(
+                "Unable to resize index file %s due to rename failure", indexPath));
+        }
+        indexFile = MappedFile.map(indexPath.toFile(), fileCapacity);
+        writableFile = MappedFile.map(writablePath.toFile(), fileCapacity);
+    }
+
     private void initialiseBlankBuffer()
     {
         LoggerUtil.initialiseBuffer(
@@ -718,17 +969,6 @@ public class SequenceNumberIndexWriter implements Index
 
     private void validateBufferSizes()
     {
-        final int inMemoryCapacity = inMemoryBuffer.capacity();
-
-        if (fileCapacity != inMemoryCapacity)
-        {
-            throw new IllegalStateException(String.format(
-                "In memory buffer and disk file don't have the same size, disk: %d, memory: %d",
-                fileCapacity,
-                inMemoryCapacity
-            ));
-        }
-
         if (fileCapacity < SECTOR_SIZE)
         {
             throw new IllegalStateException(String.format(
@@ -753,6 +993,7 @@ public class SequenceNumberIndexWriter implements Index
         final int value)
     {
         inMemoryBuffer.putIntOrdered(recordOffset + SEQUENCE_NUMBER_OFFSET, value);
+        markDirty(recordOffset);
     }
 
     private int getSequenceNumber(final int recordOffset)
@@ -765,6 +1006,7 @@ public class SequenceNumberIndexWriter implements Index
         final int value)
     {
         inMemoryBuffer.putIntOrdered(recordOffset + META_DATA_OFFSET, value);
+        markDirty(recordOffset);
     }
 
     private int getMetaData(
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.AtomicBuffer;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+
+import static uk.co.real_logic.artio.dictionary.SessionConstants.START_OF_HEADER;
+
+/**
+ * Writes fix messages into rolling memory mapped files as text, one message per line, with the fields delimited by
+ * pipes rather than the start of header character.
+ */
+public class TextFixMessageSink implements FixMessageSink
+{
+    private static final byte PIPE = '|';
+    private static final byte NEW_LINE = '\n';
+
+    private final RollingMappedFile file;
+
+    public TextFixMessageSink(final RollingMappedFile file)
+    {
+        this.file = file;
+    }
+
+    public void onMessage(
+        final FixMessageDecoder message, final DirectBuffer buffer, final int offset, final int length)
+    {
+        final RollingMappedFile file = this.file;
+        final int lineOffset = file.claim(length + 1);
+        final AtomicBuffer fileBuffer = file.buffer();
+        for (int i = 0; i < length; i++)
+        {
+            final byte value = buffer.getByte(offset + i);
+            fileBuffer.putByte(lineOffset + i, value == START_OF_HEADER ? PIPE : value);
+        }
+        fileBuffer.putByte(lineOffset + length, NEW_LINE);
+    }
+
+    public void close()
+    {
+        file.close();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.logbuffer.Header;
+import org.agrona.BitUtil;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ErrorHandler;
+import org.agrona.IoUtil;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static io.aeron.logbuffer.FrameDescriptor.*;
+import static io.aeron.protocol.DataHeaderFlyweight.HEADER_LENGTH;
+import static java.nio.file.StandardOpenOption.*;
+import static uk.co.real_logic.artio.engine.logger.TimeIndexDescriptor.*;
+
+/**
+ * Builds a sparse index from the timestamps of FIX messages on a given stream to their positions within the
+ * archive's recordings. A record is appended to the time index file for the first message of each recording, and
+ * then for the first message whose timestamp is at least the index interval after the last one recorded. This
+ * lets a {@link FixArchiveScanner} start and stop replaying a recording close to a range of timestamps.
+ *
+ * Written Positions are stored in a separate file at {@link TimeIndexDescriptor#timePositionPath(String, int)}.
+ */
+public class TimeIndex implements Index
+{
+    private static final long MISSING_TIMESTAMP = Long.MIN_VALUE;
+
+    private final MessageHeaderDecoder frameHeaderDecoder = new MessageHeaderDecoder();
+    private final FixMessageDecoder messageFrame = new FixMessageDecoder();
+    private final ByteBuffer recordByteBuffer = ByteBuffer.allocateDirect(RECORD_LENGTH);
+    private final UnsafeBuffer recordBuffer = new UnsafeBuffer(recordByteBuffer);
+    private final Long2LongHashMap recordingIdToLastTimestamp = new Long2LongHashMap(MISSING_TIMESTAMP);
+
+    private final int requiredStreamId;
+    private final long indexInterval;
+    private final AtomicBuffer positionBuffer;
+    private final ErrorHandler errorHandler;
+    private final RecordingIdLookup recordingIdLookup;
+    private final IndexedPositionWriter positionWriter;
+    private final IndexedPositionReader positionReader;
+    private final FileChannel indexFile;
+
+    public TimeIndex(
+        final String logFileDir,
+        final int requiredStreamId,
+        final long indexInterval,
+        final AtomicBuffer positionBuffer,
+        final ErrorHandler errorHandler,
+        final RecordingIdLookup recordingIdLookup)
+    {
+        this.requiredStreamId = requiredStreamId;
+        this.indexInterval = indexInterval;
+        this.positionBuffer = positionBuffer;
+        this.errorHandler = errorHandler;
+        this.recordingIdLookup = recordingIdLookup;
+
+        positionWriter = new IndexedPositionWriter(
+            positionBuffer, errorHandler, 0, timePositionPath(logFileDir, requiredStreamId));
+        positionReader = new IndexedPositionReader(positionBuffer);
+
+        final File file = timeIndexFile(logFileDir, requiredStreamId);
+        try
+        {
+            indexFile = FileChannel.open(file.toPath(), CREATE, READ, WRITE);
+            readLastTimestamps();
+        }
+        catch (final IOException ex)
+        {
+            throw new IllegalStateException("Unable to open time index: " + file, ex);
+        }
+    }
+
+    // Also truncates any partially written record at the end of the file.
+    private void readLastTimestamps() throws IOException
+    {
+        final FileChannel indexFile = this.indexFile;
+        final long recordsLength = indexFile.size() - (indexFile.size() % RECORD_LENGTH);
+        long position = 0;
+        while (position < recordsLength)
+        {
+            readRecord(position);
+            recordingIdToLastTimestamp.put(
+                recordBuffer.getLong(RECORDING_ID_OFFSET), recordBuffer.getLong(TIMESTAMP_OFFSET));
+            position += RECORD_LENGTH;
+        }
+
+        indexFile.truncate(recordsLength);
+        indexFile.position(recordsLength);
+    }
+
+    private void readRecord(final long position) throws IOException
+    {
+        final ByteBuffer recordByteBuffer = this.recordByteBuffer;
+        recordByteBuffer.clear();
+        while (recordByteBuffer.hasRemaining())
+        {
+            indexFile.read(recordByteBuffer, position + recordByteBuffer.position());
+        }
+    }
+
+    public void onFragment(
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final Header header)
+    {
+        if (header.streamId() != requiredStreamId)
+        {
+            return;
+        }
+
+        final int aeronSessionId = header.sessionId();
+        final long recordingId = recordingIdLookup.getRecordingId(aeronSessionId);
+        final long endPosition = header.position();
+        final byte flags = header.flags();
+
+        // Continuation fragments never start a message.
+        if ((flags & UNFRAGMENTED) == UNFRAGMENTED || (flags & BEGIN_FRAG_FLAG) == BEGIN_FRAG_FLAG)
+        {
+            final MessageHeaderDecoder frameHeaderDecoder = this.frameHeaderDecoder;
+            frameHeaderDecoder.wrap(buffer, offset);
+            if (frameHeaderDecoder.templateId() == FixMessageDecoder.TEMPLATE_ID)
+            {
+                messageFrame.wrap(
+                    buffer,
+                    offset + frameHeaderDecoder.encodedLength(),
+                    frameHeaderDecoder.blockLength(),
+                    frameHeaderDecoder.version());
+
+                final long timestamp = messageFrame.timestamp();
+                final long lastTimestamp = recordingIdToLastTimestamp.get(recordingId);
+                if (lastTimestamp == MISSING_TIMESTAMP || timestamp - lastTimestamp >= indexInterval)
+                {
+                    final long beginPosition = endPosition - BitUtil.align(HEADER_LENGTH + length, FRAME_ALIGNMENT);
+                    appendRecord(timestamp, recordingId, beginPosition, aeronSessionId);
+                }
+            }
+        }
+
+        positionWriter.stageIndexedUpTo(aeronSessionId, recordingId, endPosition);
+    }
+
+    public int doWork()
+    {
+        return positionWriter.writeStaged();
+    }
+
+    private void appendRecord(
+        final long timestamp, final long recordingId, final long beginPosition, final int aeronSessionId)
+    {
+        final UnsafeBuffer recordBuffer = this.recordBuffer;
+        recordBuffer.putLong(TIMESTAMP_OFFSET, timestamp);
+        recordBuffer.putLong(RECORDING_ID_OFFSET, recordingId);
+        recordBuffer.putLong(POSITION_OFFSET, beginPosition);
+        recordBuffer.putInt(AERON_SESSION_ID_OFFSET, aeronSessionId);
+
+        final ByteBuffer recordByteBuffer = this.recordByteBuffer;
+        recordByteBuffer.clear();
+        try
+        {
+            while (recordByteBuffer.hasRemaining())
+            {
+                indexFile.write(recordByteBuffer);
+            }
+
+            recordingIdToLastTimestamp.put(recordingId, timestamp);
+        }
+        catch (final IOException ex)
+        {
+            errorHandler.onError(ex);
+        }
+    }
+
+    public void close()
+    {
+        positionWriter.close();
+        CloseHelper.close(indexFile);
+        IoUtil.unmap(positionBuffer.byteBuffer());
+    }
+
+    public boolean requiredOnStartup()
+    {
+        return false;
+    }
+
+    public void readLastPosition(final IndexedPositionConsumer consumer)
+    {
+        positionReader.readLastPosition(consumer);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.BitUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.REPLAY_POSITION_BUFFER_SIZE;
+
+/**
+ * A time index file consists of fixed length records, appended in the order that they're indexed:
+ *
+ * Timestamp of the first message at or after the indexed position
+ * Recording id
+ * Position of the start of that message within the recording
+ * Aeron session id
+ */
+public final class TimeIndexDescriptor
+{
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int RECORDING_ID_OFFSET = TIMESTAMP_OFFSET + BitUtil.SIZE_OF_LONG;
+    static final int POSITION_OFFSET = RECORDING_ID_OFFSET + BitUtil.SIZE_OF_LONG;
+    static final int AERON_SESSION_ID_OFFSET = POSITION_OFFSET + BitUtil.SIZE_OF_LONG;
+
+    static final int RECORD_LENGTH = 32;
+
+    public static File timeIndexFile(final String logFileDir, final int streamId)
+    {
+        return new File(logFileDir + File.separator + "time-index-" + streamId);
+    }
+
+    public static UnsafeBuffer timePositionBuffer(final String logFileDir, final int streamId)
+    {
+        final String pathname = timePositionPath(logFileDir, streamId);
+        return new UnsafeBuffer(LoggerUtil.map(new File(pathname), REPLAY_POSITION_BUFFER_SIZE));
+    }
+
+    static String timePositionPath(final String logFileDir, final int streamId)
+    {
+        return logFileDir + File.separator + "time-positions-" + streamId;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static uk.co.real_logic.artio.engine.logger.TimeIndexDescriptor.*;
+
+/**
+ * Reads a time index file written by {@link TimeIndex} in order to find the positions within a recording that
+ * bound a range of timestamps.
+ *
+ * Timestamps don't always increase with position within a recording: the inbound recording is published to by the
+ * Framer and its shards, which each stamp messages with their own read timestamp. The recorded timestamps are at
+ * least an index interval apart, so the bounds are widened by a record either side, which covers messages that are
+ * published up to an index interval out of order.
+ */
+class TimeIndexReader
+{
+    private static final LongFunction<RecordingTimeIndex> NEW_RECORDING_TIME_INDEX =
+        (recordingId) -> new RecordingTimeIndex();
+
+    private final Long2ObjectHashMap<RecordingTimeIndex> recordingIdToIndex = new Long2ObjectHashMap<>();
+
+    TimeIndexReader(final File file)
+    {
+        if (file.exists())
+        {
+            readRecords(file);
+        }
+    }
+
+    private void readRecords(final File file)
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), READ))
+        {
+            final int recordCount = (int)(channel.size() / RECORD_LENGTH);
+            final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(recordCount * RECORD_LENGTH);
+            int read;
+            do
+            {
+                read = channel.read(byteBuffer);
+            }
+            while (read >= 0 && byteBuffer.hasRemaining());
+
+            final UnsafeBuffer buffer = new UnsafeBuffer(byteBuffer);
+            for (int offset = 0, limit = byteBuffer.position(); offset < limit; offset += RECORD_LENGTH)
+            {
+                recordingIdToIndex
+                    .computeIfAbsent(buffer.getLong(offset + RECORDING_ID_OFFSET), NEW_RECORDING_TIME_INDEX)
+                    .add(buffer.getLong(offset + TIMESTAMP_OFFSET), buffer.getLong(offset + POSITION_OFFSET));
+            }
+        }
+        catch (final IOException ex)
+        {
+            throw new IllegalStateException("Unable to read time index: " + file, ex);
+        }
+    }
+
+    /**
+     * Find the position to start replaying a recording from.
+     *
+     * @param recordingId the recording to replay.
+     * @param beginTimestampInclusive the timestamp of the first message that's required.
+     * @param defaultPosition the position to return if the index has nothing earlier than the timestamp.
+     * @return a position that's before every message with a timestamp at or after beginTimestampInclusive.
+     */
+    long startPosition(final long recordingId, final long beginTimestampInclusive, final long defaultPosition)
+    {
+        final RecordingTimeIndex index = recordingIdToIndex.get(recordingId);
+        if (index == null)
+        {
+            return defaultPosition;
+        }
+
+        // The record before the last one that's before the begin timestamp.
+        final int recordIndex = index.firstIndexAtOrAfter(beginTimestampInclusive) - 2;
+        return recordIndex >= 0 ? Math.max(defaultPosition, index.positions[recordIndex]) : defaultPosition;
+    }
+
+    /**
+     * Find the position to stop replaying a recording at.
+     *
+     * @param recordingId the recording to replay.
+     * @param endTimestampExclusive the timestamp after the last message that's required.
+     * @param defaultPosition the position to return if the index has nothing at or after the timestamp.
+     * @return a position that's after every message with a timestamp before endTimestampExclusive.
+     */
+    long stopPosition(final long recordingId, final long endTimestampExclusive, final long defaultPosition)
+    {
+        final RecordingTimeIndex index = recordingIdToIndex.get(recordingId);
+        if (index == null)
+        {
+            return defaultPosition;
+        }
+
+        // The record after the first one that's at or after the end timestamp.
+        final int recordIndex = index.firstIndexAtOrAfter(endTimestampExclusive) + 1;
+        return recordIndex < index.size ? index.positions[recordIndex] : defaultPosition;
+    }
+
+    static final class RecordingTimeIndex
+    {
+        private long[] timestamps = new long[16];
+        private long[] positions = new long[16];
+        private int size;
+
+        void add(final long timestamp, final long position)
+        {
+            if (size == timestamps.length)
+            {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+
+            timestamps[size] = timestamp;
+            positions[size] = position;
+            size++;
+        }
+
+        int firstIndexAtOrAfter(final long timestamp)
+        {
+            int low = 0;
+            int high = size;
+            while (low < high)
+            {
+                final int mid = (low + high) >>> 1;
+                if (timestamps[mid] < timestamp)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
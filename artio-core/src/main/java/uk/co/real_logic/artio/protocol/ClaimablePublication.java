@@ -15,7 +15,7 @@
  */
 package uk.co.real_logic.artio.protocol;
 
-import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
 import io.aeron.logbuffer.BufferClaim;
 import org.agrona.DirectBuffer;
 import org.agrona.concurrent.IdleStrategy;
@@ -36,7 +36,7 @@ class ClaimablePublication implements AutoCloseable
     private final AtomicCounter fails;
     protected final MessageHeaderEncoder header = new MessageHeaderEncoder();
     protected final BufferClaim bufferClaim = new BufferClaim();
-    protected final ExclusivePublication dataPublication;
+    protected final Publication dataPublication;
 
     protected final IdleStrategy idleStrategy;
 
@@ -44,7 +44,7 @@ class ClaimablePublication implements AutoCloseable
         final int maxClaimAttempts,
         final IdleStrategy idleStrategy,
         final AtomicCounter fails,
-        final ExclusivePublication dataPublication)
+        final Publication dataPublication)
     {
         this.maxClaimAttempts = maxClaimAttempts;
         this.idleStrategy = idleStrategy;
@@ -96,6 +96,41 @@ class ClaimablePublication implements AutoCloseable
         return dataPublication.offer(buffer, offset, length);
     }
 
+    // Offers with the same retries as claim, offer is used for messages that can't be claimed in one go.
+    protected long offerWithRetries(final DirectBuffer buffer, final int offset, final int length)
+    {
+        long position;
+        long i = 0;
+        do
+        {
+            position = dataPublication.offer(buffer, offset, length);
+
+            if (position > 0L)
+            {
+                return position;
+            }
+            else
+            {
+                idleStrategy.idle();
+            }
+
+            fails.increment();
+            i++;
+        }
+        while (i <= maxClaimAttempts);
+
+        idleStrategy.reset();
+
+        if (position == CLOSED || position == MAX_POSITION_EXCEEDED)
+        {
+            throw new NotConnectedException(position);
+        }
+        else
+        {
+            return position;
+        }
+    }
+
     public void close()
     {
         dataPublication.close();
@@ -16,8 +16,10 @@
 package uk.co.real_logic.artio.protocol;
 
 import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
 import io.aeron.logbuffer.BufferClaim;
 import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.UnsafeBuffer;
@@ -133,8 +135,11 @@ public class GatewayPublication extends ClaimablePublication
     private final int maxPayloadLength;
     private final int maxInitialBodyLength;
 
+    // null when the data publication is exclusive, otherwise fragmented messages are encoded into this buffer.
+    private final ExpandableArrayBuffer fragmentedMessageBuffer;
+
     public GatewayPublication(
-        final ExclusivePublication dataPublication,
+        final Publication dataPublication,
         final AtomicCounter fails,
         final IdleStrategy idleStrategy,
         final Clock clock,
@@ -144,6 +149,8 @@ public class GatewayPublication extends ClaimablePublication
         this.clock = clock;
         this.maxPayloadLength = dataPublication.maxPayloadLength();
         this.maxInitialBodyLength = maxPayloadLength - FRAMED_MESSAGE_SIZE;
+        this.fragmentedMessageBuffer = dataPublication instanceof ExclusivePublication ?
+            null : new ExpandableArrayBuffer(maxPayloadLength * 2);
     }
 
     public long saveMessage(
@@ -254,24 +261,28 @@ public class GatewayPublication extends ClaimablePublication
 
         if (fragmented)
         {
-            // Add a padding message at the end of the term buffer if needed.
-            final int length = framedLength;
-            final int numMaxPayloads = length / maxPayloadLength;
-            final int remainingPayload = length % maxPayloadLength;
-            final int lastFrameLength = remainingPayload > 0 ?
-                align(remainingPayload + HEADER_LENGTH, FRAME_ALIGNMENT) : 0;
-            final int requiredLength = (numMaxPayloads * (maxPayloadLength + HEADER_LENGTH)) + lastFrameLength;
-            final int termLength = dataPublication.termBufferLength();
-            final int termOffset = dataPublication.termOffset();
-            final int resultingOffset = termOffset + requiredLength;
-
-            if (resultingOffset > termLength)
+            if (fragmentedMessageBuffer != null)
             {
-                final long paddingPosition = dataPublication.appendPadding(termLength - termOffset);
-                if (paddingPosition < 0)
-                {
-                    return paddingPosition;
-                }
+                return offerFragmentedMessage(
+                    srcBuffer,
+                    srcOffset,
+                    srcLength,
+                    libraryId,
+                    messageType,
+                    sessionId,
+                    sequenceIndex,
+                    connectionId,
+                    status,
+                    sequenceNumber,
+                    timestamp,
+                    metaDataBuffer,
+                    framedLength);
+            }
+
+            final long paddingPosition = padTermForFragments(framedLength);
+            if (paddingPosition < 0)
+            {
+                return paddingPosition;
             }
         }
 
@@ -284,13 +295,7 @@ public class GatewayPublication extends ClaimablePublication
         int offset = bufferClaim.offset();
         final MutableDirectBuffer destBuffer = bufferClaim.buffer();
 
-        header.wrap(destBuffer, offset)
-            .blockLength(fixMessage.sbeBlockLength())
-            .templateId(fixMessage.sbeTemplateId())
-            .schemaId(fixMessage.sbeSchemaId())
-            .version(fixMessage.sbeSchemaVersion());
-
-        offset += header.encodedLength();
+        offset = putFixMessageHeader(destBuffer, offset);
 
         fixMessage.wrap(destBuffer, offset)
             .libraryId(libraryId)
@@ -339,6 +344,78 @@ public class GatewayPublication extends ClaimablePublication
         return position;
     }
 
+    // Add a padding message at the end of the term buffer if needed, returns a negative position if that fails.
+    private long padTermForFragments(final int framedLength)
+    {
+        final int length = framedLength;
+        final int numMaxPayloads = length / maxPayloadLength;
+        final int remainingPayload = length % maxPayloadLength;
+        final int lastFrameLength = remainingPayload > 0 ?
+            align(remainingPayload + HEADER_LENGTH, FRAME_ALIGNMENT) : 0;
+        final int requiredLength = (numMaxPayloads * (maxPayloadLength + HEADER_LENGTH)) + lastFrameLength;
+        final ExclusivePublication dataPublication = (ExclusivePublication)this.dataPublication;
+        final int termLength = dataPublication.termBufferLength();
+        final int termOffset = dataPublication.termOffset();
+        final int resultingOffset = termOffset + requiredLength;
+
+        if (resultingOffset > termLength)
+        {
+            return dataPublication.appendPadding(termLength - termOffset);
+        }
+
+        return 0;
+    }
+
+    // Claiming each fragment separately on a publication that's shared with other threads could interleave them with
+    // other messages, so the whole message is encoded and then offered, which Aeron fragments atomically.
+    private int putFixMessageHeader(final MutableDirectBuffer buffer, final int offset)
+    {
+        header.wrap(buffer, offset)
+            .blockLength(fixMessage.sbeBlockLength())
+            .templateId(fixMessage.sbeTemplateId())
+            .schemaId(fixMessage.sbeSchemaId())
+            .version(fixMessage.sbeSchemaVersion());
+
+        return offset + header.encodedLength();
+    }
+
+    private long offerFragmentedMessage(
+        final DirectBuffer srcBuffer,
+        final int srcOffset,
+        final int srcLength,
+        final int libraryId,
+        final long messageType,
+        final long sessionId,
+        final int sequenceIndex,
+        final long connectionId,
+        final MessageStatus status,
+        final int sequenceNumber,
+        final long timestamp,
+        final DirectBuffer metaDataBuffer,
+        final int framedLength)
+    {
+        final ExpandableArrayBuffer buffer = fragmentedMessageBuffer;
+        buffer.checkLimit(framedLength);
+
+        fixMessage.wrap(buffer, putFixMessageHeader(buffer, 0))
+            .libraryId(libraryId)
+            .messageType(messageType)
+            .session(sessionId)
+            .sequenceIndex(sequenceIndex)
+            .connection(connectionId)
+            .timestamp(timestamp)
+            .status(status)
+            .sequenceNumber(sequenceNumber)
+            .putMetaData(metaDataBuffer, 0, metaDataBuffer.capacity())
+            .putBody(srcBuffer, srcOffset, srcLength);
+
+        final long position = offerWithRetries(buffer, 0, framedLength);
+
+        DebugLogger.log(FIX_MESSAGE_FLOW, "Enqueued %s%n", srcBuffer, srcOffset, srcLength);
+
+        return position;
+    }
+
     private void putBodyLength(
         final int srcLength, final int offset, final int metaDataLength, final MutableDirectBuffer destBuffer)
     {
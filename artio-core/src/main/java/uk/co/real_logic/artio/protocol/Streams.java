@@ -17,6 +17,7 @@ package uk.co.real_logic.artio.protocol;
 
 import io.aeron.Aeron;
 import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
 import io.aeron.Subscription;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.status.AtomicCounter;
@@ -66,6 +67,33 @@ public final class Streams
         );
     }
 
+    /**
+     * Creates a gateway publication that shares its Aeron publication with every other shared gateway publication
+     * of this stream. Each gateway publication must only be used by one thread, but the threads can publish
+     * concurrently onto one Aeron session, so consumers see their messages in the order that they were published.
+     *
+     * @param idleStrategy the idle strategy used when the publication is back-pressured.
+     * @param name the name of the publication, used when printing stream identifiers.
+     * @return the new gateway publication.
+     */
+    public GatewayPublication sharedGatewayPublication(final IdleStrategy idleStrategy, final String name)
+    {
+        final Publication publication = aeron.addPublication(aeronChannel, streamId);
+        if (recordingCoordinator != null)
+        {
+            recordingCoordinator.track(publication);
+        }
+        StreamInformation.print(name, publication, printAeronStreamIdentifiers);
+
+        return new GatewayPublication(
+            publication,
+            failedPublications,
+            idleStrategy,
+            clock,
+            maxClaimAttempts
+        );
+    }
+
     private ExclusivePublication dataPublication(final String name)
     {
         final ExclusivePublication publication = aeron.addExclusivePublication(aeronChannel, streamId);
@@ -31,6 +31,7 @@ public final class TestFixtures
 {
     private static final int LOW_PORT = 9999;
     private static final int HIGH_PORT = 99999;
+    private static final String ARCHIVE_DIR_NAME = "artio-test-archive";
 
     public static final int MESSAGE_BUFFER_SIZE_IN_BYTES = 15000;
     public static final int TERM_BUFFER_LENGTH = 4 * 1024 * 1024;
@@ -70,6 +71,7 @@ public final class TestFixtures
     public static ArchivingMediaDriver launchMediaDriver(final MediaDriver.Context context)
     {
         final Archive.Context archiveCtx = new Archive.Context()
+            .archiveDir(new File(IoUtil.tmpDirName(), ARCHIVE_DIR_NAME))
             .deleteArchiveOnStart(context.dirDeleteOnStart());
 
         final ArchivingMediaDriver mediaDriver = ArchivingMediaDriver.launch(context, archiveCtx);
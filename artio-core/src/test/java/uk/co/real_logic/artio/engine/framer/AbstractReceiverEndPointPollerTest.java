@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.CloseHelper;
+import org.agrona.LangUtil;
+import org.junit.After;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static java.nio.channels.SelectionKey.OP_READ;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Receiver end points in these tests are mocks that are registered with the poller's selector through a pipe, so
+ * that the selector reports them as readable once a byte is written to them.
+ */
+public abstract class AbstractReceiverEndPointPollerTest
+{
+    // TransportPoller.ITERATION_THRESHOLD, which is only visible to subclasses.
+    static final int ITERATION_THRESHOLD = 5;
+
+    private static final int BYTES_READ = 1;
+
+    private final Map<ReceiverEndPoint, Pipe> pipes = new IdentityHashMap<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(64);
+
+    @After
+    public void closePipes()
+    {
+        for (final Pipe pipe : pipes.values())
+        {
+            CloseHelper.close(pipe.source());
+            CloseHelper.close(pipe.sink());
+        }
+    }
+
+    ReceiverEndPoint endPoint(final long connectionId)
+    {
+        try
+        {
+            final Pipe pipe = Pipe.open();
+            pipe.source().configureBlocking(false);
+
+            final ReceiverEndPoint endPoint = mock(ReceiverEndPoint.class);
+            pipes.put(endPoint, pipe);
+            final SelectionKey[] selectionKey = new SelectionKey[1];
+            when(endPoint.connectionId()).thenReturn(connectionId);
+            doAnswer((inv) ->
+            {
+                selectionKey[0] = pipe.source().register(inv.getArgument(0), OP_READ, endPoint);
+                return null;
+            }).when(endPoint).register(any(Selector.class));
+            doAnswer((inv) ->
+            {
+                selectionKey[0].cancel();
+                return null;
+            }).when(endPoint).deregister();
+            when(endPoint.poll()).then((inv) -> read(pipe));
+
+            return endPoint;
+        }
+        catch (final IOException e)
+        {
+            LangUtil.rethrowUnchecked(e);
+            return null;
+        }
+    }
+
+    void makeReadable(final ReceiverEndPoint endPoint)
+    {
+        final Pipe pipe = pipes.get(endPoint);
+        try
+        {
+            pipe.sink().write(ByteBuffer.wrap(new byte[BYTES_READ]));
+        }
+        catch (final IOException e)
+        {
+            LangUtil.rethrowUnchecked(e);
+        }
+    }
+
+    // Removes endPoint in the way that a disconnect would, whilst polledEndPoint is being polled.
+    void removeWhenPolled(
+        final ReceiverEndPointPoller poller, final ReceiverEndPoint polledEndPoint, final ReceiverEndPoint endPoint)
+    {
+        when(polledEndPoint.poll()).then((inv) ->
+        {
+            final int bytesRead = read(pipes.get(polledEndPoint));
+            poller.remove(endPoint.connectionId());
+            endPoint.deregister();
+            return bytesRead;
+        });
+    }
+
+    static long pollCount(final ReceiverEndPoint endPoint)
+    {
+        return mockingDetails(endPoint)
+            .getInvocations()
+            .stream()
+            .filter((invocation) -> invocation.getMethod().getName().equals("poll"))
+            .count();
+    }
+
+    private int read(final Pipe pipe) throws IOException
+    {
+        readBuffer.clear();
+        return Math.max(pipe.source().read(readBuffer), 0);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AdaptiveReceiverEndPointPollerTest extends AbstractReceiverEndPointPollerTest
+{
+    private final AdaptiveReceiverEndPointPoller poller = new AdaptiveReceiverEndPointPoller();
+    private final ReceiverEndPoint[] endPoints = new ReceiverEndPoint[ITERATION_THRESHOLD + 1];
+
+    @After
+    public void close()
+    {
+        poller.close();
+    }
+
+    @Test
+    public void shouldPollEveryEndPointUpToTheIterationThreshold() throws IOException
+    {
+        addEndPoints(ITERATION_THRESHOLD);
+        makeReadable(endPoints[0]);
+
+        assertEquals(1, poller.poll(0));
+
+        for (int i = 0; i < ITERATION_THRESHOLD; i++)
+        {
+            verify(endPoints[i]).poll();
+        }
+    }
+
+    @Test
+    public void shouldOnlyPollReadableEndPointsAboveTheIterationThreshold() throws IOException
+    {
+        addEndPoints(ITERATION_THRESHOLD + 1);
+        makeReadable(endPoints[1]);
+
+        assertEquals(1, poller.poll(0));
+
+        verify(endPoints[1]).poll();
+        assertEquals(1, totalPollCount());
+    }
+
+    @Test
+    public void shouldUseTheSelectorSoonerWhenOtherEndPointsRequirePolling() throws IOException
+    {
+        addEndPoints(2);
+        makeReadable(endPoints[1]);
+
+        assertEquals(1, poller.poll(ITERATION_THRESHOLD - 1));
+
+        verify(endPoints[1]).poll();
+        verify(endPoints[0], never()).poll();
+    }
+
+    @Test
+    public void shouldGoBackToPollingEveryEndPointOnceEnoughAreRemoved() throws IOException
+    {
+        addEndPoints(ITERATION_THRESHOLD + 1);
+        poller.poll(0);
+        assertEquals(0, totalPollCount());
+
+        assertSame(endPoints[ITERATION_THRESHOLD], poller.remove(ITERATION_THRESHOLD));
+        poller.poll(0);
+
+        assertEquals(ITERATION_THRESHOLD, totalPollCount());
+        verify(endPoints[ITERATION_THRESHOLD], never()).poll();
+    }
+
+    @Test
+    public void shouldNotPollEndPointThatRemovedItselfWhilstPollingEveryEndPoint() throws IOException
+    {
+        addEndPoints(2);
+        removeWhenPolled(poller, endPoints[0], endPoints[0]);
+
+        poller.poll(0);
+        poller.poll(0);
+
+        verify(endPoints[0], times(1)).poll();
+        verify(endPoints[1], times(2)).poll();
+        assertEquals(1, poller.size());
+    }
+
+    @Test
+    public void shouldNotPollEndPointThatRemovedItselfWhilstUsingTheSelector() throws IOException
+    {
+        addEndPoints(ITERATION_THRESHOLD + 1);
+        removeWhenPolled(poller, endPoints[0], endPoints[0]);
+        makeReadable(endPoints[0]);
+
+        assertEquals(1, poller.poll(0));
+
+        makeReadable(endPoints[0]);
+        poller.poll(0);
+
+        verify(endPoints[0], times(1)).poll();
+        assertEquals(ITERATION_THRESHOLD, poller.size());
+    }
+
+    @Test
+    public void shouldReturnNullWhenRemovingUnknownEndPoint()
+    {
+        addEndPoints(1);
+
+        assertNull(poller.remove(ITERATION_THRESHOLD));
+        assertEquals(1, poller.size());
+    }
+
+    private void addEndPoints(final int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            endPoints[i] = endPoint(i);
+            poller.add(endPoints[i]);
+        }
+    }
+
+    private long totalPollCount()
+    {
+        long pollCount = 0;
+        for (final ReceiverEndPoint endPoint : endPoints)
+        {
+            if (endPoint != null)
+            {
+                pollCount += pollCount(endPoint);
+            }
+        }
+        return pollCount;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.Test;
+import uk.co.real_logic.artio.FixCounters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.engine.framer.DutyCycleBudget.MAX_DEFERRED_DUTY_CYCLES;
+
+public class DutyCycleBudgetTest
+{
+    private static final int OUTBOUND_LIMIT = 10;
+    private static final int INBOUND_LIMIT = 1000;
+    private static final int REPLAY_LIMIT = 8;
+
+    private final AtomicCounter stageTime = mock(AtomicCounter.class);
+    private final AtomicCounter inboundStageTime = mock(AtomicCounter.class);
+    private final FixCounters fixCounters = mock(FixCounters.class);
+    private final DutyCycleBudget budget;
+
+    private long time = 0;
+
+    public DutyCycleBudgetTest()
+    {
+        when(fixCounters.framerStageTime(anyString())).thenReturn(stageTime);
+        when(fixCounters.framerStageTime("inbound")).thenReturn(inboundStageTime);
+        budget = new DutyCycleBudget(OUTBOUND_LIMIT, INBOUND_LIMIT, REPLAY_LIMIT, () -> time, fixCounters);
+    }
+
+    @Test
+    public void shouldNotRestrictDutyCycleWithoutPressure()
+    {
+        dutyCycle(OUTBOUND_LIMIT - 1, INBOUND_LIMIT - 1);
+
+        assertEquals(REPLAY_LIMIT, budget.replayFragmentLimit());
+        assertTrue(budget.shouldDoDeferrableWork());
+    }
+
+    @Test
+    public void shouldHalveReplayLimitWhenOutboundUnderPressure()
+    {
+        dutyCycle(OUTBOUND_LIMIT, 0);
+
+        assertEquals(REPLAY_LIMIT / 2, budget.replayFragmentLimit());
+        assertFalse(budget.shouldDoDeferrableWork());
+    }
+
+    @Test
+    public void shouldHalveReplayLimitWhenInboundUnderPressure()
+    {
+        dutyCycle(0, INBOUND_LIMIT);
+
+        assertEquals(REPLAY_LIMIT / 2, budget.replayFragmentLimit());
+        assertFalse(budget.shouldDoDeferrableWork());
+    }
+
+    @Test
+    public void shouldAlwaysAllowOneReplayFragment()
+    {
+        for (int i = 0; i < 10; i++)
+        {
+            dutyCycle(OUTBOUND_LIMIT, 0);
+        }
+
+        assertEquals(1, budget.replayFragmentLimit());
+    }
+
+    @Test
+    public void shouldRestoreReplayLimitOncePressureIsOff()
+    {
+        dutyCycle(OUTBOUND_LIMIT, 0);
+        dutyCycle(OUTBOUND_LIMIT, 0);
+        assertEquals(REPLAY_LIMIT / 4, budget.replayFragmentLimit());
+
+        dutyCycle(0, 0);
+        assertEquals(REPLAY_LIMIT / 2, budget.replayFragmentLimit());
+
+        dutyCycle(0, 0);
+        dutyCycle(0, 0);
+        assertEquals(REPLAY_LIMIT, budget.replayFragmentLimit());
+    }
+
+    @Test
+    public void shouldNotDeferWorkIndefinitely()
+    {
+        for (int i = 0; i < MAX_DEFERRED_DUTY_CYCLES; i++)
+        {
+            dutyCycle(OUTBOUND_LIMIT, 0);
+            assertFalse(budget.shouldDoDeferrableWork());
+        }
+
+        dutyCycle(OUTBOUND_LIMIT, 0);
+        assertTrue(budget.shouldDoDeferrableWork());
+
+        dutyCycle(OUTBOUND_LIMIT, 0);
+        assertFalse(budget.shouldDoDeferrableWork());
+    }
+
+    @Test
+    public void shouldRecordStageTimes()
+    {
+        dutyCycle(0, 0);
+
+        verify(stageTime, times(2)).getAndAddOrdered(anyLong());
+        verify(inboundStageTime).getAndAddOrdered(anyLong());
+    }
+
+    @Test
+    public void shouldMeasureStageTimesWithTheEngineClock()
+    {
+        time = 100;
+        final long outboundStart = time;
+
+        time = 130;
+        final long inboundStart = budget.onOutboundStage(outboundStart, 0);
+        assertEquals(130, inboundStart);
+
+        time = 180;
+        assertEquals(180, budget.onInboundStage(inboundStart, 0));
+
+        verify(stageTime).getAndAddOrdered(30);
+        verify(inboundStageTime).getAndAddOrdered(50);
+    }
+
+    private void dutyCycle(final int outboundFragmentsRead, final int bytesReceived)
+    {
+        long stageStart = time;
+        stageStart = budget.onOutboundStage(stageStart, outboundFragmentsRead);
+        stageStart = budget.onInboundStage(stageStart, bytesReceived);
+        budget.onReplayStage(stageStart);
+    }
+}
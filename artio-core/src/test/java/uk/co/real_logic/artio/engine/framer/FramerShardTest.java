@@ -0,0 +1,177 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.dictionary.FixDictionary;
+import uk.co.real_logic.artio.protocol.GatewayPublication;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class FramerShardTest
+{
+    private static final long CONNECTION_ID = 1;
+    private static final long SESSION_ID = 2;
+
+    private final ReceiverEndPointPoller poller = mock(ReceiverEndPointPoller.class);
+    private final GatewayPublication publication = mock(GatewayPublication.class);
+    private final GatewaySessions gatewaySessions = mock(GatewaySessions.class);
+    private final ReceiverEndPoint endPoint = mock(ReceiverEndPoint.class);
+    private final FramerShard shard = new FramerShard(0, poller, publication, gatewaySessions, "");
+
+    @Before
+    public void setUp()
+    {
+        when(endPoint.connectionId()).thenReturn(CONNECTION_ID);
+        when(poller.retryBackpressuredEndPoints()).thenReturn(true);
+    }
+
+    @Test
+    public void shouldPollEndPointsThatAreHandedOverToIt() throws Exception
+    {
+        shard.add(endPoint);
+
+        verify(poller, never()).add(endPoint);
+
+        shard.doWork();
+
+        verify(poller).add(endPoint);
+        verify(poller).poll(0);
+    }
+
+    @Test
+    public void shouldHaveEndPointsPublishDirectlyOnTheShardsPublication()
+    {
+        shard.add(endPoint);
+
+        verify(endPoint).onShard(shard, publication);
+    }
+
+    @Test
+    public void shouldRecallEndPoint() throws Exception
+    {
+        shard.add(endPoint);
+        shard.doWork();
+
+        assertEquals(FramerShard.RECALLED, shard.tryRecall(endPoint));
+
+        verify(poller).remove(CONNECTION_ID);
+        verify(endPoint).deregister();
+    }
+
+    @Test
+    public void shouldRecallEndPointThatHasNotBeenPolledYet()
+    {
+        shard.add(endPoint);
+
+        assertEquals(FramerShard.RECALLED, shard.tryRecall(endPoint));
+
+        verify(poller).add(endPoint);
+        verify(poller).remove(CONNECTION_ID);
+        verify(endPoint).deregister();
+    }
+
+    @Test
+    public void shouldNotRecallEndPointInTheMiddleOfItsDutyCycle() throws Exception
+    {
+        shard.add(endPoint);
+        final int[] recalled = new int[1];
+        when(poller.poll(0)).then((inv) ->
+        {
+            recalled[0] = shard.tryRecall(endPoint);
+            return 0;
+        });
+
+        shard.doWork();
+
+        assertEquals(FramerShard.BUSY, recalled[0]);
+        verify(poller, never()).remove(CONNECTION_ID);
+        verify(endPoint, never()).deregister();
+
+        assertEquals(FramerShard.RECALLED, shard.tryRecall(endPoint));
+    }
+
+    @Test
+    public void shouldRecallBackpressuredEndPointOnceItsMessagesArePublished() throws Exception
+    {
+        shard.add(endPoint);
+        shard.doWork();
+        when(poller.isBackpressured(endPoint)).thenReturn(true);
+
+        assertEquals(FramerShard.RECALLED, shard.tryRecall(endPoint));
+
+        verify(poller, never()).removeBackpressured(endPoint);
+        verify(endPoint).deregister();
+    }
+
+    @Test
+    public void shouldRecallBackpressuredEndPointWithoutWaitingForItsMessagesToBePublished() throws Exception
+    {
+        shard.add(endPoint);
+        shard.doWork();
+        when(poller.isBackpressured(endPoint)).thenReturn(true);
+        when(poller.retryBackpressuredEndPoints()).thenReturn(false);
+        when(poller.removeBackpressured(endPoint)).thenReturn(true);
+
+        assertEquals(FramerShard.RECALLED_BACKPRESSURED, shard.tryRecall(endPoint));
+
+        verify(poller).removeBackpressured(endPoint);
+        verify(poller).remove(CONNECTION_ID);
+        verify(endPoint).deregister();
+    }
+
+    @Test
+    public void shouldReleaseDisconnectedEndPointOnceItIsNoLongerBackpressured() throws Exception
+    {
+        shard.add(endPoint);
+        shard.doWork();
+        when(poller.isBackpressured(endPoint)).thenReturn(true);
+
+        shard.release(endPoint);
+        shard.doWork();
+
+        verify(poller).remove(CONNECTION_ID);
+        assertNull(shard.pollReleased());
+
+        when(poller.isBackpressured(endPoint)).thenReturn(false);
+        shard.doWork();
+
+        verify(endPoint).deregister();
+        assertSame(endPoint, shard.pollReleased());
+        assertNull(shard.pollReleased());
+    }
+
+    @Test
+    public void shouldRunUserRequestsOnTheFramerThread()
+    {
+        final FixDictionary dictionary = mock(FixDictionary.class);
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[8]);
+
+        shard.onUserRequest(buffer, 0, 8, dictionary, CONNECTION_ID, SESSION_ID);
+
+        verifyNoInteractions(gatewaySessions);
+
+        assertEquals(1, shard.runFramerTasks());
+
+        verify(gatewaySessions).onUserRequest(
+            any(), eq(0), eq(8), eq(dictionary), eq(CONNECTION_ID), eq(SESSION_ID));
+    }
+}
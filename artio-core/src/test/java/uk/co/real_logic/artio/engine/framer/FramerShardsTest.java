@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.concurrent.IdleStrategy;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.protocol.GatewayPublication;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class FramerShardsTest
+{
+    private static final long CONNECTION_ID = 3;
+
+    private final FramerShard firstShard = mock(FramerShard.class);
+    private final FramerShard secondShard = mock(FramerShard.class);
+    private final GatewayPublication inboundPublication = mock(GatewayPublication.class);
+    private final IdleStrategy idleStrategy = mock(IdleStrategy.class);
+    private final ReceiverEndPoint endPoint = mock(ReceiverEndPoint.class);
+    private final FramerShards shards = new FramerShards(
+        new FramerShard[]{ firstShard, secondShard }, inboundPublication, idleStrategy);
+
+    @Before
+    public void setUp()
+    {
+        when(endPoint.connectionId()).thenReturn(CONNECTION_ID);
+        when(endPoint.shard()).thenReturn(secondShard);
+    }
+
+    @Test
+    public void shouldHandEndPointsToShardsByConnectionId()
+    {
+        shards.add(endPoint);
+
+        verify(secondShard).add(endPoint);
+        verifyNoInteractions(firstShard);
+    }
+
+    @Test
+    public void shouldTakeRecalledEndPointBack()
+    {
+        when(secondShard.tryRecall(endPoint)).thenReturn(FramerShard.RECALLED);
+
+        assertFalse(shards.recall(endPoint));
+
+        verify(endPoint).offShard(inboundPublication);
+        verify(idleStrategy, never()).idle();
+    }
+
+    @Test
+    public void shouldRetryRecallWhilstTheShardIsBusy()
+    {
+        when(secondShard.tryRecall(endPoint)).thenReturn(FramerShard.BUSY, FramerShard.BUSY, FramerShard.RECALLED);
+
+        shards.recall(endPoint);
+
+        verify(secondShard, times(3)).tryRecall(endPoint);
+        verify(idleStrategy, times(2)).idle();
+        verify(endPoint).offShard(inboundPublication);
+    }
+
+    @Test
+    public void shouldTakeBackBackpressuredEndPointWithoutWaiting()
+    {
+        when(secondShard.tryRecall(endPoint)).thenReturn(FramerShard.RECALLED_BACKPRESSURED);
+
+        assertTrue(shards.recall(endPoint));
+
+        verify(secondShard).tryRecall(endPoint);
+        verify(idleStrategy, never()).idle();
+        verify(endPoint).offShard(inboundPublication);
+    }
+
+    @Test
+    public void shouldCompleteDisconnectOfRecalledEndPoint()
+    {
+        when(secondShard.tryRecall(endPoint)).thenReturn(FramerShard.RECALLED);
+        when(endPoint.disconnectedOnShard()).thenReturn(true);
+
+        shards.recall(endPoint);
+
+        verify(endPoint, never()).onShardDisconnect();
+
+        assertEquals(1, shards.completeDisconnects());
+        verify(endPoint).onShardDisconnect();
+    }
+
+    @Test
+    public void shouldCompleteDisconnectOfReleasedEndPoint()
+    {
+        when(secondShard.pollReleased()).thenReturn(endPoint, (ReceiverEndPoint)null);
+        when(endPoint.disconnectedOnShard()).thenReturn(true);
+
+        shards.doWork();
+
+        verify(endPoint).offShard(inboundPublication);
+        verify(endPoint).onShardDisconnect();
+    }
+
+    @Test
+    public void shouldNotCompleteDisconnectOfEndPointThatTheFramerHasAlreadyClosed()
+    {
+        when(secondShard.pollReleased()).thenReturn(endPoint, (ReceiverEndPoint)null);
+        when(endPoint.disconnectedOnShard()).thenReturn(true);
+        when(endPoint.hasDisconnected()).thenReturn(true);
+
+        shards.doWork();
+
+        verify(endPoint).offShard(inboundPublication);
+        verify(endPoint, never()).onShardDisconnect();
+    }
+
+    @Test
+    public void shouldNotTakeBackReleasedEndPointThatHasAlreadyBeenRecalled()
+    {
+        when(secondShard.tryRecall(endPoint)).thenReturn(FramerShard.RECALLED);
+        when(endPoint.disconnectedOnShard()).thenReturn(true);
+        shards.recall(endPoint);
+        shards.completeDisconnects();
+
+        when(endPoint.shard()).thenReturn(null);
+        when(secondShard.pollReleased()).thenReturn(endPoint, (ReceiverEndPoint)null);
+
+        shards.doWork();
+
+        verify(endPoint).offShard(inboundPublication);
+        verify(endPoint).onShardDisconnect();
+    }
+
+    @Test
+    public void shouldRunShardsFramerTasks()
+    {
+        when(firstShard.runFramerTasks()).thenReturn(2);
+
+        assertEquals(2, shards.doWork());
+    }
+}
@@ -21,6 +21,7 @@ import io.aeron.logbuffer.ControlledFragmentHandler.Action;
 import io.aeron.logbuffer.Header;
 import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
+import org.agrona.IoUtil;
 import org.agrona.LangUtil;
 import org.agrona.concurrent.AgentInvoker;
 import org.agrona.concurrent.QueuedPipe;
@@ -133,6 +134,7 @@ public class FramerTest
         .bindTo(FRAMER_ADDRESS.getHostName(), FRAMER_ADDRESS.getPort())
         .replyTimeoutInMs(REPLY_TIMEOUT_IN_MS)
         .libraryAeronChannel(IPC_CHANNEL)
+        .logFileDir(IoUtil.tmpDirName() + "framer-test")
         .conclude();
 
     private Framer framer;
@@ -198,7 +200,9 @@ public class FramerTest
             mock(CompletionPosition.class),
             finalImagePositions,
             mock(AgentInvoker.class),
-            mock(RecordingCoordinator.class));
+            mock(RecordingCoordinator.class),
+            null,
+            null);
 
         when(sessionContexts.onLogon(any(), any(fixDictionary.getClass()))).thenReturn(new SessionContext(SESSION_ID,
             SessionContext.UNKNOWN_SEQUENCE_INDEX,
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import uk.co.real_logic.artio.messages.DisconnectDecoder;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class OutboundSenderTest
+{
+    private static final int LENGTH = 64;
+
+    private final ReentrantLock outboundLock = new ReentrantLock();
+    private final Framer framer = mock(Framer.class);
+    private final ControlledFragmentHandler libraryHandler = mock(ControlledFragmentHandler.class);
+    private final FakeEpochClock clock = new FakeEpochClock();
+    private final UnsafeBuffer fixMessage = message(FixMessageDecoder.TEMPLATE_ID);
+    private final UnsafeBuffer controlMessage = message(DisconnectDecoder.TEMPLATE_ID);
+
+    private final OutboundSender outboundSender = new OutboundSender(outboundLock, framer, clock, "");
+    private final ControlledFragmentHandler libraryFragmentHandler =
+        outboundSender.libraryFragmentHandler(libraryHandler);
+
+    private ControlledFragmentHandler.Action action;
+
+    @Before
+    public void setUp()
+    {
+        clock.advanceMilliSeconds(100);
+        when(libraryHandler.onFragment(any(), anyInt(), anyInt(), any())).thenReturn(CONTINUE);
+    }
+
+    @Test
+    public void shouldSendOutboundMessagesWhilstHoldingTheOutboundLock()
+    {
+        when(framer.sendOutbound(anyLong(), anyBoolean())).then((inv) ->
+        {
+            assertTrue(outboundLock.isHeldByCurrentThread());
+            assertTrue(outboundSender.isOnOutboundSenderDutyCycle());
+            return 1;
+        });
+
+        assertEquals(1, outboundSender.doWork());
+
+        verify(framer).sendOutbound(100, true);
+        assertFalse(outboundLock.isHeldByCurrentThread());
+        assertFalse(outboundSender.isOnOutboundSenderDutyCycle());
+    }
+
+    @Test
+    public void shouldSendFixMessagesOnTheSenderDutyCycle()
+    {
+        pollOnSender(fixMessage);
+
+        assertEquals(CONTINUE, action);
+        verify(libraryHandler).onFragment(fixMessage, 0, LENGTH, null);
+        assertEquals(0, outboundSender.doFramerWork());
+    }
+
+    @Test
+    public void shouldHandLibraryControlMessagesToTheFramer()
+    {
+        pollOnSender(controlMessage);
+
+        assertEquals(ABORT, action);
+        verifyNoInteractions(libraryHandler);
+
+        outboundSender.doWork();
+        verify(framer).sendOutbound(100, false);
+
+        when(framer.pollLibraryControlMessages()).then((inv) ->
+        {
+            assertTrue(outboundLock.isHeldByCurrentThread());
+            assertFalse(outboundSender.isOnOutboundSenderDutyCycle());
+            assertEquals(CONTINUE, libraryFragmentHandler.onFragment(controlMessage, 0, LENGTH, null));
+            return 1;
+        });
+
+        assertEquals(1, outboundSender.doFramerWork());
+        verify(libraryHandler).onFragment(controlMessage, 0, LENGTH, null);
+
+        outboundSender.doWork();
+        verify(framer, times(2)).sendOutbound(100, true);
+    }
+
+    @Test
+    public void shouldOnlyHandLibraryControlMessagesOverOnce()
+    {
+        pollOnSender(controlMessage);
+        when(framer.pollLibraryControlMessages()).thenReturn(1);
+
+        assertEquals(1, outboundSender.doFramerWork());
+        assertEquals(0, outboundSender.doFramerWork());
+
+        verify(framer, times(1)).pollLibraryControlMessages();
+    }
+
+    @Test
+    public void shouldDeferSlowConsumerEventsToTheFramer()
+    {
+        final Runnable slowStatus = mock(Runnable.class);
+        when(framer.sendOutbound(anyLong(), anyBoolean())).then((inv) ->
+        {
+            outboundSender.runOnFramer(slowStatus);
+            return 1;
+        });
+
+        outboundSender.doWork();
+        verifyNoInteractions(slowStatus);
+
+        assertEquals(1, outboundSender.doFramerWork());
+        verify(slowStatus).run();
+        assertEquals(0, outboundSender.doFramerWork());
+    }
+
+    @Test
+    public void shouldRunDeferredEventsBeforeLibraryControlMessages()
+    {
+        final Runnable disconnect = mock(Runnable.class);
+        doAnswer((inv) ->
+        {
+            assertTrue(outboundLock.isHeldByCurrentThread());
+            return null;
+        }).when(disconnect).run();
+        when(framer.sendOutbound(anyLong(), anyBoolean())).then((inv) ->
+        {
+            outboundSender.runOnFramer(disconnect);
+            assertEquals(ABORT, libraryFragmentHandler.onFragment(controlMessage, 0, LENGTH, null));
+            return 1;
+        });
+        when(framer.pollLibraryControlMessages()).thenReturn(1);
+
+        outboundSender.doWork();
+
+        assertEquals(2, outboundSender.doFramerWork());
+
+        final InOrder inOrder = inOrder(disconnect, framer);
+        inOrder.verify(disconnect).run();
+        inOrder.verify(framer).pollLibraryControlMessages();
+    }
+
+    @Test(timeout = 10_000L)
+    public void shouldNotTakeTheOutboundLockOnTheFramerWithoutWork()
+    {
+        final Thread sender = new Thread(outboundLock::lock);
+        sender.start();
+        join(sender);
+
+        assertEquals(0, outboundSender.doFramerWork());
+        verify(framer, never()).pollLibraryControlMessages();
+    }
+
+    private void pollOnSender(final UnsafeBuffer message)
+    {
+        when(framer.sendOutbound(anyLong(), eq(true))).then((inv) ->
+        {
+            action = libraryFragmentHandler.onFragment(message, 0, LENGTH, null);
+            return 1;
+        });
+
+        outboundSender.doWork();
+    }
+
+    private static void join(final Thread thread)
+    {
+        try
+        {
+            thread.join();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static UnsafeBuffer message(final int templateId)
+    {
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[LENGTH]);
+        new MessageHeaderEncoder().wrap(buffer, 0).templateId(templateId);
+        return buffer;
+    }
+}
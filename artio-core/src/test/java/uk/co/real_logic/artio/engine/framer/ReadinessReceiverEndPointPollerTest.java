@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ReadinessReceiverEndPointPollerTest extends AbstractReceiverEndPointPollerTest
+{
+    private static final int READY_END_POINT_LIMIT = 2;
+
+    private final ReadinessReceiverEndPointPoller poller = new ReadinessReceiverEndPointPoller(READY_END_POINT_LIMIT);
+    private final ReceiverEndPoint firstEndPoint = endPoint(1);
+    private final ReceiverEndPoint secondEndPoint = endPoint(2);
+    private final ReceiverEndPoint thirdEndPoint = endPoint(3);
+
+    @After
+    public void close()
+    {
+        poller.close();
+    }
+
+    @Test
+    public void shouldOnlyPollEndPointsThatAreReadable() throws IOException
+    {
+        addAll();
+        makeReadable(secondEndPoint);
+
+        assertEquals(1, poller.poll(0));
+
+        verify(secondEndPoint).poll();
+        verify(firstEndPoint, never()).poll();
+        verify(thirdEndPoint, never()).poll();
+    }
+
+    @Test
+    public void shouldNotPollWithoutEndPoints() throws IOException
+    {
+        assertEquals(0, poller.poll(0));
+        assertEquals(0, poller.size());
+    }
+
+    @Test
+    public void shouldPollReadyEndPointsUpToTheLimitOverSeveralDutyCycles() throws IOException
+    {
+        addAll();
+        makeReadable(firstEndPoint);
+        makeReadable(secondEndPoint);
+        makeReadable(thirdEndPoint);
+
+        assertEquals(READY_END_POINT_LIMIT, poller.poll(0));
+        assertEquals(1, poller.poll(0));
+
+        verify(firstEndPoint).poll();
+        verify(secondEndPoint).poll();
+        verify(thirdEndPoint).poll();
+
+        assertEquals(0, poller.poll(0));
+    }
+
+    @Test
+    public void shouldRetryBackpressuredEndPointBeforePollingOthers() throws IOException
+    {
+        addAll();
+        when(firstEndPoint.poll()).thenReturn(-1, 0);
+        when(firstEndPoint.retryFrameMessages()).thenReturn(false, true);
+        makeReadable(firstEndPoint);
+
+        assertEquals(1, poller.poll(0));
+        assertTrue(poller.isBackpressured(firstEndPoint));
+
+        makeReadable(secondEndPoint);
+        assertEquals(0, poller.poll(0));
+        verify(firstEndPoint, times(1)).poll();
+        verify(secondEndPoint, never()).poll();
+
+        // The back-pressured end point is still at the front of the selected keys once its retry succeeds.
+        assertEquals(0, poller.poll(0));
+        assertFalse(poller.isBackpressured(firstEndPoint));
+        verify(firstEndPoint, times(2)).poll();
+
+        assertEquals(1, poller.poll(0));
+        verify(secondEndPoint).poll();
+    }
+
+    @Test
+    public void shouldRetryEndPointsBackpressuredElsewhereBeforePollingOthers() throws IOException
+    {
+        addAll();
+        poller.addBackpressured(firstEndPoint);
+        poller.addBackpressured(secondEndPoint);
+        when(firstEndPoint.retryFrameMessages()).thenReturn(false, true);
+        when(secondEndPoint.retryFrameMessages()).thenReturn(true);
+        makeReadable(thirdEndPoint);
+
+        assertEquals(0, poller.poll(0));
+        verify(secondEndPoint, never()).retryFrameMessages();
+        verify(thirdEndPoint, never()).poll();
+
+        assertEquals(1, poller.poll(0));
+        assertFalse(poller.isBackpressured(firstEndPoint));
+        assertFalse(poller.isBackpressured(secondEndPoint));
+        verify(secondEndPoint).retryFrameMessages();
+        verify(thirdEndPoint).poll();
+    }
+
+    @Test
+    public void shouldNotPollEndPointRemovedByAnotherDuringThePoll() throws IOException
+    {
+        addAll();
+        removeWhenPolled(poller, firstEndPoint, secondEndPoint);
+        removeWhenPolled(poller, secondEndPoint, firstEndPoint);
+        makeReadable(firstEndPoint);
+        makeReadable(secondEndPoint);
+
+        poller.poll(0);
+        poller.poll(0);
+
+        assertEquals(1, pollCount(firstEndPoint) + pollCount(secondEndPoint));
+        assertEquals(2, poller.size());
+    }
+
+    @Test
+    public void shouldNotPollEndPointThatRemovedItselfDuringThePoll() throws IOException
+    {
+        addAll();
+        removeWhenPolled(poller, firstEndPoint, firstEndPoint);
+        makeReadable(firstEndPoint);
+
+        assertEquals(1, poller.poll(0));
+        assertNull(poller.remove(firstEndPoint.connectionId()));
+
+        makeReadable(firstEndPoint);
+        makeReadable(thirdEndPoint);
+        poller.poll(0);
+
+        verify(firstEndPoint, times(1)).poll();
+        verify(thirdEndPoint).poll();
+    }
+
+    private void addAll()
+    {
+        poller.add(firstEndPoint);
+        poller.add(secondEndPoint);
+        poller.add(thirdEndPoint);
+    }
+}
@@ -35,10 +35,12 @@ import uk.co.real_logic.artio.protocol.GatewayPublication;
 import uk.co.real_logic.artio.session.CompositeKey;
 import uk.co.real_logic.artio.session.InternalSession;
 import uk.co.real_logic.artio.session.SessionIdStrategy;
+import uk.co.real_logic.artio.util.ChecksumCalculator;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.function.ToIntFunction;
 
@@ -142,14 +144,20 @@ public class ReceiverEndPointTest
     }
 
     private void givenReceiverEndPoint(final long sessionId)
+    {
+        givenReceiverEndPoint(sessionId, BUFFER_SIZE);
+    }
+
+    private void givenReceiverEndPoint(final long sessionId, final int bufferSize)
     {
         endPoint = new ReceiverEndPoint(
-            mockChannel, BUFFER_SIZE, publication,
+            mockChannel, bufferSize, publication,
             CONNECTION_ID, sessionId, SEQUENCE_INDEX, mockSessionContexts,
             messagesRead, framer, errorHandler, LIBRARY_ID,
             mockGatewaySessions,
             mockClock,
-            new AcceptorFixDictionaryLookup(FixDictionary.of(FixDictionary.findDefault()), new HashMap<>()));
+            new AcceptorFixDictionaryLookup(FixDictionary.of(FixDictionary.findDefault()), new HashMap<>()),
+            ChecksumCalculator.wordAtATime());
         endPoint.gatewaySession(gatewaySession);
     }
 
@@ -269,6 +277,49 @@ public class ReceiverEndPointTest
         sessionReceivesOneMessage();
     }
 
+    @Test
+    public void shouldFrameFixMessageSplitIntoSingleBytes()
+    {
+        theEndpointReceivesEachByteOf(EG_MESSAGE, MSG_LEN);
+
+        savesAFramedMessage();
+
+        sessionReceivesOneMessage();
+    }
+
+    @Test
+    public void shouldFrameSecondFixMessageSplitIntoSingleBytes()
+    {
+        theEndpointReceivesACompleteAndAnIncompleteMessage();
+        endPoint.poll();
+
+        final byte[] remainder = Arrays.copyOfRange(EG_MESSAGE, MSG_LEN - 8, MSG_LEN);
+        theEndpointReceivesEachByteOf(remainder, remainder.length);
+
+        savesTwoFramedMessages(1);
+
+        sessionReceivesTwoMessages();
+    }
+
+    @Test
+    public void shouldRecordInvalidChecksumMessageSplitIntoSingleBytes()
+    {
+        theEndpointReceivesEachByteOf(INVALID_CHECKSUM_MSG, INVALID_CHECKSUM_LEN);
+
+        savesInvalidChecksumMessage(times(1));
+    }
+
+    @Test
+    public void shouldIgnoreMessageWithBodyLengthTooShortSplitIntoSingleBytes()
+    {
+        final int length = INVALID_LENGTH_MESSAGE.length;
+        theEndpointReceivesEachByteOf(INVALID_LENGTH_MESSAGE, length);
+
+        savesInvalidMessage(length, times(1), INVALID_BODYLENGTH, TIMESTAMP);
+        verifyNoError();
+        sessionReceivesNoMessages();
+    }
+
     @Test
     public void shouldFrameTwoCompleteFixMessagesInOnePacket()
     {
@@ -302,6 +353,22 @@ public class ReceiverEndPointTest
         theEndpointReceivesTheRestOfTheMessage();
         endPoint.poll();
 
+        savesTwoFramedMessages(1);
+
+        sessionReceivesTwoMessages();
+    }
+
+    @Test
+    public void shouldMoveIncompleteMessageToBufferStartWhenBufferIsNearlyFull()
+    {
+        givenReceiverEndPoint(SESSION_ID, 2 * MSG_LEN);
+
+        theEndpointReceivesACompleteAndAnIncompleteMessage();
+        endPoint.poll();
+
+        theEndpointReceivesTheRestOfTheMessage();
+        endPoint.poll();
+
         savesFramedMessages(2, OK, MSG_LEN);
 
         sessionReceivesTwoMessageAtBufferStart();
@@ -638,6 +705,15 @@ public class ReceiverEndPointTest
             });
     }
 
+    private void theEndpointReceivesEachByteOf(final byte[] data, final int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            theEndpointReceives(data, i, 1);
+            endPoint.poll();
+        }
+    }
+
     private void theEndpointReceivesNothing()
     {
         endpointBufferUpdatedWith(buffer -> 0);
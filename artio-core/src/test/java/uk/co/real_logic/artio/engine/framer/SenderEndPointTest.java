@@ -23,17 +23,20 @@ import org.agrona.concurrent.status.AtomicCounter;
 import org.junit.Test;
 import org.mockito.stubbing.Answer;
 import org.mockito.verification.VerificationMode;
+import uk.co.real_logic.artio.engine.SenderFlushPolicy;
 import uk.co.real_logic.artio.engine.SenderSequenceNumber;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_SENDER_FLUSH_THRESHOLD_IN_BYTES;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS;
 import static uk.co.real_logic.artio.engine.logger.ArchiveDescriptor.alignTerm;
 import static uk.co.real_logic.artio.messages.DisconnectReason.SLOW_CONSUMER;
@@ -76,7 +79,10 @@ public class SenderEndPointTest
         MAX_BYTES_IN_BUFFER,
         DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS,
         0,
-        senderSequenceNumber);
+        senderSequenceNumber,
+        SenderFlushPolicy.IMMEDIATE,
+        DEFAULT_SENDER_FLUSH_THRESHOLD_IN_BYTES,
+        new ReentrantLock());
 
     @Test
     public void shouldRetrySlowConsumerMessage()
@@ -431,6 +437,131 @@ public class SenderEndPointTest
         verifyNoMoreInteractions(errorHandler);
     }
 
+    @Test
+    public void shouldCoalesceOutboundMessagesUntilFlushed() throws IOException
+    {
+        givenACoalescingEndPoint(SenderFlushPolicy.DUTY_CYCLE, DEFAULT_SENDER_FLUSH_THRESHOLD_IN_BYTES);
+        channelWillWriteEverything();
+
+        onOutboundMessage(0, POSITION);
+        onReplayMessage(0, POSITION + FRAGMENT_LENGTH);
+        assertTrue(endPoint.hasCoalescedMessages());
+        verify(tcpChannel, never()).write(any(ByteBuffer.class));
+
+        endPoint.flush();
+
+        verify(tcpChannel).write(any(ByteBuffer.class));
+        assertFalse(endPoint.hasCoalescedMessages());
+        assertBytesInBuffer(0);
+        verify(framer, never()).slowStatus(anyInt(), anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void shouldGatherCoalescedMessagesWithMessageThatDoesNotFit() throws IOException
+    {
+        givenACoalescingEndPoint(SenderFlushPolicy.DUTY_CYCLE, 2 * BODY_LENGTH);
+        when(tcpChannel.write(any(ByteBuffer[].class))).then(
+            (inv) ->
+            {
+                long written = 0;
+                for (final ByteBuffer src : (ByteBuffer[])inv.getArgument(0))
+                {
+                    written += src.remaining();
+                    src.position(src.limit());
+                }
+                return written;
+            });
+
+        onOutboundMessage(0, POSITION);
+        onOutboundMessage(0, POSITION + FRAGMENT_LENGTH);
+        onOutboundMessage(0, POSITION + 2 * FRAGMENT_LENGTH);
+
+        verify(tcpChannel).write(any(ByteBuffer[].class));
+        verify(tcpChannel, never()).write(any(ByteBuffer.class));
+        assertFalse(endPoint.hasCoalescedMessages());
+        assertBytesInBuffer(0);
+    }
+
+    @Test
+    public void shouldFlushCoalescedMessagesAtByteThreshold() throws IOException
+    {
+        givenACoalescingEndPoint(SenderFlushPolicy.BYTE_THRESHOLD, 2 * BODY_LENGTH);
+        channelWillWriteEverything();
+
+        onOutboundMessage(0, POSITION);
+        verify(tcpChannel, never()).write(any(ByteBuffer.class));
+
+        onOutboundMessage(0, POSITION + FRAGMENT_LENGTH);
+        verify(tcpChannel).write(any(ByteBuffer.class));
+        assertFalse(endPoint.hasCoalescedMessages());
+    }
+
+    @Test
+    public void shouldBecomeSlowConsumerWhenCoalescedMessagesArePartiallyWritten() throws IOException
+    {
+        givenACoalescingEndPoint(SenderFlushPolicy.DUTY_CYCLE, DEFAULT_SENDER_FLUSH_THRESHOLD_IN_BYTES);
+        final int written = BODY_LENGTH + 10;
+        when(tcpChannel.write(any(ByteBuffer.class))).thenReturn(written);
+
+        onOutboundMessage(0, POSITION);
+        onOutboundMessage(0, POSITION + FRAGMENT_LENGTH);
+        onOutboundMessage(0, POSITION + 2 * FRAGMENT_LENGTH);
+        endPoint.flush();
+
+        assertBytesInBuffer(3 * BODY_LENGTH - written);
+        verify(framer).slowStatus(LIBRARY_ID, CONNECTION_ID, true);
+        verifySlowConsumerDisconnect(never());
+    }
+
+    @Test
+    public void shouldDisconnectWhenUnwrittenCoalescedMessagesExceedMaxBytesInBuffer() throws IOException
+    {
+        givenACoalescingEndPoint(SenderFlushPolicy.DUTY_CYCLE, DEFAULT_SENDER_FLUSH_THRESHOLD_IN_BYTES);
+        when(tcpChannel.write(any(ByteBuffer.class))).thenReturn(0);
+
+        onOutboundMessage(0, POSITION);
+        onOutboundMessage(0, POSITION + FRAGMENT_LENGTH);
+        onOutboundMessage(0, POSITION + 2 * FRAGMENT_LENGTH);
+        endPoint.flush();
+        verifySlowConsumerDisconnect(never());
+
+        onOutboundMessage(0, POSITION + 3 * FRAGMENT_LENGTH);
+        verifySlowConsumerDisconnect(times(1));
+    }
+
+    private void givenACoalescingEndPoint(final SenderFlushPolicy flushPolicy, final int flushThresholdInBytes)
+    {
+        endPoint = new SenderEndPoint(
+            CONNECTION_ID,
+            LIBRARY_ID,
+            libraryBlockablePosition,
+            replayBlockablePosition,
+            tcpChannel,
+            bytesInBuffer,
+            invalidLibraryAttempts,
+            errorHandler,
+            framer,
+            MAX_BYTES_IN_BUFFER,
+            DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS,
+            0,
+            senderSequenceNumber,
+            flushPolicy,
+            flushThresholdInBytes,
+            new ReentrantLock());
+    }
+
+    private void channelWillWriteEverything() throws IOException
+    {
+        when(tcpChannel.write(any(ByteBuffer.class))).then(
+            (inv) ->
+            {
+                final ByteBuffer src = inv.getArgument(0);
+                final int written = src.remaining();
+                src.position(src.limit());
+                return written;
+            });
+    }
+
     private void onOutboundMessage(final long timeInMs, final long position)
     {
         endPoint.onOutboundMessage(LIBRARY_ID, buffer, 0, BODY_LENGTH, 0, position, timeInMs);
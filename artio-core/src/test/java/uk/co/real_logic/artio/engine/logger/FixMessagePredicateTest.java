@@ -48,4 +48,26 @@ public class FixMessagePredicateTest
     {
         assertTrue(startsAbc.or(starts123).test(decoder));
     }
+
+    @Test
+    public void shouldMatchBodyInPlace()
+    {
+        assertTrue(FixMessagePredicates.bodyContains("ABC").test(decoder));
+        assertTrue(FixMessagePredicates.bodyContains("123ABC123").test(decoder));
+        assertFalse(FixMessagePredicates.bodyContains("abc").test(decoder));
+        assertFalse(FixMessagePredicates.bodyContains("123ABC1234").test(decoder));
+    }
+
+    @Test
+    public void shouldMatchFieldInPlace()
+    {
+        new FixMessageEncoder()
+            .wrap(buffer, 0)
+            .body("35=D\00149=SENDER\00156=TARGET\001");
+
+        assertTrue(FixMessagePredicates.fieldOf(35, "D").test(decoder));
+        assertTrue(FixMessagePredicates.fieldOf(56, "TARGET").test(decoder));
+        assertFalse(FixMessagePredicates.fieldOf(49, "SEND").test(decoder));
+        assertFalse(FixMessagePredicates.fieldOf(9, "SENDER").test(decoder));
+    }
 }
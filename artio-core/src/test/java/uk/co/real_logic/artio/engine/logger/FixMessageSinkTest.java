@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.messages.FixMessageEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static uk.co.real_logic.artio.engine.logger.BinaryFixMessageSink.*;
+
+public class FixMessageSinkTest
+{
+    private static final File LOG_DIR = new File(IoUtil.tmpDirName(), "fix-message-sink-test");
+    private static final String BODY = "35=0\00149=SENDER\00156=TARGET\001";
+    private static final long TIMESTAMP = 123L;
+    private static final long SESSION_ID = 4L;
+
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+    private final FixMessageDecoder decoder = new FixMessageDecoder();
+
+    private int bodyOffset;
+    private int bodyLength;
+
+    @Before
+    public void setUp()
+    {
+        IoUtil.delete(LOG_DIR, true);
+
+        final FixMessageEncoder encoder = new FixMessageEncoder()
+            .wrap(buffer, 0)
+            .timestamp(TIMESTAMP)
+            .session(SESSION_ID);
+        bodyOffset = encoder.limit() + FixMessageEncoder.bodyHeaderLength();
+        encoder.body(BODY);
+        bodyLength = BODY.length();
+        decoder.wrap(buffer, 0, encoder.sbeBlockLength(), encoder.sbeSchemaVersion());
+    }
+
+    @After
+    public void tearDown()
+    {
+        IoUtil.delete(LOG_DIR, true);
+    }
+
+    @Test
+    public void shouldWritePipeDelimitedLines() throws IOException
+    {
+        final RollingMappedFile file = new RollingMappedFile(LOG_DIR, "text", 1024);
+        try (TextFixMessageSink sink = new TextFixMessageSink(file))
+        {
+            sink.onMessage(decoder, buffer, bodyOffset, bodyLength);
+            sink.onMessage(decoder, buffer, bodyOffset, bodyLength);
+        }
+
+        final String line = "35=0|49=SENDER|56=TARGET|\n";
+        assertEquals(line + line, new String(Files.readAllBytes(file.file(0).toPath()), US_ASCII));
+    }
+
+    @Test
+    public void shouldWriteLengthPrefixedRecords() throws IOException
+    {
+        final RollingMappedFile file = new RollingMappedFile(LOG_DIR, "binary", 1024);
+        try (BinaryFixMessageSink sink = new BinaryFixMessageSink(file))
+        {
+            sink.onMessage(decoder, buffer, bodyOffset, bodyLength);
+        }
+
+        final UnsafeBuffer record = new UnsafeBuffer(Files.readAllBytes(file.file(0).toPath()));
+        assertEquals(HEADER_LENGTH + bodyLength, record.capacity());
+        assertEquals(bodyLength, record.getInt(LENGTH_OFFSET));
+        assertEquals(TIMESTAMP, record.getLong(TIMESTAMP_OFFSET));
+        assertEquals(SESSION_ID, record.getLong(SESSION_ID_OFFSET));
+        assertEquals(BODY, record.getStringWithoutLengthAscii(HEADER_LENGTH, bodyLength));
+    }
+
+    @Test
+    public void shouldRollOntoNewFileWhenFull() throws IOException
+    {
+        final int lineLength = bodyLength + 1;
+        final RollingMappedFile file = new RollingMappedFile(LOG_DIR, "text", lineLength * 2 + 1);
+        try (TextFixMessageSink sink = new TextFixMessageSink(file))
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                sink.onMessage(decoder, buffer, bodyOffset, bodyLength);
+            }
+        }
+
+        assertEquals(lineLength * 2, file.file(0).length());
+        assertEquals(lineLength, file.file(1).length());
+        assertFalse(file.file(2).exists());
+    }
+
+    @Test
+    public void shouldNotOverwriteExistingFiles() throws IOException
+    {
+        new RollingMappedFile(LOG_DIR, "text", 1024).close();
+
+        final RollingMappedFile file = new RollingMappedFile(LOG_DIR, "text", 1024);
+        file.close();
+
+        assertEquals(file.file(1), file.file());
+    }
+}
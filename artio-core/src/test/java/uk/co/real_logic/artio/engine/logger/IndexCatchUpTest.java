@@ -0,0 +1,527 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.Aeron;
+import io.aeron.ChannelUri;
+import io.aeron.Image;
+import io.aeron.Subscription;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.engine.CompletionPosition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.aeron.CommonContext.SESSION_ID_PARAM_NAME;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.Timing.assertEventuallyTrue;
+
+public class IndexCatchUpTest
+{
+    private static final int ARCHIVE_REPLAY_STREAM = 1;
+    private static final int FRAGMENT_LENGTH = 128;
+
+    private static final int OLD_SESSION_ID = 10;
+    private static final long OLD_RECORDING_ID = 1;
+    private static final long OLD_RECORDING_STOP = 8 * FRAGMENT_LENGTH;
+
+    private static final int LIVE_SESSION_ID = 20;
+    private static final long LIVE_RECORDING_ID = 2;
+
+    private final AeronArchive aeronArchive = mock(AeronArchive.class);
+    private final AeronArchive.Context archiveContext = mock(AeronArchive.Context.class);
+    private final Aeron aeron = mock(Aeron.class);
+    private final ErrorHandler errorHandler = mock(ErrorHandler.class);
+    private final AtomicCounter remainingBytes = mock(AtomicCounter.class);
+    private final Subscription liveSubscription = mock(Subscription.class);
+    private final RecordingIdLookup recordingIdLookup = mock(RecordingIdLookup.class);
+    private final CompletionPosition completionPosition = mock(CompletionPosition.class);
+    private final DirectBuffer buffer = new UnsafeBuffer(new byte[FRAGMENT_LENGTH]);
+
+    private final Map<Long, Long> recordedPositions = new ConcurrentHashMap<>();
+    private final Map<Integer, Image> replayImages = new ConcurrentHashMap<>();
+    private final Queue<Long> liveFragments = new ConcurrentLinkedQueue<>();
+    private final AtomicLong replaySessionIds = new AtomicLong(100);
+    private final List<Long> replayedLengths = Collections.synchronizedList(new ArrayList<>());
+    private final Semaphore oldReplayPermits = new Semaphore(Integer.MAX_VALUE);
+    private final Semaphore liveReplayPermits = new Semaphore(Integer.MAX_VALUE);
+
+    private volatile boolean replaysPaused;
+
+    private IndexCatchUp catchUp;
+
+    @Before
+    public void setUp()
+    {
+        when(aeronArchive.context()).thenReturn(archiveContext);
+        when(archiveContext.aeron()).thenReturn(aeron);
+
+        recordedPositions.put(OLD_RECORDING_ID, OLD_RECORDING_STOP);
+        recordedPositions.put(LIVE_RECORDING_ID, 0L);
+        when(aeronArchive.getStopPosition(OLD_RECORDING_ID)).thenReturn(OLD_RECORDING_STOP);
+        when(aeronArchive.getStopPosition(LIVE_RECORDING_ID)).thenReturn(AeronArchive.NULL_POSITION);
+        when(aeronArchive.getStartPosition(LIVE_RECORDING_ID)).thenReturn(0L);
+        when(recordingIdLookup.getRecordingId(LIVE_SESSION_ID)).thenReturn(LIVE_RECORDING_ID);
+
+        when(aeronArchive.startReplay(anyLong(), anyLong(), anyLong(), anyString(), eq(ARCHIVE_REPLAY_STREAM)))
+            .then(inv -> startReplay(inv.getArgument(0), inv.getArgument(1), inv.getArgument(2)));
+        when(aeron.addSubscription(anyString(), eq(ARCHIVE_REPLAY_STREAM)))
+            .then(inv -> replaySubscription(inv.getArgument(0)));
+        when(liveSubscription.controlledPoll(any(), anyInt()))
+            .then(inv -> pollLive(inv.getArgument(0), inv.getArgument(1)));
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (catchUp != null)
+        {
+            catchUp.close();
+        }
+
+        verifyNoMoreInteractions(errorHandler);
+    }
+
+    @Test
+    public void shouldCatchUpRequiredIndicesBeforeStarting()
+    {
+        final FakeIndex index = new FakeIndex(true, OLD_RECORDING_ID, 4 * FRAGMENT_LENGTH);
+        final FakeIndex caughtUpIndex = new FakeIndex(true, OLD_RECORDING_ID, OLD_RECORDING_STOP);
+
+        newCatchUp(false);
+        newIndexer(index, caughtUpIndex);
+        catchUp.run();
+
+        assertTrue(catchUp.isComplete());
+        assertEquals(oldFragments(5, 8), index.positions());
+        assertEquals(emptyList(), caughtUpIndex.positions());
+        assertEquals(Collections.singletonList(4L * FRAGMENT_LENGTH), replayedLengths);
+    }
+
+    @Test
+    public void shouldKeepIndexingLiveMessagesWhilstIndicesCatchUpInBackground()
+    {
+        replaysPaused = true;
+        final FakeIndex requiredIndex = new FakeIndex(true, OLD_RECORDING_ID, OLD_RECORDING_STOP);
+        final FakeIndex backgroundIndex = new FakeIndex(false, OLD_RECORDING_ID, 0);
+
+        newCatchUp(true);
+        final Indexer indexer = newIndexer(requiredIndex, backgroundIndex);
+        catchUp.run();
+
+        publishLive(2);
+        indexAllLiveFragments(indexer);
+
+        assertFalse(catchUp.isComplete());
+        assertEquals(liveFragments(1, 2), requiredIndex.positions());
+        assertEquals(emptyList(), backgroundIndex.positions());
+    }
+
+    @Test
+    public void shouldHandBackgroundIndicesLiveMessagesOnceTheyHaveCaughtUpWithThem()
+    {
+        replaysPaused = true;
+        final FakeIndex requiredIndex = new FakeIndex(true, OLD_RECORDING_ID, OLD_RECORDING_STOP);
+        final FakeIndex backgroundIndex = new FakeIndex(false, OLD_RECORDING_ID, 0);
+
+        newCatchUp(true);
+        final Indexer indexer = newIndexer(requiredIndex, backgroundIndex);
+        catchUp.run();
+
+        publishLive(3);
+        indexAllLiveFragments(indexer);
+
+        replaysPaused = false;
+        assertEventuallyTrue("Failed to catch up", () ->
+        {
+            indexer.doWork();
+            return catchUp.isComplete();
+        });
+
+        publishLive(2);
+        indexAllLiveFragments(indexer);
+
+        final List<String> expectedPositions = oldFragments(1, 8);
+        expectedPositions.addAll(liveFragments(1, 5));
+        assertEquals(expectedPositions, backgroundIndex.positions());
+        assertEquals(liveFragments(1, 5), requiredIndex.positions());
+    }
+
+    @Test
+    public void shouldStopPollingLiveMessagesWhilstCatchingUpWithTheLastOfThem()
+    {
+        oldReplayPermits.drainPermits();
+        liveReplayPermits.drainPermits();
+        final FakeIndex requiredIndex = new FakeIndex(true, OLD_RECORDING_ID, OLD_RECORDING_STOP);
+        final FakeIndex backgroundIndex = new FakeIndex(false, OLD_RECORDING_ID, 0);
+
+        newCatchUp(true);
+        final Indexer indexer = newIndexer(requiredIndex, backgroundIndex);
+        catchUp.run();
+
+        publishLive(1);
+        indexAllLiveFragments(indexer);
+
+        oldReplayPermits.release(Integer.MAX_VALUE / 2);
+        awaitReplays(indexer, 2);
+
+        // Polled whilst the index catches up with the first live message.
+        publishLive(1);
+        indexAllLiveFragments(indexer);
+
+        liveReplayPermits.release();
+        awaitReplays(indexer, 3);
+
+        publishLive(1);
+        for (int i = 0; i < 100; i++)
+        {
+            indexer.doWork();
+        }
+
+        assertFalse(catchUp.isComplete());
+        assertEquals(1, liveFragments.size());
+        assertEquals(liveFragments(1, 2), requiredIndex.positions());
+
+        liveReplayPermits.release(Integer.MAX_VALUE / 2);
+        indexAllLiveFragments(indexer);
+
+        assertTrue(catchUp.isComplete());
+        assertEquals(liveFragments(1, 3), requiredIndex.positions());
+        final List<String> expectedPositions = oldFragments(1, 8);
+        expectedPositions.addAll(liveFragments(1, 3));
+        assertEquals(expectedPositions, backgroundIndex.positions());
+    }
+
+    @Test
+    public void shouldNotHandLiveMessagesToIndicesThatDidNotCatchUpBeforeClosing()
+    {
+        replaysPaused = true;
+        final FakeIndex requiredIndex = new FakeIndex(true, OLD_RECORDING_ID, OLD_RECORDING_STOP);
+        final FakeIndex backgroundIndex = new FakeIndex(false, OLD_RECORDING_ID, 0);
+
+        newCatchUp(true);
+        final Indexer indexer = newIndexer(requiredIndex, backgroundIndex);
+        catchUp.run();
+        catchUp.close();
+
+        publishLive(2);
+        indexAllLiveFragments(indexer);
+        indexer.doWork();
+
+        assertFalse(catchUp.isComplete());
+        assertEquals(liveFragments(1, 2), requiredIndex.positions());
+        assertEquals(emptyList(), backgroundIndex.positions());
+    }
+
+    @Test
+    public void shouldNotIndexMessagesAgainAfterRestartingPartWayThroughCatchUp()
+    {
+        oldReplayPermits.drainPermits();
+        oldReplayPermits.release(3);
+        final FakeIndex index = new FakeIndex(false, OLD_RECORDING_ID, 0);
+
+        newCatchUp(true);
+        newIndexer(index);
+        catchUp.run();
+        assertEventuallyTrue("Failed to start catching up", () -> index.positions().size() == 3);
+        catchUp.close();
+
+        final FakeIndex restartedIndex = new FakeIndex(false, OLD_RECORDING_ID, index.writtenPosition);
+        oldReplayPermits.release(Integer.MAX_VALUE / 2);
+
+        newCatchUp(false);
+        newIndexer(restartedIndex);
+        catchUp.run();
+
+        assertTrue(catchUp.isComplete());
+        final List<String> positions = index.positions();
+        positions.addAll(restartedIndex.positions());
+        assertEquals(oldFragments(1, 8), positions);
+    }
+
+    @Test
+    public void shouldCatchUpAgainFromTheIndexedPositionAfterAFailure()
+    {
+        final FakeIndex index = new FakeIndex(true, OLD_RECORDING_ID, 0);
+        index.failAtPosition = 4 * FRAGMENT_LENGTH;
+
+        newCatchUp(false);
+        newIndexer(index);
+        catchUp.run();
+
+        assertTrue(catchUp.isComplete());
+        assertEquals(oldFragments(1, 8), index.positions());
+        verify(errorHandler).onError(any(IllegalStateException.class));
+    }
+
+    @Test
+    public void shouldNotHandLiveMessagesToBackgroundIndexUntilItHasCaughtUpAfterAFailure()
+    {
+        replaysPaused = true;
+        final FakeIndex requiredIndex = new FakeIndex(true, OLD_RECORDING_ID, OLD_RECORDING_STOP);
+        final FakeIndex backgroundIndex = new FakeIndex(false, OLD_RECORDING_ID, 0);
+        backgroundIndex.failAtPosition = 4 * FRAGMENT_LENGTH;
+
+        newCatchUp(true);
+        final Indexer indexer = newIndexer(requiredIndex, backgroundIndex);
+        catchUp.run();
+
+        publishLive(2);
+        indexAllLiveFragments(indexer);
+
+        replaysPaused = false;
+        assertEventuallyTrue("Failed to fail", () -> backgroundIndex.failAtPosition == 0);
+
+        publishLive(1);
+        indexAllLiveFragments(indexer);
+        assertEquals(emptyList(), backgroundIndex.livePositions());
+
+        assertEventuallyTrue("Failed to catch up", () ->
+        {
+            indexer.doWork();
+            return catchUp.isComplete();
+        });
+
+        publishLive(1);
+        indexAllLiveFragments(indexer);
+
+        final List<String> expectedPositions = oldFragments(1, 8);
+        expectedPositions.addAll(liveFragments(1, 4));
+        assertEquals(expectedPositions, backgroundIndex.positions());
+        verify(errorHandler).onError(any(IllegalStateException.class));
+    }
+
+    private void newCatchUp(final boolean background)
+    {
+        catchUp = new IndexCatchUp(
+            aeronArchive, errorHandler, ARCHIVE_REPLAY_STREAM, 2, background, remainingBytes, "");
+    }
+
+    private Indexer newIndexer(final Index... indices)
+    {
+        return new Indexer(
+            Arrays.asList(indices), liveSubscription, recordingIdLookup, "", completionPosition, catchUp, false);
+    }
+
+    private void awaitReplays(final Indexer indexer, final int replayCount)
+    {
+        assertEventuallyTrue("Failed to start replay", () ->
+        {
+            indexer.doWork();
+            return replayedLengths.size() == replayCount;
+        });
+    }
+
+    private void indexAllLiveFragments(final Indexer indexer)
+    {
+        assertEventuallyTrue("Failed to index live messages", () ->
+        {
+            indexer.doWork();
+            return liveFragments.isEmpty();
+        });
+    }
+
+    private void publishLive(final int fragmentCount)
+    {
+        for (int i = 0; i < fragmentCount; i++)
+        {
+            final long position = recordedPositions.get(LIVE_RECORDING_ID) + FRAGMENT_LENGTH;
+            recordedPositions.put(LIVE_RECORDING_ID, position);
+            liveFragments.add(position);
+        }
+    }
+
+    private int pollLive(final ControlledFragmentHandler handler, final int fragmentLimit)
+    {
+        int fragments = 0;
+        Long position;
+        while (fragments < fragmentLimit && (position = liveFragments.poll()) != null)
+        {
+            handler.onFragment(buffer, 0, FRAGMENT_LENGTH, header(LIVE_SESSION_ID, position));
+            fragments++;
+        }
+        return fragments;
+    }
+
+    private long startReplay(final long recordingId, final long position, final long length)
+    {
+        replayedLengths.add(length);
+        final int replaySessionId = (int)replaySessionIds.incrementAndGet();
+        replayImages.put(replaySessionId, replayImage(recordingId, position, position + length));
+        return replaySessionId;
+    }
+
+    private Subscription replaySubscription(final String channel)
+    {
+        final int replaySessionId = Integer.parseInt(ChannelUri.parse(channel).get(SESSION_ID_PARAM_NAME));
+        final Image image = replayImages.get(replaySessionId);
+        final Subscription subscription = mock(Subscription.class);
+        when(subscription.imageCount()).thenReturn(1);
+        when(subscription.imageAtIndex(0)).thenReturn(image);
+        return subscription;
+    }
+
+    private Image replayImage(final long recordingId, final long startPosition, final long stopPosition)
+    {
+        final int aeronSessionId = recordingId == OLD_RECORDING_ID ? OLD_SESSION_ID : LIVE_SESSION_ID;
+        final AtomicLong position = new AtomicLong(startPosition);
+        final Image image = mock(Image.class);
+        when(image.position()).then(inv -> position.get());
+        when(image.poll(any(), anyInt())).then(inv ->
+        {
+            final FragmentHandler handler = inv.getArgument(0);
+            final long nextPosition = position.get() + FRAGMENT_LENGTH;
+            if (replaysPaused || nextPosition > stopPosition || nextPosition > recordedPositions.get(recordingId) ||
+                !(recordingId == LIVE_RECORDING_ID ? liveReplayPermits : oldReplayPermits).tryAcquire())
+            {
+                return 0;
+            }
+
+            handler.onFragment(buffer, 0, FRAGMENT_LENGTH, header(aeronSessionId, nextPosition));
+            position.set(nextPosition);
+            return 1;
+        });
+        return image;
+    }
+
+    private Header header(final int aeronSessionId, final long position)
+    {
+        final Header header = mock(Header.class);
+        when(header.sessionId()).thenReturn(aeronSessionId);
+        when(header.position()).thenReturn(position);
+        return header;
+    }
+
+    private static List<String> oldFragments(final int from, final int to)
+    {
+        return fragments(OLD_SESSION_ID, from, to);
+    }
+
+    private static List<String> liveFragments(final int from, final int to)
+    {
+        return fragments(LIVE_SESSION_ID, from, to);
+    }
+
+    private static List<String> fragments(final int aeronSessionId, final int from, final int to)
+    {
+        final List<String> fragments = new ArrayList<>();
+        for (int i = from; i <= to; i++)
+        {
+            fragments.add(aeronSessionId + "@" + (i * FRAGMENT_LENGTH));
+        }
+        return fragments;
+    }
+
+    private static final class FakeIndex implements Index
+    {
+        private final List<String> positions = Collections.synchronizedList(new ArrayList<>());
+        private final boolean requiredOnStartup;
+        private final long recordingId;
+
+        private volatile long stagedPosition;
+        private volatile long writtenPosition;
+        private volatile long failAtPosition;
+
+        FakeIndex(final boolean requiredOnStartup, final long recordingId, final long lastPosition)
+        {
+            this.requiredOnStartup = requiredOnStartup;
+            this.recordingId = recordingId;
+            stagedPosition = lastPosition;
+            writtenPosition = lastPosition;
+        }
+
+        // Like the replay and time indices, only writes the position that it has indexed up to in doWork.
+        public void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+        {
+            if (header.position() == failAtPosition)
+            {
+                failAtPosition = 0;
+                throw new IllegalStateException("Failed to index " + header.position());
+            }
+
+            positions.add(header.sessionId() + "@" + header.position());
+            if (header.sessionId() == OLD_SESSION_ID)
+            {
+                stagedPosition = header.position();
+            }
+        }
+
+        public int doWork()
+        {
+            if (writtenPosition != stagedPosition)
+            {
+                writtenPosition = stagedPosition;
+                return 1;
+            }
+            return 0;
+        }
+
+        public void readLastPosition(final IndexedPositionConsumer consumer)
+        {
+            consumer.accept(OLD_SESSION_ID, recordingId, writtenPosition);
+        }
+
+        public boolean requiredOnStartup()
+        {
+            return requiredOnStartup;
+        }
+
+        public void close()
+        {
+        }
+
+        List<String> positions()
+        {
+            synchronized (positions)
+            {
+                return new ArrayList<>(positions);
+            }
+        }
+
+        List<String> livePositions()
+        {
+            final List<String> livePositions = positions();
+            livePositions.removeIf(position -> !position.startsWith(LIVE_SESSION_ID + "@"));
+            return livePositions;
+        }
+    }
+}
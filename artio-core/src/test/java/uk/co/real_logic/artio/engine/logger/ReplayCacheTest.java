@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.messages.FixMessageEncoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+import uk.co.real_logic.artio.messages.MessageStatus;
+
+import static io.aeron.logbuffer.FrameDescriptor.BEGIN_FRAG_FLAG;
+import static io.aeron.logbuffer.FrameDescriptor.UNFRAGMENTED;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.engine.logger.ReplayCache.MISSING;
+
+public class ReplayCacheTest
+{
+    private static final int STREAM_ID = 1;
+    private static final int NUM_SETS = 4;
+    private static final int SET_SIZE = 2;
+    private static final int SLOT_SIZE = 256;
+    private static final long SESSION_ID = 2;
+    private static final int SEQUENCE_INDEX = 3;
+
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+    private final Header header = mock(Header.class);
+    private final ErrorHandler errorHandler = mock(ErrorHandler.class);
+
+    private final ReplayCache replayCache = new ReplayCache(
+        STREAM_ID, NUM_SETS, SET_SIZE, SLOT_SIZE, errorHandler, mock(AtomicCounter.class), mock(AtomicCounter.class));
+
+    @Before
+    public void setUp()
+    {
+        when(header.streamId()).thenReturn(STREAM_ID);
+        when(header.flags()).thenReturn(UNFRAGMENTED);
+    }
+
+    @After
+    public void tearDown()
+    {
+        verifyNoMoreInteractions(errorHandler);
+    }
+
+    @Test
+    public void shouldCacheSentMessages()
+    {
+        final int length = onMessage(1, "abc");
+        onMessage(2, "def");
+
+        assertCached(1, "abc", length);
+        assertCached(2, "def", length);
+        assertEquals(MISSING, replayCache.find(SESSION_ID, SEQUENCE_INDEX, 3));
+        assertEquals(MISSING, replayCache.find(SESSION_ID, SEQUENCE_INDEX + 1, 1));
+        assertEquals(MISSING, replayCache.find(SESSION_ID + 1, SEQUENCE_INDEX, 1));
+    }
+
+    @Test
+    public void shouldEvictOldestMessagesOnceFull()
+    {
+        final int capacity = NUM_SETS * SET_SIZE;
+        for (int sequenceNumber = 1; sequenceNumber <= capacity + NUM_SETS; sequenceNumber++)
+        {
+            onMessage(sequenceNumber, "abc");
+        }
+
+        for (int sequenceNumber = 1; sequenceNumber <= NUM_SETS; sequenceNumber++)
+        {
+            assertEquals(MISSING, replayCache.find(SESSION_ID, SEQUENCE_INDEX, sequenceNumber));
+        }
+
+        for (int sequenceNumber = NUM_SETS + 1; sequenceNumber <= capacity + NUM_SETS; sequenceNumber++)
+        {
+            assertNotEquals(MISSING, replayCache.find(SESSION_ID, SEQUENCE_INDEX, sequenceNumber));
+        }
+    }
+
+    @Test
+    public void shouldReplaceMessageWithSameSequenceNumber()
+    {
+        onMessage(1, "abc");
+        final int length = onMessage(1, "def");
+        onMessage(1 + NUM_SETS, "ghi");
+
+        assertCached(1, "def", length);
+        assertCached(1 + NUM_SETS, "ghi", length);
+    }
+
+    @Test
+    public void shouldNotServeMessagesReplacedByOnesTooLargeToCache()
+    {
+        onMessage(1, "abc");
+        onMessage(1, new String(new char[SLOT_SIZE]).replace('\0', 'a'));
+
+        assertEquals(MISSING, replayCache.find(SESSION_ID, SEQUENCE_INDEX, 1));
+    }
+
+    @Test
+    public void shouldNotCacheFragmentedMessages()
+    {
+        when(header.flags()).thenReturn(BEGIN_FRAG_FLAG);
+
+        onMessage(1, "abc");
+
+        assertEquals(MISSING, replayCache.find(SESSION_ID, SEQUENCE_INDEX, 1));
+    }
+
+    @Test
+    public void shouldNotCacheMessagesFromOtherStreams()
+    {
+        when(header.streamId()).thenReturn(STREAM_ID + 1);
+
+        onMessage(1, "abc");
+
+        assertEquals(MISSING, replayCache.find(SESSION_ID, SEQUENCE_INDEX, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRequirePowerOfTwoNumberOfSets()
+    {
+        new ReplayCache(STREAM_ID, 3, SET_SIZE, SLOT_SIZE, errorHandler, null, null);
+    }
+
+    private void assertCached(final int sequenceNumber, final String testReqId, final int length)
+    {
+        final int messageOffset = replayCache.find(SESSION_ID, SEQUENCE_INDEX, sequenceNumber);
+        assertNotEquals(MISSING, messageOffset);
+        assertEquals(length, replayCache.length(messageOffset));
+
+        final DirectBuffer cacheBuffer = replayCache.buffer();
+        final String message = cacheBuffer.getStringWithoutLengthAscii(messageOffset, length);
+        assertEquals(body(sequenceNumber, testReqId), message.substring(message.indexOf("8=")));
+    }
+
+    // returns the length of the message frame
+    private int onMessage(final int sequenceNumber, final String testReqId)
+    {
+        final byte[] body = body(sequenceNumber, testReqId).getBytes(US_ASCII);
+
+        final FixMessageEncoder fixMessage = new FixMessageEncoder()
+            .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+            .session(SESSION_ID)
+            .sequenceIndex(SEQUENCE_INDEX)
+            .status(MessageStatus.OK)
+            .putMetaData(new byte[0], 0, 0)
+            .putBody(body, 0, body.length);
+        final int length = MessageHeaderEncoder.ENCODED_LENGTH + fixMessage.encodedLength();
+
+        replayCache.onFragment(buffer, 0, length, header);
+
+        return length;
+    }
+
+    private String body(final int sequenceNumber, final String testReqId)
+    {
+        return "8=FIX.4.4\0019=10\00135=1\00134=" + sequenceNumber + "\001112=" + testReqId + "\00110=000\001";
+    }
+}
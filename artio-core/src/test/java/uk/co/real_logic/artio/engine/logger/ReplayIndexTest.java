@@ -57,6 +57,7 @@ import static uk.co.real_logic.artio.engine.logger.Replayer.MOST_RECENT_MESSAGE;
 public class ReplayIndexTest extends AbstractLogTest
 {
     private static final String CHANNEL = CommonContext.IPC_CHANNEL;
+    private static final String LOG_FILE_DIR = IoUtil.tmpDirName() + "replay-index-test";
 
     private ByteBuffer indexBuffer = ByteBuffer.allocate(DEFAULT_REPLAY_INDEX_FILE_SIZE);
     private ExistingBufferFactory existingBufferFactory = mock(ExistingBufferFactory.class);
@@ -81,9 +82,10 @@ public class ReplayIndexTest extends AbstractLogTest
     private void newReplayIndex()
     {
         replayIndex = new ReplayIndex(
-            DEFAULT_LOG_FILE_DIR,
+            LOG_FILE_DIR,
             STREAM_ID,
             DEFAULT_REPLAY_INDEX_FILE_SIZE,
+            DEFAULT_REPLAY_INDEX_SEGMENTS,
             DEFAULT_LOGGER_CACHE_NUM_SETS,
             DEFAULT_LOGGER_CACHE_SET_SIZE,
             newBufferFactory,
@@ -92,6 +94,22 @@ public class ReplayIndexTest extends AbstractLogTest
             recordingIdLookup);
     }
 
+    private void newReplayQuery(final boolean sequenceOrderedIndex)
+    {
+        query = new ReplayQuery(
+            LOG_FILE_DIR,
+            DEFAULT_LOGGER_CACHE_NUM_SETS,
+            DEFAULT_LOGGER_CACHE_SET_SIZE,
+            existingBufferFactory,
+            DEFAULT_OUTBOUND_LIBRARY_STREAM,
+            false,
+            sequenceOrderedIndex,
+            new NoOpIdleStrategy(),
+            aeronArchive,
+            errorHandler,
+            DEFAULT_ARCHIVE_REPLAY_STREAM);
+    }
+
     private Aeron aeron()
     {
         return aeronArchive.context().aeron();
@@ -117,16 +135,7 @@ public class ReplayIndexTest extends AbstractLogTest
         IoUtil.deleteIfExists(logFile);
 
         newReplayIndex();
-        query = new ReplayQuery(
-            DEFAULT_LOG_FILE_DIR,
-            DEFAULT_LOGGER_CACHE_NUM_SETS,
-            DEFAULT_LOGGER_CACHE_SET_SIZE,
-            existingBufferFactory,
-            DEFAULT_OUTBOUND_LIBRARY_STREAM,
-            new NoOpIdleStrategy(),
-            aeronArchive,
-            errorHandler,
-            DEFAULT_ARCHIVE_REPLAY_STREAM);
+        newReplayQuery(true);
 
         returnBuffer(indexBuffer, SESSION_ID);
         returnBuffer(ByteBuffer.allocate(16 * 1024), SESSION_ID_2);
@@ -138,6 +147,7 @@ public class ReplayIndexTest extends AbstractLogTest
     {
         Exceptions.closeAll(replayIndex, aeronArchive);
         cleanupMediaDriver(mediaDriver);
+        IoUtil.delete(new File(LOG_FILE_DIR), true);
     }
 
     @Test(timeout = 20_000L)
@@ -191,8 +201,8 @@ public class ReplayIndexTest extends AbstractLogTest
 
         // Fake restarting the gateway
         final File logFile = logFile(SESSION_ID);
-        final File defaultLogFileDir = new File(DEFAULT_LOG_FILE_DIR);
-        IoUtil.ensureDirectoryExists(defaultLogFileDir, DEFAULT_LOG_FILE_DIR);
+        final File logFileDir = new File(LOG_FILE_DIR);
+        IoUtil.ensureDirectoryExists(logFileDir, LOG_FILE_DIR);
         assertTrue(logFile.createNewFile());
 
         newReplayIndex();
@@ -269,6 +279,37 @@ public class ReplayIndexTest extends AbstractLogTest
         assertEquals(2, msgCount);
     }
 
+    @Test(timeout = 20_000L)
+    public void shouldQueryFromWithinLaterSequenceIndex()
+    {
+        IntStream.rangeClosed(1, 10).forEach(
+            (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX));
+        final int nextSequenceIndex = SEQUENCE_INDEX + 1;
+        IntStream.rangeClosed(1, 10).forEach(
+            (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, nextSequenceIndex));
+
+        final int msgCount = query(5, nextSequenceIndex, 8, nextSequenceIndex);
+
+        assertEquals(4, msgCount);
+        verifyMessagesRead(4);
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldQueryMessagesBeforeResendsInIndexThatIsNotSequenceOrdered()
+    {
+        newReplayQuery(false);
+        IntStream.rangeClosed(1, 10).forEach(
+            (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX));
+        IntStream.rangeClosed(1, 10).forEach(
+            (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX));
+        IntStream.rangeClosed(11, 15).forEach(
+            (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX));
+
+        final int msgCount = query(9, SEQUENCE_INDEX, 10, SEQUENCE_INDEX);
+
+        assertEquals(4, msgCount);
+    }
+
     @Test //(timeout = 20_000L)
     public void shouldNotStopIndexingWhenBufferFull()
     {
@@ -302,6 +343,25 @@ public class ReplayIndexTest extends AbstractLogTest
             .accept(aeronSessionId, recordingId, alignedEndPosition());
     }
 
+    @Test(timeout = 20_000L)
+    public void shouldUpdatePositionOnceFragmentsHaveBeenPolled()
+    {
+        bufferContainsExampleMessage(true, SESSION_ID, SEQUENCE_NUMBER, SEQUENCE_INDEX);
+        publishBuffer();
+        pollRecords(1);
+
+        positionReader.readLastPosition(positionConsumer);
+        verify(positionConsumer, never()).accept(anyInt(), anyLong(), anyLong());
+
+        assertEquals(1, replayIndex.doWork());
+        assertEquals(0, replayIndex.doWork());
+
+        positionReader.readLastPosition(positionConsumer);
+        final int aeronSessionId = publication.sessionId();
+        verify(positionConsumer, times(1))
+            .accept(aeronSessionId, recordingIdLookup.getRecordingId(aeronSessionId), alignedEndPosition());
+    }
+
     @Test(timeout = 20_000L)
     public void shouldOnlyMapSessionFileOnce()
     {
@@ -362,7 +422,7 @@ public class ReplayIndexTest extends AbstractLogTest
 
     private File logFile(final long sessionId)
     {
-        return ReplayIndexDescriptor.replayIndexFile(DEFAULT_LOG_FILE_DIR, sessionId, STREAM_ID);
+        return ReplayIndexDescriptor.replayIndexFile(LOG_FILE_DIR, sessionId, STREAM_ID);
     }
 
     private void indexRecord()
@@ -371,6 +431,12 @@ public class ReplayIndexTest extends AbstractLogTest
     }
 
     private void indexRecord(final int fragmentsToRead)
+    {
+        pollRecords(fragmentsToRead);
+        replayIndex.doWork();
+    }
+
+    private void pollRecords(final int fragmentsToRead)
     {
         int read = 0;
         while (read < fragmentsToRead)
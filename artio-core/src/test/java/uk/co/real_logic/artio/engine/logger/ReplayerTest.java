@@ -25,6 +25,7 @@ import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.EpochClock;
 import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.status.AtomicCounter;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -43,6 +44,7 @@ import uk.co.real_logic.artio.fields.UtcTimestampDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.messages.ReplayCompleteDecoder;
 import uk.co.real_logic.artio.util.AsciiBuffer;
+import uk.co.real_logic.artio.util.ChecksumCalculator;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
 import java.util.List;
@@ -87,6 +89,8 @@ public class ReplayerTest extends AbstractLogTest
     private ReplayHandler replayHandler = mock(ReplayHandler.class);
     private SenderSequenceNumbers senderSequenceNumbers = mock(SenderSequenceNumbers.class);
     private ReplayOperation replayOperation = mock(ReplayOperation.class);
+    private AtomicCounter cacheHits = mock(AtomicCounter.class);
+    private AtomicCounter cacheMisses = mock(AtomicCounter.class);
 
     private Replayer replayer;
 
@@ -104,8 +108,14 @@ public class ReplayerTest extends AbstractLogTest
 
         setReplayedMessages(1);
 
-        replayer = new Replayer(
+        replayer = newReplayer(null);
+    }
+
+    private Replayer newReplayer(final ReplayCache replayCache)
+    {
+        return new Replayer(
             replayQuery,
+            replayCache,
             publication,
             claim,
             idleStrategy,
@@ -117,7 +127,9 @@ public class ReplayerTest extends AbstractLogTest
             EngineConfiguration.DEFAULT_GAPFILL_ON_REPLAY_MESSAGE_TYPES,
             replayHandler,
             senderSequenceNumbers,
-            new FakeFixSessionCodecsFactory());
+            new FakeFixSessionCodecsFactory(),
+            ChecksumCalculator.wordAtATime(),
+            () -> true);
     }
 
     private void setReplayedMessages(final int replayedMessages)
@@ -591,12 +603,107 @@ public class ReplayerTest extends AbstractLogTest
         verifyNoMoreInteractions(replayQuery, publication);
     }
 
+    @Test
+    public void shouldResendCachedMessagesWithoutQueryingTheArchive()
+    {
+        final int srcLength = cacheExampleMessage();
+
+        onRequestResendMessage(bufferHasResendRequest(END_SEQ_NO));
+
+        replayer.doWork();
+
+        assertHasResentWithPossDupFlag(srcLength, times(1));
+        verify(cacheHits).increment();
+
+        replayer.doWork();
+
+        verifyReplayCompleteMessageSent();
+        verifyNoMoreInteractions(replayQuery, cacheMisses);
+    }
+
+    @Test
+    public void shouldResendCachedMessagesUpToTheLastSentMessage()
+    {
+        final int srcLength = cacheExampleMessage();
+        when(senderSequenceNumbers.lastSentSequenceNumber(CONNECTION_ID)).thenReturn(SEQUENCE_NUMBER);
+
+        onRequestResendMessage(bufferHasResendRequest(MOST_RECENT_MESSAGE));
+
+        replayer.doWork();
+
+        assertHasResentWithPossDupFlag(srcLength, times(1));
+        verify(cacheHits).increment();
+        verifyNoMoreInteractions(replayQuery, cacheMisses);
+    }
+
+    @Test
+    public void shouldQueryTheArchiveForMessagesMissingFromTheCache()
+    {
+        final int srcLength = cacheExampleMessage();
+        final int endSeqNo = endSeqNoForTwoMessages();
+
+        onRequestResendMessage(bufferHasResendRequest(endSeqNo));
+
+        replayer.doWork();
+
+        assertHasResentWithPossDupFlag(srcLength, times(1));
+        verify(replayQuery).query(
+            any(),
+            eq(SESSION_ID),
+            eq(BEGIN_SEQ_NO + 1),
+            eq(SEQUENCE_INDEX),
+            eq(endSeqNo),
+            eq(SEQUENCE_INDEX),
+            any());
+
+        replayer.doWork();
+        replayer.doWork();
+
+        verifyReplayCompleteMessageSent();
+
+        // A partial hit is counted once, as a miss
+        verify(cacheMisses, times(1)).increment();
+        verifyNoMoreInteractions(cacheHits, cacheMisses);
+    }
+
+    @Test
+    public void shouldQueryTheArchiveWhenTheFirstMessageIsNotCached()
+    {
+        replayer = newReplayer(newReplayCache());
+
+        onRequestResendMessage(bufferHasResendRequest(END_SEQ_NO));
+
+        verifyQueriedService(END_SEQ_NO);
+        verify(cacheMisses).increment();
+        verifyNoMoreInteractions(cacheHits);
+    }
+
     @After
     public void shouldHaveNoMoreErrors()
     {
         verifyNoMoreInteractions(errorHandler);
     }
 
+    private ReplayCache newReplayCache()
+    {
+        return new ReplayCache(STREAM_ID, 8, 4, 1024, errorHandler, cacheHits, cacheMisses);
+    }
+
+    // Uses a replayer whose cache contains the example message, returns the length of that message
+    private int cacheExampleMessage()
+    {
+        final ReplayCache replayCache = newReplayCache();
+        replayer = newReplayer(replayCache);
+
+        when(fragmentHeader.streamId()).thenReturn(STREAM_ID);
+        bufferContainsExampleMessage(true);
+        final int srcLength = fragmentLength();
+        replayCache.onFragment(buffer, START, srcLength, fragmentHeader);
+        setupMessage(srcLength);
+
+        return srcLength;
+    }
+
     private void claimedAndNothingMore()
     {
         verifyClaim();
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.logbuffer.Header;
+import org.agrona.ErrorHandler;
+import org.agrona.IoUtil;
+import org.agrona.collections.LongArrayList;
+import org.agrona.collections.LongHashSet;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.messages.FixMessageEncoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+
+import java.io.File;
+
+import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
+import static io.aeron.logbuffer.FrameDescriptor.UNFRAGMENTED;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.REPLAY_POSITION_BUFFER_SIZE;
+import static uk.co.real_logic.artio.engine.logger.SecondaryIndexDescriptor.RECORD_LENGTH;
+import static uk.co.real_logic.artio.engine.logger.SecondaryIndexDescriptor.secondaryIndexSegments;
+import static uk.co.real_logic.artio.engine.logger.SecondaryIndexReader.MAX_COALESCED_GAP;
+
+public class SecondaryIndexTest
+{
+    private static final String LOG_FILE_DIR = IoUtil.tmpDirName() + "secondary-index-test";
+    private static final int STREAM_ID = 1;
+    private static final int AERON_SESSION_ID = 2;
+    private static final long RECORDING_ID = 3;
+    private static final int MESSAGE_LENGTH = 96;
+    private static final int FRAME_LENGTH = 128;
+    private static final long SEGMENT_SIZE = 1024 * 1024;
+
+    private static final long EXECUTION_REPORT = 'A' << 8 | '8';
+    private static final long HEARTBEAT = '0';
+    private static final long SESSION_ID = 4;
+    private static final long OTHER_SESSION_ID = 5;
+
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+    private final Header header = mock(Header.class);
+    private final ErrorHandler errorHandler = mock(ErrorHandler.class);
+    private final RecordingIdLookup recordingIdLookup = mock(RecordingIdLookup.class);
+    private final LongHashSet messageTypes = new LongHashSet();
+    private final LongHashSet fixSessionIds = new LongHashSet();
+    private final LongArrayList ranges = new LongArrayList();
+
+    private UnsafeBuffer positionBuffer = new UnsafeBuffer(new byte[REPLAY_POSITION_BUFFER_SIZE]);
+    private SecondaryIndex secondaryIndex;
+    private long position;
+
+    @Before
+    public void setUp()
+    {
+        IoUtil.delete(new File(LOG_FILE_DIR), true);
+        IoUtil.ensureDirectoryExists(new File(LOG_FILE_DIR), LOG_FILE_DIR);
+
+        when(header.streamId()).thenReturn(STREAM_ID);
+        when(header.sessionId()).thenReturn(AERON_SESSION_ID);
+        when(header.flags()).thenReturn(UNFRAGMENTED);
+        when(recordingIdLookup.getRecordingId(AERON_SESSION_ID)).thenReturn(RECORDING_ID);
+
+        newSecondaryIndex(SEGMENT_SIZE, 0);
+    }
+
+    @After
+    public void tearDown()
+    {
+        secondaryIndex.close();
+        IoUtil.delete(new File(LOG_FILE_DIR), true);
+        verifyNoMoreInteractions(errorHandler);
+    }
+
+    @Test
+    public void shouldFindMessagesByMessageType()
+    {
+        final long firstReport = indexMessage(1, EXECUTION_REPORT, SESSION_ID);
+        indexMessage(2, HEARTBEAT, SESSION_ID);
+        skip();
+        final long secondReport = indexMessage(3, EXECUTION_REPORT, OTHER_SESSION_ID);
+
+        messageTypes.add(EXECUTION_REPORT);
+
+        assertRanges(firstReport, firstReport + FRAME_LENGTH, secondReport, NULL_POSITION);
+    }
+
+    @Test
+    public void shouldFindMessagesByMessageTypeAndSession()
+    {
+        final long firstReport = indexMessage(1, EXECUTION_REPORT, SESSION_ID);
+        final long heartbeat = indexMessage(2, HEARTBEAT, SESSION_ID);
+        indexMessage(3, EXECUTION_REPORT, OTHER_SESSION_ID);
+
+        messageTypes.add(EXECUTION_REPORT);
+        fixSessionIds.add(SESSION_ID);
+
+        assertRanges(firstReport, heartbeat);
+    }
+
+    @Test
+    public void shouldFindMessagesBySessionWithinTimeRange()
+    {
+        indexMessage(1, EXECUTION_REPORT, SESSION_ID);
+        final long heartbeat = indexMessage(2, HEARTBEAT, SESSION_ID);
+        final long report = indexMessage(3, EXECUTION_REPORT, SESSION_ID);
+
+        fixSessionIds.add(SESSION_ID);
+
+        assertRangesBetween(2, 3, heartbeat, report);
+    }
+
+    @Test
+    public void shouldCoalesceNearbyMessages()
+    {
+        final long firstReport = indexMessage(1, EXECUTION_REPORT, SESSION_ID);
+        indexMessage(2, HEARTBEAT, SESSION_ID);
+        final long secondReport = indexMessage(3, EXECUTION_REPORT, SESSION_ID);
+        final long lastHeartbeat = indexMessage(4, HEARTBEAT, SESSION_ID);
+
+        messageTypes.add(EXECUTION_REPORT);
+
+        assertRanges(firstReport, lastHeartbeat);
+        assertEquals(secondReport + FRAME_LENGTH, lastHeartbeat);
+    }
+
+    @Test
+    public void shouldNotIndexMessagesTwiceAfterRestart()
+    {
+        final long report = indexMessage(1, EXECUTION_REPORT, SESSION_ID);
+
+        secondaryIndex.close();
+        newSecondaryIndex(SEGMENT_SIZE, 0);
+
+        position = report;
+        indexMessage(1, EXECUTION_REPORT, SESSION_ID);
+        final long heartbeat = indexMessage(2, HEARTBEAT, SESSION_ID);
+
+        messageTypes.add(EXECUTION_REPORT);
+
+        assertRanges(report, heartbeat);
+    }
+
+    @Test
+    public void shouldFindMessagesAcrossSegments()
+    {
+        restartWithSegmentsOfOneRecord(0);
+
+        final long firstReport = indexMessage(1, EXECUTION_REPORT, SESSION_ID);
+        secondaryIndex.doWork();
+        final long heartbeat = indexMessage(2, HEARTBEAT, SESSION_ID);
+        secondaryIndex.doWork();
+        skip();
+        final long secondReport = indexMessage(3, EXECUTION_REPORT, SESSION_ID);
+
+        messageTypes.add(EXECUTION_REPORT);
+
+        assertRanges(firstReport, heartbeat, secondReport, NULL_POSITION);
+        assertArrayEquals(new int[]{ 0, 1, 2, 3 }, secondaryIndexSegments(LOG_FILE_DIR, STREAM_ID));
+    }
+
+    @Test
+    public void shouldOnlyRetainTheConfiguredNumberOfSegments()
+    {
+        restartWithSegmentsOfOneRecord(2);
+
+        indexMessage(1, EXECUTION_REPORT, SESSION_ID);
+        secondaryIndex.doWork();
+        skip();
+        indexMessage(2, EXECUTION_REPORT, SESSION_ID);
+        secondaryIndex.doWork();
+        skip();
+        final long lastReport = indexMessage(3, EXECUTION_REPORT, SESSION_ID);
+
+        messageTypes.add(EXECUTION_REPORT);
+
+        assertRanges(lastReport, NULL_POSITION);
+        assertArrayEquals(new int[]{ 2, 3 }, secondaryIndexSegments(LOG_FILE_DIR, STREAM_ID));
+    }
+
+    @Test
+    public void shouldNotIndexMessagesTwiceAfterRestartWithMultipleSegments()
+    {
+        restartWithSegmentsOfOneRecord(0);
+
+        final long firstReport = indexMessage(1, EXECUTION_REPORT, SESSION_ID);
+        secondaryIndex.doWork();
+        final long secondReport = indexMessage(2, EXECUTION_REPORT, SESSION_ID);
+        secondaryIndex.doWork();
+
+        secondaryIndex.close();
+        newSecondaryIndex(RECORD_LENGTH, 0);
+
+        position = firstReport;
+        indexMessage(1, EXECUTION_REPORT, SESSION_ID);
+        indexMessage(2, EXECUTION_REPORT, SESSION_ID);
+        final long heartbeat = indexMessage(3, HEARTBEAT, SESSION_ID);
+
+        messageTypes.add(EXECUTION_REPORT);
+
+        assertRanges(firstReport, heartbeat);
+        assertEquals(secondReport + FRAME_LENGTH, heartbeat);
+    }
+
+    @Test
+    public void shouldNotIndexMessagesInOldSegmentsAgainAfterRestart()
+    {
+        restartWithSegmentsOfOneRecord(0);
+
+        final long firstReport = indexMessage(1, EXECUTION_REPORT, SESSION_ID);
+        secondaryIndex.doWork();
+        indexMessage(2, EXECUTION_REPORT, SESSION_ID);
+        secondaryIndex.doWork();
+
+        secondaryIndex.close();
+        newSecondaryIndex(RECORD_LENGTH, 0);
+
+        position = firstReport;
+        indexMessage(1, HEARTBEAT, SESSION_ID);
+        indexMessage(2, HEARTBEAT, SESSION_ID);
+        skip();
+        final long heartbeat = indexMessage(3, HEARTBEAT, SESSION_ID);
+
+        messageTypes.add(HEARTBEAT);
+
+        assertRanges(heartbeat, NULL_POSITION);
+    }
+
+    private void restartWithSegmentsOfOneRecord(final int maxSegments)
+    {
+        secondaryIndex.close();
+        IoUtil.delete(new File(LOG_FILE_DIR), true);
+        IoUtil.ensureDirectoryExists(new File(LOG_FILE_DIR), LOG_FILE_DIR);
+        positionBuffer = new UnsafeBuffer(new byte[REPLAY_POSITION_BUFFER_SIZE]);
+        newSecondaryIndex(RECORD_LENGTH, maxSegments);
+    }
+
+    private void assertRanges(final long... expectedRanges)
+    {
+        assertRangesBetween(Long.MIN_VALUE, Long.MAX_VALUE, expectedRanges);
+    }
+
+    private void assertRangesBetween(
+        final long beginTimestampInclusive, final long endTimestampExclusive, final long... expectedRanges)
+    {
+        secondaryIndex.doWork();
+
+        ranges.clear();
+        new SecondaryIndexReader(LOG_FILE_DIR, STREAM_ID, beginTimestampInclusive, endTimestampExclusive).ranges(
+            RECORDING_ID, messageTypes, fixSessionIds, ranges);
+
+        assertArrayEquals(expectedRanges, ranges.toLongArray());
+    }
+
+    private void newSecondaryIndex(final long segmentSize, final int maxSegments)
+    {
+        secondaryIndex = new SecondaryIndex(
+            LOG_FILE_DIR,
+            STREAM_ID,
+            segmentSize,
+            maxSegments,
+            positionBuffer,
+            errorHandler,
+            recordingIdLookup);
+    }
+
+    private void skip()
+    {
+        position += MAX_COALESCED_GAP + FRAME_LENGTH;
+    }
+
+    // returns the position that the message begins at
+    private long indexMessage(final long timestamp, final long messageType, final long fixSessionId)
+    {
+        new FixMessageEncoder()
+            .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+            .timestamp(timestamp)
+            .messageType(messageType)
+            .session(fixSessionId);
+
+        final long beginPosition = position;
+        position += FRAME_LENGTH;
+        when(header.position()).thenReturn(position);
+
+        secondaryIndex.onFragment(buffer, 0, MESSAGE_LENGTH, header);
+
+        return beginPosition;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.Aeron;
+import io.aeron.CommonContext;
+import io.aeron.Subscription;
+import io.aeron.archive.ArchivingMediaDriver;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.codecs.SourceLocation;
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import org.agrona.ErrorHandler;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.NoOpIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.CommonConfiguration;
+import uk.co.real_logic.artio.TestFixtures;
+import uk.co.real_logic.artio.dictionary.generation.Exceptions;
+
+import java.io.File;
+import java.util.stream.IntStream;
+
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.LogTag.REPLAY;
+import static uk.co.real_logic.artio.TestFixtures.cleanupMediaDriver;
+import static uk.co.real_logic.artio.engine.EngineConfiguration.*;
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.*;
+
+public class SegmentedReplayIndexTest extends AbstractLogTest
+{
+    private static final String CHANNEL = CommonContext.IPC_CHANNEL;
+    private static final String LOG_FILE_DIR = IoUtil.tmpDirName() + "segmented-replay-index-test";
+    private static final int RECORDS_PER_SEGMENT = 4;
+    private static final int SEGMENT_SIZE = INITIAL_RECORD_OFFSET + RECORDS_PER_SEGMENT * RECORD_LENGTH;
+    private static final int MAX_SEGMENTS = 3;
+
+    private final UnsafeBuffer replayPositionBuffer = new UnsafeBuffer(new byte[REPLAY_POSITION_BUFFER_SIZE]);
+    private final ControlledFragmentHandler mockHandler = mock(ControlledFragmentHandler.class);
+    private final ErrorHandler errorHandler = mock(ErrorHandler.class);
+
+    private ArchivingMediaDriver mediaDriver;
+    private AeronArchive aeronArchive;
+    private Subscription subscription;
+    private RecordingIdLookup recordingIdLookup;
+    private ReplayIndex replayIndex;
+    private ReplayQuery query;
+
+    @Before
+    public void setUp()
+    {
+        IoUtil.delete(new File(LOG_FILE_DIR), true);
+        IoUtil.ensureDirectoryExists(new File(LOG_FILE_DIR), LOG_FILE_DIR);
+
+        mediaDriver = TestFixtures.launchMediaDriver();
+        aeronArchive = AeronArchive.connect();
+        final Aeron aeron = aeronArchive.context().aeron();
+        recordingIdLookup = new RecordingIdLookup(new YieldingIdleStrategy(), aeron.countersReader());
+
+        aeronArchive.startRecording(CHANNEL, STREAM_ID, SourceLocation.LOCAL);
+        publication = aeron.addExclusivePublication(CHANNEL, STREAM_ID);
+        subscription = aeron.addSubscription(CHANNEL, STREAM_ID);
+
+        newReplayIndex();
+        query = new ReplayQuery(
+            LOG_FILE_DIR,
+            DEFAULT_LOGGER_CACHE_NUM_SETS,
+            DEFAULT_LOGGER_CACHE_SET_SIZE,
+            LoggerUtil::mapExistingFile,
+            STREAM_ID,
+            true,
+            true,
+            new NoOpIdleStrategy(),
+            aeronArchive,
+            errorHandler,
+            DEFAULT_ARCHIVE_REPLAY_STREAM);
+
+        when(mockHandler.onFragment(any(), anyInt(), anyInt(), any())).thenReturn(CONTINUE);
+    }
+
+    @After
+    public void tearDown()
+    {
+        Exceptions.closeAll(query, replayIndex, aeronArchive);
+        cleanupMediaDriver(mediaDriver);
+        IoUtil.delete(new File(LOG_FILE_DIR), true);
+        verifyNoMoreInteractions(errorHandler);
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldQueryAcrossSegments()
+    {
+        indexMessages(1, 10);
+
+        assertSegmentsAre(0, 1, 2);
+        assertEquals(7, query(3, 9));
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldQueryWithinLaterSegment()
+    {
+        indexMessages(1, 10);
+
+        assertEquals(2, query(6, 7));
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldQueryFromWithinLaterSequenceIndex()
+    {
+        indexMessages(1, 6);
+        indexMessages(1, 6, SEQUENCE_INDEX + 1);
+
+        assertEquals(3, query(3, SEQUENCE_INDEX + 1, 5, SEQUENCE_INDEX + 1));
+        assertEquals(6, query(4, SEQUENCE_INDEX, 3, SEQUENCE_INDEX + 1));
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldDeleteOldestSegments()
+    {
+        indexMessages(1, 20);
+
+        assertSegmentsAre(2, 3, 4);
+        assertEquals(12, query(1, 20));
+        assertEquals(3, query(10, 12));
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldQuerySegmentsAddedAndDeletedSinceLastQuery()
+    {
+        indexMessages(1, 6);
+        assertEquals(6, query(1, 6));
+
+        indexMessages(7, 16);
+
+        assertSegmentsAre(1, 2, 3);
+        assertEquals(12, query(1, 16));
+        assertEquals(3, query(14, 16));
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldContinueLastSegmentAfterRestart()
+    {
+        indexMessages(1, 2);
+
+        replayIndex.close();
+        newReplayIndex();
+
+        indexMessages(3, 6);
+
+        assertSegmentsAre(0, 1);
+        assertEquals(6, query(1, 6));
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldNotIndexFragmentsAgainWhenCatchingUpAfterRestart()
+    {
+        final Subscription catchUpSubscription = aeronArchive.context().aeron().addSubscription(CHANNEL, STREAM_ID);
+        while (!catchUpSubscription.isConnected())
+        {
+            Thread.yield();
+        }
+
+        indexMessages(1, 6);
+
+        replayIndex.close();
+        newReplayIndex();
+
+        // As if the engine had stopped before the positions of these fragments were written.
+        int fragmentsRead = 0;
+        while (fragmentsRead < 6)
+        {
+            fragmentsRead += catchUpSubscription.poll(replayIndex, 6);
+        }
+
+        indexMessages(7, 8);
+
+        assertSegmentsAre(0, 1);
+        assertEquals(8, query(1, 8));
+    }
+
+    private void newReplayIndex()
+    {
+        replayIndex = new ReplayIndex(
+            LOG_FILE_DIR,
+            STREAM_ID,
+            SEGMENT_SIZE,
+            MAX_SEGMENTS,
+            DEFAULT_LOGGER_CACHE_NUM_SETS,
+            DEFAULT_LOGGER_CACHE_SET_SIZE,
+            LoggerUtil::map,
+            replayPositionBuffer,
+            errorHandler,
+            recordingIdLookup);
+    }
+
+    private void assertSegmentsAre(final int... segments)
+    {
+        assertArrayEquals(segments, replayIndexSegments(LOG_FILE_DIR, SESSION_ID, STREAM_ID));
+    }
+
+    private void indexMessages(final int beginSequenceNumber, final int endSequenceNumber)
+    {
+        indexMessages(beginSequenceNumber, endSequenceNumber, SEQUENCE_INDEX);
+    }
+
+    private void indexMessages(final int beginSequenceNumber, final int endSequenceNumber, final int sequenceIndex)
+    {
+        IntStream.rangeClosed(beginSequenceNumber, endSequenceNumber).forEach((sequenceNumber) ->
+        {
+            bufferContainsExampleMessage(true, SESSION_ID, sequenceNumber, sequenceIndex);
+
+            while (publication.offer(buffer, START, logEntryLength + PREFIX_LENGTH) <= 0)
+            {
+                Thread.yield();
+            }
+
+            while (subscription.poll(replayIndex, 1) == 0)
+            {
+                Thread.yield();
+            }
+        });
+    }
+
+    private int query(final int beginSequenceNumber, final int endSequenceNumber)
+    {
+        return query(beginSequenceNumber, SEQUENCE_INDEX, endSequenceNumber, SEQUENCE_INDEX);
+    }
+
+    private int query(
+        final int beginSequenceNumber,
+        final int beginSequenceIndex,
+        final int endSequenceNumber,
+        final int endSequenceIndex)
+    {
+        final ReplayOperation operation = query.query(
+            mockHandler,
+            SESSION_ID,
+            beginSequenceNumber,
+            beginSequenceIndex,
+            endSequenceNumber,
+            endSequenceIndex,
+            REPLAY);
+
+        final IdleStrategy idleStrategy = CommonConfiguration.backoffIdleStrategy();
+        while (!operation.attemptReplay())
+        {
+            idleStrategy.idle();
+        }
+
+        return operation.replayedMessages();
+    }
+}
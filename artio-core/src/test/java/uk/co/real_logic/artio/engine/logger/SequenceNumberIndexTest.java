@@ -37,11 +37,14 @@ import uk.co.real_logic.artio.engine.SessionInfo;
 import uk.co.real_logic.artio.engine.framer.FakeEpochClock;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 
 import static io.aeron.CommonContext.IPC_CHANNEL;
 import static org.agrona.IoUtil.deleteIfExists;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -57,7 +60,7 @@ import static uk.co.real_logic.artio.engine.logger.SequenceNumberIndexWriter.SEQ
 
 public class SequenceNumberIndexTest extends AbstractLogTest
 {
-    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
     private static final String INDEX_FILE_PATH = IoUtil.tmpDirName() + "/SequenceNumberIndex";
 
     private AtomicBuffer inMemoryBuffer = newBuffer();
@@ -67,6 +70,7 @@ public class SequenceNumberIndexTest extends AbstractLogTest
     private SequenceNumberIndexReader reader;
     private RecordingIdLookup recordingIdLookup = mock(RecordingIdLookup.class);
     private FakeEpochClock clock = new FakeEpochClock();
+    private boolean journal = false;
 
     private MediaDriver mediaDriver = launchJustMediaDriver();
     private Aeron aeron;
@@ -254,6 +258,143 @@ public class SequenceNumberIndexTest extends AbstractLogTest
         verify(errorHandler, times(2), IllegalStateException.class);
     }
 
+    @Test
+    public void shouldAppendNewSessionsAfterRestart()
+    {
+        final int sessionCount = SECTOR_SIZE / RECORD_SIZE + 1;
+        for (int i = 1; i <= sessionCount; i++)
+        {
+            bufferContainsExampleMessage(true, i, i + SEQUENCE_NUMBER, SEQUENCE_INDEX);
+            indexRecord();
+        }
+
+        writer.close();
+        writer = newWriter(inMemoryBuffer);
+
+        final long newSessionId = sessionCount + 1;
+        bufferContainsExampleMessage(true, SESSION_ID, SEQUENCE_NUMBER + 10, SEQUENCE_INDEX);
+        indexRecord();
+        bufferContainsExampleMessage(true, newSessionId, SEQUENCE_NUMBER, SEQUENCE_INDEX);
+        indexRecord();
+
+        assertLastKnownSequenceNumberIs(SESSION_ID, SEQUENCE_NUMBER + 10);
+        assertLastKnownSequenceNumberIs(SESSION_ID_2, (int)SESSION_ID_2 + SEQUENCE_NUMBER);
+        assertLastKnownSequenceNumberIs(newSessionId, SEQUENCE_NUMBER);
+        assertLastKnownSequenceNumberIs(newSessionId + 1, SessionInfo.UNK_SESSION);
+    }
+
+    @Test
+    public void shouldResizeIndexFileWhenBufferSizeChanges()
+    {
+        indexFixMessage();
+        bufferContainsExampleMessage(true, SESSION_ID_2, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+        final long position = indexRecord();
+
+        writer.close();
+
+        final int resizedBufferSize = 2 * BUFFER_SIZE;
+        final AtomicBuffer resizedBuffer = new UnsafeBuffer(new byte[resizedBufferSize]);
+        writer = newWriter(resizedBuffer);
+        writer.close();
+
+        assertEquals(resizedBufferSize, new File(INDEX_FILE_PATH).length());
+
+        final AtomicBuffer reloadedBuffer = new UnsafeBuffer(new byte[resizedBufferSize]);
+        newWriter(reloadedBuffer).close();
+        final SequenceNumberIndexReader newReader = new SequenceNumberIndexReader(reloadedBuffer, errorHandler, null);
+        assertLastKnownSequenceNumberIs(SESSION_ID, SEQUENCE_NUMBER, newReader);
+        assertLastKnownSequenceNumberIs(SESSION_ID_2, SEQUENCE_NUMBER + 1, newReader);
+        assertEquals(position, newReader.indexedPosition(publication.sessionId()));
+    }
+
+    @Test
+    public void shouldJournalChangedSectorsOnFlush()
+    {
+        journalWrites();
+
+        indexFixMessage();
+        flush();
+
+        bufferContainsExampleMessage(true, SESSION_ID_2, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+        indexRecord();
+        flush();
+
+        final File journalFile = journalFile(INDEX_FILE_PATH);
+        assertTrue(journalFile.exists());
+        assertThat(journalFile.length(), Matchers.greaterThan((long)SECTOR_SIZE));
+        assertThat(journalFile.length(), Matchers.lessThan((long)BUFFER_SIZE / 4));
+
+        final SequenceNumberIndexReader newReader = newInstanceAfterRestart();
+        assertLastKnownSequenceNumberIs(SESSION_ID, SEQUENCE_NUMBER, newReader);
+        assertLastKnownSequenceNumberIs(SESSION_ID_2, SEQUENCE_NUMBER + 1, newReader);
+    }
+
+    /**
+     * Simulate scenario that you've crashed halfway through writing sectors into the index file.
+     */
+    @Test
+    public void shouldRecoverInterruptedFlushFromJournal()
+    {
+        journalWrites();
+
+        indexFixMessage();
+        flush();
+
+        bufferContainsExampleMessage(true, SESSION_ID, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+        indexRecord();
+        flush();
+
+        writer.close();
+
+        corruptIndexFile(SEQUENCE_NUMBER_OFFSET, SECTOR_SIZE / 2);
+
+        final SequenceNumberIndexReader newReader = newInstanceAfterRestart();
+        assertLastKnownSequenceNumberIs(SESSION_ID, SEQUENCE_NUMBER + 1, newReader);
+        assertEquals(0, journalFile(INDEX_FILE_PATH).length());
+    }
+
+    /**
+     * Simulate scenario that you've crashed halfway through writing the journal.
+     */
+    @Test
+    public void shouldIgnoreIncompleteJournal() throws IOException
+    {
+        journalWrites();
+
+        indexFixMessage();
+        flush();
+
+        bufferContainsExampleMessage(true, SESSION_ID, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+        indexRecord();
+        flush();
+
+        writer.close();
+
+        final File journalFile = journalFile(INDEX_FILE_PATH);
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw"))
+        {
+            file.setLength(file.length() / 2);
+        }
+
+        final SequenceNumberIndexReader newReader = newInstanceAfterRestart();
+        assertLastKnownSequenceNumberIs(SESSION_ID, SEQUENCE_NUMBER + 1, newReader);
+        assertEquals(0, journalFile.length());
+    }
+
+    private void journalWrites()
+    {
+        writer.close();
+        deleteFiles();
+        journal = true;
+        writer = newWriter(inMemoryBuffer);
+    }
+
+    private void flush()
+    {
+        clock.advanceMilliSeconds(DEFAULT_INDEX_FILE_STATE_FLUSH_TIMEOUT_IN_MS + 1);
+        assertEquals(1, writer.doWork());
+    }
+
     private void corruptIndexFile(final int from, final int length)
     {
         try (MappedFile mappedFile = newIndexFile())
@@ -323,7 +464,7 @@ public class SequenceNumberIndexTest extends AbstractLogTest
     {
         final MappedFile indexFile = newIndexFile();
         return new SequenceNumberIndexWriter(inMemoryBuffer, indexFile, errorHandler, STREAM_ID, recordingIdLookup,
-            DEFAULT_INDEX_FILE_STATE_FLUSH_TIMEOUT_IN_MS, clock, null);
+            DEFAULT_INDEX_FILE_STATE_FLUSH_TIMEOUT_IN_MS, clock, null, journal);
     }
 
     private MappedFile newIndexFile()
@@ -407,5 +548,6 @@ public class SequenceNumberIndexTest extends AbstractLogTest
         deleteIfExists(new File(INDEX_FILE_PATH));
         deleteIfExists(writableFile(INDEX_FILE_PATH));
         deleteIfExists(passingFile(INDEX_FILE_PATH));
+        deleteIfExists(journalFile(INDEX_FILE_PATH));
     }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.logbuffer.Header;
+import org.agrona.ErrorHandler;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.messages.FixMessageEncoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+
+import java.io.File;
+
+import static io.aeron.logbuffer.FrameDescriptor.UNFRAGMENTED;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.REPLAY_POSITION_BUFFER_SIZE;
+
+public class TimeIndexTest
+{
+    private static final String LOG_FILE_DIR = IoUtil.tmpDirName() + "time-index-test";
+    private static final int STREAM_ID = 1;
+    private static final int AERON_SESSION_ID = 2;
+    private static final long RECORDING_ID = 3;
+    private static final long INTERVAL = 100;
+    private static final int MESSAGE_LENGTH = 96;
+    private static final long DEFAULT_START = 0;
+    private static final long DEFAULT_STOP = 10_000;
+
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+    private final Header header = mock(Header.class);
+    private final ErrorHandler errorHandler = mock(ErrorHandler.class);
+    private final RecordingIdLookup recordingIdLookup = mock(RecordingIdLookup.class);
+
+    private TimeIndex timeIndex;
+    private long position = 1024;
+
+    @Before
+    public void setUp()
+    {
+        IoUtil.delete(new File(LOG_FILE_DIR), true);
+        IoUtil.ensureDirectoryExists(new File(LOG_FILE_DIR), LOG_FILE_DIR);
+
+        when(header.streamId()).thenReturn(STREAM_ID);
+        when(header.sessionId()).thenReturn(AERON_SESSION_ID);
+        when(header.flags()).thenReturn(UNFRAGMENTED);
+        when(recordingIdLookup.getRecordingId(AERON_SESSION_ID)).thenReturn(RECORDING_ID);
+
+        newTimeIndex();
+    }
+
+    @After
+    public void tearDown()
+    {
+        timeIndex.close();
+        IoUtil.delete(new File(LOG_FILE_DIR), true);
+        verifyNoMoreInteractions(errorHandler);
+    }
+
+    @Test
+    public void shouldOnlyIndexMessagesAfterTheInterval()
+    {
+        indexMessage(1000);
+        indexMessage(1050);
+        final long thirdPosition = indexMessage(1100);
+        final long fourthPosition = indexMessage(1250);
+        final long fifthPosition = indexMessage(1400);
+        final long sixthPosition = indexMessage(1500);
+
+        final TimeIndexReader reader = newReader();
+
+        assertEquals(DEFAULT_START, reader.startPosition(RECORDING_ID, 1050, DEFAULT_START));
+        assertEquals(thirdPosition, reader.startPosition(RECORDING_ID, 1260, DEFAULT_START));
+        assertEquals(thirdPosition, reader.startPosition(RECORDING_ID, 1400, DEFAULT_START));
+        assertEquals(fourthPosition, reader.startPosition(RECORDING_ID, 1450, DEFAULT_START));
+
+        assertEquals(fourthPosition, reader.stopPosition(RECORDING_ID, 1060, DEFAULT_STOP));
+        assertEquals(fifthPosition, reader.stopPosition(RECORDING_ID, 1250, DEFAULT_STOP));
+        assertEquals(sixthPosition, reader.stopPosition(RECORDING_ID, 1400, DEFAULT_STOP));
+        assertEquals(DEFAULT_STOP, reader.stopPosition(RECORDING_ID, 1450, DEFAULT_STOP));
+    }
+
+    @Test
+    public void shouldBoundMessagesThatArePublishedOutOfOrder()
+    {
+        final long firstPosition = indexMessage(1000);
+        indexMessage(1100);
+        indexMessage(1180);
+        final long fourthPosition = indexMessage(1200);
+        final long latePosition = indexMessage(1110);
+        final long sixthPosition = indexMessage(1300);
+        indexMessage(1400);
+
+        final TimeIndexReader reader = newReader();
+
+        assertEquals(firstPosition, reader.startPosition(RECORDING_ID, 1150, DEFAULT_START));
+        assertEquals(fourthPosition, reader.startPosition(RECORDING_ID, 1350, DEFAULT_START));
+
+        final long stopPosition = reader.stopPosition(RECORDING_ID, 1150, DEFAULT_STOP);
+        assertThat(stopPosition, greaterThan(latePosition));
+        assertEquals(sixthPosition, stopPosition);
+    }
+
+    @Test
+    public void shouldReturnDefaultsForUnknownRecordings()
+    {
+        indexMessage(1000);
+
+        final TimeIndexReader reader = newReader();
+
+        assertEquals(DEFAULT_START, reader.startPosition(RECORDING_ID + 1, 2000, DEFAULT_START));
+        assertEquals(DEFAULT_STOP, reader.stopPosition(RECORDING_ID + 1, 500, DEFAULT_STOP));
+    }
+
+    @Test
+    public void shouldContinueIntervalAfterRestart()
+    {
+        indexMessage(1000);
+        final long secondPosition = indexMessage(1100);
+
+        timeIndex.close();
+        newTimeIndex();
+
+        indexMessage(1150);
+        indexMessage(1200);
+        final long fifthPosition = indexMessage(1300);
+
+        final TimeIndexReader reader = newReader();
+
+        assertEquals(secondPosition, reader.startPosition(RECORDING_ID, 1300, DEFAULT_START));
+        assertEquals(fifthPosition, reader.stopPosition(RECORDING_ID, 1160, DEFAULT_STOP));
+    }
+
+    private void newTimeIndex()
+    {
+        timeIndex = new TimeIndex(
+            LOG_FILE_DIR,
+            STREAM_ID,
+            INTERVAL,
+            new UnsafeBuffer(new byte[REPLAY_POSITION_BUFFER_SIZE]),
+            errorHandler,
+            recordingIdLookup);
+    }
+
+    private TimeIndexReader newReader()
+    {
+        return new TimeIndexReader(TimeIndexDescriptor.timeIndexFile(LOG_FILE_DIR, STREAM_ID));
+    }
+
+    // returns the position that the message begins at
+    private long indexMessage(final long timestamp)
+    {
+        new FixMessageEncoder()
+            .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+            .timestamp(timestamp);
+
+        final long beginPosition = position;
+        position += 128;
+        when(header.position()).thenReturn(position);
+
+        timeIndex.onFragment(buffer, 0, MESSAGE_LENGTH, header);
+
+        return beginPosition;
+    }
+}
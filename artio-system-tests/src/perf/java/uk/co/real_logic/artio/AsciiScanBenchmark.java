@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+import static uk.co.real_logic.artio.util.AsciiBuffer.SEPARATOR;
+
+/**
+ * Compares byte at a time and word at a time scanning, the scanning mode is fixed per JVM so each mode runs in its
+ * own fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class AsciiScanBenchmark
+{
+    private static final String BYTE_SCAN = "-D" + MutableAsciiBuffer.WORD_SCAN_PROP + "=false";
+    private static final String WORD_SCAN = "-D" + MutableAsciiBuffer.WORD_SCAN_PROP + "=true";
+
+    @Param({"EXECUTION_REPORT", "MARKET_DATA_SNAPSHOT"})
+    String message;
+
+    private MutableAsciiBuffer buffer;
+    private int end;
+
+    @Setup
+    public void setup()
+    {
+        buffer = new MutableAsciiBuffer("EXECUTION_REPORT".equals(message) ?
+            TestData.EXECUTION_REPORT : TestData.MARKET_DATA_SNAPSHOT);
+        end = buffer.capacity() - 1;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = BYTE_SCAN)
+    public int byteScanFields()
+    {
+        return scanFields();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = WORD_SCAN)
+    public int wordScanFields()
+    {
+        return scanFields();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = BYTE_SCAN)
+    public int byteScanFieldsBackwards()
+    {
+        return scanFieldsBackwards();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = WORD_SCAN)
+    public int wordScanFieldsBackwards()
+    {
+        return scanFieldsBackwards();
+    }
+
+    // Walks the message in the same way as a generated decoder's decode loop.
+    private int scanFields()
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        final int end = this.end;
+
+        int fieldCount = 0;
+        int position = 0;
+        while (position < end)
+        {
+            final int equalsPosition = buffer.scan(position, end, '=');
+            final int endOfField = buffer.scan(equalsPosition + 1, end, SEPARATOR);
+            position = endOfField + 1;
+            fieldCount++;
+        }
+
+        return fieldCount;
+    }
+
+    private int scanFieldsBackwards()
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+
+        int fieldCount = 0;
+        int position = end - 1;
+        while (position > 0)
+        {
+            position = buffer.scanBack(position, 0, SEPARATOR) - 1;
+            fieldCount++;
+        }
+
+        return fieldCount;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.util.ByteChecksumCalculator;
+import uk.co.real_logic.artio.util.WordChecksumCalculator;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ChecksumBenchmark
+{
+    private final ByteChecksumCalculator byteAtATime = new ByteChecksumCalculator();
+    private final WordChecksumCalculator wordAtATime = new WordChecksumCalculator();
+
+    // Roughly: a heartbeat, an execution report, a market data snapshot, a mass quote and a large snapshot
+    @Param({"64", "309", "454", "4096", "65536"})
+    int size;
+
+    private UnsafeBuffer buffer;
+
+    @Setup
+    public void setup()
+    {
+        final UnsafeBuffer message = size == TestData.EXECUTION_REPORT.capacity() ?
+            TestData.EXECUTION_REPORT : TestData.MARKET_DATA_SNAPSHOT;
+
+        buffer = new UnsafeBuffer(new byte[size]);
+        for (int offset = 0; offset < size; offset += message.capacity())
+        {
+            buffer.putBytes(offset, message, 0, Math.min(message.capacity(), size - offset));
+        }
+    }
+
+    @Benchmark
+    public int byteAtATime()
+    {
+        return byteAtATime.computeChecksum(buffer, 0, size);
+    }
+
+    @Benchmark
+    public int wordAtATime()
+    {
+        return wordAtATime.computeChecksum(buffer, 0, size);
+    }
+}
@@ -34,6 +34,7 @@ import java.util.concurrent.TimeUnit;
 public class StubDecoderBenchmark
 {
     private LogonDecoder logonDecoder = new LogonDecoder();
+    private HeaderDecoder headerDecoder = new HeaderDecoder();
     private AsciiBuffer buffer = new MutableAsciiBuffer(TestData.LOGON);
 
     @Setup
@@ -78,4 +79,11 @@ public class StubDecoderBenchmark
         bh.consume(logonDecoder.username());
     }
 
+    // Only dispatches the header fields before stopping at the first body field
+    @Benchmark
+    public void decodeHeader(final Blackhole bh)
+    {
+        bh.consume(headerDecoder.decode(buffer, 0, buffer.capacity()));
+        bh.consume(headerDecoder.msgSeqNum());
+    }
 }
@@ -34,6 +34,7 @@ import java.util.concurrent.TimeUnit;
 public class StubValidatingDecoderBenchmark
 {
     private LogonDecoder logonDecoder = new LogonDecoder();
+    private HeaderDecoder headerDecoder = new HeaderDecoder();
     private AsciiBuffer asciiBuffer = new MutableAsciiBuffer(TestData.LOGON);
 
     @Setup
@@ -85,4 +86,13 @@ public class StubValidatingDecoderBenchmark
         bh.consume(logonDecoder.validate());
     }
 
+    // Only dispatches the header fields before stopping at the first body field
+    @Benchmark
+    public void decodeHeader(final Blackhole bh)
+    {
+        bh.consume(headerDecoder.decode(asciiBuffer, 0, asciiBuffer.capacity()));
+        bh.consume(headerDecoder.msgSeqNum());
+
+        bh.consume(headerDecoder.validate());
+    }
 }
@@ -31,4 +31,21 @@ public final class TestData
         ("8=FIX.4.4\0019=0103\00135=A\00149=ABC_DEFG01\00156=CCG\00134=10\001" +
         "52=20150514-15:57:31.336\00198=0\001108=10\001383=512\001553=username" +
         "\001554=password\00110=243\001").getBytes(StandardCharsets.US_ASCII));
+
+    public static final UnsafeBuffer EXECUTION_REPORT = new UnsafeBuffer(
+        ("8=FIX.4.4\0019=286\00135=8\00149=EXCHANGE\00156=CLIENT01\00134=1024\001" +
+        "52=20200417-09:30:00.123\00137=ORD-100042\00111=CLORD-000042\00117=EXEC-7781\001150=F\00139=1\001" +
+        "1=ACCT-0001\00155=VOD.L\00148=GB00BH4HKS39\00122=4\001207=XLON\00154=1\00138=10000\00140=2\001" +
+        "44=142.35\00159=0\00132=2500\00131=142.35\001151=7500\00114=2500\0016=142.35\001" +
+        "60=20200417-09:30:00.121\00158=Partial fill\00110=251\001").getBytes(StandardCharsets.US_ASCII));
+
+    public static final UnsafeBuffer MARKET_DATA_SNAPSHOT = new UnsafeBuffer(
+        ("8=FIX.4.4\0019=431\00135=W\00149=EXCHANGE\00156=CLIENT01\00134=2048\001" +
+        "52=20200417-09:30:00.456\001262=MDREQ-1\00155=VOD.L\00148=GB00BH4HKS39\00122=4\001268=10\001" +
+        "269=0\001270=142.30\001271=1000\001290=1\001269=0\001270=142.25\001271=2000\001290=2\001" +
+        "269=0\001270=142.20\001271=3000\001290=3\001269=0\001270=142.15\001271=4000\001290=4\001" +
+        "269=0\001270=142.10\001271=5000\001290=5\001269=1\001270=142.35\001271=1500\001290=1\001" +
+        "269=1\001270=142.40\001271=3000\001290=2\001269=1\001270=142.45\001271=4500\001290=3\001" +
+        "269=1\001270=142.50\001271=6000\001290=4\001269=1\001270=142.55\001271=7500\001290=5\001" +
+        "10=221\001").getBytes(StandardCharsets.US_ASCII));
 }
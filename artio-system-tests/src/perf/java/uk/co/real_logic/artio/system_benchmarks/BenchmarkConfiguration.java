@@ -18,6 +18,7 @@ package uk.co.real_logic.artio.system_benchmarks;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.NoOpIdleStrategy;
 import org.agrona.concurrent.YieldingIdleStrategy;
+import uk.co.real_logic.artio.engine.ReceiverPollingPolicy;
 
 import static io.aeron.CommonContext.IPC_CHANNEL;
 import static uk.co.real_logic.artio.CommonConfiguration.backoffIdleStrategy;
@@ -37,6 +38,8 @@ public final class BenchmarkConfiguration
     public static final int MAX_MESSAGES_IN_FLIGHT = Integer.getInteger("fix.benchmark.max_messages_in_flight", 20);
     public static final int SEND_RATE_PER_SECOND = Integer.getInteger("fix.benchmark.send_rate_sec", 1_000);
     public static final int NUMBER_OF_SESSIONS = Integer.getInteger("fix.benchmark.num_sessions", 1);
+    public static final ReceiverPollingPolicy RECEIVER_POLLING_POLICY = ReceiverPollingPolicy.valueOf(
+        System.getProperty("fix.benchmark.receiver_polling", ReceiverPollingPolicy.ADAPTIVE.name()));
 
     static IdleStrategy idleStrategy()
     {
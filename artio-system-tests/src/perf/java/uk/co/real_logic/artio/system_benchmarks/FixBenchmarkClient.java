@@ -29,6 +29,10 @@ public final class FixBenchmarkClient
         {
             ManyConnectionsBenchmarkClient.main(args);
         }
+        else if (TYPE.equalsIgnoreCase("many-idle-connections"))
+        {
+            ManyIdleConnectionsBenchmarkClient.main(args);
+        }
         else if (TYPE.equalsIgnoreCase("repeat-connections"))
         {
             RepeatConnectionBenchmarkClient.main(args);
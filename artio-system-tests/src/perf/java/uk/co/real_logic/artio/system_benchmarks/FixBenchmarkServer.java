@@ -89,7 +89,8 @@ public final class FixBenchmarkServer
             .logFileDir(acceptorLogs)
             .logInboundMessages(LOG_INBOUND_MESSAGES)
             .logOutboundMessages(LOG_OUTBOUND_MESSAGES)
-            .framerIdleStrategy(idleStrategy());
+            .framerIdleStrategy(idleStrategy())
+            .receiverPollingPolicy(RECEIVER_POLLING_POLICY);
     }
 
     private static LibraryConfiguration libraryConfiguration()
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015-2020 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.system_benchmarks;
+
+import org.HdrHistogram.Histogram;
+import uk.co.real_logic.artio.builder.HeaderEncoder;
+import uk.co.real_logic.artio.builder.TestRequestEncoder;
+import uk.co.real_logic.artio.timing.HistogramLogReader;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static uk.co.real_logic.artio.system_benchmarks.BenchmarkConfiguration.*;
+import static uk.co.real_logic.artio.system_benchmarks.ManyConnectionsBenchmarkClient.NUMBER_OF_CLIENTS;
+
+/**
+ * Logs on the same sessions as the {@link ManyConnectionsBenchmarkClient} but keeps them connected and idle, then
+ * measures the round trip time of test requests on one active session as the number of idle sessions grows.
+ * Every round trip costs the Framer an inbound and an outbound duty cycle, so this shows how its per-cycle cost
+ * scales with the number of connections. Run the server with <code>fix.benchmark.receiver_polling</code> set to
+ * compare the receiver polling policies.
+ */
+public final class ManyIdleConnectionsBenchmarkClient extends AbstractBenchmarkClient
+{
+    // Long enough that the idle sessions don't need to heartbeat for the duration of the benchmark.
+    private static final int HEARTBEAT_INTERVAL_IN_S = 3600;
+    private static final int[] IDLE_SESSION_COUNTS = {0, 10, 100, 1_000, NUMBER_OF_CLIENTS};
+
+    private final List<SocketChannel> idleChannels = new ArrayList<>();
+    private int activeSequenceNumber = 2;
+
+    public static void main(final String[] args) throws IOException
+    {
+        new ManyIdleConnectionsBenchmarkClient().runBenchmark();
+    }
+
+    public void runBenchmark() throws IOException
+    {
+        try (SocketChannel activeChannel = open())
+        {
+            logon(activeChannel, INITIATOR_ID, HEARTBEAT_INTERVAL_IN_S);
+
+            final TestRequestEncoder testRequest = setupTestRequest();
+            final HeaderEncoder header = testRequest.header();
+            final Histogram histogram = new Histogram(3);
+
+            exchangeMessages(activeChannel, testRequest, header, WARMUP_MESSAGES, histogram);
+            System.out.println("Warmup Complete");
+
+            for (final int idleSessionCount : IDLE_SESSION_COUNTS)
+            {
+                logonIdleSessions(idleSessionCount);
+
+                parkAfterWarmup();
+
+                histogram.reset();
+                exchangeMessages(activeChannel, testRequest, header, MESSAGES_EXCHANGED, histogram);
+
+                HistogramLogReader.prettyPrint(
+                    System.currentTimeMillis(),
+                    histogram,
+                    "Client in Micros with " + idleSessionCount + " idle sessions",
+                    1000);
+            }
+        }
+        finally
+        {
+            for (final SocketChannel idleChannel : idleChannels)
+            {
+                idleChannel.close();
+            }
+        }
+    }
+
+    private void logonIdleSessions(final int idleSessionCount) throws IOException
+    {
+        for (int i = idleChannels.size(); i < idleSessionCount; i++)
+        {
+            final SocketChannel socketChannel = open();
+            idleChannels.add(socketChannel);
+            logon(socketChannel, INITIATOR_ID + i, HEARTBEAT_INTERVAL_IN_S);
+        }
+
+        System.out.printf("Logged on %d idle sessions%n", idleSessionCount);
+    }
+
+    private void exchangeMessages(
+        final SocketChannel socketChannel,
+        final TestRequestEncoder testRequest,
+        final HeaderEncoder header,
+        final int messageCount,
+        final Histogram histogram)
+        throws IOException
+    {
+        for (int i = 0; i < messageCount; i++)
+        {
+            header.msgSeqNum(activeSequenceNumber++);
+            timestampEncoder.encode(System.currentTimeMillis());
+
+            final long result = testRequest.encode(writeFlyweight, 0);
+
+            final long sendingTime = System.nanoTime();
+            write(socketChannel, result);
+
+            read(socketChannel);
+            histogram.recordValue(System.nanoTime() - sendingTime);
+        }
+    }
+}
@@ -19,15 +19,24 @@ import org.agrona.CloseHelper;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
+import uk.co.real_logic.artio.CommonConfiguration;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
+import uk.co.real_logic.artio.engine.FixEngine;
+import uk.co.real_logic.artio.engine.logger.FixArchiveScanner;
 import uk.co.real_logic.artio.library.LibraryConfiguration;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
 import static uk.co.real_logic.artio.TestFixtures.largeTestReqId;
 import static uk.co.real_logic.artio.TestFixtures.launchMediaDriver;
+import static uk.co.real_logic.artio.Timing.assertEventuallyTrue;
+import static uk.co.real_logic.artio.dictionary.SessionConstants.HEARTBEAT_MESSAGE_TYPE;
+import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_ARCHIVE_SCANNER_STREAM;
 import static uk.co.real_logic.artio.system_tests.SystemTestUtil.*;
 
 public class ArchiveScannerIntegrationTest extends AbstractGatewayToGatewaySystemTest
@@ -41,7 +50,9 @@ public class ArchiveScannerIntegrationTest extends AbstractGatewayToGatewaySyste
 
         mediaDriver = launchMediaDriver();
 
-        launchAcceptingEngine();
+        acceptingEngine = FixEngine.launch(acceptingConfig(port, ACCEPTOR_ID, INITIATOR_ID)
+            .timeIndex(true)
+            .secondaryIndex(true));
         initiatingEngine = launchInitiatingEngine(libraryAeronPort);
 
         final LibraryConfiguration acceptingLibraryConfig = acceptingLibraryConfig(acceptingHandler);
@@ -91,6 +102,41 @@ public class ArchiveScannerIntegrationTest extends AbstractGatewayToGatewaySyste
         assertArchiveContainsMessages("hi");
     }
 
+    @Test
+    public void canScanArchiveUsingSecondaryIndex()
+    {
+        setupAndExchangeMessages();
+
+        final EngineConfiguration configuration = acceptingEngine.configuration();
+        final FixArchiveScanner.Context context = new FixArchiveScanner.Context()
+            .aeronDirectoryName(configuration.aeronContext().aeronDirectoryName())
+            .idleStrategy(CommonConfiguration.backoffIdleStrategy())
+            .logFileDir(configuration.logFileDir());
+
+        final List<String> messages = new ArrayList<>();
+        try (FixArchiveScanner scanner = new FixArchiveScanner(context))
+        {
+            assertEventuallyTrue("Failed to find the heartbeat using the secondary index", () ->
+            {
+                messages.clear();
+                scanner.scan(
+                    configuration.libraryAeronChannel(),
+                    configuration.outboundLibraryStream(),
+                    (message, buffer, offset, length, header) -> messages.add(message.body()),
+                    DEFAULT_ARCHIVE_SCANNER_STREAM,
+                    new long[]{ HEARTBEAT_MESSAGE_TYPE },
+                    new long[0],
+                    Long.MIN_VALUE,
+                    Long.MAX_VALUE);
+
+                return !messages.isEmpty();
+            });
+        }
+
+        assertThat(messages.toString(), messages, hasItem(Matchers.containsString("\001112=hi")));
+        assertThat(messages.toString(), messages, everyItem(Matchers.containsString("\00135=0\001")));
+    }
+
     private void setupAndExchangeMessages()
     {
         messagesCanBeExchanged();